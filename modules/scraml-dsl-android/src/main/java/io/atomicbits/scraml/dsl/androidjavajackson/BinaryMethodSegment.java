@@ -41,10 +41,25 @@ public class BinaryMethodSegment<B> extends MethodSegment<B, BinaryData> {
                                BinaryRequest binaryRequest,
                                String expectedAcceptHeader,
                                String expectedContentTypeHeader,
-                               RequestBuilder req,
+                               RequestPrefix req,
                                String canonicalContentType,
                                String canonicalResponseType) {
-        super(method, theBody, queryParams, queryString, formParams, multipartParams, binaryRequest, expectedAcceptHeader, expectedContentTypeHeader, req);
+        this(new PreparedRequest(method, expectedAcceptHeader, expectedContentTypeHeader), theBody, primitiveBody, queryParams,
+                queryString, formParams, multipartParams, binaryRequest, req, canonicalContentType, canonicalResponseType);
+    }
+
+    public BinaryMethodSegment(PreparedRequest preparedRequest,
+                               B theBody,
+                               Boolean primitiveBody,
+                               Map<String, HttpParam> queryParams,
+                               TypedQueryParams queryString,
+                               Map<String, HttpParam> formParams,
+                               List<BodyPart> multipartParams,
+                               BinaryRequest binaryRequest,
+                               RequestPrefix req,
+                               String canonicalContentType,
+                               String canonicalResponseType) {
+        super(preparedRequest, theBody, queryParams, queryString, formParams, multipartParams, binaryRequest, req);
 
         this.canonicalContentType = canonicalContentType;
         this.primitiveBody = primitiveBody;
@@ -54,7 +69,7 @@ public class BinaryMethodSegment<B> extends MethodSegment<B, BinaryData> {
         if (this.primitiveBody) {
             getRequestBuilder().callToBinaryResponse(getPlainStringBody(), callback);
         } else {
-            getRequestBuilder().callToBinaryResponse(jsonBodyToString(canonicalContentType), callback);
+            getRequestBuilder().callToBinaryResponse(jsonBodyWriter(canonicalContentType), callback);
         }
     }
 
@@ -52,6 +52,14 @@ public abstract class BinaryRequest {
         return new InputStreamBinaryRequest(inputStream);
     }
 
+    public static BinaryRequest create(InputStream inputStream, long contentLength) {
+        return new InputStreamBinaryRequest(inputStream, contentLength, null);
+    }
+
+    public static BinaryRequest create(InputStream inputStream, long contentLength, UploadProgress progress) {
+        return new InputStreamBinaryRequest(inputStream, contentLength, progress);
+    }
+
     public static BinaryRequest create(byte[] bytes) {
         return new ByteArrayBinaryRequest(bytes);
     }
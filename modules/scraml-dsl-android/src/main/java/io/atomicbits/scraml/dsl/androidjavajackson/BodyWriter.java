@@ -0,0 +1,53 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * A request body that can write itself directly to the transport, without first being rendered as a String.
+ * <p>
+ * A body writer may be written more than once, e.g. when the transport retries the request.
+ */
+public interface BodyWriter {
+
+    /**
+     * Write the body to the given output stream. The output stream is not closed.
+     *
+     * @param outputStream The stream to write to.
+     * @param charset      The charset of the request body.
+     */
+    void writeTo(OutputStream outputStream, Charset charset) throws IOException;
+
+    /**
+     * @param charset The charset of the request body.
+     * @return The encoded body.
+     */
+    byte[] writeToBytes(Charset charset);
+
+    /**
+     * The body as a String, for clients that only support String bodies.
+     */
+    String writeToString();
+
+}
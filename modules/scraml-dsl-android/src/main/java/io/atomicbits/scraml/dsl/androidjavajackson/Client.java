@@ -35,6 +35,15 @@ public interface Client {
 
     <R> void callToTypeResponse(RequestBuilder requestBuilder, String body, String canonicalResponseType, Callback<R> callback);
 
+    /**
+     * The body writer variants let the client write the body straight into its transport.
+     */
+    void callToStringResponse(RequestBuilder requestBuilder, BodyWriter body, Callback<String> callback);
+
+    void callToBinaryResponse(RequestBuilder requestBuilder, BodyWriter body, Callback<BinaryData> callback);
+
+    <R> void callToTypeResponse(RequestBuilder requestBuilder, BodyWriter body, String canonicalResponseType, Callback<R> callback);
+
     ClientConfig getConfig();
 
     Map<String, String> getDefaultHeaders();
@@ -25,17 +25,18 @@ package io.atomicbits.scraml.dsl.androidjavajackson;
  */
 public class HeaderSegment extends Segment {
 
-    protected RequestBuilder _requestBuilder = new RequestBuilder();
+    protected final RequestPrefix _requestPrefix;
 
-    public HeaderSegment(){}
+    public HeaderSegment() {
+        this._requestPrefix = new RequestPrefix();
+    }
 
-    public HeaderSegment(RequestBuilder parentRequestBuilder) {
-        this._requestBuilder.setParentRequestBuilder(parentRequestBuilder);
+    public HeaderSegment(RequestPrefix requestPrefix) {
+        this._requestPrefix = requestPrefix;
     }
 
-    @Override
-    protected RequestBuilder getRequestBuilder() {
-        return this._requestBuilder;
+    protected RequestPrefix getRequestPrefix() {
+        return this._requestPrefix;
     }
 
 }
@@ -28,15 +28,36 @@ import java.io.InputStream;
 public class InputStreamBinaryRequest extends BinaryRequest {
 
     private final InputStream inputStream;
+    private final long contentLength;
+    private final UploadProgress progress;
 
     public InputStreamBinaryRequest(InputStream inputStream) {
+        this(inputStream, -1L, null);
+    }
+
+    /**
+     * @param inputStream   The stream to upload, it is read while the request is sent.
+     * @param contentLength The exact number of bytes in the stream, or -1 when it's unknown and the body is sent in chunks.
+     * @param progress      Receives the progress of the upload, may be null.
+     */
+    public InputStreamBinaryRequest(InputStream inputStream, long contentLength, UploadProgress progress) {
         this.inputStream = inputStream;
+        this.contentLength = contentLength;
+        this.progress = progress;
     }
 
     public InputStream getInputStream() {
         return inputStream;
     }
 
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public UploadProgress getProgress() {
+        return progress;
+    }
+
     public boolean isInputStream() {
         return true;
     }
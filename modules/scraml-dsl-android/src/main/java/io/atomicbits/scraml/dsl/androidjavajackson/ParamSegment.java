@@ -25,24 +25,26 @@ package io.atomicbits.scraml.dsl.androidjavajackson;
  */
 public abstract class ParamSegment<T> extends Segment {
 
-    // We have to initialize it empty and fill it in later to get the resource segments initialized as fields and not methods.
-    protected RequestBuilder _requestBuilder = new RequestBuilder();
+    protected final RequestPrefix _requestPrefix;
 
-    public ParamSegment(){}
+    public ParamSegment() {
+        this._requestPrefix = new RequestPrefix();
+    }
+
+    public ParamSegment(RequestPrefix requestPrefix) {
+        this._requestPrefix = requestPrefix;
+    }
 
-    public ParamSegment(RequestBuilder parentRequestBuilder){
-        this._requestBuilder.setParentRequestBuilder(parentRequestBuilder);
+    public ParamSegment(T value, RequestPrefix parentRequestPrefix) {
+        this(value, null, parentRequestPrefix);
     }
 
-    public ParamSegment(T value, RequestBuilder parentRequestBuilder) {
-        // The preceding part of the path will be prepended on fold().
-        this._requestBuilder.appendPathElement(value.toString());
-        this._requestBuilder.setParentRequestBuilder(parentRequestBuilder);
+    public ParamSegment(T value, String parameterName, RequestPrefix parentRequestPrefix) {
+        this._requestPrefix = parentRequestPrefix.withPathParameter(parameterName, value.toString());
     }
 
-    @Override
-    protected RequestBuilder getRequestBuilder() {
-        return this._requestBuilder;
+    protected RequestPrefix getRequestPrefix() {
+        return this._requestPrefix;
     }
 
 }
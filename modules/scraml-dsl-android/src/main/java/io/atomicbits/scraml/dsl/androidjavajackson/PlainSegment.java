@@ -25,25 +25,22 @@ package io.atomicbits.scraml.dsl.androidjavajackson;
  */
 public class PlainSegment extends Segment {
 
-    // We have to initialize it empty and fill it in later to get the resource segments initialized as fields and not methods.
-    protected RequestBuilder _requestBuilder = new RequestBuilder();
+    protected final RequestPrefix _requestPrefix;
 
-    public PlainSegment(){}
+    public PlainSegment() {
+        this._requestPrefix = new RequestPrefix();
+    }
 
-    public PlainSegment(RequestBuilder parentRequestBuilder){
-        this._requestBuilder.setParentRequestBuilder(parentRequestBuilder);
+    public PlainSegment(RequestPrefix requestPrefix) {
+        this._requestPrefix = requestPrefix;
     }
 
-    public PlainSegment(String pathElement, RequestBuilder parentRequestBuilder) {
-        // The parent will be initialized later, so we have to wait to initialize our request builder until the parent
-        // has been initialized.
-        this._requestBuilder.appendPathElement(pathElement);
-        this._requestBuilder.setParentRequestBuilder(parentRequestBuilder);
+    public PlainSegment(String pathElement, RequestPrefix parentRequestPrefix) {
+        this._requestPrefix = parentRequestPrefix.withPathElement(pathElement);
     }
 
-    @Override
-    protected RequestBuilder getRequestBuilder() {
-        return this._requestBuilder;
+    protected RequestPrefix getRequestPrefix() {
+        return this._requestPrefix;
     }
 
 }
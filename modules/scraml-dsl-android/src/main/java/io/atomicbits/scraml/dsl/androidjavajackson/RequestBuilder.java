@@ -34,15 +34,14 @@ public class RequestBuilder {
 
     private Client client;
     private List<String> path = new ArrayList<String>();
+    private String relativePath;
+    private String resourcePathTemplate;
     private Method method = Method.GET;
     private Map<String, HttpParam> queryParameters = new HashMap<String, HttpParam>();
     private Map<String, HttpParam> formParameters = new HashMap<String, HttpParam>();
     private List<BodyPart> multipartParams = new ArrayList<BodyPart>(1);
     private BinaryRequest binaryRequest = null;
     private HeaderMap headerMap = new HeaderMap();
-    private List<HeaderOp> headerOps = new ArrayList<>(1);
-
-    RequestBuilder parentRequestBuilder;
 
 
     public RequestBuilder() {
@@ -53,47 +52,6 @@ public class RequestBuilder {
     }
 
 
-    /**
-     * Fold all properties of this requestbuilder's parents and itself recursively into a new requestbuilder.
-     */
-    public RequestBuilder fold() {
-        RequestBuilder folded;
-        if (getParentRequestBuilder() != null) {
-            folded = getParentRequestBuilder().fold();
-        } else {
-            folded = new RequestBuilder();
-        }
-        if (getClient() != null) {
-            folded.setClient(getClient());
-        }
-        // Java 1.7 specific
-        for (String pathElement : path) {
-            folded.appendPathElement(pathElement);
-        }
-        if (method != null) {
-            folded.setMethod(method);
-        }
-        // Java 1.7 specific
-        for (Map.Entry<String, HttpParam> entry : queryParameters.entrySet()) {
-            folded.addQueryParameter(entry.getKey(), entry.getValue());
-        }
-        // Java 1.7 specific
-        for (Map.Entry<String, HttpParam> entry : formParameters.entrySet()) {
-            folded.addFormParameter(entry.getKey(), entry.getValue());
-        }
-        // Java 1.7 specific
-        for (BodyPart bodyPart : multipartParams) {
-            folded.addMultipartParameter(bodyPart);
-        }
-        if (binaryRequest != null) {
-            folded.setBinaryRequest(binaryRequest);
-        }
-        for (HeaderOp headerOp : this.getHeaderOps()) {
-            headerOp.process(folded.getHeaderMap());
-        }
-        return folded;
-    }
-
     public Client getClient() {
         return client;
     }
@@ -106,18 +64,46 @@ public class RequestBuilder {
         return headerMap;
     }
 
-    public List<HeaderOp> getHeaderOps() {
-        return headerOps;
+    public void setHeaderMap(HeaderMap headerMap) {
+        if (headerMap == null) {
+            this.headerMap = new HeaderMap();
+        } else {
+            this.headerMap = headerMap;
+        }
     }
 
+    /**
+     * @deprecated Request builders no longer have parent builders to fold, the resources share a RequestPrefix instead.
+     * This returns a copy of this request builder.
+     */
+    @Deprecated
+    public RequestBuilder fold() {
+        RequestBuilder folded = new RequestBuilder(client);
+        folded.setPath(new ArrayList<String>(path), relativePath);
+        folded.setResourcePathTemplate(resourcePathTemplate);
+        folded.setMethod(method);
+        folded.setQueryParameters(new HashMap<String, HttpParam>(queryParameters));
+        folded.setFormParameters(new HashMap<String, HttpParam>(formParameters));
+        folded.setMultipartParams(new ArrayList<BodyPart>(multipartParams));
+        folded.setBinaryRequest(binaryRequest);
+        folded.setHeaderMap(headerMap.cloned());
+        return folded;
+    }
+
+    /**
+     * @deprecated Use getHeaderMap().addHeader(key, value), the header is now added right away instead of on fold().
+     */
+    @Deprecated
     public void addHeader(String key, String value) {
-        HeaderAdd headerAdd = new HeaderAdd(key, value);
-        getHeaderOps().add(headerAdd);
+        getHeaderMap().addHeader(key, value);
     }
 
+    /**
+     * @deprecated Use getHeaderMap().setHeader(key, value), the header is now set right away instead of on fold().
+     */
+    @Deprecated
     public void setHeader(String key, String value) {
-        HeaderSet headerSet = new HeaderSet(key, value);
-        getHeaderOps().add(headerSet);
+        getHeaderMap().setHeader(key, value);
     }
 
     public Method getMethod() {
@@ -144,14 +130,6 @@ public class RequestBuilder {
         return path;
     }
 
-    public RequestBuilder getParentRequestBuilder() {
-        return parentRequestBuilder;
-    }
-
-    public void setParentRequestBuilder(RequestBuilder parentRequestBuilder) {
-        this.parentRequestBuilder = parentRequestBuilder;
-    }
-
     public void setClient(Client client) {
         this.client = client;
     }
@@ -183,6 +161,15 @@ public class RequestBuilder {
         } else {
             this.path = path;
         }
+        this.relativePath = null;
+    }
+
+    /**
+     * Set the path together with its already joined form, as kept by a RequestPrefix.
+     */
+    void setPath(List<String> path, String relativePath) {
+        setPath(path);
+        this.relativePath = relativePath;
     }
 
     public void setQueryParameters(Map<String, HttpParam> queryParameters) {
@@ -206,11 +193,30 @@ public class RequestBuilder {
     }
 
     public String getRelativePath() {
-        return ListUtils.mkString(path, "/");
+        if (relativePath == null) {
+            relativePath = ListUtils.mkString(path, "/");
+        }
+        return relativePath;
     }
 
     public void appendPathElement(String pathElement) {
         this.path.add(pathElement);
+        this.relativePath = null;
+    }
+
+    /**
+     * The RAML resource path this request was built for, e.g. '/users/{userId}'. Request interceptors use it to group
+     * requests per endpoint. Falls back to the actual path when the request wasn't built from a RequestPrefix.
+     */
+    public String getResourcePathTemplate() {
+        if (resourcePathTemplate == null) {
+            return "/" + getRelativePath();
+        }
+        return resourcePathTemplate;
+    }
+
+    public void setResourcePathTemplate(String resourcePathTemplate) {
+        this.resourcePathTemplate = resourcePathTemplate;
     }
 
     public void callToStringResponse(String body, Callback<String> callback) {
@@ -225,12 +231,24 @@ public class RequestBuilder {
         client.callToTypeResponse(this, body, canonicalResponseType, callback);
     }
 
+    public void callToStringResponse(BodyWriter body, Callback<String> callback) {
+        client.callToStringResponse(this, body, callback);
+    }
+
+    public void callToBinaryResponse(BodyWriter body, Callback<BinaryData> callback) {
+        client.callToBinaryResponse(this, body, callback);
+    }
+
+    public <R> void callToTypeResponse(BodyWriter body, String canonicalResponseType, Callback<R> callback) {
+        client.callToTypeResponse(this, body, canonicalResponseType, callback);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("client:\t\t" + client + "\n");
         sb.append("path:\t\t" + listToString(path) + "\n");
-        sb.append("parent:\t\t" + parentRequestBuilder);
+        sb.append("headers:\t" + headerMap.getHeaders());
         return sb.toString();
     }
 
@@ -0,0 +1,180 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The immutable part of a request that is shared by a resource and all of its children: the path segments, the headers
+ * and the client.
+ *
+ * Extending a prefix with a path element keeps a reference to its parent instead of copying it, and the headers are
+ * merged once when a header is added, so building the request for an action needs no walk over the resource chain.
+ * Resources hold a prefix instead of a mutable request builder, which makes them safe to cache and share across threads.
+ */
+public final class RequestPrefix {
+
+    // The client is only known after the resource fields of the client class have been initialized, so the whole
+    // prefix tree shares one reference to it.
+    private final AtomicReference<Client> client;
+    private final RequestPrefix parent;
+    private final String pathElement;
+    private final String pathTemplateElement;
+    private final int pathSize;
+    private final HeaderMap headerMap;
+    private volatile String relativePath;
+    private volatile String resourcePathTemplate;
+
+
+    public RequestPrefix() {
+        this(new AtomicReference<Client>(), null, null, null, 0, new HeaderMap());
+    }
+
+    public RequestPrefix(Client client) {
+        this();
+        setClient(client);
+    }
+
+    private RequestPrefix(AtomicReference<Client> client,
+                          RequestPrefix parent,
+                          String pathElement,
+                          String pathTemplateElement,
+                          int pathSize,
+                          HeaderMap headerMap) {
+        this.client = client;
+        this.parent = parent;
+        this.pathElement = pathElement;
+        this.pathTemplateElement = pathTemplateElement;
+        this.pathSize = pathSize;
+        this.headerMap = headerMap;
+    }
+
+
+    public RequestPrefix withPathElement(String pathElement) {
+        return new RequestPrefix(client, this, pathElement, pathElement, pathSize + 1, headerMap);
+    }
+
+    /**
+     * Extend the path with the value of a path parameter. The parameter name shows up as '{name}' in the resource path
+     * template that is handed to the request interceptors.
+     */
+    public RequestPrefix withPathParameter(String parameterName, String value) {
+        String templateElement = parameterName != null ? "{" + parameterName + "}" : "{}";
+        return new RequestPrefix(client, this, value, templateElement, pathSize + 1, headerMap);
+    }
+
+    public RequestPrefix withAddedHeader(String key, String value) {
+        return withHeaderOp(new HeaderAdd(key, value));
+    }
+
+    public RequestPrefix withSetHeader(String key, String value) {
+        return withHeaderOp(new HeaderSet(key, value));
+    }
+
+    private RequestPrefix withHeaderOp(HeaderOp headerOp) {
+        HeaderMap merged = headerMap.cloned();
+        headerOp.process(merged);
+        // Same path, other headers.
+        return new RequestPrefix(client, parent, pathElement, pathTemplateElement, pathSize, merged);
+    }
+
+    /**
+     * Create a fresh request builder for an action on this prefix. The builder gets its own copy of the headers, the
+     * prefix itself is never modified.
+     */
+    public RequestBuilder toRequestBuilder() {
+        RequestBuilder requestBuilder = new RequestBuilder(getClient());
+        requestBuilder.setPath(getPath(), getRelativePath());
+        requestBuilder.setHeaderMap(headerMap.cloned());
+        requestBuilder.setResourcePathTemplate(getResourcePathTemplate());
+        return requestBuilder;
+    }
+
+    public Client getClient() {
+        return client.get();
+    }
+
+    /**
+     * Set the client for the whole prefix tree. This is done once by the client class, after its resources have been
+     * created.
+     */
+    public void setClient(Client client) {
+        this.client.set(client);
+    }
+
+    public List<String> getPath() {
+        String[] path = new String[pathSize];
+        RequestPrefix node = this;
+        for (int i = pathSize - 1; i >= 0; i--) {
+            path[i] = node.pathElement;
+            node = node.parent;
+        }
+        return new ArrayList<String>(Arrays.asList(path));
+    }
+
+    /**
+     * The path elements joined by slashes, computed once per prefix.
+     */
+    public String getRelativePath() {
+        String path = relativePath;
+        if (path == null) {
+            if (parent == null || parent.pathSize == 0) {
+                path = pathElement != null ? pathElement : "";
+            } else {
+                path = parent.getRelativePath() + "/" + pathElement;
+            }
+            relativePath = path;
+        }
+        return path;
+    }
+
+    /**
+     * The RAML resource path of this prefix, e.g. '/users/{userId}/orders', computed once per prefix.
+     */
+    public String getResourcePathTemplate() {
+        String template = resourcePathTemplate;
+        if (template == null) {
+            if (parent == null || parent.pathSize == 0) {
+                template = "/" + (pathTemplateElement != null ? pathTemplateElement : "");
+            } else {
+                template = parent.getResourcePathTemplate() + "/" + pathTemplateElement;
+            }
+            resourcePathTemplate = template;
+        }
+        return template;
+    }
+
+    /**
+     * The merged headers of this prefix. Don't modify the returned map, use toRequestBuilder() to get a modifiable copy.
+     */
+    public HeaderMap getHeaderMap() {
+        return headerMap;
+    }
+
+    @Override
+    public String toString() {
+        return "client: " + getClient() + ", path: " + getPath() + ", headers: " + headerMap.getHeaders();
+    }
+
+}
@@ -41,10 +41,25 @@ public class StringMethodSegment<B> extends MethodSegment<B, String> {
                                BinaryRequest binaryRequest,
                                String expectedAcceptHeader,
                                String expectedContentTypeHeader,
-                               RequestBuilder req,
+                               RequestPrefix req,
                                String canonicalContentType,
                                String canonicalResponseType) {
-        super(method, theBody, queryParams, queryString, formParams, multipartParams, binaryRequest, expectedAcceptHeader, expectedContentTypeHeader, req);
+        this(new PreparedRequest(method, expectedAcceptHeader, expectedContentTypeHeader), theBody, primitiveBody, queryParams,
+                queryString, formParams, multipartParams, binaryRequest, req, canonicalContentType, canonicalResponseType);
+    }
+
+    public StringMethodSegment(PreparedRequest preparedRequest,
+                               B theBody,
+                               Boolean primitiveBody,
+                               Map<String, HttpParam> queryParams,
+                               TypedQueryParams queryString,
+                               Map<String, HttpParam> formParams,
+                               List<BodyPart> multipartParams,
+                               BinaryRequest binaryRequest,
+                               RequestPrefix req,
+                               String canonicalContentType,
+                               String canonicalResponseType) {
+        super(preparedRequest, theBody, queryParams, queryString, formParams, multipartParams, binaryRequest, req);
 
         this.canonicalContentType = canonicalContentType;
         this.primitiveBody = primitiveBody;
@@ -54,7 +69,7 @@ public class StringMethodSegment<B> extends MethodSegment<B, String> {
         if (this.primitiveBody) {
             getRequestBuilder().callToStringResponse(getPlainStringBody(), callback);
         } else {
-            getRequestBuilder().callToStringResponse(jsonBodyToString(canonicalContentType), callback);
+            getRequestBuilder().callToStringResponse(jsonBodyWriter(canonicalContentType), callback);
         }
     }
 
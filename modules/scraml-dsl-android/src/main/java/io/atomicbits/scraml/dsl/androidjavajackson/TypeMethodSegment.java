@@ -20,6 +20,9 @@
 
 package io.atomicbits.scraml.dsl.androidjavajackson;
 
+import io.atomicbits.scraml.dsl.androidjavajackson.json.Json;
+import io.atomicbits.scraml.dsl.androidjavajackson.json.JsonCodec;
+
 import java.util.List;
 import java.util.Map;
 
@@ -28,8 +31,8 @@ import java.util.Map;
  */
 public class TypeMethodSegment<B, R> extends MethodSegment<B, R> {
 
-    private String canonicalContentType;
-    private String canonicalResponseType;
+    private JsonCodec contentCodec;
+    private JsonCodec responseCodec;
     private Boolean primitiveBody;
 
     public TypeMethodSegment(Method method,
@@ -42,21 +45,59 @@ public class TypeMethodSegment<B, R> extends MethodSegment<B, R> {
                              BinaryRequest binaryRequest,
                              String expectedAcceptHeader,
                              String expectedContentTypeHeader,
-                             RequestBuilder req,
+                             RequestPrefix req,
                              String canonicalContentType,
                              String canonicalResponseType) {
-        super(method, theBody, queryParams, queryString, formParams, multipartParams, binaryRequest, expectedAcceptHeader, expectedContentTypeHeader, req);
+        this(method, theBody, primitiveBody, queryParams, queryString, formParams, multipartParams, binaryRequest, expectedAcceptHeader,
+                expectedContentTypeHeader, req, Json.codecFor(canonicalContentType), Json.codecFor(canonicalResponseType));
+    }
+
+    /**
+     * Create the segment with precompiled codecs, generated resource classes hold these codecs as constants.
+     */
+    public TypeMethodSegment(Method method,
+                             B theBody,
+                             Boolean primitiveBody,
+                             Map<String, HttpParam> queryParams,
+                             TypedQueryParams queryString,
+                             Map<String, HttpParam> formParams,
+                             List<BodyPart> multipartParams,
+                             BinaryRequest binaryRequest,
+                             String expectedAcceptHeader,
+                             String expectedContentTypeHeader,
+                             RequestPrefix req,
+                             JsonCodec contentCodec,
+                             JsonCodec responseCodec) {
+        this(new PreparedRequest(method, expectedAcceptHeader, expectedContentTypeHeader), theBody, primitiveBody, queryParams,
+                queryString, formParams, multipartParams, binaryRequest, req, contentCodec, responseCodec);
+    }
+
+    /**
+     * Create the segment from the prepared request and the precompiled codecs that generated resource classes hold as constants.
+     */
+    public TypeMethodSegment(PreparedRequest preparedRequest,
+                             B theBody,
+                             Boolean primitiveBody,
+                             Map<String, HttpParam> queryParams,
+                             TypedQueryParams queryString,
+                             Map<String, HttpParam> formParams,
+                             List<BodyPart> multipartParams,
+                             BinaryRequest binaryRequest,
+                             RequestPrefix req,
+                             JsonCodec contentCodec,
+                             JsonCodec responseCodec) {
+        super(preparedRequest, theBody, queryParams, queryString, formParams, multipartParams, binaryRequest, req);
 
-        this.canonicalContentType = canonicalContentType;
-        this.canonicalResponseType = canonicalResponseType;
+        this.contentCodec = contentCodec;
+        this.responseCodec = responseCodec;
         this.primitiveBody = primitiveBody;
     }
 
     public void call(Callback<R> callback) {
         if (this.primitiveBody) {
-            getRequestBuilder().callToTypeResponse(getPlainStringBody(), canonicalResponseType, callback);
+            getRequestBuilder().callToTypeResponse(getPlainStringBody(), responseCodec.getCanonicalType(), callback);
         } else {
-            getRequestBuilder().callToTypeResponse(jsonBodyToString(canonicalContentType), canonicalResponseType, callback);
+            getRequestBuilder().callToTypeResponse(jsonBodyWriter(contentCodec), responseCodec.getCanonicalType(), callback);
         }
     }
 
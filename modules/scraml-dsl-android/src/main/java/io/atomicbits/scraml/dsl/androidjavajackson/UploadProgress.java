@@ -0,0 +1,37 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson;
+
+/**
+ * Receives the progress of a streamed upload.
+ */
+public interface UploadProgress {
+
+    /**
+     * Called each time a chunk of the body has been handed to the transport. It's called on the thread that sends the request, so it
+     * must return quickly.
+     *
+     * @param bytesWritten  The number of body bytes written so far.
+     * @param contentLength The size of the body when the caller supplied it, or -1 if it's unknown.
+     */
+    void onProgress(long bytesWritten, long contentLength);
+
+}
@@ -0,0 +1,321 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.client;
+
+import io.atomicbits.scraml.dsl.androidjavajackson.Method;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fails requests fast while a host (or an endpoint on a host) is known to be failing, instead of letting every request wait
+ * for its connect or request timeout.
+ *
+ * Each circuit keeps the outcome of its last calls in a sliding window. A call fails when it throws or gets a 5xx response,
+ * it is slow when it takes longer than the slow call duration. Once the window holds the minimum number of calls and the
+ * failure rate or the slow call rate reaches its threshold, the circuit opens and requests are rejected with a
+ * {@link CircuitBreakerOpenException} without being sent. After the open duration a limited number of probe requests is let
+ * through (half-open). The circuit closes again when all probes succeed, and opens again on the first failing probe.
+ *
+ * Circuits are kept per host, or per host, method and RAML resource path when perEndpoint is set.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private int windowSize = 20;
+    private int minimumCalls = 10;
+    private int failureRateThreshold = 50;
+    private int slowCallRateThreshold = 100;
+    private long slowCallDurationMillis = 10000;
+    private long openDurationMillis = 10000;
+    private int halfOpenCalls = 3;
+    private boolean perEndpoint = false;
+
+    private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    /**
+     * Get permission to send a request.
+     *
+     * @param host The host and port of the request.
+     * @param method The method of the request.
+     * @param resourcePath The RAML resource path of the request.
+     * @return The permit on which the outcome of the request must be recorded.
+     * @throws CircuitBreakerOpenException when the circuit is open.
+     */
+    public Permit acquire(String host, Method method, String resourcePath) {
+        String key = perEndpoint ? host + " " + method + " " + resourcePath : host;
+        Circuit circuit = circuits.get(key);
+        if (circuit == null) {
+            Circuit newCircuit = new Circuit(windowSize);
+            circuit = circuits.putIfAbsent(key, newCircuit);
+            if (circuit == null) {
+                circuit = newCircuit;
+            }
+        }
+        long generation = circuit.tryAcquire();
+        if (generation < 0) {
+            throw new CircuitBreakerOpenException("The circuit breaker for " + key + " is open.");
+        }
+        return new Permit(circuit, generation);
+    }
+
+    /**
+     * @return The current state of all circuits by key.
+     */
+    public Map<String, State> getStates() {
+        Map<String, State> states = new TreeMap<>();
+        for (Map.Entry<String, Circuit> circuit : circuits.entrySet()) {
+            states.put(circuit.getKey(), circuit.getValue().getState());
+        }
+        return states;
+    }
+
+    public void reset() {
+        circuits.clear();
+    }
+
+    /**
+     * The permission to send a single request.
+     */
+    public static final class Permit {
+
+        private final Circuit circuit;
+        private final long generation;
+        private final long start;
+
+        private Permit(Circuit circuit, long generation) {
+            this.circuit = circuit;
+            this.generation = generation;
+            this.start = System.nanoTime();
+        }
+
+        public void onSuccess() {
+            circuit.record(generation, System.nanoTime() - start, false);
+        }
+
+        public void onFailure() {
+            circuit.record(generation, System.nanoTime() - start, true);
+        }
+
+    }
+
+    private static final int FAILED = 1;
+    private static final int SLOW = 2;
+
+    /**
+     * The state of a single circuit. The generation changes on every state transition, so that the outcome of a call that
+     * was started in an earlier state doesn't count.
+     */
+    private final class Circuit {
+
+        private final byte[] outcomes;
+        private int next;
+        private int calls;
+        private int failures;
+        private int slowCalls;
+
+        private State state = State.CLOSED;
+        private long generation;
+        private long openedAtNanos;
+        private int probesStarted;
+        private int probesSucceeded;
+
+        Circuit(int windowSize) {
+            this.outcomes = new byte[windowSize];
+        }
+
+        synchronized State getState() {
+            return state;
+        }
+
+        synchronized long tryAcquire() {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAtNanos < TimeUnit.MILLISECONDS.toNanos(openDurationMillis)) {
+                    return -1;
+                }
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesStarted >= halfOpenCalls) {
+                    return -1;
+                }
+                probesStarted++;
+            }
+            return generation;
+        }
+
+        synchronized void record(long callGeneration, long elapsedNanos, boolean failed) {
+            if (callGeneration != generation) {
+                return;
+            }
+            boolean slow = elapsedNanos > TimeUnit.MILLISECONDS.toNanos(slowCallDurationMillis);
+            if (state == State.HALF_OPEN) {
+                if (failed || slow) {
+                    transitionTo(State.OPEN);
+                } else if (++probesSucceeded >= halfOpenCalls) {
+                    transitionTo(State.CLOSED);
+                }
+                return;
+            }
+
+            int outcome = (failed ? FAILED : 0) | (slow ? SLOW : 0);
+            if (calls == outcomes.length) {
+                int evicted = outcomes[next];
+                failures -= evicted & FAILED;
+                slowCalls -= (evicted & SLOW) >> 1;
+            } else {
+                calls++;
+            }
+            outcomes[next] = (byte) outcome;
+            next = (next + 1) % outcomes.length;
+            failures += outcome & FAILED;
+            slowCalls += (outcome & SLOW) >> 1;
+
+            if (calls >= minimumCalls &&
+                    (failures * 100 >= failureRateThreshold * calls || slowCalls * 100 >= slowCallRateThreshold * calls)) {
+                transitionTo(State.OPEN);
+            }
+        }
+
+        private void transitionTo(State newState) {
+            state = newState;
+            generation++;
+            next = 0;
+            calls = 0;
+            failures = 0;
+            slowCalls = 0;
+            probesStarted = 0;
+            probesSucceeded = 0;
+            if (newState == State.OPEN) {
+                openedAtNanos = System.nanoTime();
+            }
+        }
+
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * The number of most recent calls on which the failure and slow call rates are computed. Applies to new circuits.
+     *
+     * @throws IllegalArgumentException when the window is smaller than the minimum number of calls, the circuit could never
+     *                                  open then. Lower the minimum number of calls first when shrinking the window below it.
+     */
+    public void setWindowSize(int windowSize) {
+        if (windowSize < 1 || windowSize < minimumCalls) {
+            throw new IllegalArgumentException("Expected 1 <= minimumCalls (" + minimumCalls + ") <= windowSize (" + windowSize + ").");
+        }
+        this.windowSize = windowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    /**
+     * The number of calls a circuit needs before it can open.
+     *
+     * @throws IllegalArgumentException when it exceeds the window size.
+     */
+    public void setMinimumCalls(int minimumCalls) {
+        if (minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("Expected 1 <= minimumCalls (" + minimumCalls + ") <= windowSize (" + windowSize + ").");
+        }
+        this.minimumCalls = minimumCalls;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * The percentage of failed calls at which the circuit opens.
+     */
+    public void setFailureRateThreshold(int failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public int getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    /**
+     * The percentage of slow calls at which the circuit opens.
+     */
+    public void setSlowCallRateThreshold(int slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public long getSlowCallDurationMillis() {
+        return slowCallDurationMillis;
+    }
+
+    public void setSlowCallDurationMillis(long slowCallDurationMillis) {
+        this.slowCallDurationMillis = slowCallDurationMillis;
+    }
+
+    public long getOpenDurationMillis() {
+        return openDurationMillis;
+    }
+
+    /**
+     * How long an open circuit rejects requests before it lets the probes through.
+     */
+    public void setOpenDurationMillis(long openDurationMillis) {
+        this.openDurationMillis = openDurationMillis;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    /**
+     * The number of probe requests in the half-open state.
+     */
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        if (halfOpenCalls < 1) {
+            throw new IllegalArgumentException("The number of half-open calls must be positive.");
+        }
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    public boolean isPerEndpoint() {
+        return perEndpoint;
+    }
+
+    /**
+     * Keep a circuit per host, method and RAML resource path instead of per host.
+     */
+    public void setPerEndpoint(boolean perEndpoint) {
+        this.perEndpoint = perEndpoint;
+    }
+
+}
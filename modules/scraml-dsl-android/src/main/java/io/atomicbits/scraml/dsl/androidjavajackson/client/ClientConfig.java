@@ -24,6 +24,8 @@ import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.X509TrustManager;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by peter on 18/09/15.
@@ -43,6 +45,11 @@ public class ClientConfig {
     private SSLContext sslContext = null;
     private X509TrustManager trustManager = null;
     private HostnameVerifier hostnameVerifier = null;
+    private Boolean streamingRequestEncoding = false;
+    private List<RequestInterceptor> interceptors = new ArrayList<RequestInterceptor>();
+    private RetryPolicy retryPolicy;
+    private CircuitBreaker circuitBreaker;
+    private Compression compression;
 
     public ClientConfig() {
     }
@@ -175,4 +182,74 @@ public class ClientConfig {
     public void setWriteTimeout(int writeTimeout) {
         this.writeTimeout = writeTimeout;
     }
+
+    /**
+     * When true, JSON request bodies are written straight into the connection while the request is being sent, using chunked
+     * transfer encoding. When false (the default), they are first written into a pooled buffer so that the content length is known.
+     */
+    public Boolean getStreamingRequestEncoding() {
+        return streamingRequestEncoding;
+    }
+
+    public void setStreamingRequestEncoding(Boolean streamingRequestEncoding) {
+        this.streamingRequestEncoding = streamingRequestEncoding;
+    }
+
+    /**
+     * The interceptors that are notified of every request, in the order in which they are called. The client takes a copy
+     * of this list when it is created.
+     */
+    public List<RequestInterceptor> getInterceptors() {
+        return interceptors;
+    }
+
+    public void setInterceptors(List<RequestInterceptor> interceptors) {
+        if (interceptors == null) {
+            this.interceptors = new ArrayList<RequestInterceptor>();
+        } else {
+            this.interceptors = interceptors;
+        }
+    }
+
+    public ClientConfig addInterceptor(RequestInterceptor interceptor) {
+        this.interceptors.add(interceptor);
+        return this;
+    }
+
+    /**
+     * An optional policy to retry and hedge requests with an idempotent method. Null (the default) means that only the
+     * connection level retries apply.
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * An optional circuit breaker that fails requests fast while their host or endpoint is failing. Null (the default)
+     * disables it.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Optional compression of request bodies and control over compressed responses. Null (the default) sends uncompressed request
+     * bodies and leaves OkHttp's transparent gzip of responses on.
+     */
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
 }
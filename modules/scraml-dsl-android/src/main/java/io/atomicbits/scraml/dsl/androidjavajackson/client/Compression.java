@@ -0,0 +1,133 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.client;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compression of request and response bodies.
+ *
+ * Responses: OkHttp asks for gzip and inflates a gzipped response body while it is read, unless compressed responses are not accepted.
+ * Requests: string and JSON request bodies of at least the request compression threshold are gzipped and sent with
+ * Content-Encoding: gzip. Request compression is off by default, only enable it for APIs that accept compressed requests.
+ *
+ * The Deflater instances hold native zlib memory that is expensive to allocate, they are pooled and reused. Share one Compression
+ * instance between the clients of an application to share its pool.
+ */
+public class Compression {
+
+    public static final int NO_REQUEST_COMPRESSION = -1;
+
+    private static final byte[] GZIP_HEADER = new byte[]{0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final boolean acceptCompressedResponses;
+    private final int requestCompressionThreshold;
+    private final int level;
+
+    private final BlockingQueue<Deflater> deflaters;
+
+    /**
+     * Accept compressed responses, don't compress requests.
+     */
+    public Compression() {
+        this(true, NO_REQUEST_COMPRESSION, Deflater.DEFAULT_COMPRESSION, 4);
+    }
+
+    /**
+     * Accept compressed responses and gzip request bodies of at least the given number of bytes.
+     */
+    public Compression(int requestCompressionThreshold) {
+        this(true, requestCompressionThreshold, Deflater.DEFAULT_COMPRESSION, 4);
+    }
+
+    /**
+     * @param acceptCompressedResponses   Whether to ask for compressed responses.
+     * @param requestCompressionThreshold The minimum size in bytes of a request body that is gzipped, or NO_REQUEST_COMPRESSION.
+     * @param level                       The deflate level (0-9) of request bodies, Deflater.DEFAULT_COMPRESSION is level 6.
+     * @param maxPooledCodecs             The maximum number of idle deflaters that are kept.
+     */
+    public Compression(boolean acceptCompressedResponses, int requestCompressionThreshold, int level, int maxPooledCodecs) {
+        this.acceptCompressedResponses = acceptCompressedResponses;
+        this.requestCompressionThreshold = requestCompressionThreshold;
+        this.level = level;
+        this.deflaters = new ArrayBlockingQueue<Deflater>(Math.max(1, maxPooledCodecs));
+    }
+
+    public boolean isAcceptCompressedResponses() {
+        return acceptCompressedResponses;
+    }
+
+    public int getRequestCompressionThreshold() {
+        return requestCompressionThreshold;
+    }
+
+    /**
+     * @return True if a request body of the given size must be gzipped.
+     */
+    public boolean compressRequest(long bodySize) {
+        return requestCompressionThreshold >= 0 && bodySize >= requestCompressionThreshold;
+    }
+
+    /**
+     * Gzip the given bytes with a pooled deflater.
+     */
+    public byte[] gzip(byte[] data) {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, true);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            out.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[Math.min(BUFFER_SIZE, Math.max(64, data.length))];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, data.length);
+            writeIntLE(out, (int) crc.getValue());
+            writeIntLE(out, data.length);
+            return out.toByteArray();
+        } finally {
+            deflater.reset();
+            if (!deflaters.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+
+}
@@ -0,0 +1,471 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.client;
+
+import io.atomicbits.scraml.dsl.androidjavajackson.Callback;
+import io.atomicbits.scraml.dsl.androidjavajackson.Method;
+import io.atomicbits.scraml.dsl.androidjavajackson.Response;
+import io.atomicbits.scraml.dsl.androidjavajackson.client.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Retries and hedges requests with an idempotent method (GET, HEAD, PUT and DELETE) on top of the connection level retries
+ * of the underlying HTTP client.
+ *
+ * A request is retried when it fails with an I/O error or a timeout, or when its response has one of the retryable status
+ * codes (by default 429, 502, 503 and 504). The backoff before a retry grows exponentially with full jitter, unless the
+ * response has a Retry-After header, which is honoured as long as it doesn't exceed the maximum backoff. A response whose
+ * Retry-After asks for a longer wait is returned as is.
+ *
+ * With hedging enabled, a second request is sent when the first one hasn't answered within the hedge percentile (p95 by
+ * default) of the recent latencies of the same endpoint, and the first good response wins. The percentile comes from a
+ * power-of-two histogram and is rounded up, which keeps the extra load of hedging low. An endpoint is only hedged once it
+ * has enough latency samples.
+ */
+public class RetryPolicy {
+
+    /**
+     * Sends the request once, it is called for every request that is sent.
+     */
+    public interface Attempt<R> {
+
+        /**
+         * @return The request that was sent, null when it can't be cancelled.
+         */
+        Cancellable send(Callback<R> callback);
+
+    }
+
+    /**
+     * A request that was sent, the request of a hedge that loses is cancelled.
+     */
+    public interface Cancellable {
+
+        void cancel();
+
+    }
+
+    private static final Set<Method> IDEMPOTENT_METHODS = EnumSet.of(Method.GET, Method.HEAD, Method.PUT, Method.DELETE);
+
+    private static final int MIN_HEDGE_SAMPLES = 20;
+
+    // ThreadLocalRandom needs Android API level 21.
+    private static final Random RANDOM = new Random();
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "scraml-retry-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    });
+
+    private int maxRetries = 2;
+    private long initialBackoffMillis = 50;
+    private long maxBackoffMillis = 2000;
+    private Set<Integer> retryStatusCodes = new HashSet<Integer>(Arrays.asList(429, 502, 503, 504));
+    private boolean honourRetryAfter = true;
+    private boolean hedging = false;
+    private double hedgePercentile = 95.0;
+    private long minHedgeDelayMillis = 5;
+
+    private final ConcurrentMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+
+    public RetryPolicy() {
+    }
+
+    public RetryPolicy(int maxRetries, long initialBackoffMillis, long maxBackoffMillis) {
+        this.maxRetries = maxRetries;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public boolean appliesTo(Method method) {
+        return IDEMPOTENT_METHODS.contains(method);
+    }
+
+    /**
+     * Run the given request with retries and hedging, the callback gets the final outcome.
+     *
+     * @param resourcePath The RAML resource path of the request, hedge delays are kept per resource path.
+     */
+    public <R> void execute(Method method, String resourcePath, Attempt<R> attempt, Callback<R> callback) {
+        if (!appliesTo(method)) {
+            attempt.send(callback);
+        } else {
+            runAttempt(1, resourcePath, attempt, callback);
+        }
+    }
+
+    /**
+     * One of the three outcomes of a request, as given to the callback.
+     */
+    private static final class Outcome<R> {
+
+        private final Response<R> okResponse;
+        private final Response<String> nokResponse;
+        private final Throwable failure;
+
+        private Outcome(Response<R> okResponse, Response<String> nokResponse, Throwable failure) {
+            this.okResponse = okResponse;
+            this.nokResponse = nokResponse;
+            this.failure = failure;
+        }
+
+        private Response<?> response() {
+            return okResponse != null ? okResponse : nokResponse;
+        }
+
+        private void deliver(Callback<R> callback) {
+            if (failure != null) {
+                callback.onFailure(failure);
+            } else if (okResponse != null) {
+                callback.onOkResponse(okResponse);
+            } else {
+                callback.onNokResponse(nokResponse);
+            }
+        }
+
+    }
+
+    private interface OutcomeListener<R> {
+
+        void onOutcome(Outcome<R> outcome);
+
+    }
+
+    private <R> void runAttempt(final int attemptNumber,
+                                final String resourcePath,
+                                final Attempt<R> attempt,
+                                final Callback<R> callback) {
+        OutcomeListener<R> listener = new OutcomeListener<R>() {
+
+            @Override
+            public void onOutcome(Outcome<R> outcome) {
+                long backoff = attemptNumber <= maxRetries ? retryBackoffMillis(attemptNumber, outcome) : -1;
+                if (backoff < 0) {
+                    outcome.deliver(callback);
+                } else {
+                    SCHEDULER.schedule(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            runAttempt(attemptNumber + 1, resourcePath, attempt, callback);
+                        }
+
+                    }, backoff, TimeUnit.MILLISECONDS);
+                }
+            }
+
+        };
+
+        if (hedging) {
+            hedged(resourcePath, attempt, listener);
+        } else {
+            timed(resourcePath, attempt, listener);
+        }
+    }
+
+    /**
+     * Send the request and, when it takes longer than the hedge delay, a second one.
+     */
+    private <R> void hedged(final String resourcePath, final Attempt<R> attempt, final OutcomeListener<R> listener) {
+        long hedgeDelay = hedgeDelayMillis(resourcePath);
+        if (hedgeDelay < 0) {
+            timed(resourcePath, attempt, listener);
+            return;
+        }
+
+        final Hedge<R> hedge = new Hedge<R>(resourcePath, attempt, listener);
+        hedge.send(0);
+        SCHEDULER.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                if (!hedge.isDone()) {
+                    hedge.send(1);
+                }
+            }
+
+        }, hedgeDelay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A request and its hedge. The first outcome that isn't worth a retry wins, otherwise the last one to come in, and the
+     * request that loses is cancelled so that it doesn't hold a connection any longer.
+     */
+    private final class Hedge<R> {
+
+        private final String resourcePath;
+        private final Attempt<R> attempt;
+        private final OutcomeListener<R> listener;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicInteger winner = new AtomicInteger(-1);
+        // The original request and the hedge.
+        private final AtomicReferenceArray<Cancellable> requests = new AtomicReferenceArray<Cancellable>(2);
+
+        private Hedge(String resourcePath, Attempt<R> attempt, OutcomeListener<R> listener) {
+            this.resourcePath = resourcePath;
+            this.attempt = attempt;
+            this.listener = listener;
+        }
+
+        private void send(final int index) {
+            pending.incrementAndGet();
+            requests.set(index, timed(resourcePath, attempt, new OutcomeListener<R>() {
+
+                @Override
+                public void onOutcome(Outcome<R> outcome) {
+                    boolean last = pending.decrementAndGet() == 0;
+                    boolean good = outcome.failure == null && !retryStatusCodes.contains(outcome.response().getStatus());
+                    if ((last || good) && winner.compareAndSet(-1, index)) {
+                        cancel(1 - index);
+                        listener.onOutcome(outcome);
+                    }
+                }
+
+            }));
+            // The other request may have won while this one was being sent.
+            int won = winner.get();
+            if (won >= 0 && won != index) {
+                cancel(index);
+            }
+        }
+
+        private boolean isDone() {
+            return winner.get() >= 0;
+        }
+
+        private void cancel(int index) {
+            Cancellable request = requests.get(index);
+            if (request != null) {
+                request.cancel();
+            }
+        }
+
+    }
+
+    private <R> Cancellable timed(final String resourcePath, Attempt<R> attempt, final OutcomeListener<R> listener) {
+        final long start = System.nanoTime();
+        try {
+            return attempt.send(new Callback<R>() {
+
+                @Override
+                public void onFailure(Throwable t) {
+                    listener.onOutcome(new Outcome<R>(null, null, t));
+                }
+
+                @Override
+                public void onNokResponse(Response<String> response) {
+                    record(resourcePath, start);
+                    listener.onOutcome(new Outcome<R>(null, response, null));
+                }
+
+                @Override
+                public void onOkResponse(Response<R> response) {
+                    record(resourcePath, start);
+                    listener.onOutcome(new Outcome<R>(response, null, null));
+                }
+
+            });
+        } catch (RuntimeException e) {
+            listener.onOutcome(new Outcome<R>(null, null, e));
+            return null;
+        }
+    }
+
+    private void record(String resourcePath, long start) {
+        if (hedging) {
+            latencyOf(resourcePath).record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return The backoff before the next attempt in milliseconds, or -1 when the outcome must not be retried.
+     */
+    private long retryBackoffMillis(int attemptNumber, Outcome<?> outcome) {
+        if (outcome.failure != null) {
+            return isRetryable(outcome.failure) ? jitteredBackoffMillis(attemptNumber) : -1;
+        }
+        Response<?> response = outcome.response();
+        if (!retryStatusCodes.contains(response.getStatus())) {
+            return -1;
+        }
+        if (honourRetryAfter) {
+            long retryAfter = retryAfterMillis(response.getHeaders());
+            if (retryAfter > maxBackoffMillis) {
+                return -1;
+            } else if (retryAfter >= 0) {
+                return retryAfter;
+            }
+        }
+        return jitteredBackoffMillis(attemptNumber);
+    }
+
+    /**
+     * @return A random backoff between 0 and the exponential ceiling of the given attempt, which is capped by the maximum backoff.
+     */
+    long jitteredBackoffMillis(int attemptNumber) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attemptNumber - 1, 30));
+        return (long) (RANDOM.nextDouble() * (ceiling + 1));
+    }
+
+    private boolean isRetryable(Throwable failure) {
+        return failure instanceof IOException || failure instanceof TimeoutException;
+    }
+
+    /**
+     * @return The delay given by the Retry-After header (in seconds or as an HTTP date), -1 when there is none.
+     */
+    static long retryAfterMillis(Map<String, List<String>> headers) {
+        if (headers == null) {
+            return -1;
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if ("Retry-After".equalsIgnoreCase(header.getKey()) && header.getValue() != null && !header.getValue().isEmpty()) {
+                String value = header.getValue().get(0).trim();
+                try {
+                    return Math.max(0, Long.parseLong(value) * 1000);
+                } catch (NumberFormatException e) {
+                    try {
+                        // SimpleDateFormat isn't thread-safe, so it is created on use.
+                        SimpleDateFormat httpDate = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+                        return Math.max(0, httpDate.parse(value).getTime() - System.currentTimeMillis());
+                    } catch (ParseException dateException) {
+                        return -1;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The hedge delay for the given resource path in milliseconds, -1 when there aren't enough samples yet.
+     */
+    private long hedgeDelayMillis(String resourcePath) {
+        LatencyHistogram histogram = latencies.get(resourcePath);
+        if (histogram == null || histogram.getTotalCount() < MIN_HEDGE_SAMPLES) {
+            return -1;
+        }
+        return Math.max(minHedgeDelayMillis, TimeUnit.MICROSECONDS.toMillis(histogram.getPercentileMicros(hedgePercentile)));
+    }
+
+    private LatencyHistogram latencyOf(String resourcePath) {
+        LatencyHistogram histogram = latencies.get(resourcePath);
+        if (histogram == null) {
+            LatencyHistogram newHistogram = new LatencyHistogram();
+            histogram = latencies.putIfAbsent(resourcePath, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        return histogram;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    public void setInitialBackoffMillis(long initialBackoffMillis) {
+        this.initialBackoffMillis = initialBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    public void setMaxBackoffMillis(long maxBackoffMillis) {
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public Set<Integer> getRetryStatusCodes() {
+        return retryStatusCodes;
+    }
+
+    public void setRetryStatusCodes(Set<Integer> retryStatusCodes) {
+        this.retryStatusCodes = retryStatusCodes;
+    }
+
+    public boolean isHonourRetryAfter() {
+        return honourRetryAfter;
+    }
+
+    public void setHonourRetryAfter(boolean honourRetryAfter) {
+        this.honourRetryAfter = honourRetryAfter;
+    }
+
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    public void setHedging(boolean hedging) {
+        this.hedging = hedging;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public long getMinHedgeDelayMillis() {
+        return minHedgeDelayMillis;
+    }
+
+    public void setMinHedgeDelayMillis(long minHedgeDelayMillis) {
+        this.minHedgeDelayMillis = minHedgeDelayMillis;
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The counters of one endpoint, i.e. one method on one RAML resource path.
+ */
+public final class EndpointMetrics {
+
+    private final String method;
+    private final String resourcePath;
+
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public EndpointMetrics(String method, String resourcePath) {
+        this.method = method;
+        this.resourcePath = resourcePath;
+    }
+
+    void started(long requestBytes) {
+        inFlight.incrementAndGet();
+        requests.incrementAndGet();
+        if (requestBytes > 0) {
+            bytesOut.addAndGet(requestBytes);
+        }
+    }
+
+    void received(long responseBytes) {
+        if (responseBytes > 0) {
+            bytesIn.addAndGet(responseBytes);
+        }
+    }
+
+    void completed(long elapsedNanos) {
+        inFlight.decrementAndGet();
+        latency.record(elapsedNanos);
+    }
+
+    void failed(long elapsedNanos) {
+        failures.incrementAndGet();
+        completed(elapsedNanos);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getResourcePath() {
+        return resourcePath;
+    }
+
+    public long getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.get();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + resourcePath + ": requests=" + getRequests() + ", failures=" + getFailures() + ", inFlight=" +
+                getInFlight() + ", bytesOut=" + getBytesOut() + ", bytesIn=" + getBytesIn() + ", p50=" +
+                latency.getPercentileMicros(50) + "us, p99=" + latency.getPercentileMicros(99) + "us";
+    }
+
+}
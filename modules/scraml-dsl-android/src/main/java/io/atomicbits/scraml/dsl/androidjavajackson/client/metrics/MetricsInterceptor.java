@@ -0,0 +1,106 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.client.metrics;
+
+import io.atomicbits.scraml.dsl.androidjavajackson.Method;
+import io.atomicbits.scraml.dsl.androidjavajackson.RequestBuilder;
+import io.atomicbits.scraml.dsl.androidjavajackson.client.RequestInterceptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps latency histograms, in-flight counts and bytes in and out per endpoint. Register it on the client with
+ * ClientConfig.addInterceptor(...) and read the metrics with getEndpointMetrics().
+ *
+ * Once an endpoint has been seen, recording a request is a map lookup on the resource path, an array lookup on the method
+ * and a few atomic increments. The resource path string is cached per resource, so its hash code is only computed once.
+ * No locks are taken and no keys are built per request.
+ */
+public class MetricsInterceptor extends RequestInterceptor {
+
+    private final ConcurrentMap<String, AtomicReferenceArray<EndpointMetrics>> endpoints =
+            new ConcurrentHashMap<String, AtomicReferenceArray<EndpointMetrics>>();
+
+    @Override
+    public void onRequestStart(RequestBuilder request, String resourcePath, long requestBytes) {
+        endpoint(request, resourcePath).started(requestBytes);
+    }
+
+    @Override
+    public void onBodyDecoded(RequestBuilder request, String resourcePath, long responseBytes, long elapsedNanos) {
+        endpoint(request, resourcePath).received(responseBytes);
+    }
+
+    @Override
+    public void onComplete(RequestBuilder request, String resourcePath, int statusCode, long elapsedNanos) {
+        endpoint(request, resourcePath).completed(elapsedNanos);
+    }
+
+    @Override
+    public void onFailure(RequestBuilder request, String resourcePath, Throwable failure, long elapsedNanos) {
+        endpoint(request, resourcePath).failed(elapsedNanos);
+    }
+
+    public List<EndpointMetrics> getEndpointMetrics() {
+        List<EndpointMetrics> result = new ArrayList<EndpointMetrics>();
+        for (AtomicReferenceArray<EndpointMetrics> byMethod : endpoints.values()) {
+            for (int i = 0; i < byMethod.length(); i++) {
+                EndpointMetrics metrics = byMethod.get(i);
+                if (metrics != null) {
+                    result.add(metrics);
+                }
+            }
+        }
+        return result;
+    }
+
+    public EndpointMetrics getEndpointMetrics(Method method, String resourcePath) {
+        AtomicReferenceArray<EndpointMetrics> byMethod = endpoints.get(resourcePath);
+        return byMethod != null ? byMethod.get(method.ordinal()) : null;
+    }
+
+    public void reset() {
+        endpoints.clear();
+    }
+
+    private EndpointMetrics endpoint(RequestBuilder request, String resourcePath) {
+        AtomicReferenceArray<EndpointMetrics> byMethod = endpoints.get(resourcePath);
+        if (byMethod == null) {
+            AtomicReferenceArray<EndpointMetrics> newByMethod = new AtomicReferenceArray<EndpointMetrics>(Method.values().length);
+            byMethod = endpoints.putIfAbsent(resourcePath, newByMethod);
+            if (byMethod == null) {
+                byMethod = newByMethod;
+            }
+        }
+        Method method = request.getMethod();
+        EndpointMetrics metrics = byMethod.get(method.ordinal());
+        if (metrics == null) {
+            byMethod.compareAndSet(method.ordinal(), null, new EndpointMetrics(method.name(), resourcePath));
+            metrics = byMethod.get(method.ordinal());
+        }
+        return metrics;
+    }
+
+}
@@ -22,7 +22,12 @@ package io.atomicbits.scraml.dsl.androidjavajackson.client.okhttp;
 
 import io.atomicbits.scraml.dsl.androidjavajackson.*;
 import io.atomicbits.scraml.dsl.androidjavajackson.Callback;
+import io.atomicbits.scraml.dsl.androidjavajackson.client.CircuitBreaker;
+import io.atomicbits.scraml.dsl.androidjavajackson.client.CircuitBreakerOpenException;
 import io.atomicbits.scraml.dsl.androidjavajackson.client.ClientConfig;
+import io.atomicbits.scraml.dsl.androidjavajackson.client.Compression;
+import io.atomicbits.scraml.dsl.androidjavajackson.client.InterceptorChain;
+import io.atomicbits.scraml.dsl.androidjavajackson.client.RetryPolicy;
 import io.atomicbits.scraml.dsl.androidjavajackson.json.Json;
 import okhttp3.*;
 import okhttp3.Response;
@@ -31,9 +36,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -51,10 +56,17 @@ public class OkHttpScramlClient implements Client {
     private ClientConfig config;
     private Map<String, String> defaultHeaders;
 
+    // The base URL and the default headers are resolved once, requests only append their own path and headers.
+    private HttpUrl baseUrl;
+    private Headers defaultHeaderList;
+    private InterceptorChain interceptors;
+
     private OkHttpClient okHttpClient;
 
     private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     public OkHttpScramlClient(String host,
                               Integer port,
                               String protocol,
@@ -88,6 +100,19 @@ public class OkHttpScramlClient implements Client {
         } else {
             this.defaultHeaders = new HashMap<>();
         }
+        this.baseUrl =
+                new HttpUrl.Builder()
+                        .scheme(this.protocol)
+                        .host(this.host)
+                        .port(this.port)
+                        .addPathSegments(getCleanPrefix())
+                        .build();
+        Headers.Builder defaultHeaderBuilder = new Headers.Builder();
+        for (Map.Entry<String, String> entrySet : this.defaultHeaders.entrySet()) {
+            defaultHeaderBuilder = defaultHeaderBuilder.add(entrySet.getKey(), entrySet.getValue());
+        }
+        this.defaultHeaderList = defaultHeaderBuilder.build();
+        this.interceptors = new InterceptorChain(this.config.getInterceptors());
 
 
         // Configure the client
@@ -147,143 +172,334 @@ public class OkHttpScramlClient implements Client {
 
     @Override
     public void callToStringResponse(RequestBuilder requestBuilder, String body, final Callback<String> callback) {
+        callToStringResponse(requestBuilder, body, null, callback);
+    }
 
-        Request request = null;
-
-        try {
-            request = buildRequest(requestBuilder, body);
-        } catch (IOException e) {
-            callback.onFailure(e);
-        }
+    @Override
+    public void callToStringResponse(RequestBuilder requestBuilder, BodyWriter body, final Callback<String> callback) {
+        callToStringResponse(requestBuilder, null, body, callback);
+    }
 
-        getClient().newCall(request).enqueue(new okhttp3.Callback() {
+    private void callToStringResponse(RequestBuilder requestBuilder, String body, BodyWriter bodyWriter, final Callback<String> callback) {
+        callToResponse(requestBuilder, body, bodyWriter, new ResponseTransformer<String>() {
 
             @Override
-            public void onFailure(Call call, IOException e) {
-                callback.onFailure(e);
+            public io.atomicbits.scraml.dsl.androidjavajackson.Response<String> transform(Response response) throws IOException {
+                return transformToStringBody(response);
             }
 
-            @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                try {
+        }, callback);
+    }
 
-                    io.atomicbits.scraml.dsl.androidjavajackson.Response<String> scramlResponse = transformToStringBody(response);
+    @Override
+    public void callToBinaryResponse(RequestBuilder requestBuilder, String body, final Callback<BinaryData> callback) {
+        callToBinaryResponse(requestBuilder, body, null, callback);
+    }
 
-                    if (response.isSuccessful()) {
-                        callback.onOkResponse(scramlResponse);
-                    } else {
-                        callback.onNokResponse(scramlResponse);
-                    }
+    @Override
+    public void callToBinaryResponse(RequestBuilder requestBuilder, BodyWriter body, final Callback<BinaryData> callback) {
+        callToBinaryResponse(requestBuilder, null, body, callback);
+    }
 
-                } catch (Throwable t) {
-                    callback.onFailure(t);
-                }
+    private void callToBinaryResponse(RequestBuilder requestBuilder,
+                                      String body,
+                                      BodyWriter bodyWriter,
+                                      final Callback<BinaryData> callback) {
+        callToResponse(requestBuilder, body, bodyWriter, new ResponseTransformer<BinaryData>() {
+
+            @Override
+            public io.atomicbits.scraml.dsl.androidjavajackson.Response<BinaryData> transform(Response response) throws IOException {
+                return transformToBinaryBody(response);
             }
 
-        });
+        }, callback);
+    }
 
+    @Override
+    public <R> void callToTypeResponse(RequestBuilder requestBuilder,
+                                       String body,
+                                       final String canonicalResponseType,
+                                       final Callback<R> callback) {
+        callToTypeResponse(requestBuilder, body, null, canonicalResponseType, callback);
     }
 
     @Override
-    public void callToBinaryResponse(RequestBuilder requestBuilder, String body, final Callback<BinaryData> callback) {
+    public <R> void callToTypeResponse(RequestBuilder requestBuilder,
+                                       BodyWriter body,
+                                       final String canonicalResponseType,
+                                       final Callback<R> callback) {
+        callToTypeResponse(requestBuilder, null, body, canonicalResponseType, callback);
+    }
 
-        Request request = null;
+    private <R> void callToTypeResponse(RequestBuilder requestBuilder,
+                                        String body,
+                                        BodyWriter bodyWriter,
+                                        final String canonicalResponseType,
+                                        final Callback<R> callback) {
+        callToResponse(requestBuilder, body, bodyWriter, new ResponseTransformer<R>() {
+
+            @Override
+            public io.atomicbits.scraml.dsl.androidjavajackson.Response<R> transform(Response response) throws IOException {
+                return transformToTypedBody(response, canonicalResponseType);
+            }
+
+        }, callback);
+    }
+
+    /**
+     * Turns a successful response into the scraml response, non-successful responses always get a string body.
+     */
+    private interface ResponseTransformer<T> {
+
+        io.atomicbits.scraml.dsl.androidjavajackson.Response<T> transform(Response response) throws IOException;
+
+    }
+
+    private <T> void callToResponse(final RequestBuilder requestBuilder,
+                                    String body,
+                                    BodyWriter bodyWriter,
+                                    final ResponseTransformer<T> transformer,
+                                    Callback<T> resultCallback) {
+
+        final Callback<T> callback;
+        CircuitBreaker circuitBreaker = config.getCircuitBreaker();
+        if (circuitBreaker != null) {
+            // Fail fast, before the request is built, while the host or endpoint is failing.
+            CircuitBreaker.Permit permit;
+            try {
+                permit = circuitBreaker.acquire(host + ":" + port, requestBuilder.getMethod(), requestBuilder.getResourcePathTemplate());
+            } catch (CircuitBreakerOpenException e) {
+                resultCallback.onFailure(e);
+                return;
+            }
+            callback = new CircuitBreakerCallback<T>(permit, resultCallback);
+        } else {
+            callback = resultCallback;
+        }
+
+        final Request request;
 
         try {
-            request = buildRequest(requestBuilder, body);
+            request = buildRequest(requestBuilder, body, bodyWriter);
         } catch (IOException e) {
             callback.onFailure(e);
+            return;
         }
 
-        getClient().newCall(request).enqueue(new okhttp3.Callback() {
+        RetryPolicy retryPolicy = config.getRetryPolicy();
+        // A streamed request body can only be sent once.
+        boolean replayable = requestBuilder.getBinaryRequest() == null || !requestBuilder.getBinaryRequest().isInputStream();
+        if (retryPolicy != null && replayable) {
+            retryPolicy.execute(
+                    requestBuilder.getMethod(),
+                    requestBuilder.getResourcePathTemplate(),
+                    new RetryPolicy.Attempt<T>() {
+
+                        @Override
+                        public RetryPolicy.Cancellable send(Callback<T> attemptCallback) {
+                            final Call call = dispatch(requestBuilder, request, transformer, attemptCallback);
+                            return new RetryPolicy.Cancellable() {
+
+                                @Override
+                                public void cancel() {
+                                    call.cancel();
+                                }
+
+                            };
+                        }
 
-            @Override
-            public void onFailure(Call call, IOException e) {
-                callback.onFailure(e);
-            }
+                    },
+                    callback
+            );
+        } else {
+            dispatch(requestBuilder, request, transformer, callback);
+        }
+    }
 
-            @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                try {
-                    if (response.isSuccessful()) {
-                        io.atomicbits.scraml.dsl.androidjavajackson.Response<BinaryData> scramlResponse = transformToBinaryBody(response);
-                        callback.onOkResponse(scramlResponse);
-                    } else {
-                        callback.onNokResponse(transformToStringBody(response));
+    private <T> Call dispatch(RequestBuilder requestBuilder,
+                              Request request,
+                              final ResponseTransformer<T> transformer,
+                              final Callback<T> callback) {
+        Call call = getClient().newCall(request);
+        if (interceptors.isEmpty()) {
+            call.enqueue(new okhttp3.Callback() {
+
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    callback.onFailure(e);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) throws IOException {
+                    try {
+                        if (response.isSuccessful()) {
+                            callback.onOkResponse(transformer.transform(response));
+                        } else {
+                            callback.onNokResponse(transformToStringBody(response));
+                        }
+                    } catch (Throwable t) {
+                        callback.onFailure(t);
                     }
-                } catch (Throwable t) {
-                    callback.onFailure(t);
                 }
-            }
 
-        });
+            });
+        } else {
+            // The callback reports the start of the request to the interceptors when it is created, so it also reports a call that
+            // okhttp refuses to enqueue, e.g. when its dispatcher is shut down.
+            InterceptedCallback<T> interceptedCallback = new InterceptedCallback<T>(requestBuilder, request, transformer, callback);
+            try {
+                call.enqueue(interceptedCallback);
+            } catch (RuntimeException e) {
+                interceptedCallback.onFailure(e);
+            }
+        }
+        return call;
     }
 
-    @Override
-    public <R> void callToTypeResponse(RequestBuilder requestBuilder,
-                                       String body,
-                                       final String canonicalResponseType,
-                                       final Callback<R> callback) {
+    /**
+     * Records the outcome of a request on its circuit breaker permit, a 5xx response counts as a failure.
+     */
+    private static class CircuitBreakerCallback<T> implements Callback<T> {
 
-        Request request = null;
+        private final CircuitBreaker.Permit permit;
+        private final Callback<T> callback;
 
-        try {
-            request = buildRequest(requestBuilder, body);
-        } catch (IOException e) {
-            callback.onFailure(e);
+        CircuitBreakerCallback(CircuitBreaker.Permit permit, Callback<T> callback) {
+            this.permit = permit;
+            this.callback = callback;
         }
 
-        getClient().newCall(request).enqueue(new okhttp3.Callback() {
+        @Override
+        public void onFailure(Throwable t) {
+            permit.onFailure();
+            callback.onFailure(t);
+        }
 
-            @Override
-            public void onFailure(Call call, IOException e) {
-                callback.onFailure(e);
+        @Override
+        public void onNokResponse(io.atomicbits.scraml.dsl.androidjavajackson.Response<String> response) {
+            if (response.getStatus() >= 500) {
+                permit.onFailure();
+            } else {
+                permit.onSuccess();
             }
+            callback.onNokResponse(response);
+        }
 
-            @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                try {
-                    if (response.isSuccessful()) {
-                        io.atomicbits.scraml.dsl.androidjavajackson.Response<R> scramlResponse =
-                                transformToTypedBody(response, canonicalResponseType);
-                        callback.onOkResponse(scramlResponse);
-                    } else {
-                        callback.onNokResponse(transformToStringBody(response));
-                    }
-                } catch (Throwable t) {
-                    callback.onFailure(t);
+        @Override
+        public void onOkResponse(io.atomicbits.scraml.dsl.androidjavajackson.Response<T> response) {
+            permit.onSuccess();
+            callback.onOkResponse(response);
+        }
+
+    }
+
+    /**
+     * The okhttp callback that reports the progress of a request to the interceptors.
+     */
+    private class InterceptedCallback<T> implements okhttp3.Callback {
+
+        private final RequestBuilder requestBuilder;
+        private final String resourcePath;
+        private final ResponseTransformer<T> transformer;
+        private final Callback<T> callback;
+        private final long start;
+
+        InterceptedCallback(RequestBuilder requestBuilder,
+                            Request request,
+                            ResponseTransformer<T> transformer,
+                            Callback<T> callback) {
+            this.requestBuilder = requestBuilder;
+            this.resourcePath = requestBuilder.getResourcePathTemplate();
+            this.transformer = transformer;
+            this.callback = callback;
+            this.start = System.nanoTime();
+            interceptors.onRequestStart(requestBuilder, resourcePath, requestBytes(request));
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            onFailure(e);
+        }
+
+        void onFailure(Throwable t) {
+            interceptors.onFailure(requestBuilder, resourcePath, t, System.nanoTime() - start);
+            callback.onFailure(t);
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            interceptors.onHeadersReceived(requestBuilder,
+                                           resourcePath,
+                                           response.code(),
+                                           response.headers().toMultimap(),
+                                           System.nanoTime() - start);
+
+            ResponseBody responseBody = response.body();
+            long responseBytes = responseBody != null ? responseBody.contentLength() : 0;
+            io.atomicbits.scraml.dsl.androidjavajackson.Response<T> okResponse = null;
+            io.atomicbits.scraml.dsl.androidjavajackson.Response<String> nokResponse = null;
+            try {
+                if (response.isSuccessful()) {
+                    okResponse = transformer.transform(response);
+                } else {
+                    nokResponse = transformToStringBody(response);
                 }
+            } catch (Throwable t) {
+                interceptors.onFailure(requestBuilder, resourcePath, t, System.nanoTime() - start);
+                callback.onFailure(t);
+                return;
             }
 
-        });
+            long elapsed = System.nanoTime() - start;
+            interceptors.onBodyDecoded(requestBuilder, resourcePath, responseBytes, elapsed);
+            interceptors.onComplete(requestBuilder, resourcePath, response.code(), elapsed);
+
+            try {
+                if (okResponse != null) {
+                    callback.onOkResponse(okResponse);
+                } else {
+                    callback.onNokResponse(nokResponse);
+                }
+            } catch (Throwable t) {
+                callback.onFailure(t);
+            }
+        }
 
     }
 
+    private long requestBytes(Request request) {
+        RequestBody requestBody = request.body();
+        if (requestBody == null) {
+            return 0;
+        }
+        try {
+            return requestBody.contentLength();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
 
     public Request buildRequest(RequestBuilder requestBuilder, String body) throws IOException {
+        return buildRequest(requestBuilder, body, null);
+    }
 
-        Headers.Builder headerBuilder = new Headers.Builder();
+    public Request buildRequest(RequestBuilder requestBuilder, String body, BodyWriter bodyWriter) throws IOException {
 
-        for (Map.Entry<String, String> entrySet : defaultHeaders.entrySet()) {
-            headerBuilder = headerBuilder.add(entrySet.getKey(), entrySet.getValue());
-        }
+        Headers.Builder headerBuilder = defaultHeaderList.newBuilder();
 
-        for (Map.Entry<String, List<String>> entrySet : requestBuilder.getHeaderMap().getHeaders().entrySet()) {
-            if (!entrySet.getValue().isEmpty()) {
-                headerBuilder = headerBuilder.add(entrySet.getKey(), entrySet.getValue().get(0));
+        HeaderMap requestHeaders = requestBuilder.getHeaderMap();
+        for (int i = 0; i < requestHeaders.size(); i++) {
+            List<String> values = requestHeaders.valuesAt(i);
+            if (!values.isEmpty()) {
+                headerBuilder = headerBuilder.add(requestHeaders.nameAt(i), values.get(0));
             }
         }
 
         Headers headers = headerBuilder.build();
 
 
-        HttpUrl.Builder urlBuilder =
-                new HttpUrl.Builder()
-                        .scheme(protocol)
-                        .host(host)
-                        .port(port)
-                        .addPathSegments(getCleanPrefix())
-                        .addPathSegments(requestBuilder.getRelativePath());
+        HttpUrl.Builder urlBuilder = baseUrl.newBuilder().addPathSegments(requestBuilder.getRelativePath());
 
 
         for (Map.Entry<String, HttpParam> queryParam : requestBuilder.getQueryParameters().entrySet()) {
@@ -322,8 +538,37 @@ public class OkHttpScramlClient implements Client {
             mediaType = MediaType.parse(contentType);
         }
 
+        // Only string and JSON bodies are compressed, and never when the caller already encoded the body. A compressed body must be
+        // encoded up front to know its size, so it is never streamed.
+        Compression compression = config.getCompression();
+        boolean compressible =
+                compression != null && compression.getRequestCompressionThreshold() >= 0 && headers.get(HeaderMap.CONTENT_ENCODING) == null;
+        Charset bodyCharset = mediaType != null ? mediaType.charset(UTF_8) : UTF_8;
+        byte[] bodyBytes = null;
+        String contentEncoding = null;
+
         if (body != null) {
-            requestBody = RequestBody.create(mediaType, body);
+            if (compressible) {
+                bodyBytes = body.getBytes(bodyCharset);
+            } else {
+                requestBody = RequestBody.create(mediaType, body);
+            }
+        }
+
+        if (bodyWriter != null) {
+            if (compressible) {
+                bodyBytes = bodyWriter.writeToBytes(bodyCharset);
+            } else {
+                requestBody = new OkHttpScramlRequestBody(mediaType, bodyWriter, config.getStreamingRequestEncoding());
+            }
+        }
+
+        if (bodyBytes != null) {
+            if (compression.compressRequest(bodyBytes.length)) {
+                bodyBytes = compression.gzip(bodyBytes);
+                contentEncoding = "gzip";
+            }
+            requestBody = RequestBody.create(mediaType, bodyBytes);
         }
 
         if (requestBuilder.getBinaryRequest() != null) {
@@ -333,12 +578,13 @@ public class OkHttpScramlClient implements Client {
                 requestBody = RequestBody.create(mediaType, file);
             }
             if (binaryRequest.isInputStream()) {
-                InputStream stream = ((InputStreamBinaryRequest) binaryRequest).getInputStream();
-                int[] lengthWrapper = new int[1];
-                byte[] cachedBytes = new byte[0];
-                cachedBytes = readFully(stream, lengthWrapper);
-                int cachedBytesLenght = lengthWrapper[0];
-                requestBody = RequestBody.create(mediaType, cachedBytes, 0, cachedBytesLenght);
+                InputStreamBinaryRequest streamRequest = (InputStreamBinaryRequest) binaryRequest;
+                requestBody = new OkHttpScramlInputStreamBody(
+                        mediaType,
+                        streamRequest.getInputStream(),
+                        streamRequest.getContentLength(),
+                        streamRequest.getProgress()
+                );
             }
             if (binaryRequest.isByteArray()) {
                 byte[] bytes = ((ByteArrayBinaryRequest) binaryRequest).getBytes();
@@ -418,14 +664,21 @@ public class OkHttpScramlClient implements Client {
         }
 
 
-        Request request =
+        Request.Builder okRequestBuilder =
                 new Request.Builder()
                         .headers(headers)
                         .method(requestBuilder.getMethod().name(), requestBody)
-                        .url(url)
-                        .build();
+                        .url(url);
+
+        if (contentEncoding != null) {
+            okRequestBuilder.header(HeaderMap.CONTENT_ENCODING, contentEncoding);
+        }
+        if (compression != null && !compression.isAcceptCompressedResponses() && headers.get(HeaderMap.ACCEPT_ENCODING) == null) {
+            // OkHttp asks for gzip by itself, unless the request has its own Accept-Encoding header.
+            okRequestBuilder.header(HeaderMap.ACCEPT_ENCODING, "identity");
+        }
 
-        return request;
+        return okRequestBuilder.build();
     }
 
     private String urlEncode(String text) throws UnsupportedEncodingException {
@@ -489,42 +742,6 @@ public class OkHttpScramlClient implements Client {
     }
 
 
-    /**
-     * NOTICE This part reuses software under the Apache 2.0 license.
-     * See com.ning.http.util.AsyncHttpProviderUtils in async-http-client
-     */
-    private byte[] readFully(InputStream in, int[] lengthWrapper) throws IOException {
-        // just in case available() returns bogus (or -1), allocate non-trivial chunk
-        byte[] b = new byte[Math.max(512, in.available())];
-        int offset = 0;
-        while (true) {
-            int left = b.length - offset;
-            int count = in.read(b, offset, left);
-            if (count < 0) { // EOF
-                break;
-            }
-            offset += count;
-            if (count == left) { // full buffer, need to expand
-                b = doubleUp(b);
-            }
-        }
-        // wish Java had Tuple return type...
-        lengthWrapper[0] = offset;
-        return b;
-    }
-
-    /**
-     * NOTICE This part reuses software under the Apache 2.0 license.
-     * See com.ning.http.util.AsyncHttpProviderUtils in async-http-client
-     */
-    private byte[] doubleUp(byte[] b) {
-        int len = b.length;
-        byte[] b2 = new byte[len + len];
-        System.arraycopy(b, 0, b2, 0, len);
-        return b2;
-    }
-
-
     @Override
     public ClientConfig getConfig() {
         return this.config;
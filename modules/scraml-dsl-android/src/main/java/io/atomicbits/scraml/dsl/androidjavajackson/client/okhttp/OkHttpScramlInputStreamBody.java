@@ -0,0 +1,89 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.client.okhttp;
+
+import io.atomicbits.scraml.dsl.androidjavajackson.UploadProgress;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An OkHttp request body that pipes an InputStream into the request sink in fixed-size chunks, so the stream is never copied into memory
+ * as a whole.
+ * <p>
+ * Without a content length the body is sent with chunked transfer encoding. The stream is read while the request is sent, so the body
+ * can only be sent once. The stream is not closed, it belongs to the caller.
+ */
+public class OkHttpScramlInputStreamBody extends RequestBody {
+
+    // The size of an okio segment, complete segments are handed to the transport as soon as they are filled.
+    private static final long CHUNK_SIZE = 8192L;
+
+    private final MediaType mediaType;
+    private final InputStream inputStream;
+    private final long contentLength;
+    private final UploadProgress progress;
+    private boolean written;
+
+    public OkHttpScramlInputStreamBody(MediaType mediaType, InputStream inputStream, long contentLength, UploadProgress progress) {
+        this.mediaType = mediaType;
+        this.inputStream = inputStream;
+        this.contentLength = contentLength;
+        this.progress = progress;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return mediaType;
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return contentLength;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        synchronized (this) {
+            if (written) {
+                throw new IOException("The InputStream request body was already sent, the stream cannot be replayed for a retry " +
+                                      "or a redirect.");
+            }
+            written = true;
+        }
+        Source source = Okio.source(inputStream);
+        long total = 0L;
+        long read;
+        while ((read = source.read(sink.buffer(), CHUNK_SIZE)) != -1L) {
+            total += read;
+            sink.emitCompleteSegments();
+            if (progress != null) {
+                progress.onProgress(total, contentLength);
+            }
+        }
+    }
+
+}
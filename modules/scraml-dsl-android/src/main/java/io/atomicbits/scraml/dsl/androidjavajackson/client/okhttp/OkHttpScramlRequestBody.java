@@ -0,0 +1,83 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.client.okhttp;
+
+import io.atomicbits.scraml.dsl.androidjavajackson.BodyWriter;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * An OkHttp request body that lets a BodyWriter write into the request sink, so no intermediate String is created.
+ * <p>
+ * When streaming, the body is written while the request is being sent and its length is unknown (chunked transfer encoding).
+ * Otherwise, the body is written up front into an okio buffer (backed by okio's segment pool) so that the content length is known.
+ */
+public class OkHttpScramlRequestBody extends RequestBody {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final MediaType mediaType;
+    private final Charset charset;
+    private final BodyWriter bodyWriter;
+    private final Buffer bufferedBody;
+
+    public OkHttpScramlRequestBody(MediaType mediaType, BodyWriter bodyWriter, boolean streaming) throws IOException {
+        this.mediaType = mediaType;
+        this.charset = mediaType != null ? mediaType.charset(UTF_8) : UTF_8;
+        this.bodyWriter = bodyWriter;
+        if (streaming) {
+            this.bufferedBody = null;
+        } else {
+            this.bufferedBody = new Buffer();
+            bodyWriter.writeTo(bufferedBody.outputStream(), charset);
+        }
+    }
+
+    @Override
+    public MediaType contentType() {
+        return mediaType;
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        if (bufferedBody != null) {
+            return bufferedBody.size();
+        } else {
+            return -1;
+        }
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        if (bufferedBody != null) {
+            // Write a copy, OkHttp may write the same request body more than once when it retries the request.
+            sink.writeAll(bufferedBody.clone());
+        } else {
+            bodyWriter.writeTo(sink.outputStream(), charset);
+        }
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.json;
+
+import java.util.Date;
+
+/**
+ * A hand-written parser for the common shape of RFC 3339 timestamps that works directly on the characters of the JSON text.
+ *
+ * It returns null on anything else, the deserializer then falls back to its SimpleDateFormat patterns.
+ */
+final class DateCodecs {
+
+    private static final int[] DAYS_BEFORE_MONTH = {0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334};
+
+    private DateCodecs() {
+    }
+
+    /**
+     * yyyy-MM-dd'T'HH:mm:ss[.SSS](Z|+HH:MM|-HH:MM)
+     */
+    static Date parseRfc3339(char[] text, int offset, int length) {
+        int end = offset + length;
+        int timeEnd;
+        int offsetMinutes;
+        if (length < 20 || text[offset + 4] != '-' || text[offset + 7] != '-' || text[offset + 10] != 'T') {
+            return null;
+        }
+        if (text[end - 1] == 'Z') {
+            timeEnd = end - 1;
+            offsetMinutes = 0;
+        } else if (length >= 25 && text[end - 3] == ':' && (text[end - 6] == '+' || text[end - 6] == '-')) {
+            timeEnd = end - 6;
+            int offsetHours = digits(text, end - 5, 2);
+            int minutes = digits(text, end - 2, 2);
+            if (offsetHours < 0 || offsetHours > 17 || minutes < 0 || minutes > 59) {
+                return null;
+            }
+            offsetMinutes = offsetHours * 60 + minutes;
+            if (text[end - 6] == '-') {
+                offsetMinutes = -offsetMinutes;
+            }
+        } else {
+            return null;
+        }
+
+        int timeLength = timeEnd - (offset + 11);
+        if (timeLength != 8 && (timeLength != 12 || text[offset + 19] != '.')) {
+            return null;
+        }
+        if (text[offset + 13] != ':' || text[offset + 16] != ':') {
+            return null;
+        }
+        int year = digits(text, offset, 4);
+        int month = digits(text, offset + 5, 2);
+        int day = digits(text, offset + 8, 2);
+        int hour = digits(text, offset + 11, 2);
+        int minute = digits(text, offset + 14, 2);
+        int second = digits(text, offset + 17, 2);
+        int millis = timeLength == 12 ? digits(text, offset + 20, 3) : 0;
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return null;
+        }
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+            return null;
+        }
+
+        long epochMinutes = (epochDay(year, month, day) * 24 + hour) * 60 + minute - offsetMinutes;
+        return new Date((epochMinutes * 60 + second) * 1000 + millis);
+    }
+
+    /**
+     * The number of days since 1970-01-01 in the proleptic Gregorian calendar.
+     */
+    private static long epochDay(int year, int month, int day) {
+        long years = year - 1;
+        long days = 365 * years + years / 4 - years / 100 + years / 400 + DAYS_BEFORE_MONTH[month - 1] + day - 1;
+        if (month > 2 && isLeapYear(year)) {
+            days++;
+        }
+        return days - 719162; // The number of days from 0001-01-01 to 1970-01-01.
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            return isLeapYear(year) ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * The value of count decimal digits, or -1 if one of them is not a digit.
+     */
+    private static int digits(char[] text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = text[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+}
@@ -23,6 +23,7 @@ package io.atomicbits.scraml.dsl.androidjavajackson.json;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import io.atomicbits.scraml.dsl.androidjavajackson.DateTimeRFC3339;
@@ -47,11 +48,16 @@ public class DateTimeRFC3339Deserializer extends JsonDeserializer<DateTimeRFC333
     @Override
     public DateTimeRFC3339 deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
         DateTimeRFC3339 dateTimeRFC3339 = null;
-        String dateString = jp.getText();
-
-        if (dateString != null && !dateString.isEmpty()) {
+        Date date = null;
+        if (jp.getCurrentToken() == JsonToken.VALUE_STRING) {
+            date = DateCodecs.parseRfc3339(jp.getTextCharacters(), jp.getTextOffset(), jp.getTextLength());
+        }
+        String dateString = date == null ? jp.getText() : null;
 
-            Date date = null;
+        if (date != null) {
+            dateTimeRFC3339 = new DateTimeRFC3339();
+            dateTimeRFC3339.setDateTime(date);
+        } else if (dateString != null && !dateString.isEmpty()) {
 
             // Keep in mind that SimpleDateFormat is NOT THREADSAFE!
             // Don't instantiate these variables on the class-level! Leave them here!
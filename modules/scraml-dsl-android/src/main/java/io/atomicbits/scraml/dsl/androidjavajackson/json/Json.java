@@ -20,27 +20,37 @@
 
 package io.atomicbits.scraml.dsl.androidjavajackson.json;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.Version;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.fasterxml.jackson.databind.node.NullNode;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 import io.atomicbits.scraml.dsl.androidjavajackson.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Created by peter on 28/03/17.
  */
 public class Json {
 
+    // StandardCharsets needs Android API level 19.
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     /**
      * Reuse of ObjectMapper and JsonFactory is very easy: they are thread-safe provided that configuration is done before any use
      * (and from a single thread). After initial configuration use is fully thread-safe and does not need to be explicitly synchronized.
      * Source: http://wiki.fasterxml.com/JacksonBestPracticesPerformance
      */
-    private static ObjectMapper objectMapper = new ObjectMapper();
+    private static volatile ObjectMapper objectMapper = new ObjectMapper();
 
     static {
         objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
@@ -62,6 +72,40 @@ public class Json {
         module.addDeserializer(TimeOnly.class, new TimeOnlyDeserializer());
 
         objectMapper.registerModule(module);
+        objectMapper.registerModule(new TransferObjectModule());
+    }
+
+    /**
+     * Codecs per canonical type. Constructing a JavaType from its canonical form and looking up the matching reader and writer is
+     * expensive compared to the actual (de)serialization of small bodies, so we only do it once per type.
+     */
+    private static final ConcurrentMap<String, JsonCodec> codecs = new ConcurrentHashMap<>();
+
+    /**
+     * Get the codec for the given canonical type, creating and caching it on first use.
+     *
+     * @param canonicalType The canonical form of the type, may be null.
+     * @return The codec for the given type, or null if the canonical type is null.
+     */
+    public static JsonCodec codecFor(String canonicalType) {
+        if (canonicalType == null) {
+            return null;
+        }
+        JsonCodec codec = codecs.get(canonicalType);
+        return codec != null ? codec : createCodec(canonicalType);
+    }
+
+    /**
+     * Codecs are created under the lock of configure(...), so a new codec never misses a change of the mapper.
+     */
+    private static synchronized JsonCodec createCodec(String canonicalType) {
+        JsonCodec codec = codecs.get(canonicalType);
+        if (codec == null) {
+            JavaType javaType = TypeFactory.defaultInstance().constructFromCanonical(canonicalType);
+            codec = new JsonCodec(canonicalType, javaType, objectMapper.reader(javaType), objectMapper.writerFor(javaType));
+            codecs.put(canonicalType, codec);
+        }
+        return codec;
     }
 
     /**
@@ -80,11 +124,21 @@ public class Json {
      * @return The JSON representation of the body as a string.
      */
     public static <B> String writeBodyToString(B body, String canonicalRequestType) {
-        if (canonicalRequestType != null && !body.getClass().isEnum() && !body.getClass().isPrimitive()) {
-            JavaType javaType = TypeFactory.defaultInstance().constructFromCanonical(canonicalRequestType);
-            ObjectWriter writer = objectMapper.writerFor(javaType);
+        return writeBodyToString(body, codecFor(canonicalRequestType));
+    }
+
+    /**
+     * Write the body to a JSON string using the given precompiled codec.
+     *
+     * @param body         The actual body.
+     * @param requestCodec The codec of the request body type, may be null.
+     * @param <B>          The type of the body.
+     * @return The JSON representation of the body as a string.
+     */
+    public static <B> String writeBodyToString(B body, JsonCodec requestCodec) {
+        if (requestCodec != null && !body.getClass().isEnum() && !body.getClass().isPrimitive()) {
             try {
-                return writer.writeValueAsString(body);
+                return requestCodec.getWriter().writeValueAsString(body);
             } catch (IOException e) {
                 throw new RuntimeException("JSON serialization error: " + e.getMessage(), e);
             }
@@ -93,33 +147,128 @@ public class Json {
         }
     }
 
+    /**
+     * Write the body as JSON straight to the given output stream, without an intermediate String. The stream is not closed.
+     *
+     * @param body         The actual body.
+     * @param requestCodec The codec of the request body type, may be null.
+     * @param outputStream The stream to write to.
+     * @param charset      The charset of the request body, UTF-8 is used if null.
+     * @param <B>          The type of the body.
+     */
+    public static <B> void writeBody(B body, JsonCodec requestCodec, OutputStream outputStream, Charset charset) throws IOException {
+        Charset actualCharset = charset != null ? charset : UTF_8;
+        if (requestCodec != null && !body.getClass().isEnum() && !body.getClass().isPrimitive()) {
+            JsonGenerator generator;
+            if (UTF_8.equals(actualCharset)) {
+                generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+            } else {
+                generator = objectMapper.getFactory().createGenerator(new OutputStreamWriter(outputStream, actualCharset));
+            }
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            requestCodec.getWriter().writeValue(generator, body);
+            generator.close(); // flushes the generator, but leaves the output stream open
+        } else {
+            outputStream.write(body.toString().getBytes(actualCharset));
+        }
+    }
+
+    /**
+     * Write the body as JSON to a byte array, without an intermediate String.
+     *
+     * @param body         The actual body.
+     * @param requestCodec The codec of the request body type, may be null.
+     * @param charset      The charset of the request body, UTF-8 is used if null.
+     * @param <B>          The type of the body.
+     * @return The encoded JSON body.
+     */
+    public static <B> byte[] writeBodyToBytes(B body, JsonCodec requestCodec, Charset charset) {
+        try {
+            if (requestCodec != null && (charset == null || UTF_8.equals(charset))
+                    && !body.getClass().isEnum() && !body.getClass().isPrimitive()) {
+                // Jackson writes into its own recycled buffers here and only allocates the resulting array.
+                return requestCodec.getWriter().writeValueAsBytes(body);
+            } else {
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                writeBody(body, requestCodec, outputStream, charset);
+                return outputStream.toByteArray();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("JSON serialization error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Form encoding plans per body class, see FormEncodingPlan.
+     */
+    private static final ConcurrentMap<Class<?>, FormEncodingPlan> formEncodingPlans = new ConcurrentHashMap<>();
+
     public static <B> Map<String, HttpParam> toFormUrlEncoded(B body) {
         try {
-            JsonNode jsonNode = objectMapper.valueToTree(body);
-            Map<String, HttpParam> entries = new HashMap<>();
-            for (Iterator<Map.Entry<String, JsonNode>> it = jsonNode.fields(); it.hasNext(); ) {
-                Map.Entry<String, JsonNode> entry = it.next();
-                if (!(entry.getValue() instanceof NullNode))
-                    entries.put(
-                            entry.getKey(),
-                            new SimpleHttpParam(entry.getValue().asText())
-                    ); // .asText() is essential here to avoid quoted strings
+            FormEncodingPlan plan = formEncodingPlans.get(body.getClass());
+            if (plan == null) {
+                plan = createFormEncodingPlan(body.getClass());
             }
-            return entries;
+            return plan.encode(body);
         } catch (IllegalArgumentException e) {
             throw new RuntimeException("JSON parse error: " + e.getMessage(), e);
         }
     }
 
+    private static synchronized FormEncodingPlan createFormEncodingPlan(Class<?> bodyClass) {
+        FormEncodingPlan plan = formEncodingPlans.get(bodyClass);
+        if (plan == null) {
+            plan = FormEncodingPlan.forClass(objectMapper, bodyClass);
+            formEncodingPlans.put(bodyClass, plan);
+        }
+        return plan;
+    }
+
     public static <R> R parseBodyToObject(String body, String canonicalResponseType) {
-        JavaType javaType = TypeFactory.defaultInstance().constructFromCanonical(canonicalResponseType);
+        return parseBodyToObject(body, codecFor(canonicalResponseType));
+    }
+
+    public static <R> R parseBodyToObject(String body, JsonCodec responseCodec) {
         try {
-            return objectMapper.readValue(body, javaType);
+            return responseCodec.getReader().readValue(body);
         } catch (IOException e) {
             throw new RuntimeException("JSON parse error: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * A change to the object mapper, see configure(...). java.util.function needs Android API level 24.
+     */
+    public interface Configuration {
+
+        void configure(ObjectMapper objectMapper);
+
+    }
+
+    /**
+     * Change the shared object mapper, e.g. to register a module or to enable a feature. The codecs that were created before,
+     * including the ones that generated resource classes keep, are rebuilt from the changed mapper, and so are the form encoding
+     * plans.
+     * <p>
+     * Requests that are in progress finish with the reader or writer they started with.
+     *
+     * @param configuration The change to the mapper.
+     */
+    public static synchronized void configure(Configuration configuration) {
+        // The change is made on a copy, the mapper caches the serializers and deserializers it built and it may be in use.
+        ObjectMapper changed = objectMapper.copy();
+        configuration.configure(changed);
+        objectMapper = changed;
+        for (JsonCodec codec : codecs.values()) {
+            codec.rebuild(changed);
+        }
+        formEncodingPlans.clear();
+    }
+
+    /**
+     * The shared object mapper. Change it with configure(...), which replaces it by a changed copy. The codecs don't see changes
+     * that are made directly on this mapper after they were created.
+     */
     public static ObjectMapper getObjectMapper() {
         return objectMapper;
     }
@@ -0,0 +1,65 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.json;
+
+import io.atomicbits.scraml.dsl.androidjavajackson.BodyWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Writes a body as JSON using its precompiled codec.
+ */
+public class JsonBodyWriter<B> implements BodyWriter {
+
+    private final B body;
+    private final JsonCodec codec;
+
+    public JsonBodyWriter(B body, JsonCodec codec) {
+        this.body = body;
+        this.codec = codec;
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream, Charset charset) throws IOException {
+        Json.writeBody(body, codec, outputStream, charset);
+    }
+
+    @Override
+    public byte[] writeToBytes(Charset charset) {
+        return Json.writeBodyToBytes(body, codec, charset);
+    }
+
+    @Override
+    public String writeToString() {
+        return Json.writeBodyToString(body, codec);
+    }
+
+    public B getBody() {
+        return body;
+    }
+
+    public JsonCodec getCodec() {
+        return codec;
+    }
+
+}
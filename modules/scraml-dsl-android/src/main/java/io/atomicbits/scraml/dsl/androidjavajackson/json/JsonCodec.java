@@ -0,0 +1,70 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.json;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * A precompiled JSON reader and writer for a single canonical type.
+ * <p>
+ * Codecs are created and cached by {@link Json#codecFor(String)}, so the canonical type string is parsed only once per type.
+ * Generated resource classes keep a reference to the codecs they need, which avoids any type lookup on the request path.
+ * {@link Json#configure} rebuilds the reader and writer of the cached codecs, so these references follow a change of the mapper.
+ */
+public class JsonCodec {
+
+    private final String canonicalType;
+    private final JavaType javaType;
+    private volatile ObjectReader reader;
+    private volatile ObjectWriter writer;
+
+    JsonCodec(String canonicalType, JavaType javaType, ObjectReader reader, ObjectWriter writer) {
+        this.canonicalType = canonicalType;
+        this.javaType = javaType;
+        this.reader = reader;
+        this.writer = writer;
+    }
+
+    void rebuild(ObjectMapper objectMapper) {
+        reader = objectMapper.reader(javaType);
+        writer = objectMapper.writerFor(javaType);
+    }
+
+    public String getCanonicalType() {
+        return canonicalType;
+    }
+
+    public JavaType getJavaType() {
+        return javaType;
+    }
+
+    public ObjectReader getReader() {
+        return reader;
+    }
+
+    public ObjectWriter getWriter() {
+        return writer;
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+/**
+ * Support for the Jackson codecs that the generator emits for the transfer objects, see TransferObjectModule.
+ * <p>
+ * Strings, numbers and booleans are read from the current token and written to the generator directly. Other values go through the
+ * serializer or deserializer of their declared type, which the generated codec looks up once when Jackson resolves it. Unusual input,
+ * such as a number in a string, is handed to the standard Jackson deserializers, so it is accepted just as before.
+ */
+public final class TransferObjectCodecs {
+
+    private TransferObjectCodecs() {
+    }
+
+    /**
+     * Move the parser past the start of the object and return the token of the first field, or the end of the object.
+     */
+    public static JsonToken startObject(JsonParser jp, Class<?> type) throws IOException {
+        JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            return jp.nextToken();
+        }
+        if (token == JsonToken.FIELD_NAME || token == JsonToken.END_OBJECT) {
+            return token;
+        }
+        throw JsonMappingException.from(jp, "Can not deserialize instance of " + type.getName() + " out of " + token + " token");
+    }
+
+    public static String readString(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            return jp.getText();
+        }
+        return token == JsonToken.VALUE_NULL ? null : ctxt.readValue(jp, String.class);
+    }
+
+    public static Long readLong(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return jp.getLongValue();
+        }
+        return token == JsonToken.VALUE_NULL ? null : ctxt.readValue(jp, Long.class);
+    }
+
+    public static long readLongValue(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        return jp.getCurrentToken() == JsonToken.VALUE_NUMBER_INT ? jp.getLongValue() : ctxt.readValue(jp, long.class);
+    }
+
+    public static Double readDouble(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_NUMBER_INT) {
+            return jp.getDoubleValue();
+        }
+        return token == JsonToken.VALUE_NULL ? null : ctxt.readValue(jp, Double.class);
+    }
+
+    public static double readDoubleValue(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_NUMBER_INT) {
+            return jp.getDoubleValue();
+        }
+        return ctxt.readValue(jp, double.class);
+    }
+
+    public static Boolean readBoolean(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+            return token == JsonToken.VALUE_TRUE;
+        }
+        return token == JsonToken.VALUE_NULL ? null : ctxt.readValue(jp, Boolean.class);
+    }
+
+    public static boolean readBooleanValue(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+            return token == JsonToken.VALUE_TRUE;
+        }
+        return ctxt.readValue(jp, boolean.class);
+    }
+
+    public static Object readValue(JsonParser jp, DeserializationContext ctxt, JsonDeserializer<Object> deserializer) throws IOException {
+        if (jp.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return deserializer.getNullValue();
+        }
+        return deserializer.deserialize(jp, ctxt);
+    }
+
+    public static void writeLong(Long value, JsonGenerator jgen) throws IOException {
+        if (value == null) {
+            jgen.writeNull();
+        } else {
+            jgen.writeNumber(value);
+        }
+    }
+
+    public static void writeDouble(Double value, JsonGenerator jgen) throws IOException {
+        if (value == null) {
+            jgen.writeNull();
+        } else {
+            jgen.writeNumber(value);
+        }
+    }
+
+    public static void writeBoolean(Boolean value, JsonGenerator jgen) throws IOException {
+        if (value == null) {
+            jgen.writeNull();
+        } else {
+            jgen.writeBoolean(value);
+        }
+    }
+
+    /**
+     * Write a value with the serializer of its declared type, or with the serializer of its runtime class if that is a subclass of the
+     * declared class, as Jackson does for bean properties. Generic collections always use the serializer of the declared type (the
+     * declared class is then null), it handles the runtime classes of the elements itself.
+     */
+    public static void writeValue(Object value,
+                                  Class<?> declaredClass,
+                                  JsonSerializer<Object> declaredSerializer,
+                                  JsonGenerator jgen,
+                                  SerializerProvider provider) throws IOException {
+        if (value == null) {
+            jgen.writeNull();
+        } else if (declaredClass == null || value.getClass() == declaredClass) {
+            declaredSerializer.serialize(value, jgen, provider);
+        } else {
+            provider.findTypedValueSerializer(value.getClass(), true, null).serialize(value, jgen, provider);
+        }
+    }
+
+}
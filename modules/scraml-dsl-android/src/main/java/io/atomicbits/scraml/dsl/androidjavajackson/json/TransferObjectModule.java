@@ -0,0 +1,40 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.json;
+
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * The Jackson module with the serializers and deserializers of the transfer objects, Json registers it on its object mapper.
+ * <p>
+ * This module is empty, the transfer objects are then (de)serialized through bean introspection of their annotated classes. The
+ * generator replaces it by a module that registers a generated codec for each transfer object when the generatedCodecs option is set.
+ */
+public class TransferObjectModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    public TransferObjectModule() {
+        super("TransferObjectModule", new Version(1, 0, 0, null, "io.atomicbits", "scraml"));
+    }
+
+}
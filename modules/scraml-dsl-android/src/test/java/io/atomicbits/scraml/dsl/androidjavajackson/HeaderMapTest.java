@@ -0,0 +1,144 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class HeaderMapTest {
+
+    @Test
+    public void testCaseInsensitiveLookup() {
+        HeaderMap headerMap = new HeaderMap();
+        headerMap.addHeader("X-Request-Id", " 42 ");
+
+        assertTrue(headerMap.hasKey("x-request-id"));
+        assertTrue(headerMap.hasKey(" X-REQUEST-ID "));
+        assertEquals(Collections.singletonList("42"), headerMap.getValues("x-REQUEST-id"));
+        assertEquals(Collections.singletonList("42"), headerMap.getHeaders().get("x-request-id"));
+        assertFalse(headerMap.hasKey("X-Other"));
+        assertTrue(headerMap.getValues("X-Other").isEmpty());
+        assertNull(headerMap.getHeaders().get("X-Other"));
+    }
+
+    @Test
+    public void testLastSpellingWinsAndWellKnownNamesAreInterned() {
+        HeaderMap headerMap = new HeaderMap();
+        headerMap.addHeader("x-custom", "a");
+        headerMap.addHeader("X-Custom", "b");
+        headerMap.setHeader(new String("Content-Type"), "application/json");
+
+        assertEquals(2, headerMap.size());
+        assertEquals("X-Custom", headerMap.nameAt(0));
+        assertEquals(Arrays.asList("a", "b"), headerMap.valuesAt(0));
+        // A name spelled like a well-known header is stored as the constant itself.
+        assertSame(HeaderMap.CONTENT_TYPE, headerMap.nameAt(1));
+
+        headerMap.addHeader("content-type", "text/plain");
+        assertEquals("content-type", headerMap.nameAt(1));
+        headerMap.addHeader(new String("Content-Type"), "text/html");
+        assertSame(HeaderMap.CONTENT_TYPE, headerMap.nameAt(1));
+    }
+
+    @Test
+    public void testSetReplacesAndAddAppendsInOrder() {
+        HeaderMap headerMap = new HeaderMap();
+        headerMap.addHeader("Accept", "application/json");
+        headerMap.addHeader("X-First", "1");
+        headerMap.addHeader("accept", "text/plain");
+
+        assertEquals(Arrays.asList("application/json", "text/plain"), headerMap.getValues("Accept"));
+
+        headerMap.setHeader("ACCEPT", "application/xml");
+        assertEquals(Collections.singletonList("application/xml"), headerMap.getValues("Accept"));
+
+        // Neither add nor set moves a header that is already there, new headers go at the end.
+        headerMap.setHeader("X-Second", "2");
+        List<String> names = new ArrayList<String>(headerMap.getHeaders().keySet());
+        assertEquals(Arrays.asList("ACCEPT", "X-First", "X-Second"), names);
+
+        // Empty names and values and null keys are ignored.
+        headerMap.addHeader("", "value");
+        headerMap.addHeader("X-Empty", new ArrayList<String>());
+        headerMap.setHeader(null, "value");
+        assertEquals(3, headerMap.size());
+    }
+
+    @Test
+    public void testClonedMapIsIndependent() {
+        HeaderMap original = new HeaderMap();
+        original.addHeader("X-Shared", "a");
+
+        HeaderMap cloned = original.cloned();
+        cloned.addHeader("X-Shared", "b");
+        cloned.addHeader("X-Added", "c");
+
+        assertEquals(Collections.singletonList("a"), original.getValues("X-Shared"));
+        assertFalse(original.hasKey("X-Added"));
+        assertEquals(Arrays.asList("a", "b"), cloned.getValues("X-Shared"));
+    }
+
+    @Test
+    public void testHeadersViewIsReadOnlyAndLive() {
+        HeaderMap headerMap = new HeaderMap();
+        headerMap.addHeader("X-Before", "1");
+
+        Map<String, List<String>> view = headerMap.getHeaders();
+        headerMap.addHeader("X-After", "2");
+
+        assertEquals(2, view.size());
+        assertEquals(Collections.singletonList("2"), view.get("x-after"));
+
+        try {
+            view.put("X-Put", Collections.singletonList("3"));
+            fail("The headers view should be read-only.");
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            view.entrySet().iterator().remove();
+            fail("The headers view should be read-only.");
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            view.clear();
+            fail("The headers view should be read-only.");
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            headerMap.getValues("X-Before").add("other");
+            fail("The header values should be read-only.");
+        } catch (UnsupportedOperationException expected) {
+        }
+        assertEquals(Collections.singletonList("1"), headerMap.getValues("X-Before"));
+    }
+
+}
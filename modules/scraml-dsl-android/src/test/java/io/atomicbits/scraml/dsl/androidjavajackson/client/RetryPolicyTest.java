@@ -0,0 +1,241 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.client;
+
+import io.atomicbits.scraml.dsl.androidjavajackson.Callback;
+import io.atomicbits.scraml.dsl.androidjavajackson.Method;
+import io.atomicbits.scraml.dsl.androidjavajackson.Response;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class RetryPolicyTest {
+
+    @Test
+    public void testBackoffStaysBelowTheExponentialCeiling() {
+        RetryPolicy retryPolicy = new RetryPolicy(5, 10, 100);
+
+        for (int attempt = 1; attempt <= 40; attempt++) {
+            long ceiling = Math.min(100, 10L << Math.min(attempt - 1, 30));
+            long highest = 0;
+            for (int i = 0; i < 1000; i++) {
+                long backoff = retryPolicy.jitteredBackoffMillis(attempt);
+                assertTrue(backoff >= 0);
+                assertTrue("Backoff " + backoff + " above " + ceiling + " at attempt " + attempt, backoff <= ceiling);
+                highest = Math.max(highest, backoff);
+            }
+            assertTrue(highest > ceiling / 2);
+        }
+    }
+
+    @Test
+    public void testRetryAfterInSecondsAndAsHttpDate() {
+        assertEquals(3000, RetryPolicy.retryAfterMillis(headers("retry-after", "3")));
+
+        SimpleDateFormat httpDate = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        httpDate.setTimeZone(TimeZone.getTimeZone("GMT"));
+        String inTenSeconds = httpDate.format(new Date(System.currentTimeMillis() + 10000));
+        long delay = RetryPolicy.retryAfterMillis(headers("Retry-After", inTenSeconds));
+        assertTrue("Unexpected delay " + delay, delay > 8000 && delay <= 10000);
+
+        assertEquals(0, RetryPolicy.retryAfterMillis(headers("Retry-After", httpDate.format(new Date(0)))));
+        assertEquals(-1, RetryPolicy.retryAfterMillis(headers("Retry-After", "soon")));
+        assertEquals(-1, RetryPolicy.retryAfterMillis(null));
+    }
+
+    @Test
+    public void testRetryRetryableStatusCodesAndIOErrors() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 1, 5);
+        Attempts attempts = new Attempts(new IOException("Connection reset"), response(503), response(200));
+
+        Outcomes outcomes = new Outcomes();
+        retryPolicy.execute(Method.GET, "/users", attempts, outcomes);
+
+        assertEquals(200, outcomes.nextResponse().getStatus());
+        assertEquals(3, attempts.count.get());
+    }
+
+    @Test
+    public void testReturnTheResponseWhenRetryAfterExceedsTheMaximumBackoff() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(2, 1, 2000);
+        Attempts attempts = new Attempts(response(503, "Retry-After", "10"), response(200));
+
+        Outcomes outcomes = new Outcomes();
+        retryPolicy.execute(Method.GET, "/users", attempts, outcomes);
+
+        assertEquals(503, outcomes.nextResponse().getStatus());
+        assertEquals(1, attempts.count.get());
+    }
+
+    @Test
+    public void testRetryAfterReplacesTheBackoff() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(1, 60000, 60000);
+        Attempts attempts = new Attempts(response(429, "Retry-After", "0"), response(200));
+
+        Outcomes outcomes = new Outcomes();
+        retryPolicy.execute(Method.GET, "/users", attempts, outcomes);
+
+        assertEquals(200, outcomes.nextResponse().getStatus());
+        assertEquals(2, attempts.count.get());
+    }
+
+    @Test
+    public void testTheFirstGoodResponseWinsWhenHedging() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(0, 1, 5);
+        retryPolicy.setHedging(true);
+        retryPolicy.setMinHedgeDelayMillis(5);
+        for (int i = 0; i < 20; i++) {
+            Outcomes warmUp = new Outcomes();
+            retryPolicy.execute(Method.GET, "/users", new Attempts(response(200)), warmUp);
+            warmUp.nextResponse();
+        }
+
+        // The first request hangs (a null result), the hedged one answers.
+        Attempts attempts = new Attempts(null, response(200, "hedged"));
+        Outcomes outcomes = new Outcomes();
+        retryPolicy.execute(Method.GET, "/users", attempts, outcomes);
+
+        assertEquals("hedged", outcomes.nextResponse().getBody());
+        assertEquals(2, attempts.count.get());
+        // The first request lost, it is cancelled.
+        assertEquals(Collections.singletonList(1), attempts.cancelled);
+
+        // The hanging request still answers, but the callback only hears about the winner.
+        attempts.hanging.onOkResponse(response(200, "slow"));
+        assertNull(outcomes.results.poll(50, TimeUnit.MILLISECONDS));
+    }
+
+    private static Map<String, List<String>> headers(String name, String value) {
+        return Collections.singletonMap(name, Collections.singletonList(value));
+    }
+
+    private static Response<String> response(int status) {
+        return new Response<String>(null, null, status, Collections.<String, List<String>>emptyMap());
+    }
+
+    private static Response<String> response(int status, String body) {
+        return new Response<String>(body, body, status, Collections.<String, List<String>>emptyMap());
+    }
+
+    private static Response<String> response(int status, String header, String value) {
+        return new Response<String>(null, null, status, headers(header, value));
+    }
+
+    /**
+     * Answers each attempt with the next result: a 2xx response, another response or a failure. A null result keeps the
+     * request hanging. It keeps the numbers of the attempts that were cancelled.
+     */
+    private static final class Attempts implements RetryPolicy.Attempt<String> {
+
+        private final Deque<Object> results;
+        private final AtomicInteger count = new AtomicInteger();
+        private final List<Integer> cancelled = new CopyOnWriteArrayList<Integer>();
+        private volatile Callback<String> hanging;
+
+        private Attempts(Object... results) {
+            this.results = new ArrayDeque<Object>();
+            for (Object result : results) {
+                this.results.addLast(result == null ? this : result);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public RetryPolicy.Cancellable send(Callback<String> callback) {
+            final int attempt;
+            Object result;
+            synchronized (this) {
+                attempt = count.incrementAndGet();
+                result = results.size() > 1 ? results.pollFirst() : results.peekFirst();
+            }
+            if (result == this) {
+                hanging = callback;
+            } else if (result instanceof Throwable) {
+                callback.onFailure((Throwable) result);
+            } else {
+                Response<String> response = (Response<String>) result;
+                if (response.getStatus() < 300) {
+                    callback.onOkResponse(response);
+                } else {
+                    callback.onNokResponse(response);
+                }
+            }
+            return new RetryPolicy.Cancellable() {
+
+                @Override
+                public void cancel() {
+                    cancelled.add(attempt);
+                }
+
+            };
+        }
+
+    }
+
+    private static final class Outcomes implements Callback<String> {
+
+        private final BlockingQueue<Object> results = new LinkedBlockingQueue<Object>();
+
+        @Override
+        public void onFailure(Throwable t) {
+            results.add(t);
+        }
+
+        @Override
+        public void onNokResponse(Response<String> response) {
+            results.add(response);
+        }
+
+        @Override
+        public void onOkResponse(Response<String> response) {
+            results.add(response);
+        }
+
+        @SuppressWarnings("unchecked")
+        private Response<String> nextResponse() throws InterruptedException {
+            Object result = results.poll(5, TimeUnit.SECONDS);
+            assertTrue("Expected a response, got " + result, result instanceof Response);
+            return (Response<String>) result;
+        }
+
+    }
+
+}
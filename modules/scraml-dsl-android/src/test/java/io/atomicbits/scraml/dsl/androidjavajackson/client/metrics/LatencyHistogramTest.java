@@ -0,0 +1,75 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.client.metrics;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class LatencyHistogramTest {
+
+    @Test
+    public void testLatenciesFallInPowerOfTwoBuckets() {
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        assertEquals(1, LatencyHistogram.bucketOf(1));
+        assertEquals(2, LatencyHistogram.bucketOf(2));
+        assertEquals(2, LatencyHistogram.bucketOf(3));
+        assertEquals(3, LatencyHistogram.bucketOf(4));
+        assertEquals(10, LatencyHistogram.bucketOf(1000));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(500L); // below one microsecond
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        histogram.record(TimeUnit.HOURS.toNanos(1));
+        assertEquals(1, histogram.getCount(0));
+        assertEquals(1, histogram.getCount(10));
+        assertEquals(1, histogram.getCount(LatencyHistogram.BUCKETS - 1));
+        assertEquals(3, histogram.getTotalCount());
+    }
+
+    @Test
+    public void testPercentilesAreTheUpperBoundOfTheirBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileMicros(50));
+
+        for (int i = 0; i < 90; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100)); // bucket 7, [64, 128) microseconds
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(5000)); // bucket 13, [4096, 8192) microseconds
+        }
+
+        assertEquals(128, histogram.getPercentileMicros(0));
+        assertEquals(128, histogram.getPercentileMicros(50));
+        assertEquals(128, histogram.getPercentileMicros(90));
+        assertEquals(8192, histogram.getPercentileMicros(91));
+        assertEquals(8192, histogram.getPercentileMicros(99));
+        assertEquals(8192, histogram.getPercentileMicros(100));
+    }
+
+}
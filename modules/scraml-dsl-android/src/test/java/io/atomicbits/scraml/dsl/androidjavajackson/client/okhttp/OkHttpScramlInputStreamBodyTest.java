@@ -0,0 +1,216 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.client.okhttp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.atomicbits.scraml.dsl.androidjavajackson.UploadProgress;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Buffer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class OkHttpScramlInputStreamBodyTest {
+
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    private static final int BODY_SIZE = 20000;
+
+    @Test
+    public void testAStreamWithAContentLengthIsSentWithThatLength() throws Exception {
+        RecordingServer server = new RecordingServer();
+        try {
+            byte[] body = body();
+            Progress progress = new Progress();
+
+            send(server, new OkHttpScramlInputStreamBody(OCTET_STREAM, new ByteArrayInputStream(body), BODY_SIZE, progress));
+
+            assertEquals(String.valueOf(BODY_SIZE), server.contentLength);
+            assertNull(server.transferEncoding);
+            assertArrayEquals(body, server.body);
+            progress.assertChunked(BODY_SIZE);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testAStreamWithoutAContentLengthIsSentChunked() throws Exception {
+        RecordingServer server = new RecordingServer();
+        try {
+            byte[] body = body();
+            Progress progress = new Progress();
+
+            send(server, new OkHttpScramlInputStreamBody(OCTET_STREAM, new ByteArrayInputStream(body), -1L, progress));
+
+            assertNull(server.contentLength);
+            assertEquals("chunked", server.transferEncoding);
+            assertArrayEquals(body, server.body);
+            progress.assertChunked(-1L);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testTheBodyCanOnlyBeSentOnce() throws Exception {
+        CloseTrackingInputStream stream = new CloseTrackingInputStream(body());
+        OkHttpScramlInputStreamBody requestBody = new OkHttpScramlInputStreamBody(OCTET_STREAM, stream, BODY_SIZE, null);
+
+        Buffer first = new Buffer();
+        requestBody.writeTo(first);
+        assertEquals(BODY_SIZE, first.size());
+
+        try {
+            requestBody.writeTo(new Buffer());
+            fail("The body should not be sent twice.");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("cannot be replayed"));
+        }
+        // The stream belongs to the caller.
+        assertFalse(stream.closed);
+    }
+
+    private static byte[] body() {
+        byte[] body = new byte[BODY_SIZE];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+        return body;
+    }
+
+    private static void send(RecordingServer server, OkHttpScramlInputStreamBody requestBody) throws IOException {
+        OkHttpClient client = new OkHttpClient();
+        Request request = new Request.Builder().url("http://localhost:" + server.port() + "/upload").post(requestBody).build();
+        Response response = client.newCall(request).execute();
+        try {
+            assertEquals(204, response.code());
+        } finally {
+            response.close();
+        }
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    /**
+     * Keeps the length headers and the body of the last request.
+     */
+    private static final class RecordingServer {
+
+        private final HttpServer server;
+        private volatile String contentLength;
+        private volatile String transferEncoding;
+        private volatile byte[] body;
+
+        RecordingServer() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/upload", new HttpHandler() {
+
+                @Override
+                public void handle(HttpExchange exchange) throws IOException {
+                    contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+                    transferEncoding = exchange.getRequestHeaders().getFirst("Transfer-Encoding");
+                    ByteArrayOutputStream received = new ByteArrayOutputStream();
+                    InputStream in = exchange.getRequestBody();
+                    byte[] buffer = new byte[4096];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        received.write(buffer, 0, read);
+                    }
+                    body = received.toByteArray();
+                    exchange.sendResponseHeaders(204, -1);
+                    exchange.close();
+                }
+
+            });
+            server.start();
+        }
+
+        int port() {
+            return server.getAddress().getPort();
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+    }
+
+    private static final class Progress implements UploadProgress {
+
+        private final List<long[]> calls = new ArrayList<long[]>();
+
+        @Override
+        public synchronized void onProgress(long bytesWritten, long contentLength) {
+            calls.add(new long[]{bytesWritten, contentLength});
+        }
+
+        /**
+         * The progress is reported per chunk of at most 8 KiB and ends with the whole body.
+         */
+        synchronized void assertChunked(long expectedContentLength) {
+            assertTrue(calls.size() >= BODY_SIZE / 8192);
+            long previous = 0L;
+            for (long[] call : calls) {
+                assertTrue(call[0] > previous && call[0] - previous <= 8192);
+                assertEquals(expectedContentLength, call[1]);
+                previous = call[0];
+            }
+            assertTrue(Arrays.equals(new long[]{BODY_SIZE, expectedContentLength}, calls.get(calls.size() - 1)));
+        }
+
+    }
+
+    private static final class CloseTrackingInputStream extends ByteArrayInputStream {
+
+        private boolean closed;
+
+        CloseTrackingInputStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.json;
+
+import io.atomicbits.scraml.dsl.androidjavajackson.DateTimeRFC3339;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class DateCodecsTest {
+
+    @Test
+    public void testParseRfc3339() {
+        assertEquals(utc(2017, 10, 8, 13, 5, 1, 0), parseRfc3339("2017-10-08T13:05:01Z"));
+        assertEquals(utc(2017, 10, 8, 13, 5, 1, 123), parseRfc3339("2017-10-08T13:05:01.123Z"));
+        assertEquals(utc(2017, 10, 8, 11, 5, 1, 123), parseRfc3339("2017-10-08T13:05:01.123+02:00"));
+        assertEquals(utc(2016, 3, 1, 0, 0, 0, 0), parseRfc3339("2016-02-29T23:00:00-01:00"));
+        assertEquals(utc(987, 1, 1, 0, 0, 1, 0), parseRfc3339("0987-01-01T00:00:01Z"));
+    }
+
+    @Test
+    public void testKeepTheMinutesOfTheOffset() {
+        // The SimpleDateFormat patterns used to read only the hours of an offset like +05:30.
+        assertEquals(utc(2017, 10, 8, 7, 35, 1, 123), parseRfc3339("2017-10-08T13:05:01.123+05:30"));
+        assertEquals(utc(2017, 10, 8, 22, 35, 1, 0), parseRfc3339("2017-10-08T13:05:01-09:30"));
+    }
+
+    @Test
+    public void testLeaveUnusualInputToTheSimpleDateFormatPatterns() {
+        assertNull(parseRfc3339("2017-10-08T13:05:01"));
+        assertNull(parseRfc3339("2017-10-08 13:05:01Z"));
+        assertNull(parseRfc3339("2017-10-08T13:05:01.12Z"));
+        assertNull(parseRfc3339("2017-10-08T13:05:01.123456Z"));
+        assertNull(parseRfc3339("2017-02-30T13:05:01Z"));
+        assertNull(parseRfc3339("2017-10-08T24:00:00Z"));
+        assertNull(parseRfc3339("2017-10-08T13:05:01+18:00"));
+        assertNull(parseRfc3339("2017-10-08T13:05:01+0530"));
+    }
+
+    @Test
+    public void testDeserializeThroughJackson() throws Exception {
+        DateTimeRFC3339 fast = Json.parseBodyToObject("\"2017-10-08T13:05:01.123+05:30\"", DateTimeRFC3339.class.getName());
+        assertEquals(utc(2017, 10, 8, 7, 35, 1, 123), fast.getDateTime());
+
+        // Input outside the fast path still goes through the SimpleDateFormat patterns.
+        DateTimeRFC3339 slow = Json.parseBodyToObject("\"2017-10-08T13:05:01+0200\"", DateTimeRFC3339.class.getName());
+        assertEquals(utc(2017, 10, 8, 11, 5, 1, 0), slow.getDateTime());
+    }
+
+    private static Date parseRfc3339(String text) {
+        // Jackson hands out its text buffer, which holds more than the value itself.
+        char[] buffer = ("[\"" + text + "\"]").toCharArray();
+        return DateCodecs.parseRfc3339(buffer, 2, text.length());
+    }
+
+    private static Date utc(int year, int month, int day, int hour, int minute, int second, int millis) {
+        GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.setGregorianChange(new Date(Long.MIN_VALUE));
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        calendar.set(Calendar.MILLISECOND, millis);
+        return calendar.getTime();
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.androidjavajackson.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class JsonTest {
+
+    @Test
+    public void testCodecsThatWereCreatedBeforeAChangeOfTheMapperFollowIt() {
+        // Generated resource classes keep their codecs in static fields, created when the class is loaded.
+        JsonCodec codec = Json.codecFor(Temperature.class.getName());
+        assertEquals("{\"celsius\":21.5}", Json.writeBodyToString(new Temperature(21.5), codec));
+
+        Json.configure(new Json.Configuration() {
+
+            @Override
+            public void configure(ObjectMapper objectMapper) {
+                SimpleModule module = new SimpleModule("TemperatureModule");
+                module.addSerializer(Temperature.class, new TemperatureSerializer());
+                module.addDeserializer(Temperature.class, new TemperatureDeserializer());
+                objectMapper.registerModule(module);
+            }
+
+        });
+
+        assertSame(codec, Json.codecFor(Temperature.class.getName()));
+        assertEquals("\"21.5C\"", Json.writeBodyToString(new Temperature(21.5), codec));
+        Temperature parsed = Json.parseBodyToObject("\"19.0C\"", codec);
+        assertEquals(19.0, parsed.celsius, 0.0);
+    }
+
+    public static class Temperature {
+
+        public double celsius;
+
+        public Temperature() {
+        }
+
+        public Temperature(double celsius) {
+            this.celsius = celsius;
+        }
+
+    }
+
+    private static class TemperatureSerializer extends JsonSerializer<Temperature> {
+
+        @Override
+        public void serialize(Temperature value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeString(value.celsius + "C");
+        }
+
+    }
+
+    private static class TemperatureDeserializer extends JsonDeserializer<Temperature> {
+
+        @Override
+        public Temperature deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            String text = parser.getText();
+            return new Temperature(Double.parseDouble(text.substring(0, text.length() - 1)));
+        }
+
+    }
+
+}
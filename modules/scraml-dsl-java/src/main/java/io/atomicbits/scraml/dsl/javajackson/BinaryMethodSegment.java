@@ -20,6 +20,12 @@
 
 package io.atomicbits.scraml.dsl.javajackson;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -42,10 +48,25 @@ public class BinaryMethodSegment<B> extends MethodSegment<B, BinaryData> {
                                BinaryRequest binaryRequest,
                                String expectedAcceptHeader,
                                String expectedContentTypeHeader,
-                               RequestBuilder req,
+                               RequestPrefix req,
                                String canonicalContentType,
                                String canonicalResponseType) {
-        super(method, theBody, queryParams, queryString, formParams, multipartParams, binaryRequest, expectedAcceptHeader, expectedContentTypeHeader, req);
+        this(new PreparedRequest(method, expectedAcceptHeader, expectedContentTypeHeader), theBody, primitiveBody, queryParams,
+                queryString, formParams, multipartParams, binaryRequest, req, canonicalContentType, canonicalResponseType);
+    }
+
+    public BinaryMethodSegment(PreparedRequest preparedRequest,
+                               B theBody,
+                               Boolean primitiveBody,
+                               Map<String, HttpParam> queryParams,
+                               TypedQueryParams queryString,
+                               Map<String, HttpParam> formParams,
+                               List<BodyPart> multipartParams,
+                               BinaryRequest binaryRequest,
+                               RequestPrefix req,
+                               String canonicalContentType,
+                               String canonicalResponseType) {
+        super(preparedRequest, theBody, queryParams, queryString, formParams, multipartParams, binaryRequest, req);
 
         this.canonicalContentType = canonicalContentType;
         this.primitiveBody = primitiveBody;
@@ -55,7 +76,66 @@ public class BinaryMethodSegment<B> extends MethodSegment<B, BinaryData> {
         if (this.primitiveBody) {
             return getRequestBuilder().callToBinaryResponse(getPlainStringBody());
         } else {
-            return getRequestBuilder().callToBinaryResponse(jsonBodyToString(canonicalContentType));
+            return getRequestBuilder().callToBinaryResponse(jsonBodyWriter(canonicalContentType));
+        }
+    }
+
+    /**
+     * Download the response body into the given channel while it comes in, see Client.callToDownloadResponse. The channel is not
+     * closed.
+     *
+     * @return The response with the number of bytes written as its body.
+     */
+    public CompletableFuture<Response<Long>> download(WritableByteChannel target, DownloadProgress progress) {
+        if (this.primitiveBody) {
+            return getRequestBuilder().callToDownloadResponse(getPlainStringBody(), target, progress);
+        } else {
+            return getRequestBuilder().callToDownloadResponse(jsonBodyWriter(canonicalContentType), target, progress);
+        }
+    }
+
+    public CompletableFuture<Response<Long>> download(WritableByteChannel target) {
+        return download(target, DownloadProgress.NONE);
+    }
+
+    /**
+     * Download the response body into the given file while it comes in. Missing parent directories are created and an existing file is
+     * overwritten. The file only holds the body of a 2xx response.
+     */
+    public CompletableFuture<Response<Long>> download(Path path, DownloadProgress progress) {
+        FileChannel channel;
+        try {
+            Path parent = path.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            CompletableFuture<Response<Long>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return download(channel, progress).whenComplete((response, failure) -> {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // The download itself has been handled, a failing close leaves nothing to clean up.
+            }
+        });
+    }
+
+    public CompletableFuture<Response<Long>> download(Path path) {
+        return download(path, DownloadProgress.NONE);
+    }
+
+    /**
+     * Execute the request and wait for the response on the calling thread.
+     */
+    public Response<BinaryData> callSync() {
+        if (this.primitiveBody) {
+            return getRequestBuilder().callToBinaryResponseSync(getPlainStringBody());
+        } else {
+            return getRequestBuilder().callToBinaryResponseSync(jsonBodyWriter(canonicalContentType));
         }
     }
 
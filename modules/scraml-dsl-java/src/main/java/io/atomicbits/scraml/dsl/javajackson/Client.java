@@ -21,9 +21,16 @@
 package io.atomicbits.scraml.dsl.javajackson;
 
 import io.atomicbits.scraml.dsl.javajackson.client.ClientConfig;
+import io.atomicbits.scraml.dsl.javajackson.json.Json;
+import io.atomicbits.scraml.dsl.javajackson.util.ChannelUtils;
+import io.atomicbits.scraml.dsl.javajackson.util.FutureUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Created by peter on 19/08/15.
@@ -36,6 +43,113 @@ public interface Client extends AutoCloseable {
 
     <R> CompletableFuture<Response<R>> callToTypeResponse(RequestBuilder request, String body, String canonicalResponseType);
 
+    /**
+     * The body writer variants let the client write the body straight into its transport. Clients that don't support this fall back
+     * on the String body.
+     */
+    default CompletableFuture<Response<String>> callToStringResponse(RequestBuilder request, BodyWriter body) {
+        return callToStringResponse(request, body != null ? body.writeToString() : null);
+    }
+
+    default CompletableFuture<Response<BinaryData>> callToBinaryResponse(RequestBuilder request, BodyWriter body) {
+        return callToBinaryResponse(request, body != null ? body.writeToString() : null);
+    }
+
+    default <R> CompletableFuture<Response<R>> callToTypeResponse(RequestBuilder request, BodyWriter body, String canonicalResponseType) {
+        return callToTypeResponse(request, body != null ? body.writeToString() : null, canonicalResponseType);
+    }
+
+    /**
+     * Stream the elements of a JSON array response. The future completes as soon as the response headers are in, the elements are
+     * parsed while the stream is consumed. Close the stream when it isn't read to the end, it holds on to the connection.
+     * <p>
+     * The body of a non-2xx response is not streamed, it is available as the string body of the response.
+     * <p>
+     * By default the response is received as a String first, clients that support it override this to parse the elements as the bytes
+     * arrive.
+     */
+    default <E> CompletableFuture<Response<Stream<E>>> callToStreamResponse(RequestBuilder request,
+                                                                             String body,
+                                                                             String canonicalElementType) {
+        return callToStringResponse(request, body).thenApply(response -> {
+            Stream<E> elements = null;
+            if (response.getStatus() >= 200 && response.getStatus() < 300 && response.getStringBody() != null) {
+                elements = Json.parseBodyToStream(response.getStringBody(), Json.codecFor(canonicalElementType));
+            }
+            return new Response<Stream<E>>(response.getStringBody(), elements, response.getStatus(), response.getHeaders());
+        });
+    }
+
+    default <E> CompletableFuture<Response<Stream<E>>> callToStreamResponse(RequestBuilder request,
+                                                                             BodyWriter body,
+                                                                             String canonicalElementType) {
+        return callToStreamResponse(request, body != null ? body.writeToString() : null, canonicalElementType);
+    }
+
+    /**
+     * Download a binary response into the given channel. The body parts are written to the channel as they come in, so the memory that
+     * is used stays bounded whatever the size of the body. The response body is the number of bytes written, the channel is not
+     * closed.
+     * <p>
+     * The body of a non-2xx response is not written to the channel, it is available as the string body of the response.
+     * <p>
+     * By default the binary response is received first and then copied, clients that support it override this to write the parts as
+     * they arrive.
+     */
+    default CompletableFuture<Response<Long>> callToDownloadResponse(RequestBuilder request,
+                                                                     String body,
+                                                                     WritableByteChannel target,
+                                                                     DownloadProgress progress) {
+        return callToBinaryResponse(request, body).thenApply(response -> {
+            if (response.getStatus() < 200 || response.getStatus() >= 300 || response.getBody() == null) {
+                return new Response<Long>(response.getStringBody(), null, response.getStatus(), response.getHeaders());
+            }
+            try {
+                long contentLength = ChannelUtils.contentLength(response.getHeaders());
+                long written = ChannelUtils.copy(response.getBody().asStream(), target, contentLength, progress);
+                return new Response<Long>(null, written, response.getStatus(), response.getHeaders());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    default CompletableFuture<Response<Long>> callToDownloadResponse(RequestBuilder request,
+                                                                     BodyWriter body,
+                                                                     WritableByteChannel target,
+                                                                     DownloadProgress progress) {
+        return callToDownloadResponse(request, body != null ? body.writeToString() : null, target, progress);
+    }
+
+    /**
+     * The synchronous variants block the calling thread until the response is in and throw the cause of a failure (see
+     * FutureUtils.await). By default they wait on the asynchronous call, clients with a blocking transport override them so that the
+     * request is executed on the calling thread, which is cheap when that thread is a virtual thread.
+     */
+    default Response<String> callToStringResponseSync(RequestBuilder request, String body) {
+        return FutureUtils.await(callToStringResponse(request, body));
+    }
+
+    default Response<BinaryData> callToBinaryResponseSync(RequestBuilder request, String body) {
+        return FutureUtils.await(callToBinaryResponse(request, body));
+    }
+
+    default <R> Response<R> callToTypeResponseSync(RequestBuilder request, String body, String canonicalResponseType) {
+        return FutureUtils.await(this.<R>callToTypeResponse(request, body, canonicalResponseType));
+    }
+
+    default Response<String> callToStringResponseSync(RequestBuilder request, BodyWriter body) {
+        return FutureUtils.await(callToStringResponse(request, body));
+    }
+
+    default Response<BinaryData> callToBinaryResponseSync(RequestBuilder request, BodyWriter body) {
+        return FutureUtils.await(callToBinaryResponse(request, body));
+    }
+
+    default <R> Response<R> callToTypeResponseSync(RequestBuilder request, BodyWriter body, String canonicalResponseType) {
+        return FutureUtils.await(this.<R>callToTypeResponse(request, body, canonicalResponseType));
+    }
+
     ClientConfig getConfig();
 
     Map<String, String> getDefaultHeaders();
@@ -0,0 +1,40 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson;
+
+/**
+ * Receives the progress of a binary download.
+ */
+public interface DownloadProgress {
+
+    /**
+     * Called each time a part of the body has been written to its target. It's called on the thread that writes the body, which may
+     * be the I/O thread of the client, so it must return quickly.
+     *
+     * @param bytesWritten  The number of body bytes written so far.
+     * @param contentLength The size of the body as announced by the Content-Length header, or -1 if it's unknown.
+     */
+    void onProgress(long bytesWritten, long contentLength);
+
+    DownloadProgress NONE = (bytesWritten, contentLength) -> {
+    };
+
+}
@@ -24,44 +24,66 @@ import java.util.*;
 
 /**
  * Created by peter on 23/09/15.
+ *
+ * Header names are matched case-insensitively and keep the spelling under which they were last given. A request only
+ * carries a handful of headers, so they are kept in two small arrays that are scanned linearly. Stored value lists are
+ * never modified afterwards, which lets cloned() and getHeaders() share them instead of copying them.
  */
 public class HeaderMap {
 
-    private Map<String, List<String>> headers = new HashMap<String, List<String>>();
-    private Map<String, String> originalKeys = new HashMap<String, String>();
+    public static final String ACCEPT = "Accept";
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String AUTHORIZATION = "Authorization";
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+    public static final String CONTENT_LENGTH = "Content-Length";
+    public static final String CONTENT_TYPE = "Content-Type";
+    public static final String USER_AGENT = "User-Agent";
+
+    /**
+     * Header names that are spelled like one of the well-known names above are stored as that same instance, so that
+     * lookups with the constants mostly succeed on a reference comparison.
+     */
+    private static final Map<String, String> wellKnownNames = new HashMap<String, String>();
+
+    static {
+        for (String name : Arrays.asList(ACCEPT, ACCEPT_ENCODING, AUTHORIZATION, CONTENT_ENCODING, CONTENT_LENGTH, CONTENT_TYPE, USER_AGENT)) {
+            wellKnownNames.put(name, name);
+        }
+    }
 
+    private static final int INITIAL_CAPACITY = 4;
 
-    public void addHeader(String key, String value) {
-        List<String> values = new ArrayList<>(1);
-        values.add(value);
-        addHeader(key, values);
+    private String[] names;
+    private List<String>[] values;
+    private int size;
+
+    private Map<String, List<String>> headersView;
+
+
+    public HeaderMap() {
+        this(INITIAL_CAPACITY);
     }
 
+    private HeaderMap(int capacity) {
+        this.names = new String[capacity];
+        this.values = newValuesArray(capacity);
+        this.size = 0;
+    }
 
-    public void addHeader(String key, List<String> values) {
 
-        if (key == null || values == null) {
+    public void addHeader(String key, String value) {
+        if (key == null || value == null) {
             return;
         }
+        addTrimmed(key.trim(), trimmed(value));
+    }
 
-        String keyOriginal = key.trim();
-        String keyNormalized = normalizeKey(key);
-        List<String> valuesOriginal = new ArrayList<>();
-        for (String value : values) {
-            if (value != null) valuesOriginal.add(value.trim());
-        }
 
-        if (keyOriginal.isEmpty() || valuesOriginal.isEmpty()) {
+    public void addHeader(String key, List<String> values) {
+        if (key == null || values == null) {
             return;
         }
-
-        originalKeys.put(keyNormalized, keyOriginal);
-        List<String> currentValues = headers.get(keyNormalized);
-        if (currentValues == null) {
-            currentValues = new ArrayList<>();
-            headers.put(keyNormalized, currentValues);
-        }
-        currentValues.addAll(valuesOriginal);
+        addTrimmed(key.trim(), trimmed(values));
     }
 
 
@@ -73,40 +95,25 @@ public class HeaderMap {
 
 
     public void addHeaders(HeaderMap headerMap) {
-        for (Map.Entry<String, List<String>> header : headerMap.getHeaders().entrySet()) {
-            for (String value : header.getValue()) {
-                addHeader(header.getKey(), value);
-            }
+        for (int i = 0; i < headerMap.size; i++) {
+            addTrimmed(headerMap.names[i], headerMap.values[i]);
         }
     }
 
 
     public void setHeader(String key, String value) {
-        List<String> values = new ArrayList<>();
-        values.add(value);
-        setHeader(key, values);
+        if (key == null || value == null) {
+            return;
+        }
+        setTrimmed(key.trim(), trimmed(value));
     }
 
 
     void setHeader(String key, List<String> values) {
-
         if (key == null || values == null) {
             return;
         }
-
-        String keyOriginal = key.trim();
-        String keyNormalized = normalizeKey(key);
-        List<String> valuesOriginal = new ArrayList<>();
-        for (String value : values) {
-            if (value != null) valuesOriginal.add(value.trim());
-        }
-
-        if (keyOriginal.isEmpty() || valuesOriginal.isEmpty()) {
-            return;
-        }
-
-        originalKeys.put(keyNormalized, keyOriginal);
-        headers.put(keyNormalized, valuesOriginal);
+        setTrimmed(key.trim(), trimmed(values));
     }
 
 
@@ -118,78 +125,205 @@ public class HeaderMap {
 
 
     public void setHeaders(HeaderMap headerMap) {
-        for (Map.Entry<String, List<String>> header : headerMap.getHeaders().entrySet()) {
-            setHeader(header.getKey(), header.getValue());
+        for (int i = 0; i < headerMap.size; i++) {
+            setTrimmed(headerMap.names[i], headerMap.values[i]);
         }
     }
 
 
+    /**
+     * @return A read-only view on the headers, keyed by their original spelling. The view follows later changes to this map.
+     */
     public Map<String, List<String>> getHeaders() {
-
-        Map<String, List<String>> headerList = new HashMap<>();
-
-        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
-            headerList.put(originalKeys.get(header.getKey()), header.getValue());
+        if (headersView == null) {
+            headersView = new HeadersView();
         }
-
-        return headerList;
+        return headersView;
     }
 
 
     public HeaderMap cloned() {
-        HeaderMap cloned = new HeaderMap();
-        cloned.headers = this.cloneHeaders();
-        cloned.originalKeys = this.cloneOriginalKeys();
+        HeaderMap cloned = new HeaderMap(Math.max(size, INITIAL_CAPACITY));
+        System.arraycopy(names, 0, cloned.names, 0, size);
+        System.arraycopy(values, 0, cloned.values, 0, size);
+        cloned.size = size;
         return cloned;
     }
 
 
     public boolean hasKey(String key) {
-        if (key == null) {
-            return false;
-        }
-        String keyNormalized = normalizeKey(key);
-        return originalKeys.get(keyNormalized) != null;
+        return key != null && indexOf(key.trim()) >= 0;
     }
 
+    /**
+     * @return The read-only values of the given header, or an empty list if it is absent.
+     */
     public List<String> getValues(String key) {
         if (key == null) {
-            return new ArrayList<>();
+            return Collections.emptyList();
+        }
+        int index = indexOf(key.trim());
+        if (index >= 0) {
+            return values[index];
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The name of the header at the given position, clients use this to iterate the headers without creating entries.
+     */
+    public String nameAt(int index) {
+        return names[index];
+    }
+
+    public List<String> valuesAt(int index) {
+        return values[index];
+    }
+
+
+    private void addTrimmed(String name, List<String> trimmedValues) {
+        if (name.isEmpty() || trimmedValues.isEmpty()) {
+            return;
         }
-        String keyNormalized = normalizeKey(key);
-        List<String> values = headers.get(keyNormalized);
-        if (values != null) {
-            return values;
+        int index = indexOf(name);
+        if (index >= 0) {
+            names[index] = internedName(name);
+            values[index] = concat(values[index], trimmedValues);
         } else {
-            return new ArrayList<>();
+            append(name, trimmedValues);
+        }
+    }
+
+    private void setTrimmed(String name, List<String> trimmedValues) {
+        if (name.isEmpty() || trimmedValues.isEmpty()) {
+            return;
+        }
+        int index = indexOf(name);
+        if (index >= 0) {
+            names[index] = internedName(name);
+            values[index] = trimmedValues;
+        } else {
+            append(name, trimmedValues);
+        }
+    }
+
+    private void append(String name, List<String> trimmedValues) {
+        if (size == names.length) {
+            int capacity = size * 2;
+            names = Arrays.copyOf(names, capacity);
+            values = Arrays.copyOf(values, capacity);
         }
+        names[size] = internedName(name);
+        values[size] = trimmedValues;
+        size++;
     }
 
-    private <T> List<T> cloneList(List<T> list) {
-        List<T> clonedList = new ArrayList<T>(list.size());
-        for (T element : list) {
-            clonedList.add(element);
+    private int indexOf(String name) {
+        for (int i = 0; i < size; i++) {
+            String current = names[i];
+            if (current == name || current.equalsIgnoreCase(name)) {
+                return i;
+            }
         }
-        return clonedList;
+        return -1;
+    }
+
+    private static String internedName(String name) {
+        String wellKnown = wellKnownNames.get(name);
+        return wellKnown != null ? wellKnown : name;
     }
 
-    private Map<String, String> cloneOriginalKeys() {
-        Map<String, String> cloneMap = new HashMap<String, String>();
-        cloneMap.putAll(this.originalKeys);
-        return cloneMap;
+    private static List<String> trimmed(String value) {
+        return Collections.singletonList(value.trim());
     }
 
-    private Map<String, List<String>> cloneHeaders() {
-        Map<String, List<String>> cloneMap = new HashMap<String, List<String>>();
-        for (Map.Entry<String, List<String>> header : this.headers.entrySet()) {
-            cloneMap.put(header.getKey(), cloneList(header.getValue()));
+    private static List<String> trimmed(List<String> values) {
+        List<String> trimmedValues = new ArrayList<String>(values.size());
+        for (String value : values) {
+            if (value != null) trimmedValues.add(value.trim());
         }
-        return cloneMap;
+        return Collections.unmodifiableList(trimmedValues);
+    }
+
+    private static List<String> concat(List<String> first, List<String> second) {
+        List<String> all = new ArrayList<String>(first.size() + second.size());
+        all.addAll(first);
+        all.addAll(second);
+        return Collections.unmodifiableList(all);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<String>[] newValuesArray(int capacity) {
+        return (List<String>[]) new List[capacity];
     }
 
-    private String normalizeKey(String key) {
-        String keyOriginal = key.trim();
-        return keyOriginal.toLowerCase(Locale.ENGLISH);
+
+    private final class HeadersView extends AbstractMap<String, List<String>> {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && hasKey((String) key);
+        }
+
+        @Override
+        public List<String> get(Object key) {
+            if (key instanceof String && hasKey((String) key)) {
+                return getValues((String) key);
+            } else {
+                return null;
+            }
+        }
+
+        @Override
+        public Set<Entry<String, List<String>>> entrySet() {
+            return new AbstractSet<Entry<String, List<String>>>() {
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Entry<String, List<String>>> iterator() {
+                    return new Iterator<Entry<String, List<String>>>() {
+
+                        private int index = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < size;
+                        }
+
+                        @Override
+                        public Entry<String, List<String>> next() {
+                            if (index >= size) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, List<String>> entry =
+                                    new SimpleImmutableEntry<String, List<String>>(names[index], values[index]);
+                            index++;
+                            return entry;
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException("The headers view is read-only.");
+                        }
+                    };
+                }
+            };
+        }
+
     }
 
 }
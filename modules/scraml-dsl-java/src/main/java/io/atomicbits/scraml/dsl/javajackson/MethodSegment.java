@@ -21,9 +21,10 @@
 package io.atomicbits.scraml.dsl.javajackson;
 
 import io.atomicbits.scraml.dsl.javajackson.json.Json;
+import io.atomicbits.scraml.dsl.javajackson.json.JsonBodyWriter;
+import io.atomicbits.scraml.dsl.javajackson.json.JsonCodec;
 import io.atomicbits.scraml.dsl.javajackson.util.Pair;
 
-import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -47,12 +48,24 @@ public abstract class MethodSegment<B, R> extends Segment {
                             BinaryRequest binaryRequest,
                             String expectedAcceptHeader,
                             String expectedContentTypeHeader,
-                            RequestBuilder req) {
+                            RequestPrefix req) {
+        this(new PreparedRequest(method, expectedAcceptHeader, expectedContentTypeHeader),
+                theBody, queryParams, queryString, formParams, multipartParams, binaryRequest, req);
+    }
+
+    protected MethodSegment(PreparedRequest preparedRequest,
+                            B theBody,
+                            Map<String, HttpParam> queryParams,
+                            TypedQueryParams queryString,
+                            Map<String, HttpParam> formParams,
+                            List<BodyPart> multipartParams,
+                            BinaryRequest binaryRequest,
+                            RequestPrefix req) {
 
         this.body = theBody;
 
-        RequestBuilder requestBuilder = req.fold(); // We're at the end of the resource path, we can fold the resource here.
-        requestBuilder.setMethod(method);
+        // We're at the end of the resource path, the prepared request adds the method and the expected headers.
+        RequestBuilder requestBuilder = preparedRequest.newRequestBuilder(req);
         Map<String, HttpParam> actualQueryParams;
         if (queryString != null) {
             actualQueryParams = queryString.getParams();
@@ -64,20 +77,6 @@ public abstract class MethodSegment<B, R> extends Segment {
         requestBuilder.setMultipartParams(multipartParams);
         requestBuilder.setBinaryRequest(binaryRequest);
 
-        String accept = "Accept";
-        String contentType = "Content-Type";
-
-        if (expectedAcceptHeader != null && !requestBuilder.getHeaderMap().hasKey(accept)) {
-            requestBuilder.getHeaderMap().addHeader(accept, expectedAcceptHeader);
-        }
-
-        if (expectedContentTypeHeader != null && !requestBuilder.getHeaderMap().hasKey(contentType)) {
-            requestBuilder.getHeaderMap().addHeader(contentType, expectedContentTypeHeader);
-        }
-
-        // set request charset if necessary
-        setRequestCharset(requestBuilder, contentType);
-
         this.requestBuilder = requestBuilder;
     }
 
@@ -111,15 +110,19 @@ public abstract class MethodSegment<B, R> extends Segment {
     }
 
     protected String getJsonStringBody(String canonicalContentType) {
+        return getJsonStringBody(Json.codecFor(canonicalContentType));
+    }
+
+    protected String getJsonStringBody(JsonCodec contentCodec) {
         String stringBody = null;
         if (this.getBody() != null) {
-            stringBody = Json.writeBodyToString(this.getBody(), canonicalContentType);
+            stringBody = Json.writeBodyToString(this.getBody(), contentCodec);
         }
         return stringBody;
     }
 
     protected Boolean isFormUrlEncoded() {
-        List<String> contentValues = requestBuilder.getHeaderMap().getValues("Content-Type");
+        List<String> contentValues = requestBuilder.getHeaderMap().getValues(HeaderMap.CONTENT_TYPE);
         Boolean isFormUrlEncoded = false;
         for (String contentValue : contentValues) {
             if (contentValue.contains("application/x-www-form-urlencoded")) isFormUrlEncoded = true;
@@ -128,51 +131,47 @@ public abstract class MethodSegment<B, R> extends Segment {
     }
 
     protected String jsonBodyToString(String canonicalContentType) {
-        if (getRequestBuilder().getFormParameters().isEmpty() && getBody() != null && isFormUrlEncoded()) {
-            Map<String, HttpParam> formPs = Json.toFormUrlEncoded(getBody());
-            getRequestBuilder().setFormParameters(formPs);
+        return jsonBodyToString(Json.codecFor(canonicalContentType));
+    }
+
+    protected String jsonBodyToString(JsonCodec contentCodec) {
+        if (moveBodyToFormParameters()) {
             return null;
         } else {
-            return getJsonStringBody(canonicalContentType);
+            return getJsonStringBody(contentCodec);
         }
     }
 
-    protected RequestBuilder getRequestBuilder() {
-        return requestBuilder;
+    protected BodyWriter jsonBodyWriter(String canonicalContentType) {
+        return jsonBodyWriter(Json.codecFor(canonicalContentType));
     }
 
-
     /**
-     * see https://www.w3.org/Protocols/rfc1341/4_Content-Type.html
-     * charset is case-insensitive:
-     * * http://stackoverflow.com/questions/7718476/are-http-headers-content-type-c-case-sensitive
-     * * https://www.w3.org/TR/html4/charset.html#h-5.2.1
+     * Get a writer that serializes the body straight into the transport instead of first rendering it as a String.
      */
-    private void setRequestCharset(RequestBuilder requestBuilder, String contentType) {
-        if (requestBuilder.getHeaderMap().hasKey(contentType)) {
-            List<String> contentTypeValues = requestBuilder.getHeaderMap().getValues(contentType);
-            Boolean hasCharset = false;
-            Boolean isBinary = false;
-            for (String value : contentTypeValues) {
-                if (value.toLowerCase().contains("charset")) {
-                    hasCharset = true;
-                }
-                if (value.toLowerCase().contains("octet-stream")) {
-                    isBinary = true;
-                }
-            }
-            if (!isBinary && !hasCharset && !contentTypeValues.isEmpty()) {
-                Charset defaultCharset = requestBuilder.getClient().getConfig().getRequestCharset();
-                if (defaultCharset != null) {
-                    String value = contentTypeValues.get(0);
-                    String updatedValue = value + "; charset=" + defaultCharset.name();
-                    contentTypeValues.set(0, updatedValue);
-                    requestBuilder.getHeaderMap().setHeader(contentType, contentTypeValues);
-                }
-            }
+    protected BodyWriter jsonBodyWriter(JsonCodec contentCodec) {
+        if (moveBodyToFormParameters() || getBody() == null) {
+            return null;
+        } else {
+            return new JsonBodyWriter<B>(getBody(), contentCodec);
         }
     }
 
+    private Boolean moveBodyToFormParameters() {
+        if (getRequestBuilder().getFormParameters().isEmpty() && getBody() != null && isFormUrlEncoded()) {
+            Map<String, HttpParam> formPs = Json.toFormUrlEncoded(getBody());
+            getRequestBuilder().setFormParameters(formPs);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    protected RequestBuilder getRequestBuilder() {
+        return requestBuilder;
+    }
+
+
     private Map<String, HttpParam> removeNullParams(Map<String, HttpParam> map) {
         Map<String, HttpParam> nonNullParams = new HashMap<>();
         if (map != null) {
@@ -0,0 +1,146 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The call-independent part of an action: its method and its expected Accept and Content-Type headers.
+ *
+ * Generated resource classes keep one prepared request per action as a constant. The Content-Type header with its
+ * request charset is resolved once and then reused by every call, so a call only has to bind its path, parameters and
+ * body.
+ */
+public final class PreparedRequest {
+
+    private final Method method;
+    private final String expectedAcceptHeader;
+    private final String expectedContentTypeHeader;
+
+    // The resolved Content-Type depends on the request charset of the client, which is only known on the first call.
+    private volatile ResolvedContentType resolvedContentType;
+
+
+    public PreparedRequest(Method method, String expectedAcceptHeader, String expectedContentTypeHeader) {
+        this.method = method;
+        this.expectedAcceptHeader = expectedAcceptHeader;
+        this.expectedContentTypeHeader = expectedContentTypeHeader;
+    }
+
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public String getExpectedAcceptHeader() {
+        return expectedAcceptHeader;
+    }
+
+    public String getExpectedContentTypeHeader() {
+        return expectedContentTypeHeader;
+    }
+
+    /**
+     * Create the request builder for a call of this action on the given resource prefix, with the method and the
+     * expected headers already in place.
+     */
+    public RequestBuilder newRequestBuilder(RequestPrefix prefix) {
+        RequestBuilder requestBuilder = prefix.toRequestBuilder();
+        requestBuilder.setMethod(method);
+
+        HeaderMap headerMap = requestBuilder.getHeaderMap();
+        if (expectedAcceptHeader != null && !headerMap.hasKey(HeaderMap.ACCEPT)) {
+            headerMap.addHeader(HeaderMap.ACCEPT, expectedAcceptHeader);
+        }
+
+        if (headerMap.hasKey(HeaderMap.CONTENT_TYPE)) {
+            // A Content-Type that was set on the resource may still need its charset.
+            setRequestCharset(requestBuilder);
+        } else if (expectedContentTypeHeader != null) {
+            headerMap.addHeader(HeaderMap.CONTENT_TYPE, resolveContentType(requestBuilder.getClient()));
+        }
+
+        return requestBuilder;
+    }
+
+    private String resolveContentType(Client client) {
+        Charset charset = client != null ? client.getConfig().getRequestCharset() : null;
+        ResolvedContentType resolved = resolvedContentType;
+        if (resolved == null || resolved.charset != charset) {
+            resolved = new ResolvedContentType(charset, withCharset(expectedContentTypeHeader, charset));
+            resolvedContentType = resolved;
+        }
+        return resolved.value;
+    }
+
+    /**
+     * see https://www.w3.org/Protocols/rfc1341/4_Content-Type.html
+     * charset is case-insensitive:
+     * * http://stackoverflow.com/questions/7718476/are-http-headers-content-type-c-case-sensitive
+     * * https://www.w3.org/TR/html4/charset.html#h-5.2.1
+     */
+    private static void setRequestCharset(RequestBuilder requestBuilder) {
+        List<String> contentTypeValues = requestBuilder.getHeaderMap().getValues(HeaderMap.CONTENT_TYPE);
+        if (contentTypeValues.isEmpty() || requestBuilder.getClient() == null) {
+            return;
+        }
+        for (String value : contentTypeValues) {
+            if (!needsCharset(value)) {
+                return;
+            }
+        }
+        Charset defaultCharset = requestBuilder.getClient().getConfig().getRequestCharset();
+        if (defaultCharset != null) {
+            List<String> updatedValues = new ArrayList<String>(contentTypeValues);
+            updatedValues.set(0, withCharset(contentTypeValues.get(0), defaultCharset));
+            requestBuilder.getHeaderMap().setHeader(HeaderMap.CONTENT_TYPE, updatedValues);
+        }
+    }
+
+    private static boolean needsCharset(String contentTypeValue) {
+        String lowerCaseValue = contentTypeValue.toLowerCase();
+        return !lowerCaseValue.contains("charset") && !lowerCaseValue.contains("octet-stream");
+    }
+
+    private static String withCharset(String contentTypeValue, Charset charset) {
+        if (charset != null && needsCharset(contentTypeValue)) {
+            return contentTypeValue + "; charset=" + charset.name();
+        } else {
+            return contentTypeValue;
+        }
+    }
+
+
+    private static final class ResolvedContentType {
+
+        private final Charset charset;
+        private final String value;
+
+        private ResolvedContentType(Charset charset, String value) {
+            this.charset = charset;
+            this.value = value;
+        }
+
+    }
+
+}
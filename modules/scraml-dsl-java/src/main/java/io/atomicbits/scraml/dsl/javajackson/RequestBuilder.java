@@ -22,11 +22,13 @@ package io.atomicbits.scraml.dsl.javajackson;
 
 import io.atomicbits.scraml.dsl.javajackson.util.ListUtils;
 
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Created by peter on 19/08/15.
@@ -35,15 +37,14 @@ public class RequestBuilder {
 
     private Client client;
     private List<String> path = new ArrayList<String>();
+    private String relativePath;
+    private String resourcePathTemplate;
     private Method method = Method.GET;
     private Map<String, HttpParam> queryParameters = new HashMap<String, HttpParam>();
     private Map<String, HttpParam> formParameters = new HashMap<String, HttpParam>();
     private List<BodyPart> multipartParams = new ArrayList<BodyPart>(1);
     private BinaryRequest binaryRequest = null;
     private HeaderMap headerMap = new HeaderMap();
-    private List<HeaderOp> headerOps = new ArrayList<>(1);
-
-    RequestBuilder parentRequestBuilder;
 
 
     public RequestBuilder() {
@@ -54,35 +55,6 @@ public class RequestBuilder {
     }
 
 
-    /**
-     * Fold all properties of this requestbuilder's parents and itself recursively into a new requestbuilder.
-     */
-    public RequestBuilder fold() {
-        RequestBuilder folded;
-        if (getParentRequestBuilder() != null) {
-            folded = getParentRequestBuilder().fold();
-        } else {
-            folded = new RequestBuilder();
-        }
-        if (getClient() != null) {
-            folded.setClient(getClient());
-        }
-        path.forEach(folded::appendPathElement);
-        if (method != null) {
-            folded.setMethod(method);
-        }
-        queryParameters.forEach(folded::addQueryParameter);
-        formParameters.forEach(folded::addFormParameter);
-        multipartParams.forEach(folded::addMultipartParameter);
-        if (binaryRequest != null) {
-            folded.setBinaryRequest(binaryRequest);
-        }
-        for (HeaderOp headerOp : this.getHeaderOps()) {
-            headerOp.process(folded.getHeaderMap());
-        }
-        return folded;
-    }
-
     public Client getClient() {
         return client;
     }
@@ -95,18 +67,46 @@ public class RequestBuilder {
         return headerMap;
     }
 
-    public List<HeaderOp> getHeaderOps() {
-        return headerOps;
+    public void setHeaderMap(HeaderMap headerMap) {
+        if (headerMap == null) {
+            this.headerMap = new HeaderMap();
+        } else {
+            this.headerMap = headerMap;
+        }
     }
 
+    /**
+     * @deprecated Request builders no longer have parent builders to fold, the resources share a RequestPrefix instead.
+     * This returns a copy of this request builder.
+     */
+    @Deprecated
+    public RequestBuilder fold() {
+        RequestBuilder folded = new RequestBuilder(client);
+        folded.setPath(new ArrayList<String>(path), relativePath);
+        folded.setResourcePathTemplate(resourcePathTemplate);
+        folded.setMethod(method);
+        folded.setQueryParameters(new HashMap<String, HttpParam>(queryParameters));
+        folded.setFormParameters(new HashMap<String, HttpParam>(formParameters));
+        folded.setMultipartParams(new ArrayList<BodyPart>(multipartParams));
+        folded.setBinaryRequest(binaryRequest);
+        folded.setHeaderMap(headerMap.cloned());
+        return folded;
+    }
+
+    /**
+     * @deprecated Use getHeaderMap().addHeader(key, value), the header is now added right away instead of on fold().
+     */
+    @Deprecated
     public void addHeader(String key, String value) {
-        HeaderAdd headerAdd = new HeaderAdd(key, value);
-        getHeaderOps().add(headerAdd);
+        getHeaderMap().addHeader(key, value);
     }
 
+    /**
+     * @deprecated Use getHeaderMap().setHeader(key, value), the header is now set right away instead of on fold().
+     */
+    @Deprecated
     public void setHeader(String key, String value) {
-        HeaderSet headerSet = new HeaderSet(key, value);
-        getHeaderOps().add(headerSet);
+        getHeaderMap().setHeader(key, value);
     }
 
     public Method getMethod() {
@@ -133,14 +133,6 @@ public class RequestBuilder {
         return path;
     }
 
-    public RequestBuilder getParentRequestBuilder() {
-        return parentRequestBuilder;
-    }
-
-    public void setParentRequestBuilder(RequestBuilder parentRequestBuilder) {
-        this.parentRequestBuilder = parentRequestBuilder;
-    }
-
     public void setClient(Client client) {
         this.client = client;
     }
@@ -172,6 +164,15 @@ public class RequestBuilder {
         } else {
             this.path = path;
         }
+        this.relativePath = null;
+    }
+
+    /**
+     * Set the path together with its already joined form, as kept by a RequestPrefix.
+     */
+    void setPath(List<String> path, String relativePath) {
+        setPath(path);
+        this.relativePath = relativePath;
     }
 
     public void setQueryParameters(Map<String, HttpParam> queryParameters) {
@@ -195,11 +196,30 @@ public class RequestBuilder {
     }
 
     public String getRelativePath() {
-        return ListUtils.mkString(path, "/");
+        if (relativePath == null) {
+            relativePath = ListUtils.mkString(path, "/");
+        }
+        return relativePath;
     }
 
     public void appendPathElement(String pathElement) {
         this.path.add(pathElement);
+        this.relativePath = null;
+    }
+
+    /**
+     * The RAML resource path this request was built for, e.g. '/users/{userId}'. Request interceptors use it to group
+     * requests per endpoint. Falls back to the actual path when the request wasn't built from a RequestPrefix.
+     */
+    public String getResourcePathTemplate() {
+        if (resourcePathTemplate == null) {
+            return "/" + getRelativePath();
+        }
+        return resourcePathTemplate;
+    }
+
+    public void setResourcePathTemplate(String resourcePathTemplate) {
+        this.resourcePathTemplate = resourcePathTemplate;
     }
 
     public CompletableFuture<Response<String>> callToStringResponse(String body) {
@@ -214,12 +234,64 @@ public class RequestBuilder {
         return client.callToTypeResponse(this, body, canonicalResponseType);
     }
 
+    public CompletableFuture<Response<String>> callToStringResponse(BodyWriter body) {
+        return client.callToStringResponse(this, body);
+    }
+
+    public CompletableFuture<Response<BinaryData>> callToBinaryResponse(BodyWriter body) {
+        return client.callToBinaryResponse(this, body);
+    }
+
+    public <R> CompletableFuture<Response<R>> callToTypeResponse(BodyWriter body, String canonicalResponseType) {
+        return client.callToTypeResponse(this, body, canonicalResponseType);
+    }
+
+    public CompletableFuture<Response<Long>> callToDownloadResponse(String body, WritableByteChannel target, DownloadProgress progress) {
+        return client.callToDownloadResponse(this, body, target, progress);
+    }
+
+    public CompletableFuture<Response<Long>> callToDownloadResponse(BodyWriter body, WritableByteChannel target, DownloadProgress progress) {
+        return client.callToDownloadResponse(this, body, target, progress);
+    }
+
+    public <E> CompletableFuture<Response<Stream<E>>> callToStreamResponse(String body, String canonicalElementType) {
+        return client.callToStreamResponse(this, body, canonicalElementType);
+    }
+
+    public <E> CompletableFuture<Response<Stream<E>>> callToStreamResponse(BodyWriter body, String canonicalElementType) {
+        return client.callToStreamResponse(this, body, canonicalElementType);
+    }
+
+    public Response<String> callToStringResponseSync(String body) {
+        return client.callToStringResponseSync(this, body);
+    }
+
+    public Response<BinaryData> callToBinaryResponseSync(String body) {
+        return client.callToBinaryResponseSync(this, body);
+    }
+
+    public <R> Response<R> callToTypeResponseSync(String body, String canonicalResponseType) {
+        return client.callToTypeResponseSync(this, body, canonicalResponseType);
+    }
+
+    public Response<String> callToStringResponseSync(BodyWriter body) {
+        return client.callToStringResponseSync(this, body);
+    }
+
+    public Response<BinaryData> callToBinaryResponseSync(BodyWriter body) {
+        return client.callToBinaryResponseSync(this, body);
+    }
+
+    public <R> Response<R> callToTypeResponseSync(BodyWriter body, String canonicalResponseType) {
+        return client.callToTypeResponseSync(this, body, canonicalResponseType);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("client:\t\t" + client + "\n");
         sb.append("path:\t\t" + listToString(path) + "\n");
-        sb.append("parent:\t\t" + parentRequestBuilder);
+        sb.append("headers:\t" + headerMap.getHeaders());
         return sb.toString();
     }
 
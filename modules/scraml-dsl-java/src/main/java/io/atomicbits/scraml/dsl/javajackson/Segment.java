@@ -25,6 +25,4 @@ package io.atomicbits.scraml.dsl.javajackson;
  */
 public abstract class Segment {
 
-     protected abstract RequestBuilder getRequestBuilder();
-
 }
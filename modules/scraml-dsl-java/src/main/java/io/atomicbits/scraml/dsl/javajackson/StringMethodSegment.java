@@ -42,10 +42,25 @@ public class StringMethodSegment<B> extends MethodSegment<B, String> {
                                BinaryRequest binaryRequest,
                                String expectedAcceptHeader,
                                String expectedContentTypeHeader,
-                               RequestBuilder req,
+                               RequestPrefix req,
                                String canonicalContentType,
                                String canonicalResponseType) {
-        super(method, theBody, queryParams, queryString, formParams, multipartParams, binaryRequest, expectedAcceptHeader, expectedContentTypeHeader, req);
+        this(new PreparedRequest(method, expectedAcceptHeader, expectedContentTypeHeader), theBody, primitiveBody, queryParams,
+                queryString, formParams, multipartParams, binaryRequest, req, canonicalContentType, canonicalResponseType);
+    }
+
+    public StringMethodSegment(PreparedRequest preparedRequest,
+                               B theBody,
+                               Boolean primitiveBody,
+                               Map<String, HttpParam> queryParams,
+                               TypedQueryParams queryString,
+                               Map<String, HttpParam> formParams,
+                               List<BodyPart> multipartParams,
+                               BinaryRequest binaryRequest,
+                               RequestPrefix req,
+                               String canonicalContentType,
+                               String canonicalResponseType) {
+        super(preparedRequest, theBody, queryParams, queryString, formParams, multipartParams, binaryRequest, req);
 
         this.canonicalContentType = canonicalContentType;
         this.primitiveBody = primitiveBody;
@@ -55,7 +70,18 @@ public class StringMethodSegment<B> extends MethodSegment<B, String> {
         if (this.primitiveBody) {
             return getRequestBuilder().callToStringResponse(getPlainStringBody());
         } else {
-            return getRequestBuilder().callToStringResponse(jsonBodyToString(canonicalContentType));
+            return getRequestBuilder().callToStringResponse(jsonBodyWriter(canonicalContentType));
+        }
+    }
+
+    /**
+     * Execute the request and wait for the response on the calling thread.
+     */
+    public Response<String> callSync() {
+        if (this.primitiveBody) {
+            return getRequestBuilder().callToStringResponseSync(getPlainStringBody());
+        } else {
+            return getRequestBuilder().callToStringResponseSync(jsonBodyWriter(canonicalContentType));
         }
     }
 
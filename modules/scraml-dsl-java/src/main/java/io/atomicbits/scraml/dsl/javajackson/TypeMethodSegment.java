@@ -20,17 +20,22 @@
 
 package io.atomicbits.scraml.dsl.javajackson;
 
+import com.fasterxml.jackson.databind.JavaType;
+import io.atomicbits.scraml.dsl.javajackson.json.Json;
+import io.atomicbits.scraml.dsl.javajackson.json.JsonCodec;
+
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Created by peter on 23/09/15.
  */
 public class TypeMethodSegment<B, R> extends MethodSegment<B, R> {
 
-    private String canonicalContentType;
-    private String canonicalResponseType;
+    private JsonCodec contentCodec;
+    private JsonCodec responseCodec;
     private Boolean primitiveBody;
 
     public TypeMethodSegment(Method method,
@@ -43,21 +48,92 @@ public class TypeMethodSegment<B, R> extends MethodSegment<B, R> {
                              BinaryRequest binaryRequest,
                              String expectedAcceptHeader,
                              String expectedContentTypeHeader,
-                             RequestBuilder req,
+                             RequestPrefix req,
                              String canonicalContentType,
                              String canonicalResponseType) {
-        super(method, theBody, queryParams, queryString, formParams, multipartParams, binaryRequest, expectedAcceptHeader, expectedContentTypeHeader, req);
+        this(method, theBody, primitiveBody, queryParams, queryString, formParams, multipartParams, binaryRequest, expectedAcceptHeader,
+                expectedContentTypeHeader, req, Json.codecFor(canonicalContentType), Json.codecFor(canonicalResponseType));
+    }
+
+    /**
+     * Create the segment with precompiled codecs, generated resource classes hold these codecs as constants.
+     */
+    public TypeMethodSegment(Method method,
+                             B theBody,
+                             Boolean primitiveBody,
+                             Map<String, HttpParam> queryParams,
+                             TypedQueryParams queryString,
+                             Map<String, HttpParam> formParams,
+                             List<BodyPart> multipartParams,
+                             BinaryRequest binaryRequest,
+                             String expectedAcceptHeader,
+                             String expectedContentTypeHeader,
+                             RequestPrefix req,
+                             JsonCodec contentCodec,
+                             JsonCodec responseCodec) {
+        this(new PreparedRequest(method, expectedAcceptHeader, expectedContentTypeHeader), theBody, primitiveBody, queryParams,
+                queryString, formParams, multipartParams, binaryRequest, req, contentCodec, responseCodec);
+    }
 
-        this.canonicalContentType = canonicalContentType;
-        this.canonicalResponseType = canonicalResponseType;
+    /**
+     * Create the segment from the prepared request and the precompiled codecs that generated resource classes hold as constants.
+     */
+    public TypeMethodSegment(PreparedRequest preparedRequest,
+                             B theBody,
+                             Boolean primitiveBody,
+                             Map<String, HttpParam> queryParams,
+                             TypedQueryParams queryString,
+                             Map<String, HttpParam> formParams,
+                             List<BodyPart> multipartParams,
+                             BinaryRequest binaryRequest,
+                             RequestPrefix req,
+                             JsonCodec contentCodec,
+                             JsonCodec responseCodec) {
+        super(preparedRequest, theBody, queryParams, queryString, formParams, multipartParams, binaryRequest, req);
+
+        this.contentCodec = contentCodec;
+        this.responseCodec = responseCodec;
         this.primitiveBody = primitiveBody;
     }
 
     public CompletableFuture<Response<R>> call() {
         if (this.primitiveBody) {
-            return getRequestBuilder().callToTypeResponse(getPlainStringBody(), canonicalResponseType);
+            return getRequestBuilder().callToTypeResponse(getPlainStringBody(), responseCodec.getCanonicalType());
+        } else {
+            return getRequestBuilder().callToTypeResponse(jsonBodyWriter(contentCodec), responseCodec.getCanonicalType());
+        }
+    }
+
+    /**
+     * Execute the request and stream the elements of the JSON array in the response body as they arrive, without materializing the
+     * complete list. This only applies to actions with a list response type. Close the stream (e.g. with try-with-resources) when it is
+     * not read to the end, it holds on to the connection.
+     */
+    public <E> CompletableFuture<Response<Stream<E>>> stream() {
+        String canonicalElementType = getCanonicalElementType();
+        if (this.primitiveBody) {
+            return getRequestBuilder().callToStreamResponse(getPlainStringBody(), canonicalElementType);
+        } else {
+            return getRequestBuilder().callToStreamResponse(jsonBodyWriter(contentCodec), canonicalElementType);
+        }
+    }
+
+    private String getCanonicalElementType() {
+        JavaType elementType = responseCodec.getJavaType().getContentType();
+        if (elementType == null) {
+            throw new IllegalStateException("Cannot stream a response of type " + responseCodec.getCanonicalType() + ", it is not a list.");
+        }
+        return elementType.toCanonical();
+    }
+
+    /**
+     * Execute the request and wait for the response on the calling thread.
+     */
+    public Response<R> callSync() {
+        if (this.primitiveBody) {
+            return getRequestBuilder().callToTypeResponseSync(getPlainStringBody(), responseCodec.getCanonicalType());
         } else {
-            return getRequestBuilder().callToTypeResponse(jsonBodyToString(canonicalContentType), canonicalResponseType);
+            return getRequestBuilder().callToTypeResponseSync(jsonBodyWriter(contentCodec), responseCodec.getCanonicalType());
         }
     }
 
@@ -0,0 +1,199 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An adaptive limit on the number of concurrent requests of a client, with a bounded queue in front of it.
+ *
+ * The limit follows the observed round trip times (AIMD): it grows by one per window of requests as long as the round trip
+ * time stays close to the lowest one seen, and it is cut by the backoff ratio when the round trip time rises above the
+ * tolerated multiple of that minimum or when a request is dropped (a failure, 429 or 503). The minimum round trip time is
+ * re-measured now and then so that a lasting change downstream doesn't pin the limit.
+ *
+ * Requests above the limit wait in the queue, requests that don't fit in the queue are rejected right away instead of piling
+ * up in the connection pool.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    // The number of samples after which the minimum round trip time is measured again.
+    private static final int MIN_RTT_PROBE_INTERVAL = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final double backoffRatio;
+    private final double rttTolerance;
+
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long minRttNanos = Long.MAX_VALUE;
+    private int samples;
+    private long rejected;
+
+    public AdaptiveConcurrencyLimiter() {
+        this(20, 1, 200, 100);
+    }
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueueSize) {
+        this(initialLimit, minLimit, maxLimit, maxQueueSize, 0.9, 2.0);
+    }
+
+    /**
+     * @param backoffRatio The factor by which the limit is multiplied on congestion, between 0 and 1.
+     * @param rttTolerance The multiple of the minimum round trip time that is still considered uncongested.
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit,
+                                      int minLimit,
+                                      int maxLimit,
+                                      int maxQueueSize,
+                                      double backoffRatio,
+                                      double rttTolerance) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Expected 1 <= minLimit <= initialLimit <= maxLimit.");
+        }
+        if (maxQueueSize < 0) {
+            throw new IllegalArgumentException("The queue size cannot be negative.");
+        }
+        if (backoffRatio <= 0.0 || backoffRatio >= 1.0 || rttTolerance < 1.0) {
+            throw new IllegalArgumentException("Expected 0 < backoffRatio < 1 and rttTolerance >= 1.");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueueSize = maxQueueSize;
+        this.backoffRatio = backoffRatio;
+        this.rttTolerance = rttTolerance;
+    }
+
+    /**
+     * Run the request now if the limit allows it, queue it otherwise. Every request that is run must call release(...)
+     * exactly once when it is done.
+     *
+     * @return false when the queue is full and the request was rejected, it is not run in that case.
+     */
+    public boolean submit(Runnable request) {
+        synchronized (this) {
+            if (inFlight < (int) limit) {
+                inFlight++;
+            } else if (queue.size() < maxQueueSize) {
+                queue.addLast(request);
+                return true;
+            } else {
+                rejected++;
+                return false;
+            }
+        }
+        request.run();
+        return true;
+    }
+
+    /**
+     * @param rttNanos The round trip time of the request, without its time in the queue.
+     * @param dropped  True when the request failed in a way that indicates overload.
+     */
+    public void release(long rttNanos, boolean dropped) {
+        List<Runnable> ready;
+        synchronized (this) {
+            // Only grow when the current limit was actually used, counting the request that is released.
+            boolean limitUsed = inFlight * 2 >= limit;
+            inFlight--;
+            if (dropped) {
+                decrease();
+            } else {
+                if (++samples % MIN_RTT_PROBE_INTERVAL == 0 || rttNanos < minRttNanos) {
+                    minRttNanos = rttNanos;
+                }
+                if (rttNanos > minRttNanos * rttTolerance) {
+                    decrease();
+                } else if (limitUsed) {
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+            }
+            ready = pollReady();
+        }
+        run(ready);
+    }
+
+    /**
+     * Release a request that was cancelled, e.g. a hedge that lost. It frees its place without changing the limit, as its
+     * round trip time says nothing about the load downstream.
+     */
+    public void releaseCancelled() {
+        List<Runnable> ready;
+        synchronized (this) {
+            inFlight--;
+            ready = pollReady();
+        }
+        run(ready);
+    }
+
+    private List<Runnable> pollReady() {
+        List<Runnable> ready = null;
+        while (inFlight < (int) limit && !queue.isEmpty()) {
+            if (ready == null) {
+                ready = new ArrayList<>();
+            }
+            ready.add(queue.pollFirst());
+            inFlight++;
+        }
+        return ready;
+    }
+
+    private static void run(List<Runnable> ready) {
+        if (ready != null) {
+            for (Runnable request : ready) {
+                request.run();
+            }
+        }
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    @Override
+    public String toString() {
+        return "limit=" + getLimit() + ", inFlight=" + getInFlight() + ", queueDepth=" + getQueueDepth() + ", rejected=" +
+                getRejectedCount();
+    }
+
+}
@@ -25,6 +25,9 @@ import com.ning.http.client.AsyncHttpClientConfigDefaults;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Created by peter on 18/09/15.
@@ -52,6 +55,18 @@ public class ClientConfig {
     private Integer sslSessionCacheSize = AsyncHttpClientConfigDefaults.defaultSslSessionCacheSize();
     private SSLContext sslContext;
     private HostnameVerifier hostnameVerifier;
+    private Boolean streamingResponseDecoding = false;
+    private Long streamingBufferBytes = 8L * 1024 * 1024;
+    private Boolean keepTypedResponseStringBody = true;
+    private List<RequestInterceptor> interceptors = new ArrayList<>();
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private RetryPolicy retryPolicy;
+    private CircuitBreaker circuitBreaker;
+    private Executor executor;
+    private Boolean http2Enabled = true;
+    private ResponseCache responseCache;
+    private RequestCoalescer requestCoalescer;
+    private Compression compression;
 
     public ClientConfig() {
     }
@@ -261,4 +276,155 @@ public class ClientConfig {
     public void setHostnameVerifier(HostnameVerifier hostnameVerifier) {
         this.hostnameVerifier = hostnameVerifier;
     }
+
+    /**
+     * When true, typed (JSON) responses are parsed directly from the response bytes instead of being decoded into a String first.
+     */
+    public Boolean getStreamingResponseDecoding() {
+        return streamingResponseDecoding;
+    }
+
+    public void setStreamingResponseDecoding(Boolean streamingResponseDecoding) {
+        this.streamingResponseDecoding = streamingResponseDecoding;
+    }
+
+    /**
+     * The number of bytes of a streamed response that the ning client buffers ahead of its consumer, 8 MiB by default. The exchange
+     * is aborted when the consumer falls further behind. The JDK HTTP client only reads the body as fast as it is consumed.
+     */
+    public Long getStreamingBufferBytes() {
+        return streamingBufferBytes;
+    }
+
+    public void setStreamingBufferBytes(Long streamingBufferBytes) {
+        this.streamingBufferBytes = streamingBufferBytes;
+    }
+
+    /**
+     * When false, the string body of successful typed responses is dropped once the typed body is parsed.
+     * The string body of non-2xx responses is always kept.
+     */
+    public Boolean getKeepTypedResponseStringBody() {
+        return keepTypedResponseStringBody;
+    }
+
+    public void setKeepTypedResponseStringBody(Boolean keepTypedResponseStringBody) {
+        this.keepTypedResponseStringBody = keepTypedResponseStringBody;
+    }
+
+    /**
+     * The interceptors that are notified of every request, in the order in which they are called. The client takes a copy
+     * of this list when it is created.
+     */
+    public List<RequestInterceptor> getInterceptors() {
+        return interceptors;
+    }
+
+    public void setInterceptors(List<RequestInterceptor> interceptors) {
+        if (interceptors == null) {
+            this.interceptors = new ArrayList<>();
+        } else {
+            this.interceptors = interceptors;
+        }
+    }
+
+    public ClientConfig addInterceptor(RequestInterceptor interceptor) {
+        this.interceptors.add(interceptor);
+        return this;
+    }
+
+    /**
+     * An optional limit on the number of concurrent requests that adapts to the observed round trip times. Null (the
+     * default) means that only the static connection limits apply. Use one limiter per client, it also exposes the current
+     * limit and queue depth.
+     */
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    public void setConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * An optional policy to retry and hedge requests with an idempotent method. Null (the default) means that only the
+     * connection level retries of maxRequestRetry apply.
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * An optional circuit breaker that fails requests fast while their host or endpoint is failing. Null (the default)
+     * disables it.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * The executor on which the JDK HTTP client does its asynchronous work and reads the response bodies. Null (the default)
+     * gives each client its own cached thread pool. The ning client only uses it to hand over streamed responses and downloads.
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Whether the JDK HTTP client negotiates HTTP/2, true by default. The ning client only speaks HTTP/1.1.
+     */
+    public Boolean getHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    public void setHttp2Enabled(Boolean http2Enabled) {
+        this.http2Enabled = http2Enabled;
+    }
+
+    /**
+     * An optional cache for the responses on GET requests with a string or typed body. Null (the default) disables caching.
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * An optional coalescer that lets concurrent identical GET and HEAD requests with a string or typed response share a
+     * single HTTP exchange and the same decoded response. Null (the default) disables coalescing.
+     */
+    public RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    public void setRequestCoalescer(RequestCoalescer requestCoalescer) {
+        this.requestCoalescer = requestCoalescer;
+    }
+
+    /**
+     * Optional compression of request and response bodies. Null (the default) sends and accepts uncompressed bodies only.
+     */
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
 }
@@ -0,0 +1,308 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.SequenceInputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Compression of request and response bodies.
+ *
+ * Responses: the client announces gzip and deflate in its Accept-Encoding header and decodes a compressed response body while it is
+ * read. Requests: string and JSON request bodies of at least the request compression threshold are gzipped and sent with
+ * Content-Encoding: gzip. Request compression is off by default, only enable it for APIs that accept compressed requests.
+ *
+ * The Deflater and Inflater instances hold native zlib memory that is expensive to allocate, they are pooled and reused. Share one
+ * Compression instance between the clients of an application to share its pools.
+ */
+public class Compression {
+
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    public static final int NO_REQUEST_COMPRESSION = -1;
+
+    private static final byte[] GZIP_HEADER = new byte[]{0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final boolean acceptCompressedResponses;
+    private final int requestCompressionThreshold;
+    private final int level;
+
+    private final BlockingQueue<Deflater> deflaters;
+    private final BlockingQueue<Inflater> gzipInflaters;
+    private final BlockingQueue<Inflater> zlibInflaters;
+
+    /**
+     * Accept compressed responses, don't compress requests.
+     */
+    public Compression() {
+        this(true, NO_REQUEST_COMPRESSION, Deflater.DEFAULT_COMPRESSION, 16);
+    }
+
+    /**
+     * Accept compressed responses and gzip request bodies of at least the given number of bytes.
+     */
+    public Compression(int requestCompressionThreshold) {
+        this(true, requestCompressionThreshold, Deflater.DEFAULT_COMPRESSION, 16);
+    }
+
+    /**
+     * @param acceptCompressedResponses   Whether to ask for compressed responses.
+     * @param requestCompressionThreshold The minimum size in bytes of a request body that is gzipped, or NO_REQUEST_COMPRESSION.
+     * @param level                       The deflate level (0-9) of request bodies, Deflater.DEFAULT_COMPRESSION is level 6.
+     * @param maxPooledCodecs             The maximum number of idle deflaters and of idle inflaters of each kind that are kept.
+     */
+    public Compression(boolean acceptCompressedResponses, int requestCompressionThreshold, int level, int maxPooledCodecs) {
+        this.acceptCompressedResponses = acceptCompressedResponses;
+        this.requestCompressionThreshold = requestCompressionThreshold;
+        this.level = level;
+        this.deflaters = new ArrayBlockingQueue<>(Math.max(1, maxPooledCodecs));
+        this.gzipInflaters = new ArrayBlockingQueue<>(Math.max(1, maxPooledCodecs));
+        this.zlibInflaters = new ArrayBlockingQueue<>(Math.max(1, maxPooledCodecs));
+    }
+
+    public boolean isAcceptCompressedResponses() {
+        return acceptCompressedResponses;
+    }
+
+    public int getRequestCompressionThreshold() {
+        return requestCompressionThreshold;
+    }
+
+    /**
+     * @return True if a request body of the given size must be gzipped.
+     */
+    public boolean compressRequest(long bodySize) {
+        return requestCompressionThreshold >= 0 && bodySize >= requestCompressionThreshold;
+    }
+
+    /**
+     * Gzip the given bytes with a pooled deflater.
+     */
+    public byte[] gzip(byte[] data) {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, true);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            out.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[Math.min(BUFFER_SIZE, Math.max(64, data.length))];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, data.length);
+            writeIntLE(out, (int) crc.getValue());
+            writeIntLE(out, data.length);
+            return out.toByteArray();
+        } finally {
+            deflater.reset();
+            if (!deflaters.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Decode the response body stream according to its Content-Encoding. Nothing is read until the returned stream is read, and an
+     * empty body (e.g. of a HEAD request) stays empty. The pooled inflater is released when the returned stream is closed. A stream
+     * without (or with an unknown) encoding is returned as is.
+     */
+    public InputStream decode(InputStream in, String contentEncoding) {
+        if (contentEncoding == null) {
+            return in;
+        }
+        String encoding = contentEncoding.trim().toLowerCase();
+        if ("gzip".equals(encoding) || "x-gzip".equals(encoding)) {
+            return new PooledInflaterInputStream(in, gzipInflaters, true);
+        } else if ("deflate".equals(encoding)) {
+            return new PooledInflaterInputStream(in, zlibInflaters, false);
+        } else {
+            return in;
+        }
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+
+    private static int readUnsignedByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException("Unexpected end of the gzip stream.");
+        }
+        return b;
+    }
+
+    private static int readUnsignedShortLE(InputStream in) throws IOException {
+        return readUnsignedByte(in) | (readUnsignedByte(in) << 8);
+    }
+
+    private static long readUnsignedIntLE(InputStream in) throws IOException {
+        return ((long) readUnsignedShortLE(in)) | (((long) readUnsignedShortLE(in)) << 16);
+    }
+
+    private static void skipBytes(InputStream in, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            readUnsignedByte(in);
+        }
+    }
+
+    private static void skipZeroTerminated(InputStream in) throws IOException {
+        while (readUnsignedByte(in) != 0) {
+            // skip
+        }
+    }
+
+    private static void readGzipHeader(InputStream in) throws IOException {
+        if (readUnsignedShortLE(in) != GZIP_MAGIC) {
+            throw new ZipException("Not in gzip format.");
+        }
+        if (readUnsignedByte(in) != Deflater.DEFLATED) {
+            throw new ZipException("Unsupported gzip compression method.");
+        }
+        int flags = readUnsignedByte(in);
+        skipBytes(in, 6); // modification time, extra flags and operating system
+        if ((flags & FEXTRA) == FEXTRA) {
+            skipBytes(in, readUnsignedShortLE(in));
+        }
+        if ((flags & FNAME) == FNAME) {
+            skipZeroTerminated(in);
+        }
+        if ((flags & FCOMMENT) == FCOMMENT) {
+            skipZeroTerminated(in);
+        }
+        if ((flags & FHCRC) == FHCRC) {
+            skipBytes(in, 2);
+        }
+    }
+
+    /**
+     * Inflates the body with an inflater from the pool and checks the gzip trailer. The inflater goes back to the pool when the stream
+     * is closed.
+     */
+    private static class PooledInflaterInputStream extends InflaterInputStream {
+
+        private final BlockingQueue<Inflater> pool;
+        private final boolean gzip;
+        private final CRC32 crc = new CRC32();
+        private final AtomicBoolean released = new AtomicBoolean(false);
+        private boolean started;
+        private boolean empty;
+        private boolean trailerChecked;
+
+        PooledInflaterInputStream(InputStream in, BlockingQueue<Inflater> pool, boolean gzip) {
+            super(new PushbackInputStream(in, 1), acquire(pool, gzip), BUFFER_SIZE);
+            this.pool = pool;
+            this.gzip = gzip;
+        }
+
+        private static Inflater acquire(BlockingQueue<Inflater> pool, boolean gzip) {
+            Inflater inflater = pool.poll();
+            return inflater != null ? inflater : new Inflater(gzip);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!started) {
+                started = true;
+                int first = in.read();
+                if (first == -1) {
+                    empty = true;
+                } else {
+                    ((PushbackInputStream) in).unread(first);
+                    if (gzip) {
+                        readGzipHeader(in);
+                    }
+                }
+            }
+            if (empty) {
+                return -1;
+            }
+            int count = super.read(b, off, len);
+            if (count > 0) {
+                if (gzip) {
+                    crc.update(b, off, count);
+                }
+            } else if (count == -1 && gzip && !trailerChecked) {
+                trailerChecked = true;
+                checkTrailer();
+            }
+            return count;
+        }
+
+        private void checkTrailer() throws IOException {
+            // The trailer may already be in the input buffer, behind the end of the deflated data.
+            int remaining = inf.getRemaining();
+            InputStream trailer =
+                    remaining > 0 ? new SequenceInputStream(new ByteArrayInputStream(buf, len - remaining, remaining), in) : in;
+            if (readUnsignedIntLE(trailer) != crc.getValue()) {
+                throw new ZipException("Corrupt gzip stream (invalid CRC).");
+            }
+            if (readUnsignedIntLE(trailer) != (inf.getBytesWritten() & 0xffffffffL)) {
+                throw new ZipException("Corrupt gzip stream (invalid size).");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (released.compareAndSet(false, true)) {
+                try {
+                    super.close();
+                } finally {
+                    inf.reset();
+                    if (!pool.offer(inf)) {
+                        inf.end();
+                    }
+                }
+            }
+        }
+
+    }
+
+}
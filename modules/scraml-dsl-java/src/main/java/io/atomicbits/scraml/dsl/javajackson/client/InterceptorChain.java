@@ -0,0 +1,107 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client;
+
+import io.atomicbits.scraml.dsl.javajackson.RequestBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calls the interceptors of a client in order. A failing interceptor is logged and skipped, it never breaks the request.
+ *
+ * The interceptors are copied into an array when the client is created, so an empty chain costs no more than a length check.
+ */
+public final class InterceptorChain {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InterceptorChain.class);
+
+    private final RequestInterceptor[] interceptors;
+
+    public InterceptorChain(List<RequestInterceptor> interceptors) {
+        if (interceptors == null) {
+            this.interceptors = new RequestInterceptor[0];
+        } else {
+            this.interceptors = interceptors.toArray(new RequestInterceptor[interceptors.size()]);
+        }
+    }
+
+    public boolean isEmpty() {
+        return interceptors.length == 0;
+    }
+
+    public void onRequestStart(RequestBuilder request, String resourcePath, long requestBytes) {
+        for (RequestInterceptor interceptor : interceptors) {
+            try {
+                interceptor.onRequestStart(request, resourcePath, requestBytes);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Request interceptor " + interceptor + " failed on request start.", e);
+            }
+        }
+    }
+
+    public void onHeadersReceived(RequestBuilder request,
+                                  String resourcePath,
+                                  int statusCode,
+                                  Map<String, List<String>> headers,
+                                  long elapsedNanos) {
+        for (RequestInterceptor interceptor : interceptors) {
+            try {
+                interceptor.onHeadersReceived(request, resourcePath, statusCode, headers, elapsedNanos);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Request interceptor " + interceptor + " failed on headers received.", e);
+            }
+        }
+    }
+
+    public void onBodyDecoded(RequestBuilder request, String resourcePath, long responseBytes, long elapsedNanos) {
+        for (RequestInterceptor interceptor : interceptors) {
+            try {
+                interceptor.onBodyDecoded(request, resourcePath, responseBytes, elapsedNanos);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Request interceptor " + interceptor + " failed on body decoded.", e);
+            }
+        }
+    }
+
+    public void onComplete(RequestBuilder request, String resourcePath, int statusCode, long elapsedNanos) {
+        for (RequestInterceptor interceptor : interceptors) {
+            try {
+                interceptor.onComplete(request, resourcePath, statusCode, elapsedNanos);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Request interceptor " + interceptor + " failed on complete.", e);
+            }
+        }
+    }
+
+    public void onFailure(RequestBuilder request, String resourcePath, Throwable failure, long elapsedNanos) {
+        for (RequestInterceptor interceptor : interceptors) {
+            try {
+                interceptor.onFailure(request, resourcePath, failure, elapsedNanos);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Request interceptor " + interceptor + " failed on failure.", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client;
+
+import io.atomicbits.scraml.dsl.javajackson.Response;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent identical requests share a single HTTP exchange (single-flight).
+ *
+ * The first request for a key is executed, the requests that arrive for the same key while it is in flight wait for its
+ * result. Every caller gets its own future, completed with the same decoded response, which must therefore be treated as
+ * read-only. The key is removed as soon as the exchange completes, so a later request always goes to the server again.
+ */
+public class RequestCoalescer {
+
+    private final ConcurrentMap<String, CompletableFuture<Response<?>>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public <R> CompletableFuture<Response<R>> execute(String key, Supplier<CompletableFuture<Response<R>>> request) {
+        CompletableFuture<Response<?>> shared = new CompletableFuture<>();
+        CompletableFuture<Response<?>> existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            shared = existing;
+        } else {
+            executed.incrementAndGet();
+            final CompletableFuture<Response<?>> leader = shared;
+            CompletableFuture<Response<R>> response;
+            try {
+                response = request.get();
+            } catch (RuntimeException e) {
+                response = new CompletableFuture<>();
+                response.completeExceptionally(e);
+            }
+            response.whenComplete((result, failure) -> {
+                inFlight.remove(key, leader);
+                if (failure != null) {
+                    leader.completeExceptionally(failure);
+                } else {
+                    leader.complete(result);
+                }
+            });
+        }
+
+        // A future per caller, so that one caller cannot complete or cancel the result of the others.
+        CompletableFuture<Response<R>> result = new CompletableFuture<>();
+        shared.whenComplete((response, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete((Response<R>) response);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * The number of requests that were sent to the server.
+     */
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    /**
+     * The number of requests that were answered by a request that was already in flight.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+}
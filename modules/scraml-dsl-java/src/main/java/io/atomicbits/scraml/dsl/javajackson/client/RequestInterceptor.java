@@ -0,0 +1,63 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client;
+
+import io.atomicbits.scraml.dsl.javajackson.RequestBuilder;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A request interceptor is notified of every request that a client executes. All callbacks are called on the thread that
+ * handles the request, so they should be cheap and must not block. The resource path is the RAML path template of the
+ * endpoint, e.g. '/users/{userId}', not the actual path.
+ *
+ * Either onComplete or onFailure is called exactly once for each request that was started. The elapsed times are measured
+ * from the start of the request in nanoseconds.
+ */
+public interface RequestInterceptor {
+
+    /**
+     * @param requestBytes The size of the request body, or -1 when it isn't known up front.
+     */
+    default void onRequestStart(RequestBuilder request, String resourcePath, long requestBytes) {
+    }
+
+    default void onHeadersReceived(RequestBuilder request,
+                                   String resourcePath,
+                                   int statusCode,
+                                   Map<String, List<String>> headers,
+                                   long elapsedNanos) {
+    }
+
+    /**
+     * @param responseBytes The size of the response body as it was received, or -1 when it isn't known.
+     */
+    default void onBodyDecoded(RequestBuilder request, String resourcePath, long responseBytes, long elapsedNanos) {
+    }
+
+    default void onComplete(RequestBuilder request, String resourcePath, int statusCode, long elapsedNanos) {
+    }
+
+    default void onFailure(RequestBuilder request, String resourcePath, Throwable failure, long elapsedNanos) {
+    }
+
+}
@@ -0,0 +1,321 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client;
+
+import io.atomicbits.scraml.dsl.javajackson.HeaderMap;
+import io.atomicbits.scraml.dsl.javajackson.Response;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded LRU cache of decoded GET responses, shared by all requests of a client.
+ *
+ * Responses are kept according to their Cache-Control (max-age, no-cache, no-store) or Expires headers. A stale entry that
+ * has an ETag or Last-Modified validator is revalidated with If-None-Match or If-Modified-Since, and a 304 answer reuses the
+ * cached decoded response without downloading or parsing the body again. Responses that vary on request headers are only
+ * reused for requests with the same values for those headers.
+ *
+ * The cache is shared by all callers of the client, whatever their credentials. As in a shared cache (RFC 7234, section 3.2), the
+ * response to a request with an Authorization header is only kept when the server marks it public or gives it an s-maxage.
+ *
+ * The size of an entry is estimated from the length of its body, the least recently used entries are evicted once the total
+ * exceeds the maximum size. Cached responses (and their typed bodies) are shared between callers and must be treated as
+ * read-only.
+ */
+public class ResponseCache {
+
+    // A rough estimate of the memory taken by an entry besides its body.
+    private static final long ENTRY_OVERHEAD = 256;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ResponseCache() {
+        this(16 * 1024 * 1024);
+    }
+
+    public ResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * A cached response with its validators.
+     */
+    public static final class Entry {
+
+        private final Response<?> response;
+        private final String etag;
+        private final String lastModified;
+        private final List<String> varyNames;
+        private final List<String> varyValues;
+        private final long size;
+        private volatile long expiresAtMillis;
+
+        private Entry(Response<?> response,
+                      String etag,
+                      String lastModified,
+                      List<String> varyNames,
+                      List<String> varyValues,
+                      long size,
+                      long expiresAtMillis) {
+            this.response = response;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.varyNames = varyNames;
+            this.varyValues = varyValues;
+            this.size = size;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public Response<?> getResponse() {
+            return response;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public boolean isFresh() {
+            return System.currentTimeMillis() < expiresAtMillis;
+        }
+
+        private boolean hasValidator() {
+            return etag != null || lastModified != null;
+        }
+
+    }
+
+    /**
+     * Find the entry for a request. A fresh entry counts as a hit, a stale one with a validator as a revalidation, the
+     * caller is expected to send a conditional request for it. Returns null on a miss.
+     */
+    public Entry lookup(String key, HeaderMap requestHeaders) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && (!varyValuesOf(entry.varyNames, requestHeaders).equals(entry.varyValues) ||
+                    (!entry.isFresh() && !entry.hasValidator()))) {
+                remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+        } else if (entry.isFresh()) {
+            hits.incrementAndGet();
+        } else {
+            revalidations.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * The server answered 304 on a revalidation, the entry is fresh again for the lifetime in the new headers.
+     */
+    public void notModified(Entry entry, Map<String, List<String>> responseHeaders) {
+        notModified.incrementAndGet();
+        entry.expiresAtMillis = expiresAtMillis(responseHeaders, System.currentTimeMillis());
+    }
+
+    /**
+     * Keep a 200 response if its headers allow it.
+     *
+     * @param bodySize The size of the response body in bytes, used to bound the cache.
+     */
+    public void store(String key, HeaderMap requestHeaders, Response<?> response, Map<String, List<String>> responseHeaders, long bodySize) {
+        String cacheControl = joinedHeader(responseHeaders, "Cache-Control");
+        String vary = joinedHeader(responseHeaders, "Vary");
+        if ((cacheControl != null && cacheControl.toLowerCase().contains("no-store")) || (vary != null && vary.contains("*"))) {
+            return;
+        }
+        if (requestHeaders.hasKey(HeaderMap.AUTHORIZATION) && !isShareable(cacheControl)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        String etag = joinedHeader(responseHeaders, "ETag");
+        String lastModified = joinedHeader(responseHeaders, "Last-Modified");
+        long expires = expiresAtMillis(responseHeaders, now);
+        if (expires <= now && etag == null && lastModified == null) {
+            return;
+        }
+        List<String> varyNames = new ArrayList<>();
+        if (vary != null) {
+            for (String name : vary.split(",")) {
+                if (!name.trim().isEmpty()) {
+                    varyNames.add(name.trim());
+                }
+            }
+        }
+        long size = bodySize + ENTRY_OVERHEAD;
+        if (size > maxBytes) {
+            return;
+        }
+        Entry entry = new Entry(response, etag, lastModified, varyNames, varyValuesOf(varyNames, requestHeaders), size, expires);
+        synchronized (this) {
+            remove(key);
+            entries.put(key, entry);
+            currentBytes += size;
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (currentBytes > maxBytes && eldest.hasNext()) {
+                currentBytes -= eldest.next().getValue().size;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            currentBytes -= removed.size;
+        }
+    }
+
+    private static List<String> varyValuesOf(List<String> varyNames, HeaderMap requestHeaders) {
+        if (varyNames.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>(varyNames.size());
+        for (String name : varyNames) {
+            values.add(String.join(",", requestHeaders.getValues(name)));
+        }
+        return values;
+    }
+
+    /**
+     * Whether the response may be reused for requests with other credentials than the request it answered.
+     */
+    private static boolean isShareable(String cacheControl) {
+        if (cacheControl == null) {
+            return false;
+        }
+        for (String directive : cacheControl.toLowerCase().split(",")) {
+            String trimmed = directive.trim();
+            if (trimmed.equals("public") || trimmed.startsWith("s-maxage=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The expiry time from max-age or Expires, or now when the response must be revalidated on every use.
+     */
+    private static long expiresAtMillis(Map<String, List<String>> responseHeaders, long now) {
+        String cacheControl = joinedHeader(responseHeaders, "Cache-Control");
+        if (cacheControl != null) {
+            for (String directive : cacheControl.toLowerCase().split(",")) {
+                String trimmed = directive.trim();
+                if (trimmed.equals("no-cache")) {
+                    return now;
+                }
+                if (trimmed.startsWith("max-age=")) {
+                    try {
+                        return now + Long.parseLong(trimmed.substring("max-age=".length()).trim()) * 1000;
+                    } catch (NumberFormatException e) {
+                        return now;
+                    }
+                }
+            }
+        }
+        String expires = joinedHeader(responseHeaders, "Expires");
+        if (expires != null) {
+            try {
+                return ZonedDateTime.parse(expires, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e) {
+                return now;
+            }
+        }
+        return now;
+    }
+
+    private static String joinedHeader(Map<String, List<String>> headers, String name) {
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey()) && header.getValue() != null && !header.getValue().isEmpty()) {
+                return String.join(",", header.getValue());
+            }
+        }
+        return null;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    public long getNotModified() {
+        return notModified.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getSizeInBytes() {
+        return currentBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + getHits() + ", misses=" + getMisses() + ", revalidations=" + getRevalidations() + ", notModified=" +
+                getNotModified() + ", evictions=" + getEvictions() + ", entries=" + getEntryCount() + ", bytes=" + getSizeInBytes();
+    }
+
+}
@@ -0,0 +1,359 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client;
+
+import io.atomicbits.scraml.dsl.javajackson.Method;
+import io.atomicbits.scraml.dsl.javajackson.Response;
+import io.atomicbits.scraml.dsl.javajackson.client.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Retries and hedges requests with an idempotent method (GET, HEAD, PUT and DELETE) on top of the connection level retries
+ * of the underlying HTTP client.
+ *
+ * A request is retried when it fails with an I/O error or a timeout, or when its response has one of the retryable status
+ * codes (by default 429, 502, 503 and 504). The backoff before a retry grows exponentially with full jitter, unless the
+ * response has a Retry-After header, which is honoured as long as it doesn't exceed the maximum backoff. A response whose
+ * Retry-After asks for a longer wait is returned as is.
+ *
+ * With hedging enabled, a second request is sent when the first one hasn't answered within the hedge percentile (p95 by
+ * default) of the recent latencies of the same endpoint, and the first good response wins. The percentile comes from a
+ * power-of-two histogram and is rounded up, which keeps the extra load of hedging low. An endpoint is only hedged once it
+ * has enough latency samples.
+ */
+public class RetryPolicy {
+
+    private static final Set<Method> IDEMPOTENT_METHODS = EnumSet.of(Method.GET, Method.HEAD, Method.PUT, Method.DELETE);
+
+    private static final int MIN_HEDGE_SAMPLES = 20;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "scraml-retry-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private int maxRetries = 2;
+    private long initialBackoffMillis = 50;
+    private long maxBackoffMillis = 2000;
+    private Set<Integer> retryStatusCodes = new HashSet<>(Arrays.asList(429, 502, 503, 504));
+    private boolean honourRetryAfter = true;
+    private boolean hedging = false;
+    private double hedgePercentile = 95.0;
+    private long minHedgeDelayMillis = 5;
+
+    private final ConcurrentMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    public RetryPolicy() {
+    }
+
+    public RetryPolicy(int maxRetries, long initialBackoffMillis, long maxBackoffMillis) {
+        this.maxRetries = maxRetries;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public boolean appliesTo(Method method) {
+        return IDEMPOTENT_METHODS.contains(method);
+    }
+
+    /**
+     * Run the given request with retries and hedging. The attempt supplier is called once for every request that is sent,
+     * it must create a fresh future each time. The future of a hedged request that loses is cancelled, the client should
+     * abort that request.
+     *
+     * @param resourcePath The RAML resource path of the request, hedge delays are kept per resource path.
+     */
+    public <R> CompletableFuture<Response<R>> execute(Method method,
+                                                      String resourcePath,
+                                                      Supplier<CompletableFuture<Response<R>>> attempt) {
+        if (!appliesTo(method)) {
+            return attempt.get();
+        }
+        CompletableFuture<Response<R>> result = new CompletableFuture<>();
+        runAttempt(1, resourcePath, attempt, result);
+        return result;
+    }
+
+    private <R> void runAttempt(int attemptNumber,
+                                String resourcePath,
+                                Supplier<CompletableFuture<Response<R>>> attempt,
+                                CompletableFuture<Response<R>> result) {
+        CompletableFuture<Response<R>> outcome = hedging ? hedged(resourcePath, attempt) : timed(resourcePath, attempt);
+
+        outcome.whenComplete((response, failure) -> {
+            Throwable cause = unwrap(failure);
+            long backoff = attemptNumber <= maxRetries ? retryBackoffMillis(attemptNumber, response, cause) : -1;
+            if (backoff < 0) {
+                if (cause != null) {
+                    result.completeExceptionally(cause);
+                } else {
+                    result.complete(response);
+                }
+            } else {
+                SCHEDULER.schedule(() -> runAttempt(attemptNumber + 1, resourcePath, attempt, result), backoff, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    /**
+     * Send the request and, when it takes longer than the hedge delay, a second one. The first response that isn't worth a
+     * retry wins, otherwise the last one to come in. The request that loses is cancelled.
+     */
+    private <R> CompletableFuture<Response<R>> hedged(String resourcePath, Supplier<CompletableFuture<Response<R>>> attempt) {
+        long hedgeDelay = hedgeDelayMillis(resourcePath);
+        if (hedgeDelay < 0) {
+            return timed(resourcePath, attempt);
+        }
+
+        CompletableFuture<Response<R>> first = new CompletableFuture<>();
+        List<CompletableFuture<Response<R>>> attempts = new CopyOnWriteArrayList<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicBoolean decided = new AtomicBoolean(false);
+        BiConsumer<Response<R>, Throwable> onResult = (response, failure) -> {
+            boolean last = pending.decrementAndGet() == 0;
+            boolean good = failure == null && !retryStatusCodes.contains(response.getStatus());
+            if ((last || good) && decided.compareAndSet(false, true)) {
+                // Cancel the attempt that is still running, the client aborts it so that it doesn't hold a connection any longer.
+                attempts.forEach(pendingAttempt -> pendingAttempt.cancel(true));
+                if (failure != null) {
+                    first.completeExceptionally(failure);
+                } else {
+                    first.complete(response);
+                }
+            }
+        };
+
+        CompletableFuture<Response<R>> original = timed(resourcePath, attempt);
+        attempts.add(original);
+        original.whenComplete(onResult);
+        SCHEDULER.schedule(() -> {
+            if (!decided.get()) {
+                pending.incrementAndGet();
+                CompletableFuture<Response<R>> hedge = timed(resourcePath, attempt);
+                attempts.add(hedge);
+                hedge.whenComplete(onResult);
+                // The original may have won while the hedge was being sent.
+                if (decided.get()) {
+                    hedge.cancel(true);
+                }
+            }
+        }, hedgeDelay, TimeUnit.MILLISECONDS);
+
+        return first;
+    }
+
+    private <R> CompletableFuture<Response<R>> timed(String resourcePath, Supplier<CompletableFuture<Response<R>>> attempt) {
+        long start = System.nanoTime();
+        CompletableFuture<Response<R>> future;
+        try {
+            future = attempt.get();
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        if (hedging) {
+            future.whenComplete((response, failure) -> {
+                if (failure == null) {
+                    latencyOf(resourcePath).record(System.nanoTime() - start);
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * @return The backoff before the next attempt in milliseconds, or -1 when the result must not be retried.
+     */
+    private long retryBackoffMillis(int attemptNumber, Response<?> response, Throwable failure) {
+        if (failure != null) {
+            return isRetryable(failure) ? jitteredBackoffMillis(attemptNumber) : -1;
+        }
+        if (!retryStatusCodes.contains(response.getStatus())) {
+            return -1;
+        }
+        if (honourRetryAfter) {
+            long retryAfter = retryAfterMillis(response.getHeaders());
+            if (retryAfter > maxBackoffMillis) {
+                return -1;
+            } else if (retryAfter >= 0) {
+                return retryAfter;
+            }
+        }
+        return jitteredBackoffMillis(attemptNumber);
+    }
+
+    /**
+     * @return A random backoff between 0 and the exponential ceiling of the given attempt, which is capped by the maximum backoff.
+     */
+    long jitteredBackoffMillis(int attemptNumber) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attemptNumber - 1, 30));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private boolean isRetryable(Throwable failure) {
+        return failure instanceof IOException || failure instanceof TimeoutException;
+    }
+
+    private Throwable unwrap(Throwable failure) {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            return failure.getCause();
+        }
+        return failure;
+    }
+
+    /**
+     * @return The delay given by the Retry-After header (in seconds or as an HTTP date), -1 when there is none.
+     */
+    static long retryAfterMillis(Map<String, List<String>> headers) {
+        if (headers == null) {
+            return -1;
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if ("Retry-After".equalsIgnoreCase(header.getKey()) && header.getValue() != null && !header.getValue().isEmpty()) {
+                String value = header.getValue().get(0).trim();
+                try {
+                    return Math.max(0, Long.parseLong(value) * 1000);
+                } catch (NumberFormatException e) {
+                    try {
+                        ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                        return Math.max(0, date.toInstant().toEpochMilli() - System.currentTimeMillis());
+                    } catch (DateTimeParseException dateException) {
+                        return -1;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The hedge delay for the given resource path in milliseconds, -1 when there aren't enough samples yet.
+     */
+    private long hedgeDelayMillis(String resourcePath) {
+        LatencyHistogram histogram = latencies.get(resourcePath);
+        if (histogram == null || histogram.getTotalCount() < MIN_HEDGE_SAMPLES) {
+            return -1;
+        }
+        return Math.max(minHedgeDelayMillis, TimeUnit.MICROSECONDS.toMillis(histogram.getPercentileMicros(hedgePercentile)));
+    }
+
+    private LatencyHistogram latencyOf(String resourcePath) {
+        LatencyHistogram histogram = latencies.get(resourcePath);
+        if (histogram == null) {
+            LatencyHistogram newHistogram = new LatencyHistogram();
+            histogram = latencies.putIfAbsent(resourcePath, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        return histogram;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    public void setInitialBackoffMillis(long initialBackoffMillis) {
+        this.initialBackoffMillis = initialBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    public void setMaxBackoffMillis(long maxBackoffMillis) {
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public Set<Integer> getRetryStatusCodes() {
+        return retryStatusCodes;
+    }
+
+    public void setRetryStatusCodes(Set<Integer> retryStatusCodes) {
+        this.retryStatusCodes = retryStatusCodes;
+    }
+
+    public boolean isHonourRetryAfter() {
+        return honourRetryAfter;
+    }
+
+    public void setHonourRetryAfter(boolean honourRetryAfter) {
+        this.honourRetryAfter = honourRetryAfter;
+    }
+
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    public void setHedging(boolean hedging) {
+        this.hedging = hedging;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public long getMinHedgeDelayMillis() {
+        return minHedgeDelayMillis;
+    }
+
+    public void setMinHedgeDelayMillis(long minHedgeDelayMillis) {
+        this.minHedgeDelayMillis = minHedgeDelayMillis;
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client.ning;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The body of a streamed ning response, fed with the body parts as the ning I/O thread receives them and read by the consumer of the
+ * response.
+ * <p>
+ * The I/O thread serves many connections, so it never waits for the consumer. The body parts that the consumer hasn't read yet are
+ * buffered up to a maximum number of bytes. A consumer that falls further behind fails the stream and the exchange is aborted, instead
+ * of buffering the whole body.
+ */
+class Ning19BodyInputStream extends InputStream {
+
+    private static final byte[] END = new byte[0];
+
+    private static final byte[] FAILED = new byte[0];
+
+    private final long maxBufferedBytes;
+
+    private final BlockingQueue<byte[]> parts = new LinkedBlockingQueue<>();
+
+    private final AtomicLong bufferedBytes = new AtomicLong();
+
+    private byte[] current = new byte[0];
+    private int position = 0;
+    private boolean ended = false;
+    private boolean failed = false;
+
+    private volatile boolean closed = false;
+    private volatile Throwable failure;
+
+    Ning19BodyInputStream(long maxBufferedBytes) {
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    /**
+     * Add a body part without waiting. The stream fails when the part doesn't fit in the buffer.
+     *
+     * @return false when the stream was closed or failed, no more parts are needed then.
+     */
+    boolean offer(byte[] part) {
+        if (closed || failure != null) {
+            return false;
+        }
+        if (bufferedBytes.addAndGet(part.length) > maxBufferedBytes) {
+            fail(new IOException("The consumer of the streamed response fell more than " + maxBufferedBytes + " bytes behind."));
+            return false;
+        }
+        parts.add(part);
+        return true;
+    }
+
+    /**
+     * Mark the end of the body.
+     */
+    void end() {
+        if (!closed && failure == null) {
+            parts.add(END);
+        }
+    }
+
+    /**
+     * Fail the stream, the reader gets an IOException once it has read the parts that were received before the failure.
+     */
+    void fail(Throwable t) {
+        if (failure == null) {
+            failure = t;
+            parts.add(FAILED);
+        }
+    }
+
+    /**
+     * @return The failure of the stream, null when it didn't fail.
+     */
+    Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextPart()) {
+            return -1;
+        }
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextPart()) {
+            return -1;
+        }
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return current.length - position;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        parts.clear();
+    }
+
+    /**
+     * Make sure there are unread bytes in the current part.
+     *
+     * @return false at the end of the body.
+     */
+    private boolean nextPart() throws IOException {
+        while (position == current.length) {
+            if (ended) {
+                return false;
+            }
+            if (closed) {
+                throw new IOException("The response stream is closed.");
+            }
+            if (failed) {
+                throw new IOException("The response failed: " + failure.getMessage(), failure);
+            }
+            byte[] part;
+            try {
+                part = parts.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the response body.", e);
+            }
+            if (part == FAILED) {
+                failed = true;
+            } else if (part == END) {
+                ended = true;
+            } else {
+                bufferedBytes.addAndGet(-part.length);
+                current = part;
+                position = 0;
+            }
+        }
+        return true;
+    }
+
+}
@@ -23,24 +23,43 @@ package io.atomicbits.scraml.dsl.javajackson.client.ning;
 import com.ning.http.client.*;
 import com.ning.http.client.generators.InputStreamBodyGenerator;
 import io.atomicbits.scraml.dsl.javajackson.*;
+import io.atomicbits.scraml.dsl.javajackson.client.AdaptiveConcurrencyLimiter;
+import io.atomicbits.scraml.dsl.javajackson.client.CircuitBreaker;
+import io.atomicbits.scraml.dsl.javajackson.client.CircuitBreakerOpenException;
 import io.atomicbits.scraml.dsl.javajackson.client.ClientConfig;
+import io.atomicbits.scraml.dsl.javajackson.client.Compression;
+import io.atomicbits.scraml.dsl.javajackson.client.InterceptorChain;
+import io.atomicbits.scraml.dsl.javajackson.client.RequestCoalescer;
+import io.atomicbits.scraml.dsl.javajackson.client.ResponseCache;
+import io.atomicbits.scraml.dsl.javajackson.client.RetryPolicy;
 import io.atomicbits.scraml.dsl.javajackson.json.Json;
+import io.atomicbits.scraml.dsl.javajackson.json.JsonCodec;
+import io.atomicbits.scraml.dsl.javajackson.util.ChannelUtils;
 import io.atomicbits.scraml.dsl.javajackson.ByteArrayPart;
 import io.atomicbits.scraml.dsl.javajackson.FilePart;
 import io.atomicbits.scraml.dsl.javajackson.StringPart;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class Ning19Client implements Client {
 
@@ -51,6 +70,15 @@ public class Ning19Client implements Client {
     private ClientConfig config;
     private Map<String, String> defaultHeaders;
 
+    // The base URL and the default headers are resolved once, requests only append their own path and headers.
+    private String baseUrl;
+    private HeaderMap defaultHeaderMap;
+    private InterceptorChain interceptors;
+
+    // Streamed responses and downloads are handed over on this executor, never on the ning I/O thread.
+    private Executor streamingExecutor;
+    private ExecutorService ownStreamingExecutor;
+
     private AsyncHttpClient ningClient;
 
     private Logger LOGGER = LoggerFactory.getLogger(Ning19Client.class);
@@ -87,6 +115,23 @@ public class Ning19Client implements Client {
         } else {
             this.defaultHeaders = new HashMap<>();
         }
+        this.baseUrl = this.protocol + "://" + this.host + ":" + this.port + getCleanPrefix();
+        this.defaultHeaderMap = new HeaderMap();
+        this.defaultHeaderMap.setHeaders(this.defaultHeaders);
+        this.interceptors = new InterceptorChain(this.config.getInterceptors());
+
+        if (this.config.getExecutor() != null) {
+            this.streamingExecutor = this.config.getExecutor();
+        } else {
+            // Reading the start of a streamed response blocks until its first body parts are in, which needs an executor that can grow.
+            AtomicInteger threadCount = new AtomicInteger();
+            this.ownStreamingExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "scraml-ning-streaming-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.streamingExecutor = this.ownStreamingExecutor;
+        }
 
         AsyncHttpClientConfig.Builder configBuilder = new AsyncHttpClientConfig.Builder();
         this.ningClient = new AsyncHttpClient(applyConfiguration(configBuilder).build());
@@ -156,6 +201,8 @@ public class Ning19Client implements Client {
         builder.setSslSessionCacheSize(config.getSslSessionCacheSize());
         builder.setSslSessionTimeout(config.getSslSessionTimeout());
         builder.setHostnameVerifier(config.getHostnameVerifier());
+        // Ning sends Accept-Encoding: gzip,deflate and inflates the body parts as they come in.
+        builder.setCompressionEnforced(config.getCompression() != null && config.getCompression().isAcceptCompressedResponses());
         return builder;
     }
 
@@ -163,14 +210,14 @@ public class Ning19Client implements Client {
     @Override
     public CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<String>> callToStringResponse(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
                                                                                                          String body) {
-        return callToResponse(requestBuilder, body, this::transformToStringBody);
+        return callToResponse(requestBuilder, body, null, "string", this::transformToStringBody);
     }
 
 
     @Override
     public CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<BinaryData>> callToBinaryResponse(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
                                                                                                              String body) {
-        return callToResponse(requestBuilder, body, this::transformToBinaryBody);
+        return callToResponse(requestBuilder, body, null, null, this::transformToBinaryBody);
     }
 
 
@@ -178,26 +225,228 @@ public class Ning19Client implements Client {
     public <R> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> callToTypeResponse(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
                                                                                                       String body,
                                                                                                       String canonicalResponseType) {
-        return callToResponse(requestBuilder, body, (result) -> transformToTypedBody(result, canonicalResponseType));
+        return callToResponse(requestBuilder, body, null, canonicalResponseType, (result) -> transformToTypedBody(result, canonicalResponseType));
+    }
+
+
+    @Override
+    public CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<String>> callToStringResponse(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                                                                                                         BodyWriter body) {
+        return callToResponse(requestBuilder, null, body, "string", this::transformToStringBody);
+    }
+
+
+    @Override
+    public CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<BinaryData>> callToBinaryResponse(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                                                                                                             BodyWriter body) {
+        return callToResponse(requestBuilder, null, body, null, this::transformToBinaryBody);
+    }
+
+
+    @Override
+    public <R> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> callToTypeResponse(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                                                                                                      BodyWriter body,
+                                                                                                      String canonicalResponseType) {
+        return callToResponse(requestBuilder, null, body, canonicalResponseType, (result) -> transformToTypedBody(result, canonicalResponseType));
+    }
+
+
+    /**
+     * The elements are parsed while the body parts come in. Streamed calls bypass the response cache, the request coalescer, the retry
+     * policy and the concurrency limiter: the response is only complete when its consumer has read it.
+     */
+    @Override
+    public <E> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<Stream<E>>> callToStreamResponse(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                                                                                             String body,
+                                                                                             String canonicalElementType) {
+        JsonCodec elementCodec = Json.codecFor(canonicalElementType);
+        return withCircuitBreaker(requestBuilder, () -> buildAndStream(requestBuilder, body, null, elementCodec));
+    }
+
+
+    @Override
+    public <E> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<Stream<E>>> callToStreamResponse(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                                                                                             BodyWriter body,
+                                                                                             String canonicalElementType) {
+        JsonCodec elementCodec = Json.codecFor(canonicalElementType);
+        return withCircuitBreaker(requestBuilder, () -> buildAndStream(requestBuilder, null, body, elementCodec));
+    }
+
+
+    /**
+     * The body parts are written to the channel as they come in, on the ning I/O thread, so a slow channel throttles the download.
+     * Downloads bypass the response cache, the request coalescer, the retry policy and the concurrency limiter, the channel can't be
+     * rewound for another attempt.
+     */
+    @Override
+    public CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<Long>> callToDownloadResponse(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                                                                                               String body,
+                                                                                               WritableByteChannel target,
+                                                                                               DownloadProgress progress) {
+        return withCircuitBreaker(requestBuilder, () -> buildAndDownload(requestBuilder, body, null, target, progress));
+    }
+
+
+    @Override
+    public CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<Long>> callToDownloadResponse(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                                                                                               BodyWriter body,
+                                                                                               WritableByteChannel target,
+                                                                                               DownloadProgress progress) {
+        return withCircuitBreaker(requestBuilder, () -> buildAndDownload(requestBuilder, null, body, target, progress));
     }
 
 
     private <R> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> callToResponse(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
                                                                                                    String body,
+                                                                                                   BodyWriter bodyWriter,
+                                                                                                   String responseType,
                                                                                                    Function<com.ning.http.client.Response, io.atomicbits.scraml.dsl.javajackson.Response<R>> transformer) {
+        return withCircuitBreaker(requestBuilder, () -> buildAndSend(requestBuilder, body, bodyWriter, responseType, transformer));
+    }
+
+
+    private <R> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> withCircuitBreaker(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                                                                                                       Supplier<CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>>> call) {
+        CircuitBreaker circuitBreaker = config.getCircuitBreaker();
+        if (circuitBreaker == null) {
+            return call.get();
+        }
+
+        // Fail fast, before the request is built, while the host or endpoint is failing.
+        CircuitBreaker.Permit permit;
+        try {
+            permit = circuitBreaker.acquire(host + ":" + port, requestBuilder.getMethod(), requestBuilder.getResourcePathTemplate());
+        } catch (CircuitBreakerOpenException e) {
+            CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+
+        CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            permit.onFailure();
+            throw e;
+        }
+        future.whenComplete((response, failure) -> {
+            if (failure != null || response.getStatus() >= 500) {
+                permit.onFailure();
+            } else {
+                permit.onSuccess();
+            }
+        });
+        return future;
+    }
+
+
+    private <R> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> buildAndSend(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                                                                                                 String body,
+                                                                                                 BodyWriter bodyWriter,
+                                                                                                 String responseType,
+                                                                                                 Function<com.ning.http.client.Response, io.atomicbits.scraml.dsl.javajackson.Response<R>> transformer) {
         // Create builder
         com.ning.http.client.RequestBuilder ningRb = new com.ning.http.client.RequestBuilder();
-        String baseUrl = protocol + "://" + host + ":" + port + getCleanPrefix();
-        ningRb.setUrl(baseUrl + "/" + requestBuilder.getRelativePath());
-        ningRb.setMethod(requestBuilder.getMethod().name());
+        HeaderMap requestHeaders = defaultHeaderMap.cloned();
+        requestHeaders.setHeaders(requestBuilder.getHeaderMap());
+        long requestBytes = prepareRequest(ningRb, requestBuilder, requestHeaders, body, bodyWriter);
 
+        Request ningRequest = ningRb.build();
 
-        HeaderMap requestHeaders = new HeaderMap();
-        requestHeaders.setHeaders(defaultHeaders);
+        ResponseCache responseCache = config.getResponseCache();
+        if (responseCache != null && responseType != null && requestBuilder.getMethod() == Method.GET) {
+            // The decoded response depends on the requested type, binary responses are never cached.
+            String cacheKey = responseType + " " + ningRequest.getUrl();
+            ResponseCache.Entry cached = responseCache.lookup(cacheKey, requestHeaders);
+            if (cached != null && cached.isFresh()) {
+                return CompletableFuture.completedFuture(cachedResponse(cached));
+            }
+            if (cached != null) {
+                // A stale entry, ask the server whether it is still valid.
+                if (cached.getEtag() != null) {
+                    ningRb.setHeader("If-None-Match", cached.getEtag());
+                }
+                if (cached.getLastModified() != null) {
+                    ningRb.setHeader("If-Modified-Since", cached.getLastModified());
+                }
+                ningRequest = ningRb.build();
+            }
+            transformer = cachingTransformer(responseCache, cacheKey, cached, requestHeaders, transformer);
+        }
+
+        LOGGER.debug("Executing request: " + ningRequest + "\nWith 'string' body: " + ningRequest.getStringData());
+
+        RequestCoalescer coalescer = config.getRequestCoalescer();
+        if (coalescer != null && responseType != null &&
+                (requestBuilder.getMethod() == Method.GET || requestBuilder.getMethod() == Method.HEAD)) {
+            final long bodySize = requestBytes;
+            final Request request = ningRequest;
+            final Function<com.ning.http.client.Response, io.atomicbits.scraml.dsl.javajackson.Response<R>> responseTransformer = transformer;
+            return coalescer.execute(
+                    coalescingKey(request, requestHeaders, responseType),
+                    () -> send(request, requestBuilder, bodySize, responseTransformer)
+            );
+        } else {
+            return send(ningRequest, requestBuilder, requestBytes, transformer);
+        }
+    }
+
+
+    private <E> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<Stream<E>>> buildAndStream(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                                                                                        String body,
+                                                                                        BodyWriter bodyWriter,
+                                                                                        JsonCodec elementCodec) {
+        com.ning.http.client.RequestBuilder ningRb = new com.ning.http.client.RequestBuilder();
+        HeaderMap requestHeaders = defaultHeaderMap.cloned();
         requestHeaders.setHeaders(requestBuilder.getHeaderMap());
-        for (Map.Entry<String, List<String>> header : requestHeaders.getHeaders().entrySet()) {
-            for (String value : header.getValue()) {
-                ningRb.addHeader(header.getKey(), value);
+        long requestBytes = prepareRequest(ningRb, requestBuilder, requestHeaders, body, bodyWriter);
+
+        Request ningRequest = ningRb.build();
+
+        LOGGER.debug("Executing streamed request: " + ningRequest + "\nWith 'string' body: " + ningRequest.getStringData());
+
+        CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<Stream<E>>> future = new CompletableFuture<>();
+        executeRequest(ningRequest, new StreamingHandler<E>(requestBuilder, requestBytes, elementCodec, future));
+        return future;
+    }
+
+
+    private CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<Long>> buildAndDownload(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                                                                                          String body,
+                                                                                          BodyWriter bodyWriter,
+                                                                                          WritableByteChannel target,
+                                                                                          DownloadProgress progress) {
+        com.ning.http.client.RequestBuilder ningRb = new com.ning.http.client.RequestBuilder();
+        HeaderMap requestHeaders = defaultHeaderMap.cloned();
+        requestHeaders.setHeaders(requestBuilder.getHeaderMap());
+        long requestBytes = prepareRequest(ningRb, requestBuilder, requestHeaders, body, bodyWriter);
+
+        Request ningRequest = ningRb.build();
+
+        LOGGER.debug("Executing download request: " + ningRequest + "\nWith 'string' body: " + ningRequest.getStringData());
+
+        CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<Long>> future = new CompletableFuture<>();
+        executeRequest(ningRequest, new DownloadHandler(requestBuilder, requestBytes, target, progress, future));
+        return future;
+    }
+
+
+    /**
+     * Fill in the ning request builder.
+     *
+     * @return The size of the request body when it is known up front (-1 otherwise), reported to the interceptors.
+     */
+    private long prepareRequest(com.ning.http.client.RequestBuilder ningRb,
+                                io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                                HeaderMap requestHeaders,
+                                String body,
+                                BodyWriter bodyWriter) {
+        ningRb.setUrl(baseUrl + "/" + requestBuilder.getRelativePath());
+        ningRb.setMethod(requestBuilder.getMethod().name());
+
+        for (int i = 0; i < requestHeaders.size(); i++) {
+            for (String value : requestHeaders.valuesAt(i)) {
+                ningRb.addHeader(requestHeaders.nameAt(i), value);
             }
         }
 
@@ -217,30 +466,58 @@ public class Ning19Client implements Client {
             }
         }
 
+        // The size of the request body when it is known up front (-1 otherwise), reported to the interceptors.
+        long requestBytes = 0;
+
+        // Only bodies of a known size are compressed, and never when the caller already encoded the body.
+        Compression compression =
+                config.getCompression() != null && !requestHeaders.hasKey(HeaderMap.CONTENT_ENCODING) ? config.getCompression() : null;
+
         if (body != null) {
-            ningRb.setBody(body);
+            if (compression != null && compression.getRequestCompressionThreshold() >= 0) {
+                String requestCharset = getResponseCharsetFromHeaders(requestHeaders.getHeaders(), config.getRequestCharset().name());
+                requestBytes = setBodyBytes(ningRb, body.getBytes(Charset.forName(requestCharset)), compression);
+            } else {
+                requestBytes = -1;
+                ningRb.setBody(body);
+            }
+        }
+
+        if (bodyWriter != null) {
+            // Encode the body in the charset that is announced in the request's content type, without an intermediate String.
+            String requestCharset = getResponseCharsetFromHeaders(requestHeaders.getHeaders(), config.getRequestCharset().name());
+            byte[] bodyBytes = bodyWriter.writeToBytes(Charset.forName(requestCharset));
+            requestBytes = setBodyBytes(ningRb, bodyBytes, compression);
         }
 
         if (requestBuilder.getBinaryRequest() != null) {
             BinaryRequest binaryRequest = requestBuilder.getBinaryRequest();
             if (binaryRequest.isFile()) {
                 File file = ((FileBinaryRequest) binaryRequest).getFile();
+                requestBytes = file.length();
                 ningRb.setBody(file);
             }
             if (binaryRequest.isInputStream()) {
                 InputStream stream = ((InputStreamBinaryRequest) binaryRequest).getInputStream();
+                requestBytes = -1;
                 ningRb.setBody(new InputStreamBodyGenerator(stream));
             }
             if (binaryRequest.isByteArray()) {
                 byte[] bytes = ((ByteArrayBinaryRequest) binaryRequest).getBytes();
+                requestBytes = bytes.length;
                 ningRb.setBody(bytes);
             }
             if (binaryRequest.isString()) {
                 String text = ((StringBinaryRequest) binaryRequest).getText();
+                requestBytes = -1;
                 ningRb.setBody(text);
             }
         }
 
+        if (!requestBuilder.getFormParameters().isEmpty() || !requestBuilder.getMultipartParams().isEmpty()) {
+            requestBytes = -1;
+        }
+
         for (Map.Entry<String, HttpParam> formParam : requestBuilder.getFormParameters().entrySet()) {
             if (formParam.getValue() instanceof RepeatedHttpParam) {
                 RepeatedHttpParam params = (RepeatedHttpParam) formParam.getValue();
@@ -305,34 +582,515 @@ public class Ning19Client implements Client {
 
         }
 
-        Request ningRequest = ningRb.build();
+        return requestBytes;
+    }
+
+
+    /**
+     * Identical requests have the same method, URL (including the query string), headers and response type.
+     */
+    private static String coalescingKey(Request ningRequest, HeaderMap requestHeaders, String responseType) {
+        StringBuilder key = new StringBuilder(128);
+        key.append(ningRequest.getMethod()).append(' ').append(ningRequest.getUrl()).append(' ').append(responseType);
+        for (int i = 0; i < requestHeaders.size(); i++) {
+            key.append('\n').append(requestHeaders.nameAt(i)).append(": ").append(requestHeaders.valuesAt(i));
+        }
+        return key.toString();
+    }
+
+
+    private <R> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> send(Request ningRequest,
+                                                                                         io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                                                                                         long requestBytes,
+                                                                                         Function<com.ning.http.client.Response, io.atomicbits.scraml.dsl.javajackson.Response<R>> transformer) {
+        RetryPolicy retryPolicy = config.getRetryPolicy();
+        // A streamed request body can only be sent once.
+        boolean replayable = requestBuilder.getBinaryRequest() == null || !requestBuilder.getBinaryRequest().isInputStream();
+        if (retryPolicy != null && replayable) {
+            return retryPolicy.execute(
+                    requestBuilder.getMethod(),
+                    requestBuilder.getResourcePathTemplate(),
+                    () -> dispatch(ningRequest, requestBuilder, requestBytes, transformer)
+            );
+        } else {
+            return dispatch(ningRequest, requestBuilder, requestBytes, transformer);
+        }
+    }
+
+
+    /**
+     * Answer a revalidated entry from the cache on a 304 and keep cacheable 200 responses.
+     */
+    private <R> Function<com.ning.http.client.Response, io.atomicbits.scraml.dsl.javajackson.Response<R>> cachingTransformer(
+            ResponseCache responseCache,
+            String cacheKey,
+            ResponseCache.Entry cached,
+            HeaderMap requestHeaders,
+            Function<com.ning.http.client.Response, io.atomicbits.scraml.dsl.javajackson.Response<R>> transformer) {
+        return (response) -> {
+            if (response.getStatusCode() == 304 && cached != null) {
+                responseCache.notModified(cached, response.getHeaders());
+                return cachedResponse(cached);
+            }
+            io.atomicbits.scraml.dsl.javajackson.Response<R> result = transformer.apply(response);
+            if (response.getStatusCode() == 200) {
+                responseCache.store(cacheKey, requestHeaders, result, response.getHeaders(), responseBodySize(response));
+            }
+            return result;
+        };
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <R> io.atomicbits.scraml.dsl.javajackson.Response<R> cachedResponse(ResponseCache.Entry entry) {
+        // The cache key contains the response type, so the cached body has the expected type.
+        return (io.atomicbits.scraml.dsl.javajackson.Response<R>) entry.getResponse();
+    }
+
+
+    private static long responseBodySize(com.ning.http.client.Response response) {
+        String contentLength = response.getHeader(HeaderMap.CONTENT_LENGTH);
+        if (contentLength != null) {
+            try {
+                return Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                // Fall back on the body itself.
+            }
+        }
+        try {
+            return response.getResponseBodyAsBytes().length;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+
+    private <R> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> dispatch(Request ningRequest,
+                                                                                             io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                                                                                             long requestBytes,
+                                                                                             Function<com.ning.http.client.Response, io.atomicbits.scraml.dsl.javajackson.Response<R>> transformer) {
         // CompletableFuture is present in the JDK since 1.8
         final CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> future = new CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>>();
 
-        LOGGER.debug("Executing request: " + ningRequest + "\nWith 'string' body: " + ningRequest.getStringData());
+        AdaptiveConcurrencyLimiter limiter = config.getConcurrencyLimiter();
+        if (limiter == null) {
+            execute(ningRequest, requestBuilder, requestBytes, transformer, future);
+        } else {
+            executeLimited(limiter, ningRequest, requestBuilder, requestBytes, transformer, future);
+        }
+
+        return future;
+    }
 
-        getClient().executeRequest(ningRequest, new AsyncCompletionHandler<String>() {
 
-            @Override
-            public String onCompleted(com.ning.http.client.Response response) throws Exception {
+    private <R> void executeLimited(AdaptiveConcurrencyLimiter limiter,
+                                    Request ningRequest,
+                                    io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                                    long requestBytes,
+                                    Function<com.ning.http.client.Response, io.atomicbits.scraml.dsl.javajackson.Response<R>> transformer,
+                                    CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> future) {
+        boolean accepted = limiter.submit(() -> {
+            long start = System.nanoTime();
+            future.whenComplete((response, failure) -> {
+                if (future.isCancelled()) {
+                    limiter.releaseCancelled();
+                } else {
+                    boolean dropped = failure != null || response.getStatus() == 429 || response.getStatus() == 503;
+                    limiter.release(System.nanoTime() - start, dropped);
+                }
+            });
+            // A request that was cancelled while it waited in the queue is not sent at all.
+            if (!future.isDone()) {
                 try {
-                    io.atomicbits.scraml.dsl.javajackson.Response<R> resp = transformer.apply(response);
-                    future.complete(resp);
-                } catch (Throwable t) {
+                    execute(ningRequest, requestBuilder, requestBytes, transformer, future);
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        if (!accepted) {
+            future.completeExceptionally(
+                    new RejectedExecutionException("The concurrency limit and the request queue are full (" + limiter + "), rejected " +
+                            requestBuilder.getMethod() + " " + requestBuilder.getResourcePathTemplate())
+            );
+        }
+    }
+
+
+    private <R> void execute(Request ningRequest,
+                             io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                             long requestBytes,
+                             Function<com.ning.http.client.Response, io.atomicbits.scraml.dsl.javajackson.Response<R>> transformer,
+                             CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> future) {
+        ListenableFuture<String> ningFuture;
+        if (interceptors.isEmpty()) {
+            ningFuture = executeRequest(ningRequest, new AsyncCompletionHandler<String>() {
+
+                @Override
+                public String onCompleted(com.ning.http.client.Response response) throws Exception {
+                    try {
+                        io.atomicbits.scraml.dsl.javajackson.Response<R> resp = transformer.apply(response);
+                        future.complete(resp);
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                    return null;
+                }
+
+                @Override
+                public void onThrowable(Throwable t) {
+                    super.onThrowable(t);
                     future.completeExceptionally(t);
                 }
-                return null;
+
+            });
+        } else {
+            ningFuture =
+                    executeRequest(ningRequest, new InterceptedCompletionHandler<R>(requestBuilder, requestBytes, transformer, future));
+        }
+        // Abort the request when its future is cancelled, e.g. when it lost a hedge, so that it doesn't keep its connection.
+        future.whenComplete((response, failure) -> {
+            if (future.isCancelled()) {
+                ningFuture.cancel(true);
             }
+        });
+    }
+
+
+    /**
+     * Ning throws some failures, such as an unsupported scheme, without calling the handler. The handlers report the start of the
+     * request to the interceptors when they are created, so they report these failures as well.
+     */
+    private <T> ListenableFuture<T> executeRequest(Request ningRequest, AsyncHandler<T> handler) {
+        try {
+            return getClient().executeRequest(ningRequest, handler);
+        } catch (RuntimeException e) {
+            handler.onThrowable(e);
+            return new ListenableFuture.CompletedFailure<>(e);
+        }
+    }
+
+
+    /**
+     * The completion handler that reports the progress of a request to the interceptors. It also counts the response bytes
+     * as they come in, so the response body is never measured afterwards.
+     */
+    private class InterceptedCompletionHandler<R> extends AsyncCompletionHandler<String> {
 
-            @Override
-            public void onThrowable(Throwable t) {
-                super.onThrowable(t);
+        private final io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder;
+        private final String resourcePath;
+        private final Function<com.ning.http.client.Response, io.atomicbits.scraml.dsl.javajackson.Response<R>> transformer;
+        private final CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> future;
+        private final long start;
+        private int statusCode;
+        private long responseBytes;
+
+        InterceptedCompletionHandler(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                                     long requestBytes,
+                                     Function<com.ning.http.client.Response, io.atomicbits.scraml.dsl.javajackson.Response<R>> transformer,
+                                     CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> future) {
+            this.requestBuilder = requestBuilder;
+            this.resourcePath = requestBuilder.getResourcePathTemplate();
+            this.transformer = transformer;
+            this.future = future;
+            this.start = System.nanoTime();
+            interceptors.onRequestStart(requestBuilder, resourcePath, requestBytes);
+        }
+
+        @Override
+        public STATE onStatusReceived(HttpResponseStatus status) throws Exception {
+            statusCode = status.getStatusCode();
+            return super.onStatusReceived(status);
+        }
+
+        @Override
+        public STATE onHeadersReceived(HttpResponseHeaders headers) throws Exception {
+            interceptors.onHeadersReceived(requestBuilder, resourcePath, statusCode, headers.getHeaders(), System.nanoTime() - start);
+            return super.onHeadersReceived(headers);
+        }
+
+        @Override
+        public STATE onBodyPartReceived(HttpResponseBodyPart content) throws Exception {
+            responseBytes += content.length();
+            return super.onBodyPartReceived(content);
+        }
+
+        @Override
+        public String onCompleted(com.ning.http.client.Response response) throws Exception {
+            io.atomicbits.scraml.dsl.javajackson.Response<R> resp;
+            try {
+                resp = transformer.apply(response);
+            } catch (Throwable t) {
+                interceptors.onFailure(requestBuilder, resourcePath, t, System.nanoTime() - start);
                 future.completeExceptionally(t);
+                return null;
             }
+            long elapsed = System.nanoTime() - start;
+            interceptors.onBodyDecoded(requestBuilder, resourcePath, responseBytes, elapsed);
+            interceptors.onComplete(requestBuilder, resourcePath, response.getStatusCode(), elapsed);
+            future.complete(resp);
+            return null;
+        }
 
-        });
+        @Override
+        public void onThrowable(Throwable t) {
+            super.onThrowable(t);
+            interceptors.onFailure(requestBuilder, resourcePath, t, System.nanoTime() - start);
+            future.completeExceptionally(t);
+        }
 
-        return future;
+    }
+
+
+    /**
+     * The handler of a streamed response. A 2xx response is handed over as soon as its headers are in, its elements are parsed from
+     * the body parts while they come in. The body of any other response is collected and handed over as the string body.
+     * <p>
+     * The response is completed on the streaming executor, never on the ning I/O thread, because reading the stream on the I/O thread
+     * would wait for body parts that only that thread can deliver. The I/O thread doesn't wait for the consumer either: when the
+     * consumer closes the stream or falls too far behind, the rest of the body is aborted.
+     */
+    private class StreamingHandler<E> implements AsyncHandler<Void> {
+
+        private final io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder;
+        private final String resourcePath;
+        private final JsonCodec elementCodec;
+        private final CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<Stream<E>>> future;
+        private final long start;
+        private int statusCode;
+        private Map<String, List<String>> headers;
+        private String responseCharset;
+        private Ning19BodyInputStream stream;
+        private ByteArrayOutputStream errorBody;
+        private long responseBytes;
+
+        StreamingHandler(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                         long requestBytes,
+                         JsonCodec elementCodec,
+                         CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<Stream<E>>> future) {
+            this.requestBuilder = requestBuilder;
+            this.resourcePath = requestBuilder.getResourcePathTemplate();
+            this.elementCodec = elementCodec;
+            this.future = future;
+            this.start = System.nanoTime();
+            if (!interceptors.isEmpty()) {
+                interceptors.onRequestStart(requestBuilder, resourcePath, requestBytes);
+            }
+        }
+
+        @Override
+        public STATE onStatusReceived(HttpResponseStatus status) throws Exception {
+            statusCode = status.getStatusCode();
+            return STATE.CONTINUE;
+        }
+
+        @Override
+        public STATE onHeadersReceived(HttpResponseHeaders responseHeaders) throws Exception {
+            headers = responseHeaders.getHeaders();
+            responseCharset = getResponseCharsetFromHeaders(headers, config.getResponseCharset().displayName());
+            if (!interceptors.isEmpty()) {
+                interceptors.onHeadersReceived(requestBuilder, resourcePath, statusCode, headers, System.nanoTime() - start);
+            }
+            if (statusCode >= 200 && statusCode < 300) {
+                Ning19BodyInputStream body = new Ning19BodyInputStream(config.getStreamingBufferBytes());
+                stream = body;
+                // Creating the stream reads the start of the array, so this must not happen on the I/O thread either.
+                streamingExecutor.execute(() -> {
+                    try {
+                        Stream<E> elements = Json.parseBodyToStream(body, Charset.forName(responseCharset), elementCodec);
+                        future.complete(new io.atomicbits.scraml.dsl.javajackson.Response<Stream<E>>(null, elements, statusCode, headers));
+                    } catch (Throwable t) {
+                        body.close();
+                        future.completeExceptionally(t);
+                    }
+                });
+            } else {
+                errorBody = new ByteArrayOutputStream();
+            }
+            return STATE.CONTINUE;
+        }
+
+        @Override
+        public STATE onBodyPartReceived(HttpResponseBodyPart bodyPart) throws Exception {
+            responseBytes += bodyPart.length();
+            if (stream != null) {
+                if (stream.offer(bodyPart.getBodyPartBytes())) {
+                    return STATE.CONTINUE;
+                }
+                // Close the connection, ning would read the rest of the body otherwise. Aborting doesn't call onThrowable, onCompleted
+                // reports a stream that failed.
+                bodyPart.markUnderlyingConnectionAsToBeClosed();
+                return STATE.ABORT;
+            }
+            bodyPart.writeTo(errorBody);
+            return STATE.CONTINUE;
+        }
+
+        @Override
+        public Void onCompleted() throws Exception {
+            if (stream != null) {
+                Throwable failure = stream.getFailure();
+                if (failure != null) {
+                    if (!interceptors.isEmpty()) {
+                        interceptors.onFailure(requestBuilder, resourcePath, failure, System.nanoTime() - start);
+                    }
+                    return null;
+                }
+                stream.end();
+            } else {
+                String responseBody = errorBody != null ? new String(errorBody.toByteArray(), responseCharset) : null;
+                io.atomicbits.scraml.dsl.javajackson.Response<Stream<E>> response = new io.atomicbits.scraml.dsl.javajackson.Response<Stream<E>>(responseBody, null, statusCode, headers);
+                streamingExecutor.execute(() -> future.complete(response));
+            }
+            if (!interceptors.isEmpty()) {
+                long elapsed = System.nanoTime() - start;
+                interceptors.onBodyDecoded(requestBuilder, resourcePath, responseBytes, elapsed);
+                interceptors.onComplete(requestBuilder, resourcePath, statusCode, elapsed);
+            }
+            return null;
+        }
+
+        @Override
+        public void onThrowable(Throwable t) {
+            if (!interceptors.isEmpty()) {
+                interceptors.onFailure(requestBuilder, resourcePath, t, System.nanoTime() - start);
+            }
+            if (stream != null) {
+                stream.fail(t);
+            }
+            streamingExecutor.execute(() -> future.completeExceptionally(t));
+        }
+
+    }
+
+
+    /**
+     * The handler of a download. The parts of a 2xx body are written to the target channel, the body of any other response is collected
+     * and handed over as the string body. The future is completed on the configured executor, never on the ning I/O thread.
+     */
+    private class DownloadHandler implements AsyncHandler<Void> {
+
+        private final io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder;
+        private final String resourcePath;
+        private final WritableByteChannel target;
+        private final DownloadProgress progress;
+        private final CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<Long>> future;
+        private final long start;
+        private int statusCode;
+        private Map<String, List<String>> headers;
+        private String responseCharset;
+        private long contentLength = -1L;
+        private boolean downloading;
+        private ByteArrayOutputStream errorBody;
+        private long responseBytes;
+        private IOException writeFailure;
+
+        DownloadHandler(io.atomicbits.scraml.dsl.javajackson.RequestBuilder requestBuilder,
+                        long requestBytes,
+                        WritableByteChannel target,
+                        DownloadProgress progress,
+                        CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<Long>> future) {
+            this.requestBuilder = requestBuilder;
+            this.resourcePath = requestBuilder.getResourcePathTemplate();
+            this.target = target;
+            this.progress = progress != null ? progress : DownloadProgress.NONE;
+            this.future = future;
+            this.start = System.nanoTime();
+            if (!interceptors.isEmpty()) {
+                interceptors.onRequestStart(requestBuilder, resourcePath, requestBytes);
+            }
+        }
+
+        @Override
+        public STATE onStatusReceived(HttpResponseStatus status) throws Exception {
+            statusCode = status.getStatusCode();
+            return STATE.CONTINUE;
+        }
+
+        @Override
+        public STATE onHeadersReceived(HttpResponseHeaders responseHeaders) throws Exception {
+            headers = responseHeaders.getHeaders();
+            responseCharset = getResponseCharsetFromHeaders(headers, config.getResponseCharset().displayName());
+            if (!interceptors.isEmpty()) {
+                interceptors.onHeadersReceived(requestBuilder, resourcePath, statusCode, headers, System.nanoTime() - start);
+            }
+            downloading = statusCode >= 200 && statusCode < 300;
+            if (downloading) {
+                contentLength = ChannelUtils.contentLength(headers);
+            } else {
+                errorBody = new ByteArrayOutputStream();
+            }
+            return STATE.CONTINUE;
+        }
+
+        @Override
+        public STATE onBodyPartReceived(HttpResponseBodyPart bodyPart) throws Exception {
+            if (!downloading) {
+                responseBytes += bodyPart.length();
+                bodyPart.writeTo(errorBody);
+                return STATE.CONTINUE;
+            }
+            try {
+                responseBytes += ChannelUtils.writeFully(bodyPart.getBodyByteBuffer(), target);
+            } catch (IOException e) {
+                // Close the connection, ning would read the rest of the body otherwise. Aborting doesn't call onThrowable, so the failure
+                // is handed over in onCompleted.
+                writeFailure = e;
+                bodyPart.markUnderlyingConnectionAsToBeClosed();
+                return STATE.ABORT;
+            }
+            progress.onProgress(responseBytes, contentLength);
+            return STATE.CONTINUE;
+        }
+
+        @Override
+        public Void onCompleted() throws Exception {
+            if (writeFailure != null) {
+                onThrowable(writeFailure);
+                return null;
+            }
+            io.atomicbits.scraml.dsl.javajackson.Response<Long> response =
+                    downloading
+                            ? new io.atomicbits.scraml.dsl.javajackson.Response<Long>(null, responseBytes, statusCode, headers)
+                            : new io.atomicbits.scraml.dsl.javajackson.Response<Long>(errorBody != null ? new String(errorBody.toByteArray(), responseCharset) : null,
+                                                                                 null,
+                                                                                 statusCode,
+                                                                                 headers);
+            if (!interceptors.isEmpty()) {
+                long elapsed = System.nanoTime() - start;
+                interceptors.onBodyDecoded(requestBuilder, resourcePath, responseBytes, elapsed);
+                interceptors.onComplete(requestBuilder, resourcePath, statusCode, elapsed);
+            }
+            streamingExecutor.execute(() -> future.complete(response));
+            return null;
+        }
+
+        @Override
+        public void onThrowable(Throwable t) {
+            if (!interceptors.isEmpty()) {
+                interceptors.onFailure(requestBuilder, resourcePath, t, System.nanoTime() - start);
+            }
+            streamingExecutor.execute(() -> future.completeExceptionally(t));
+        }
+
+    }
+
+
+    /**
+     * Set the encoded body, gzipped when compression applies to its size.
+     *
+     * @return The number of bytes that are sent.
+     */
+    private long setBodyBytes(com.ning.http.client.RequestBuilder ningRb, byte[] bodyBytes, Compression compression) {
+        if (compression != null && compression.compressRequest(bodyBytes.length)) {
+            byte[] compressed = compression.gzip(bodyBytes);
+            ningRb.setHeader(HeaderMap.CONTENT_ENCODING, "gzip");
+            ningRb.setBody(compressed);
+            return compressed.length;
+        } else {
+            ningRb.setBody(bodyBytes);
+            return bodyBytes.length;
+        }
     }
 
 
@@ -386,20 +1144,33 @@ public class Ning19Client implements Client {
 
     private <R> io.atomicbits.scraml.dsl.javajackson.Response<R> transformToTypedBody(com.ning.http.client.Response response, String canonicalResponseType) {
         try {
-            String responseBody =
-                    response.getResponseBody(
-                            getResponseCharsetFromHeaders(response.getHeaders(), config.getResponseCharset().displayName())
-                    );
+            String responseCharset = getResponseCharsetFromHeaders(response.getHeaders(), config.getResponseCharset().displayName());
             if (response.getStatusCode() >= 200 && response.getStatusCode() < 300) {
                 // Where we assume that any response in the 200 range will map to the unique typed response. This doesn't hold true if
                 // there are many responses in the 200 range with different typed responses.
+                String responseBody = null;
+                R typedBody;
+                if (config.getStreamingResponseDecoding()) {
+                    // Feed the response bytes straight into the JSON parser, there is no intermediate String.
+                    typedBody = Json.parseBodyToObject(response.getResponseBodyAsStream(), Charset.forName(responseCharset), canonicalResponseType);
+                    if (config.getKeepTypedResponseStringBody()) {
+                        responseBody = response.getResponseBody(responseCharset);
+                    }
+                } else {
+                    String stringBody = response.getResponseBody(responseCharset);
+                    typedBody = Json.parseBodyToObject(stringBody, canonicalResponseType);
+                    if (config.getKeepTypedResponseStringBody()) {
+                        responseBody = stringBody;
+                    }
+                }
                 return new io.atomicbits.scraml.dsl.javajackson.Response<R>(
                         responseBody,
-                        Json.parseBodyToObject(responseBody, canonicalResponseType),
+                        typedBody,
                         response.getStatusCode(),
                         response.getHeaders()
                 );
             } else {
+                String responseBody = response.getResponseBody(responseCharset);
                 return new io.atomicbits.scraml.dsl.javajackson.Response<R>(
                         responseBody,
                         null,
@@ -418,6 +1189,9 @@ public class Ning19Client implements Client {
         if (ningClient != null) {
             ningClient.close();
         }
+        if (ownStreamingExecutor != null) {
+            ownStreamingExecutor.shutdown();
+        }
     }
 
     String getResponseCharsetFromHeaders(Map<String, List<String>> headers, String defaultCharset) {
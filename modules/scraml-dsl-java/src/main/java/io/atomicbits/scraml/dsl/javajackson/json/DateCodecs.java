@@ -0,0 +1,351 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.json;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Hand-written parsers and formatters for the fixed date formats of RAML that work directly on the characters of the JSON text.
+ *
+ * They only handle the common shape of each format: a parser returns null and a formatter returns -1 on anything else. The
+ * (de)serializers then fall back to the DateTimeFormatter of the format, which keeps its validation and error messages.
+ */
+final class DateCodecs {
+
+    /**
+     * The size of a buffer that fits the output of every formatter.
+     */
+    static final int BUFFER_LENGTH = 36;
+
+    private static final String[] DAY_NAMES = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+
+    private static final String[] MONTH_NAMES =
+            {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+
+    private DateCodecs() {
+    }
+
+    /**
+     * yyyy-MM-dd
+     */
+    static LocalDate parseDate(char[] text, int offset, int length) {
+        return length == 10 ? date(text, offset) : null;
+    }
+
+    /**
+     * HH:mm:ss[.fraction]
+     */
+    static LocalTime parseTime(char[] text, int offset, int length) {
+        return time(text, offset, offset + length);
+    }
+
+    /**
+     * yyyy-MM-dd'T'HH:mm:ss[.fraction]
+     */
+    static LocalDateTime parseDateTime(char[] text, int offset, int length) {
+        if (length < 19 || text[offset + 10] != 'T') {
+            return null;
+        }
+        LocalDate date = date(text, offset);
+        LocalTime time = time(text, offset + 11, offset + length);
+        return date != null && time != null ? LocalDateTime.of(date, time) : null;
+    }
+
+    /**
+     * yyyy-MM-dd'T'HH:mm:ss[.fraction](Z|+HH:MM|-HH:MM)
+     */
+    static OffsetDateTime parseRfc3339(char[] text, int offset, int length) {
+        if (length < 20 || text[offset + 10] != 'T') {
+            return null;
+        }
+        int end = offset + length;
+        int timeEnd;
+        ZoneOffset zoneOffset;
+        if (text[end - 1] == 'Z') {
+            timeEnd = end - 1;
+            zoneOffset = ZoneOffset.UTC;
+        } else if (length >= 25 && text[end - 3] == ':') {
+            timeEnd = end - 6;
+            zoneOffset = zoneOffset(text, timeEnd, 6);
+        } else {
+            return null;
+        }
+        LocalDate date = date(text, offset);
+        LocalTime time = time(text, offset + 11, timeEnd);
+        return date != null && time != null && zoneOffset != null ? OffsetDateTime.of(date, time, zoneOffset) : null;
+    }
+
+    /**
+     * EEE, d MMM yyyy HH:mm:ss (GMT|+HHMM|-HHMM)
+     */
+    static OffsetDateTime parseRfc1123(char[] text, int offset, int length) {
+        int end = offset + length;
+        if (length < 28 || text[offset + 3] != ',' || text[offset + 4] != ' ') {
+            return null;
+        }
+        int dayOfWeek = nameIndex(DAY_NAMES, text, offset) + 1;
+        int position = offset + 5;
+        int day;
+        if (text[position + 1] == ' ') {
+            day = digits(text, position, 1);
+            position += 2;
+        } else if (text[position + 2] == ' ') {
+            day = digits(text, position, 2);
+            position += 3;
+        } else {
+            return null;
+        }
+        int month = nameIndex(MONTH_NAMES, text, position) + 1;
+        if (dayOfWeek == 0 || month == 0 || text[position + 3] != ' ' || end - position < 21) {
+            return null;
+        }
+        position += 4;
+        int year = digits(text, position, 4);
+        if (year < 0 || text[position + 4] != ' ' || text[position + 13] != ' ') {
+            return null;
+        }
+        LocalTime time = time(text, position + 5, position + 13);
+        position += 14;
+        ZoneOffset zoneOffset;
+        if (end - position == 3 && text[position] == 'G' && text[position + 1] == 'M' && text[position + 2] == 'T') {
+            zoneOffset = ZoneOffset.UTC;
+        } else if (end - position == 5) {
+            zoneOffset = zoneOffset(text, position, 5);
+        } else {
+            return null;
+        }
+        LocalDate date = date(year, month, day);
+        if (date == null || time == null || zoneOffset == null || date.getDayOfWeek().getValue() != dayOfWeek) {
+            return null;
+        }
+        return OffsetDateTime.of(date, time, zoneOffset);
+    }
+
+    static int formatDate(LocalDate value, char[] buffer) {
+        return writeDate(value, buffer, 0);
+    }
+
+    static int formatTime(LocalTime value, char[] buffer) {
+        return writeTime(value, buffer, 0);
+    }
+
+    static int formatDateTime(LocalDateTime value, char[] buffer) {
+        int position = writeDate(value.toLocalDate(), buffer, 0);
+        if (position < 0) {
+            return -1;
+        }
+        buffer[position] = 'T';
+        return writeTime(value.toLocalTime(), buffer, position + 1);
+    }
+
+    static int formatRfc3339(OffsetDateTime value, char[] buffer) {
+        int position = formatDateTime(value.toLocalDateTime(), buffer);
+        int totalSeconds = value.getOffset().getTotalSeconds();
+        if (position < 0 || totalSeconds % 60 != 0) {
+            return -1;
+        }
+        if (totalSeconds == 0) {
+            buffer[position] = 'Z';
+            return position + 1;
+        }
+        position = writeOffsetSign(totalSeconds, buffer, position);
+        int totalMinutes = Math.abs(totalSeconds) / 60;
+        position = write2(totalMinutes / 60, buffer, position);
+        buffer[position] = ':';
+        return write2(totalMinutes % 60, buffer, position + 1);
+    }
+
+    static int formatRfc1123(OffsetDateTime value, char[] buffer) {
+        int year = value.getYear();
+        int totalSeconds = value.getOffset().getTotalSeconds();
+        if (year < 0 || year > 9999 || totalSeconds % 60 != 0) {
+            return -1;
+        }
+        int position = writeName(DAY_NAMES[value.getDayOfWeek().getValue() - 1], buffer, 0);
+        buffer[position++] = ',';
+        buffer[position++] = ' ';
+        int day = value.getDayOfMonth();
+        if (day >= 10) {
+            buffer[position++] = (char) ('0' + day / 10);
+        }
+        buffer[position++] = (char) ('0' + day % 10);
+        buffer[position++] = ' ';
+        position = writeName(MONTH_NAMES[value.getMonthValue() - 1], buffer, position);
+        buffer[position++] = ' ';
+        position = write4(year, buffer, position);
+        buffer[position++] = ' ';
+        position = write2(value.getHour(), buffer, position);
+        buffer[position++] = ':';
+        position = write2(value.getMinute(), buffer, position);
+        buffer[position++] = ':';
+        position = write2(value.getSecond(), buffer, position);
+        buffer[position++] = ' ';
+        if (totalSeconds == 0) {
+            return writeName("GMT", buffer, position);
+        }
+        position = writeOffsetSign(totalSeconds, buffer, position);
+        int totalMinutes = Math.abs(totalSeconds) / 60;
+        position = write2(totalMinutes / 60, buffer, position);
+        return write2(totalMinutes % 60, buffer, position);
+    }
+
+    private static LocalDate date(char[] text, int offset) {
+        if (text[offset + 4] != '-' || text[offset + 7] != '-') {
+            return null;
+        }
+        return date(digits(text, offset, 4), digits(text, offset + 5, 2), digits(text, offset + 8, 2));
+    }
+
+    private static LocalDate date(int year, int month, int day) {
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 28 && day > LocalDate.of(year, month, 1).lengthOfMonth()) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    private static LocalTime time(char[] text, int offset, int end) {
+        int length = end - offset;
+        if (length != 8 && (length < 10 || length > 18 || text[offset + 8] != '.')) {
+            return null;
+        }
+        if (text[offset + 2] != ':' || text[offset + 5] != ':') {
+            return null;
+        }
+        int hour = digits(text, offset, 2);
+        int minute = digits(text, offset + 3, 2);
+        int second = digits(text, offset + 6, 2);
+        int nano = 0;
+        if (length > 8) {
+            int fractionLength = length - 9;
+            nano = digits(text, offset + 9, fractionLength);
+            for (int i = fractionLength; i < 9 && nano >= 0; i++) {
+                nano *= 10;
+            }
+        }
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || nano < 0) {
+            return null;
+        }
+        return LocalTime.of(hour, minute, second, nano);
+    }
+
+    /**
+     * Reads a +HH:MM (length 6) or +HHMM (length 5) offset.
+     */
+    private static ZoneOffset zoneOffset(char[] text, int offset, int length) {
+        char sign = text[offset];
+        int hours = digits(text, offset + 1, 2);
+        int minutes = digits(text, offset + length - 2, 2);
+        if (sign != '+' && sign != '-' || length == 6 && text[offset + 3] != ':') {
+            return null;
+        }
+        if (hours < 0 || hours > 17 || minutes < 0 || minutes > 59) {
+            return null;
+        }
+        int totalSeconds = hours * 3600 + minutes * 60;
+        return ZoneOffset.ofTotalSeconds(sign == '-' ? -totalSeconds : totalSeconds);
+    }
+
+    /**
+     * The value of count decimal digits, or -1 if one of them is not a digit.
+     */
+    private static int digits(char[] text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = text[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int nameIndex(String[] names, char[] text, int offset) {
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            if (text[offset] == name.charAt(0) && text[offset + 1] == name.charAt(1) && text[offset + 2] == name.charAt(2)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int writeDate(LocalDate value, char[] buffer, int position) {
+        int year = value.getYear();
+        if (year < 0 || year > 9999) {
+            return -1;
+        }
+        position = write4(year, buffer, position);
+        buffer[position] = '-';
+        position = write2(value.getMonthValue(), buffer, position + 1);
+        buffer[position] = '-';
+        return write2(value.getDayOfMonth(), buffer, position + 1);
+    }
+
+    /**
+     * HH:mm:ss followed by the fraction of the second without trailing zeros, as DateTimeFormatter.ISO_LOCAL_TIME formats it.
+     */
+    private static int writeTime(LocalTime value, char[] buffer, int position) {
+        position = write2(value.getHour(), buffer, position);
+        buffer[position++] = ':';
+        position = write2(value.getMinute(), buffer, position);
+        buffer[position++] = ':';
+        position = write2(value.getSecond(), buffer, position);
+        int nano = value.getNano();
+        if (nano == 0) {
+            return position;
+        }
+        buffer[position++] = '.';
+        int divisor = 100000000;
+        while (nano > 0) {
+            buffer[position++] = (char) ('0' + nano / divisor);
+            nano %= divisor;
+            divisor /= 10;
+        }
+        return position;
+    }
+
+    private static int writeOffsetSign(int totalSeconds, char[] buffer, int position) {
+        buffer[position] = totalSeconds < 0 ? '-' : '+';
+        return position + 1;
+    }
+
+    private static int writeName(String name, char[] buffer, int position) {
+        name.getChars(0, name.length(), buffer, position);
+        return position + name.length();
+    }
+
+    private static int write2(int value, char[] buffer, int position) {
+        buffer[position] = (char) ('0' + value / 10);
+        buffer[position + 1] = (char) ('0' + value % 10);
+        return position + 2;
+    }
+
+    private static int write4(int value, char[] buffer, int position) {
+        write2(value / 100, buffer, position);
+        return write2(value % 100, buffer, position + 2);
+    }
+
+}
@@ -22,6 +22,7 @@ package io.atomicbits.scraml.dsl.javajackson.json;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import io.atomicbits.scraml.dsl.javajackson.DateOnly;
@@ -38,10 +39,18 @@ public class DateOnlyDeserializer extends JsonDeserializer<DateOnly> {
     @Override
     public DateOnly deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
         DateOnly dateOnly = null;
-        String dateString = jp.getText();
+        LocalDate localDate = null;
+        if (jp.getCurrentToken() == JsonToken.VALUE_STRING) {
+            localDate = DateCodecs.parseDate(jp.getTextCharacters(), jp.getTextOffset(), jp.getTextLength());
+        }
+        if (localDate == null) {
+            String dateString = jp.getText();
+            if (dateString != null && !dateString.isEmpty()) {
+                localDate = LocalDate.parse(dateString, DateTimeFormatter.ISO_LOCAL_DATE);
+            }
+        }
 
-        if (dateString != null && !dateString.isEmpty()) {
-            LocalDate localDate = LocalDate.parse(dateString, DateTimeFormatter.ISO_LOCAL_DATE);
+        if (localDate != null) {
             dateOnly = new DateOnly();
             dateOnly.setDate(localDate);
         }
@@ -40,7 +40,13 @@ public class DateOnlySerializer extends JsonSerializer<DateOnly> {
         if (value == null) {
             jgen.writeNull();
         } else {
-            jgen.writeString(DateTimeFormatter.ISO_LOCAL_DATE.format(value.getDate()));
+            char[] buffer = new char[DateCodecs.BUFFER_LENGTH];
+            int length = DateCodecs.formatDate(value.getDate(), buffer);
+            if (length < 0) {
+                jgen.writeString(DateTimeFormatter.ISO_LOCAL_DATE.format(value.getDate()));
+            } else {
+                jgen.writeString(buffer, 0, length);
+            }
         }
     }
 }
@@ -22,6 +22,7 @@ package io.atomicbits.scraml.dsl.javajackson.json;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import io.atomicbits.scraml.dsl.javajackson.DateTimeOnly;
@@ -38,10 +39,18 @@ public class DateTimeOnlyDeserializer extends JsonDeserializer<DateTimeOnly> {
     @Override
     public DateTimeOnly deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
         DateTimeOnly dateTimeOnly = null;
-        String dateString = jp.getText();
+        LocalDateTime localDateTime = null;
+        if (jp.getCurrentToken() == JsonToken.VALUE_STRING) {
+            localDateTime = DateCodecs.parseDateTime(jp.getTextCharacters(), jp.getTextOffset(), jp.getTextLength());
+        }
+        if (localDateTime == null) {
+            String dateString = jp.getText();
+            if (dateString != null && !dateString.isEmpty()) {
+                localDateTime = LocalDateTime.parse(dateString, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            }
+        }
 
-        if (dateString != null && !dateString.isEmpty()) {
-            LocalDateTime localDateTime = LocalDateTime.parse(dateString, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        if (localDateTime != null) {
             dateTimeOnly = new DateTimeOnly();
             dateTimeOnly.setDateTime(localDateTime);
         }
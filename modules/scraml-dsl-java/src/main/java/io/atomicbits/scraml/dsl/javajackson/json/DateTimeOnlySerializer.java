@@ -40,7 +40,13 @@ public class DateTimeOnlySerializer extends JsonSerializer<DateTimeOnly> {
         if (value == null) {
             jgen.writeNull();
         } else {
-            jgen.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value.getDateTime()));
+            char[] buffer = new char[DateCodecs.BUFFER_LENGTH];
+            int length = DateCodecs.formatDateTime(value.getDateTime(), buffer);
+            if (length < 0) {
+                jgen.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value.getDateTime()));
+            } else {
+                jgen.writeString(buffer, 0, length);
+            }
         }
     }
 }
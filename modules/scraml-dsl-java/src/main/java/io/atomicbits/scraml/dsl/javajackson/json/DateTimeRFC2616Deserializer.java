@@ -22,6 +22,7 @@ package io.atomicbits.scraml.dsl.javajackson.json;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import io.atomicbits.scraml.dsl.javajackson.DateTimeRFC2616;
@@ -38,10 +39,18 @@ public class DateTimeRFC2616Deserializer extends JsonDeserializer<DateTimeRFC261
     @Override
     public DateTimeRFC2616 deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
         DateTimeRFC2616 dateTimeRFC2616 = null;
-        String dateString = jp.getText();
+        OffsetDateTime offsetDateTime = null;
+        if (jp.getCurrentToken() == JsonToken.VALUE_STRING) {
+            offsetDateTime = DateCodecs.parseRfc1123(jp.getTextCharacters(), jp.getTextOffset(), jp.getTextLength());
+        }
+        if (offsetDateTime == null) {
+            String dateString = jp.getText();
+            if (dateString != null && !dateString.isEmpty()) {
+                offsetDateTime = OffsetDateTime.parse(dateString, DateTimeFormatter.RFC_1123_DATE_TIME);
+            }
+        }
 
-        if (dateString != null && !dateString.isEmpty()) {
-            OffsetDateTime offsetDateTime = OffsetDateTime.parse(dateString, DateTimeFormatter.RFC_1123_DATE_TIME);
+        if (offsetDateTime != null) {
             dateTimeRFC2616 = new DateTimeRFC2616();
             dateTimeRFC2616.setDateTime(offsetDateTime);
         }
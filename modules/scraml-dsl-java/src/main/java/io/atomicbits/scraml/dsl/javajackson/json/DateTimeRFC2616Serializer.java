@@ -39,7 +39,13 @@ public class DateTimeRFC2616Serializer extends JsonSerializer<DateTimeRFC2616> {
         if (value == null) {
             jgen.writeNull();
         } else {
-            jgen.writeString(DateTimeFormatter.RFC_1123_DATE_TIME.format(value.getDateTime()));
+            char[] buffer = new char[DateCodecs.BUFFER_LENGTH];
+            int length = DateCodecs.formatRfc1123(value.getDateTime(), buffer);
+            if (length < 0) {
+                jgen.writeString(DateTimeFormatter.RFC_1123_DATE_TIME.format(value.getDateTime()));
+            } else {
+                jgen.writeString(buffer, 0, length);
+            }
         }
     }
 }
@@ -22,6 +22,7 @@ package io.atomicbits.scraml.dsl.javajackson.json;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import io.atomicbits.scraml.dsl.javajackson.DateTimeRFC3339;
@@ -38,10 +39,18 @@ public class DateTimeRFC3339Deserializer extends JsonDeserializer<DateTimeRFC333
     @Override
     public DateTimeRFC3339 deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
         DateTimeRFC3339 dateTimeRFC3339 = null;
-        String dateString = jp.getText();
+        OffsetDateTime offsetDateTime = null;
+        if (jp.getCurrentToken() == JsonToken.VALUE_STRING) {
+            offsetDateTime = DateCodecs.parseRfc3339(jp.getTextCharacters(), jp.getTextOffset(), jp.getTextLength());
+        }
+        if (offsetDateTime == null) {
+            String dateString = jp.getText();
+            if (dateString != null && !dateString.isEmpty()) {
+                offsetDateTime = OffsetDateTime.parse(dateString, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+            }
+        }
 
-        if (dateString != null && !dateString.isEmpty()) {
-            OffsetDateTime offsetDateTime = OffsetDateTime.parse(dateString, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        if (offsetDateTime != null) {
             dateTimeRFC3339 = new DateTimeRFC3339();
             dateTimeRFC3339.setDateTime(offsetDateTime);
         }
@@ -40,7 +40,13 @@ public class DateTimeRFC3339Serializer extends JsonSerializer<DateTimeRFC3339> {
         if (value == null) {
             jgen.writeNull();
         } else {
-            jgen.writeString(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(value.getDateTime()));
+            char[] buffer = new char[DateCodecs.BUFFER_LENGTH];
+            int length = DateCodecs.formatRfc3339(value.getDateTime(), buffer);
+            if (length < 0) {
+                jgen.writeString(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(value.getDateTime()));
+            } else {
+                jgen.writeString(buffer, 0, length);
+            }
         }
     }
 }
@@ -0,0 +1,182 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.json;
+
+import com.fasterxml.jackson.annotation.*;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.node.NullNode;
+import io.atomicbits.scraml.dsl.javajackson.HttpParam;
+import io.atomicbits.scraml.dsl.javajackson.SimpleHttpParam;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Member;
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * The encoding of a POJO class as form or query parameters, built once per class.
+ * <p>
+ * The plan reads the property values with the accessors that Jackson found for the class and writes them straight into the parameter
+ * map, without converting the whole object into a JSON tree first. Strings, integer numbers, doubles and booleans are written as
+ * text directly, only the other property values (enums, dates, nested objects) still go through a JSON node of their own. Classes
+ * that Jackson doesn't serialize as a plain bean, such as classes with type info or custom serializers, keep the full tree walk.
+ */
+final class FormEncodingPlan {
+
+    private static final Set<Class<?>> PLAIN_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+            String.class, Boolean.class, boolean.class, Integer.class, int.class, Long.class, long.class, Short.class, short.class,
+            Byte.class, byte.class, Double.class, double.class, BigInteger.class
+    ));
+
+    private static final List<Class<? extends Annotation>> CUSTOM_SERIALIZATION = Arrays.asList(
+            JsonTypeInfo.class, JsonSerialize.class, JsonInclude.class, JsonFormat.class, JsonRawValue.class, JsonUnwrapped.class,
+            JsonIdentityInfo.class, JsonFilter.class, JsonView.class
+    );
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The properties to encode, null if the class needs the full tree walk.
+     */
+    private final Property[] properties;
+
+    private FormEncodingPlan(ObjectMapper objectMapper, Property[] properties) {
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    static FormEncodingPlan forClass(ObjectMapper objectMapper, Class<?> type) {
+        Property[] properties = null;
+        try {
+            properties = beanProperties(objectMapper, type);
+        } catch (RuntimeException e) {
+            // Leave it to the tree walk, which reports the actual serialization problem if there is one.
+        }
+        return new FormEncodingPlan(objectMapper, properties);
+    }
+
+    Map<String, HttpParam> encode(Object body) {
+        if (properties == null) {
+            return encodeTree(objectMapper.valueToTree(body));
+        }
+        Map<String, HttpParam> entries = new HashMap<>(properties.length * 2);
+        for (Property property : properties) {
+            Object value = property.accessor.getValue(body);
+            if (value == null) {
+                continue;
+            }
+            if (property.plain) {
+                entries.put(property.name, new SimpleHttpParam(value.toString()));
+            } else {
+                JsonNode node = objectMapper.valueToTree(value);
+                if (!(node instanceof NullNode)) {
+                    entries.put(property.name, new SimpleHttpParam(node.asText()));
+                }
+            }
+        }
+        return entries;
+    }
+
+    static Map<String, HttpParam> encodeTree(JsonNode jsonNode) {
+        Map<String, HttpParam> entries = new HashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = jsonNode.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            if (!(entry.getValue() instanceof NullNode))
+                entries.put(
+                        entry.getKey(),
+                        new SimpleHttpParam(entry.getValue().asText())
+                ); // .asText() is essential here to avoid quoted strings
+        }
+        return entries;
+    }
+
+    private static Property[] beanProperties(ObjectMapper objectMapper, Class<?> type) {
+        if (type.isArray() || type.isEnum() || type.isPrimitive() || type.getName().startsWith("java.")
+                || Map.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type) || JsonNode.class.isAssignableFrom(type)) {
+            return null;
+        }
+        BeanDescription beanDescription = objectMapper.getSerializationConfig().introspect(objectMapper.constructType(type));
+        AnnotatedClass classInfo = beanDescription.getClassInfo();
+        if (hasCustomSerialization(classInfo)) {
+            return null;
+        }
+        for (AnnotatedMethod method : classInfo.memberMethods()) {
+            if (method.hasAnnotation(JsonValue.class) || method.hasAnnotation(JsonAnyGetter.class)) {
+                return null;
+            }
+        }
+
+        List<Property> properties = new ArrayList<>();
+        for (BeanPropertyDefinition propertyDefinition : beanDescription.findProperties()) {
+            AnnotatedMember accessor = propertyDefinition.getAccessor();
+            if (accessor == null) {
+                continue; // A property that is only deserialized.
+            }
+            if (hasCustomSerialization(accessor)) {
+                return null;
+            }
+            Member member = accessor.getMember();
+            if (member instanceof AccessibleObject) {
+                try {
+                    ((AccessibleObject) member).setAccessible(true);
+                } catch (RuntimeException e) {
+                    // A security manager or module boundary refuses the access, the tree walk goes through Jackson's own checks.
+                    return null;
+                }
+            }
+            properties.add(new Property(propertyDefinition.getName(), accessor, PLAIN_TYPES.contains(accessor.getRawType())));
+        }
+        return properties.isEmpty() ? null : properties.toArray(new Property[properties.size()]);
+    }
+
+    private static boolean hasCustomSerialization(Annotated annotated) {
+        for (Class<? extends Annotation> annotation : CUSTOM_SERIALIZATION) {
+            if (annotated.hasAnnotation(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Property {
+
+        private final String name;
+        private final AnnotatedMember accessor;
+        private final boolean plain;
+
+        private Property(String name, AnnotatedMember accessor, boolean plain) {
+            this.name = name;
+            this.accessor = accessor;
+            this.plain = plain;
+        }
+
+    }
+
+}
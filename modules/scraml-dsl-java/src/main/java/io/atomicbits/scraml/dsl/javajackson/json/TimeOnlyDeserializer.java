@@ -22,6 +22,7 @@ package io.atomicbits.scraml.dsl.javajackson.json;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import io.atomicbits.scraml.dsl.javajackson.TimeOnly;
@@ -38,10 +39,18 @@ public class TimeOnlyDeserializer extends JsonDeserializer<TimeOnly> {
     @Override
     public TimeOnly deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
         TimeOnly timeOnly = null;
-        String dateString = jp.getText();
+        LocalTime localTime = null;
+        if (jp.getCurrentToken() == JsonToken.VALUE_STRING) {
+            localTime = DateCodecs.parseTime(jp.getTextCharacters(), jp.getTextOffset(), jp.getTextLength());
+        }
+        if (localTime == null) {
+            String dateString = jp.getText();
+            if (dateString != null && !dateString.isEmpty()) {
+                localTime = LocalTime.parse(dateString, DateTimeFormatter.ISO_LOCAL_TIME);
+            }
+        }
 
-        if (dateString != null && !dateString.isEmpty()) {
-            LocalTime localTime = LocalTime.parse(dateString, DateTimeFormatter.ISO_LOCAL_TIME);
+        if (localTime != null) {
             timeOnly = new TimeOnly();
             timeOnly.setTime(localTime);
         }
@@ -40,7 +40,13 @@ public class TimeOnlySerializer extends JsonSerializer<TimeOnly> {
         if (value == null) {
             jgen.writeNull();
         } else {
-            jgen.writeString(DateTimeFormatter.ISO_LOCAL_TIME.format(value.getTime()));
+            char[] buffer = new char[DateCodecs.BUFFER_LENGTH];
+            int length = DateCodecs.formatTime(value.getTime(), buffer);
+            if (length < 0) {
+                jgen.writeString(DateTimeFormatter.ISO_LOCAL_TIME.format(value.getTime()));
+            } else {
+                jgen.writeString(buffer, 0, length);
+            }
         }
     }
 }
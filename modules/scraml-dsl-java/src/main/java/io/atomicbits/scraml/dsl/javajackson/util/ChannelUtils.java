@@ -0,0 +1,101 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.util;
+
+import io.atomicbits.scraml.dsl.javajackson.DownloadProgress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helpers for writing a binary download to a channel.
+ */
+public class ChannelUtils {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Write all remaining bytes of the buffer, a channel in non-blocking mode may need more than one write.
+     *
+     * @return The number of bytes written.
+     */
+    static public int writeFully(ByteBuffer buffer, WritableByteChannel target) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += target.write(buffer);
+        }
+        return written;
+    }
+
+    /**
+     * Copy the stream into the channel through a single fixed buffer. The stream is closed, the channel is not. The progress may be null.
+     *
+     * @return The number of bytes written.
+     */
+    static public long copy(InputStream in, WritableByteChannel target, long contentLength, DownloadProgress progress) throws IOException {
+        byte[] bytes = new byte[BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long total = 0L;
+        try (InputStream input = in) {
+            int read;
+            while ((read = input.read(bytes)) != -1) {
+                buffer.clear();
+                buffer.limit(read);
+                total += writeFully(buffer, target);
+                if (progress != null) {
+                    progress.onProgress(total, contentLength);
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return The value of the Content-Length header, or -1 when it is absent or invalid, or when the body is content-encoded (the
+     * length then counts the encoded bytes, not the bytes that are written).
+     */
+    static public long contentLength(Map<String, List<String>> headers) {
+        if (headers == null) {
+            return -1L;
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if ("Content-Encoding".equalsIgnoreCase(header.getKey()) && header.getValue() != null && !header.getValue().isEmpty()
+                    && !"identity".equalsIgnoreCase(header.getValue().get(0).trim())) {
+                return -1L;
+            }
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if ("Content-Length".equalsIgnoreCase(header.getKey()) && header.getValue() != null && !header.getValue().isEmpty()) {
+                try {
+                    return Long.parseLong(header.getValue().get(0).trim());
+                } catch (NumberFormatException e) {
+                    return -1L;
+                }
+            }
+        }
+        return -1L;
+    }
+
+}
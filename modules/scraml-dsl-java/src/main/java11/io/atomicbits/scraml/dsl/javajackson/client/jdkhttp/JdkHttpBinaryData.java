@@ -0,0 +1,81 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client.jdkhttp;
+
+import io.atomicbits.scraml.dsl.javajackson.BinaryData;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Binary data on the streamed body of a JDK HTTP client response. The stream is read on the first call to asBytes or asString,
+ * after which the bytes are kept. The stream is read under a lock rather than in a synchronized block, so that a virtual thread reading
+ * it doesn't pin its carrier thread.
+ */
+public class JdkHttpBinaryData extends BinaryData {
+
+    private final InputStream stream;
+    private final ReentrantLock lock = new ReentrantLock();
+    private byte[] bytes;
+
+    public JdkHttpBinaryData(InputStream stream) {
+        this.stream = stream;
+    }
+
+    @Override
+    public byte[] asBytes() throws IOException {
+        lock.lock();
+        try {
+            if (bytes == null) {
+                try (InputStream in = stream) {
+                    bytes = in.readAllBytes();
+                }
+            }
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public InputStream asStream() throws IOException {
+        lock.lock();
+        try {
+            return bytes != null ? new ByteArrayInputStream(bytes) : stream;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String asString() throws IOException {
+        return new String(asBytes(), Charset.defaultCharset());
+    }
+
+    @Override
+    public String asString(String charset) throws IOException {
+        return new String(asBytes(), charset);
+    }
+
+}
@@ -0,0 +1,905 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client.jdkhttp;
+
+import io.atomicbits.scraml.dsl.javajackson.*;
+import io.atomicbits.scraml.dsl.javajackson.client.CircuitBreaker;
+import io.atomicbits.scraml.dsl.javajackson.client.CircuitBreakerOpenException;
+import io.atomicbits.scraml.dsl.javajackson.client.ClientConfig;
+import io.atomicbits.scraml.dsl.javajackson.client.Compression;
+import io.atomicbits.scraml.dsl.javajackson.client.InterceptorChain;
+import io.atomicbits.scraml.dsl.javajackson.client.RetryPolicy;
+import io.atomicbits.scraml.dsl.javajackson.json.Json;
+import io.atomicbits.scraml.dsl.javajackson.json.JsonCodec;
+import io.atomicbits.scraml.dsl.javajackson.util.ChannelUtils;
+import io.atomicbits.scraml.dsl.javajackson.util.FutureUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A client on top of the java.net.http.HttpClient of JDK 11 and later.
+ *
+ * The client negotiates HTTP/2 when the configuration allows it, so that concurrent requests to the same host are multiplexed
+ * on a single connection instead of each taking a connection of their own. Response bodies are received as a stream, typed
+ * responses are parsed straight from that stream when streamingResponseDecoding is set (and the string body isn't kept).
+ *
+ * Of the client configuration, the connect and request timeouts, redirects, the SSL context, the executor, the interceptors,
+ * the circuit breaker and the retry policy apply. The connection pool settings of the ning client don't, and neither do the
+ * concurrency limiter, the response cache and the request coalescer.
+ */
+public class JdkHttpClient implements Client {
+
+    // Headers that the JDK client sets itself and refuses to take from the caller.
+    private static final Set<String> RESTRICTED_HEADERS =
+            new HashSet<>(Arrays.asList("connection", "content-length", "expect", "host", "upgrade"));
+
+    private String protocol;
+    private String host;
+    private int port;
+    private String prefix;
+    private ClientConfig config;
+    private Map<String, String> defaultHeaders;
+
+    private String baseUrl;
+    private HeaderMap defaultHeaderMap;
+    private InterceptorChain interceptors;
+
+    private Executor executor;
+    private ExecutorService ownExecutor;
+    private HttpClient httpClient;
+
+    private Logger LOGGER = LoggerFactory.getLogger(JdkHttpClient.class);
+
+    public JdkHttpClient(String host,
+                         Integer port,
+                         String protocol,
+                         String prefix,
+                         ClientConfig config,
+                         Map<String, String> defaultHeaders) {
+        this.host = host != null ? host : "localhost";
+        this.port = port != null ? port : 80;
+        this.protocol = protocol != null ? protocol : "http";
+        this.prefix = prefix;
+        this.config = config != null ? config : new ClientConfig();
+        this.defaultHeaders = defaultHeaders != null ? defaultHeaders : new HashMap<>();
+        this.baseUrl = this.protocol + "://" + this.host + ":" + this.port + getCleanPrefix();
+        this.defaultHeaderMap = new HeaderMap();
+        this.defaultHeaderMap.setHeaders(this.defaultHeaders);
+        this.interceptors = new InterceptorChain(this.config.getInterceptors());
+
+        if (this.config.getExecutor() != null) {
+            this.executor = this.config.getExecutor();
+        } else {
+            // Response bodies are read from a blocking stream, which needs an executor that can grow.
+            AtomicInteger threadCount = new AtomicInteger();
+            this.ownExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "scraml-jdk-http-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.executor = this.ownExecutor;
+        }
+
+        HttpClient.Builder builder =
+                HttpClient.newBuilder()
+                        .version(this.config.getHttp2Enabled() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                        .followRedirects(this.config.getFollowRedirect() ? HttpClient.Redirect.NORMAL : HttpClient.Redirect.NEVER)
+                        .executor(this.executor);
+        if (this.config.getConnectTimeout() > 0) {
+            builder.connectTimeout(Duration.ofMillis(this.config.getConnectTimeout()));
+        }
+        if (this.config.getSslContext() != null) {
+            builder.sslContext(this.config.getSslContext());
+        }
+        this.httpClient = builder.build();
+    }
+
+    @Override
+    public ClientConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public Map<String, String> getDefaultHeaders() {
+        return defaultHeaders;
+    }
+
+    @Override
+    public String getHost() {
+        return host;
+    }
+
+    @Override
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getCleanPrefix() {
+        if (prefix == null) {
+            return "";
+        }
+        String cleanPrefix = prefix;
+        if (cleanPrefix.startsWith("/")) {
+            cleanPrefix = cleanPrefix.substring(1);
+        }
+        if (cleanPrefix.endsWith("/")) {
+            cleanPrefix = cleanPrefix.substring(0, cleanPrefix.length() - 1);
+        }
+        return cleanPrefix.isEmpty() ? "" : "/" + cleanPrefix;
+    }
+
+
+    @Override
+    public CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<String>> callToStringResponse(RequestBuilder requestBuilder,
+                                                                                                         String body) {
+        return callToResponse(requestBuilder, body, null, this::transformToStringBody);
+    }
+
+
+    @Override
+    public CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<BinaryData>> callToBinaryResponse(RequestBuilder requestBuilder,
+                                                                                                             String body) {
+        return callToResponse(requestBuilder, body, null, this::transformToBinaryBody);
+    }
+
+
+    @Override
+    public <R> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> callToTypeResponse(RequestBuilder requestBuilder,
+                                                                                                      String body,
+                                                                                                      String canonicalResponseType) {
+        return callToResponse(requestBuilder, body, null, (response) -> transformToTypedBody(response, canonicalResponseType));
+    }
+
+
+    @Override
+    public CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<String>> callToStringResponse(RequestBuilder requestBuilder,
+                                                                                                         BodyWriter body) {
+        return callToResponse(requestBuilder, null, body, this::transformToStringBody);
+    }
+
+
+    @Override
+    public CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<BinaryData>> callToBinaryResponse(RequestBuilder requestBuilder,
+                                                                                                             BodyWriter body) {
+        return callToResponse(requestBuilder, null, body, this::transformToBinaryBody);
+    }
+
+
+    @Override
+    public <R> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> callToTypeResponse(RequestBuilder requestBuilder,
+                                                                                                      BodyWriter body,
+                                                                                                      String canonicalResponseType) {
+        return callToResponse(requestBuilder, null, body, (response) -> transformToTypedBody(response, canonicalResponseType));
+    }
+
+
+    /**
+     * The response body is handed to the JSON parser as it arrives. Streamed calls are never retried or hedged, the response of an
+     * abandoned attempt would hold on to its connection.
+     */
+    @Override
+    public <E> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<Stream<E>>> callToStreamResponse(RequestBuilder requestBuilder,
+                                                                                             String body,
+                                                                                             String canonicalElementType) {
+        JsonCodec elementCodec = Json.codecFor(canonicalElementType);
+        return callToResponse(requestBuilder, body, null, (response) -> transformToStreamBody(response, elementCodec), false);
+    }
+
+
+    @Override
+    public <E> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<Stream<E>>> callToStreamResponse(RequestBuilder requestBuilder,
+                                                                                             BodyWriter body,
+                                                                                             String canonicalElementType) {
+        JsonCodec elementCodec = Json.codecFor(canonicalElementType);
+        return callToResponse(requestBuilder, null, body, (response) -> transformToStreamBody(response, elementCodec), false);
+    }
+
+
+    /**
+     * The response body is copied into the channel while it arrives, through a fixed buffer. Downloads are never retried or hedged, the
+     * channel can't be rewound for another attempt.
+     */
+    @Override
+    public CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<Long>> callToDownloadResponse(RequestBuilder requestBuilder,
+                                                                                               String body,
+                                                                                               WritableByteChannel target,
+                                                                                               DownloadProgress progress) {
+        return callToResponse(requestBuilder, body, null, (response) -> transformToDownloadBody(response, target, progress), false);
+    }
+
+
+    @Override
+    public CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<Long>> callToDownloadResponse(RequestBuilder requestBuilder,
+                                                                                               BodyWriter body,
+                                                                                               WritableByteChannel target,
+                                                                                               DownloadProgress progress) {
+        return callToResponse(requestBuilder, null, body, (response) -> transformToDownloadBody(response, target, progress), false);
+    }
+
+
+    @Override
+    public io.atomicbits.scraml.dsl.javajackson.Response<String> callToStringResponseSync(RequestBuilder requestBuilder, String body) {
+        return callSync(requestBuilder, body, null, this::transformToStringBody);
+    }
+
+
+    @Override
+    public io.atomicbits.scraml.dsl.javajackson.Response<BinaryData> callToBinaryResponseSync(RequestBuilder requestBuilder, String body) {
+        return callSync(requestBuilder, body, null, this::transformToBinaryBody);
+    }
+
+
+    @Override
+    public <R> io.atomicbits.scraml.dsl.javajackson.Response<R> callToTypeResponseSync(RequestBuilder requestBuilder, String body, String canonicalResponseType) {
+        return callSync(requestBuilder, body, null, (response) -> transformToTypedBody(response, canonicalResponseType));
+    }
+
+
+    @Override
+    public io.atomicbits.scraml.dsl.javajackson.Response<String> callToStringResponseSync(RequestBuilder requestBuilder, BodyWriter body) {
+        return callSync(requestBuilder, null, body, this::transformToStringBody);
+    }
+
+
+    @Override
+    public io.atomicbits.scraml.dsl.javajackson.Response<BinaryData> callToBinaryResponseSync(RequestBuilder requestBuilder, BodyWriter body) {
+        return callSync(requestBuilder, null, body, this::transformToBinaryBody);
+    }
+
+
+    @Override
+    public <R> io.atomicbits.scraml.dsl.javajackson.Response<R> callToTypeResponseSync(RequestBuilder requestBuilder, BodyWriter body, String canonicalResponseType) {
+        return callSync(requestBuilder, null, body, (response) -> transformToTypedBody(response, canonicalResponseType));
+    }
+
+
+    /**
+     * The blocking call path. The request is sent with HttpClient.send and the response body is read and parsed on the calling thread,
+     * so there is no hop to the executor and no future to wait on. On a virtual thread, the wait for the response unmounts the virtual
+     * thread instead of blocking its carrier. Retries are scheduled asynchronously, so with a retry policy the call waits on the
+     * asynchronous path instead.
+     */
+    private <R> io.atomicbits.scraml.dsl.javajackson.Response<R> callSync(RequestBuilder requestBuilder,
+                                String body,
+                                BodyWriter bodyWriter,
+                                Function<HttpResponse<InputStream>, io.atomicbits.scraml.dsl.javajackson.Response<R>> transformer) {
+        if (config.getRetryPolicy() != null && isReplayable(requestBuilder)) {
+            return FutureUtils.await(callToResponse(requestBuilder, body, bodyWriter, transformer));
+        }
+
+        CircuitBreaker circuitBreaker = config.getCircuitBreaker();
+        CircuitBreaker.Permit permit = null;
+        if (circuitBreaker != null) {
+            permit = circuitBreaker.acquire(host + ":" + port, requestBuilder.getMethod(), requestBuilder.getResourcePathTemplate());
+        }
+
+        io.atomicbits.scraml.dsl.javajackson.Response<R> response;
+        try {
+            HttpRequest request = buildRequest(requestBuilder, body, bodyWriter);
+            LOGGER.debug("Executing request: " + request);
+            response = exchange(request, requestBuilder, transformer);
+        } catch (IOException e) {
+            if (permit != null) {
+                permit.onFailure();
+            }
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException | Error e) {
+            if (permit != null) {
+                permit.onFailure();
+            }
+            throw e;
+        }
+        if (permit != null) {
+            if (response.getStatus() >= 500) {
+                permit.onFailure();
+            } else {
+                permit.onSuccess();
+            }
+        }
+        return response;
+    }
+
+
+    private <R> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> callToResponse(RequestBuilder requestBuilder,
+                                                                                                   String body,
+                                                                                                   BodyWriter bodyWriter,
+                                                                                                   Function<HttpResponse<InputStream>, io.atomicbits.scraml.dsl.javajackson.Response<R>> transformer) {
+        return callToResponse(requestBuilder, body, bodyWriter, transformer, isReplayable(requestBuilder));
+    }
+
+
+    private <R> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> callToResponse(RequestBuilder requestBuilder,
+                                                                                                   String body,
+                                                                                                   BodyWriter bodyWriter,
+                                                                                                   Function<HttpResponse<InputStream>, io.atomicbits.scraml.dsl.javajackson.Response<R>> transformer,
+                                                                                                   boolean retryable) {
+        CircuitBreaker circuitBreaker = config.getCircuitBreaker();
+        if (circuitBreaker == null) {
+            return buildAndSend(requestBuilder, body, bodyWriter, transformer, retryable);
+        }
+
+        // Fail fast, before the request is built, while the host or endpoint is failing.
+        CircuitBreaker.Permit permit;
+        try {
+            permit = circuitBreaker.acquire(host + ":" + port, requestBuilder.getMethod(), requestBuilder.getResourcePathTemplate());
+        } catch (CircuitBreakerOpenException e) {
+            CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+
+        CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> future;
+        try {
+            future = buildAndSend(requestBuilder, body, bodyWriter, transformer, retryable);
+        } catch (RuntimeException e) {
+            permit.onFailure();
+            throw e;
+        }
+        future.whenComplete((response, failure) -> {
+            if (failure != null || response.getStatus() >= 500) {
+                permit.onFailure();
+            } else {
+                permit.onSuccess();
+            }
+        });
+        return future;
+    }
+
+
+    private <R> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> buildAndSend(RequestBuilder requestBuilder,
+                                                                                                 String body,
+                                                                                                 BodyWriter bodyWriter,
+                                                                                                 Function<HttpResponse<InputStream>, io.atomicbits.scraml.dsl.javajackson.Response<R>> transformer,
+                                                                                                 boolean retryable) {
+        HttpRequest request;
+        try {
+            request = buildRequest(requestBuilder, body, bodyWriter);
+        } catch (IOException e) {
+            CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        long requestBytes = requestBytes(request);
+
+        LOGGER.debug("Executing request: " + request);
+
+        RetryPolicy retryPolicy = config.getRetryPolicy();
+        if (retryPolicy != null && retryable) {
+            return retryPolicy.execute(
+                    requestBuilder.getMethod(),
+                    requestBuilder.getResourcePathTemplate(),
+                    () -> dispatch(request, requestBuilder, requestBytes, transformer)
+            );
+        } else {
+            return dispatch(request, requestBuilder, requestBytes, transformer);
+        }
+    }
+
+
+    private HttpRequest buildRequest(RequestBuilder requestBuilder, String body, BodyWriter bodyWriter) throws IOException {
+        HeaderMap requestHeaders = defaultHeaderMap.cloned();
+        requestHeaders.setHeaders(requestBuilder.getHeaderMap());
+
+        HttpRequest.Builder jdkRb = HttpRequest.newBuilder(buildUri(requestBuilder));
+        if (config.getRequestTimeout() > 0) {
+            jdkRb.timeout(Duration.ofMillis(config.getRequestTimeout()));
+        }
+
+        String multipartBoundary = requestBuilder.getMultipartParams().isEmpty() ? null : "scraml-" + UUID.randomUUID();
+        for (int i = 0; i < requestHeaders.size(); i++) {
+            String name = requestHeaders.nameAt(i);
+            if (RESTRICTED_HEADERS.contains(name.toLowerCase()) ||
+                    (multipartBoundary != null && HeaderMap.CONTENT_TYPE.equalsIgnoreCase(name))) {
+                continue;
+            }
+            for (String value : requestHeaders.valuesAt(i)) {
+                jdkRb.header(name, value);
+            }
+        }
+
+        String requestCharset = getResponseCharsetFromHeaders(requestHeaders.getHeaders(), config.getRequestCharset().name());
+        byte[] bodyBytes = null;
+        HttpRequest.BodyPublisher publisher = null;
+
+        if (body != null) {
+            bodyBytes = body.getBytes(requestCharset);
+        }
+
+        if (bodyWriter != null) {
+            // Encode the body in the charset that is announced in the request's content type, without an intermediate String.
+            bodyBytes = bodyWriter.writeToBytes(Charset.forName(requestCharset));
+        }
+
+        // Only string and JSON bodies are compressed, and never when the caller already encoded the body.
+        Compression compression = config.getCompression();
+        if (compression != null && bodyBytes != null && compression.compressRequest(bodyBytes.length) &&
+                !requestHeaders.hasKey(HeaderMap.CONTENT_ENCODING)) {
+            bodyBytes = compression.gzip(bodyBytes);
+            jdkRb.header(HeaderMap.CONTENT_ENCODING, "gzip");
+        }
+        if (compression != null && compression.isAcceptCompressedResponses() && !requestHeaders.hasKey(HeaderMap.ACCEPT_ENCODING)) {
+            jdkRb.header(HeaderMap.ACCEPT_ENCODING, Compression.ACCEPT_ENCODING);
+        }
+
+        BinaryRequest binaryRequest = requestBuilder.getBinaryRequest();
+        if (binaryRequest != null) {
+            if (binaryRequest.isFile()) {
+                publisher = HttpRequest.BodyPublishers.ofFile(((FileBinaryRequest) binaryRequest).getFile().toPath());
+            }
+            if (binaryRequest.isInputStream()) {
+                InputStream stream = ((InputStreamBinaryRequest) binaryRequest).getInputStream();
+                publisher = HttpRequest.BodyPublishers.ofInputStream(() -> stream);
+            }
+            if (binaryRequest.isByteArray()) {
+                bodyBytes = ((ByteArrayBinaryRequest) binaryRequest).getBytes();
+            }
+            if (binaryRequest.isString()) {
+                bodyBytes = ((StringBinaryRequest) binaryRequest).getText().getBytes(requestCharset);
+            }
+        }
+
+        if (!requestBuilder.getFormParameters().isEmpty()) {
+            bodyBytes = formUrlEncoded(requestBuilder.getFormParameters(), requestCharset).getBytes(StandardCharsets.US_ASCII);
+            if (!requestHeaders.hasKey(HeaderMap.CONTENT_TYPE)) {
+                jdkRb.header(HeaderMap.CONTENT_TYPE, "application/x-www-form-urlencoded");
+            }
+        }
+
+        if (multipartBoundary != null) {
+            bodyBytes = multipartBody(requestBuilder.getMultipartParams(), multipartBoundary, requestCharset);
+            jdkRb.header(HeaderMap.CONTENT_TYPE, "multipart/form-data; boundary=" + multipartBoundary);
+        }
+
+        if (bodyBytes != null) {
+            publisher = HttpRequest.BodyPublishers.ofByteArray(bodyBytes);
+        }
+        if (publisher == null) {
+            publisher = HttpRequest.BodyPublishers.noBody();
+        }
+
+        return jdkRb.method(requestBuilder.getMethod().name(), publisher).build();
+    }
+
+
+    private static long requestBytes(HttpRequest request) {
+        return request.bodyPublisher().map(HttpRequest.BodyPublisher::contentLength).orElse(0L);
+    }
+
+
+    /**
+     * A streamed request body can only be sent once.
+     */
+    private static boolean isReplayable(RequestBuilder requestBuilder) {
+        return requestBuilder.getBinaryRequest() == null || !requestBuilder.getBinaryRequest().isInputStream();
+    }
+
+
+    /**
+     * A request that can't be sent fails its future, so that it is reported like any other failure once its start was reported.
+     */
+    private CompletableFuture<HttpResponse<InputStream>> sendAsync(HttpRequest request) {
+        try {
+            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+
+    private <R> CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> dispatch(HttpRequest request,
+                                                                                             RequestBuilder requestBuilder,
+                                                                                             long requestBytes,
+                                                                                             Function<HttpResponse<InputStream>, io.atomicbits.scraml.dsl.javajackson.Response<R>> transformer) {
+        if (interceptors.isEmpty()) {
+            // The future completes as soon as the headers are in, the body is read (and parsed) on the executor.
+            CompletableFuture<HttpResponse<InputStream>> exchange = sendAsync(request);
+            return cancelling(unwrapped(exchange.thenApplyAsync(transformer, executor)), exchange);
+        }
+
+        String resourcePath = requestBuilder.getResourcePathTemplate();
+        long start = System.nanoTime();
+        interceptors.onRequestStart(requestBuilder, resourcePath, requestBytes);
+        CompletableFuture<HttpResponse<InputStream>> exchange = sendAsync(request);
+        CompletableFuture<io.atomicbits.scraml.dsl.javajackson.Response<R>> future =
+                exchange
+                        .thenApplyAsync(response -> {
+                            interceptors.onHeadersReceived(requestBuilder,
+                                                           resourcePath,
+                                                           response.statusCode(),
+                                                           response.headers().map(),
+                                                           System.nanoTime() - start);
+                            io.atomicbits.scraml.dsl.javajackson.Response<R> result = transformer.apply(response);
+                            long elapsed = System.nanoTime() - start;
+                            long responseBytes = response.headers().firstValueAsLong(HeaderMap.CONTENT_LENGTH).orElse(-1);
+                            interceptors.onBodyDecoded(requestBuilder, resourcePath, responseBytes, elapsed);
+                            interceptors.onComplete(requestBuilder, resourcePath, response.statusCode(), elapsed);
+                            return result;
+                        }, executor);
+        future = cancelling(unwrapped(future), exchange);
+        future.whenComplete((response, failure) -> {
+            if (failure != null) {
+                interceptors.onFailure(requestBuilder, resourcePath, failure, System.nanoTime() - start);
+            }
+        });
+        return future;
+    }
+
+
+    private <R> io.atomicbits.scraml.dsl.javajackson.Response<R> exchange(HttpRequest request,
+                                RequestBuilder requestBuilder,
+                                Function<HttpResponse<InputStream>, io.atomicbits.scraml.dsl.javajackson.Response<R>> transformer) throws IOException {
+        String resourcePath = requestBuilder.getResourcePathTemplate();
+        long start = System.nanoTime();
+        if (!interceptors.isEmpty()) {
+            interceptors.onRequestStart(requestBuilder, resourcePath, requestBytes(request));
+        }
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            if (interceptors.isEmpty()) {
+                return transformer.apply(response);
+            }
+            interceptors.onHeadersReceived(requestBuilder,
+                                           resourcePath,
+                                           response.statusCode(),
+                                           response.headers().map(),
+                                           System.nanoTime() - start);
+            io.atomicbits.scraml.dsl.javajackson.Response<R> result = transformer.apply(response);
+            long elapsed = System.nanoTime() - start;
+            long responseBytes = response.headers().firstValueAsLong(HeaderMap.CONTENT_LENGTH).orElse(-1);
+            interceptors.onBodyDecoded(requestBuilder, resourcePath, responseBytes, elapsed);
+            interceptors.onComplete(requestBuilder, resourcePath, response.statusCode(), elapsed);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CompletionException failure = new CompletionException(e);
+            if (!interceptors.isEmpty()) {
+                interceptors.onFailure(requestBuilder, resourcePath, failure, System.nanoTime() - start);
+            }
+            throw failure;
+        } catch (IOException | RuntimeException e) {
+            if (!interceptors.isEmpty()) {
+                interceptors.onFailure(requestBuilder, resourcePath, e, System.nanoTime() - start);
+            }
+            throw e;
+        }
+    }
+
+
+    /**
+     * Complete with the cause of a failure instead of the CompletionException that wraps it, as the ning client does.
+     */
+    private static <T> CompletableFuture<T> unwrapped(CompletableFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete((value, failure) -> {
+            if (failure == null) {
+                result.complete(value);
+            } else if (failure instanceof CompletionException && failure.getCause() != null) {
+                result.completeExceptionally(failure.getCause());
+            } else {
+                result.completeExceptionally(failure);
+            }
+        });
+        return result;
+    }
+
+
+    /**
+     * Cancel the exchange when the result is cancelled, e.g. when it lost a hedge. The HTTP client aborts a cancelled exchange
+     * since Java 16, older versions let it run to its end.
+     */
+    private static <T> CompletableFuture<T> cancelling(CompletableFuture<T> result, CompletableFuture<?> exchange) {
+        result.whenComplete((value, failure) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+
+    private URI buildUri(RequestBuilder requestBuilder) {
+        StringBuilder uri = new StringBuilder(baseUrl).append('/').append(requestBuilder.getRelativePath());
+        char separator = '?';
+        for (Map.Entry<String, HttpParam> queryParam : requestBuilder.getQueryParameters().entrySet()) {
+            for (String value : paramValues(queryParam.getValue())) {
+                uri.append(separator).append(urlEncode(queryParam.getKey(), StandardCharsets.UTF_8.name()))
+                        .append('=').append(urlEncode(value, StandardCharsets.UTF_8.name()));
+                separator = '&';
+            }
+        }
+        return URI.create(uri.toString());
+    }
+
+
+    private static String formUrlEncoded(Map<String, HttpParam> formParameters, String charset) {
+        StringBuilder form = new StringBuilder();
+        for (Map.Entry<String, HttpParam> formParam : formParameters.entrySet()) {
+            for (String value : paramValues(formParam.getValue())) {
+                if (form.length() > 0) {
+                    form.append('&');
+                }
+                form.append(urlEncode(formParam.getKey(), charset)).append('=').append(urlEncode(value, charset));
+            }
+        }
+        return form.toString();
+    }
+
+
+    private static List<String> paramValues(HttpParam param) {
+        if (param instanceof RepeatedHttpParam) {
+            List<String> values = ((RepeatedHttpParam) param).getParameters();
+            return values != null ? values : List.of();
+        } else if (param instanceof SingleHttpParam) {
+            String value = ((SingleHttpParam) param).getParameter();
+            return value != null ? List.of(value) : List.of();
+        }
+        return List.of();
+    }
+
+
+    private static String urlEncode(String text, String charset) {
+        try {
+            return URLEncoder.encode(text, charset).replace("+", "%20");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    private static byte[] multipartBody(List<BodyPart> bodyParts, String boundary, String charset) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (BodyPart bodyPart : bodyParts) {
+            StringBuilder partHeaders = new StringBuilder("--").append(boundary).append("\r\n");
+            byte[] content;
+            String contentType;
+            String contentId;
+            String transferEncoding;
+            if (bodyPart.isString()) {
+                StringPart part = (StringPart) bodyPart;
+                partHeaders.append("Content-Disposition: form-data; name=\"").append(part.getName()).append("\"\r\n");
+                Charset partCharset = part.getCharset() != null ? part.getCharset() : Charset.forName(charset);
+                content = part.getValue().getBytes(partCharset);
+                contentType = part.getContentType() != null ? part.getContentType() + "; charset=" + partCharset.name() : null;
+                contentId = part.getContentId();
+                transferEncoding = part.getTransferEncoding();
+            } else if (bodyPart.isFile()) {
+                FilePart part = (FilePart) bodyPart;
+                String fileName = part.getFileName() != null ? part.getFileName() : part.getFile().getName();
+                partHeaders.append("Content-Disposition: form-data; name=\"").append(part.getName())
+                        .append("\"; filename=\"").append(fileName).append("\"\r\n");
+                if (!part.getFile().isFile()) {
+                    throw new FileNotFoundException(part.getFile().getPath());
+                }
+                content = Files.readAllBytes(part.getFile().toPath());
+                contentType = part.getContentType() != null ? part.getContentType() : "application/octet-stream";
+                contentId = part.getContentId();
+                transferEncoding = part.getTransferEncoding();
+            } else {
+                ByteArrayPart part = (ByteArrayPart) bodyPart;
+                partHeaders.append("Content-Disposition: form-data; name=\"").append(part.getName()).append('"');
+                if (part.getFileName() != null) {
+                    partHeaders.append("; filename=\"").append(part.getFileName()).append('"');
+                }
+                partHeaders.append("\r\n");
+                content = part.getBytes();
+                contentType = part.getContentType() != null ? part.getContentType() : "application/octet-stream";
+                contentId = part.getContentId();
+                transferEncoding = part.getTransferEncoding();
+            }
+            if (contentType != null) {
+                partHeaders.append("Content-Type: ").append(contentType).append("\r\n");
+            }
+            if (contentId != null) {
+                partHeaders.append("Content-ID: ").append(contentId).append("\r\n");
+            }
+            if (transferEncoding != null) {
+                partHeaders.append("Content-Transfer-Encoding: ").append(transferEncoding).append("\r\n");
+            }
+            partHeaders.append("\r\n");
+            out.write(partHeaders.toString().getBytes(StandardCharsets.UTF_8));
+            out.write(content);
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        out.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+
+    private io.atomicbits.scraml.dsl.javajackson.Response<String> transformToStringBody(HttpResponse<InputStream> response) {
+        Map<String, List<String>> headers = response.headers().map();
+        String responseBody = readBody(response);
+        return new io.atomicbits.scraml.dsl.javajackson.Response<String>(responseBody, responseBody, response.statusCode(), headers);
+    }
+
+
+    private io.atomicbits.scraml.dsl.javajackson.Response<BinaryData> transformToBinaryBody(HttpResponse<InputStream> response) {
+        Map<String, List<String>> headers = response.headers().map();
+        if (response.statusCode() >= 200 && response.statusCode() < 300) {
+            // Where we assume that any response in the 200 range will map to the unique typed response. This doesn't hold true if
+            // there are many responses in the 200 range with different typed responses.
+            return new io.atomicbits.scraml.dsl.javajackson.Response<BinaryData>(
+                    null,
+                    new JdkHttpBinaryData(responseBody(response)),
+                    response.statusCode(),
+                    headers
+            );
+        } else {
+            String responseBody = readBody(response);
+            return new io.atomicbits.scraml.dsl.javajackson.Response<BinaryData>(responseBody, null, response.statusCode(), headers);
+        }
+    }
+
+
+    private <R> io.atomicbits.scraml.dsl.javajackson.Response<R> transformToTypedBody(HttpResponse<InputStream> response,
+                                                                                      String canonicalResponseType) {
+        Map<String, List<String>> headers = response.headers().map();
+        if (response.statusCode() >= 200 && response.statusCode() < 300) {
+            // Where we assume that any response in the 200 range will map to the unique typed response. This doesn't hold true if
+            // there are many responses in the 200 range with different typed responses.
+            if (config.getStreamingResponseDecoding() && !config.getKeepTypedResponseStringBody()) {
+                // Feed the response stream straight into the JSON parser, the body is never buffered as a whole.
+                String responseCharset = getResponseCharsetFromHeaders(headers, config.getResponseCharset().displayName());
+                try (InputStream body = responseBody(response)) {
+                    R typedBody = Json.parseBodyToObject(body, Charset.forName(responseCharset), canonicalResponseType);
+                    return new io.atomicbits.scraml.dsl.javajackson.Response<R>(null, typedBody, response.statusCode(), headers);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            } else {
+                String stringBody = readBody(response);
+                R typedBody = Json.parseBodyToObject(stringBody, canonicalResponseType);
+                String responseBody = config.getKeepTypedResponseStringBody() ? stringBody : null;
+                return new io.atomicbits.scraml.dsl.javajackson.Response<R>(responseBody, typedBody, response.statusCode(), headers);
+            }
+        } else {
+            String responseBody = readBody(response);
+            return new io.atomicbits.scraml.dsl.javajackson.Response<R>(responseBody, null, response.statusCode(), headers);
+        }
+    }
+
+
+    private <E> io.atomicbits.scraml.dsl.javajackson.Response<Stream<E>> transformToStreamBody(HttpResponse<InputStream> response, JsonCodec elementCodec) {
+        Map<String, List<String>> headers = response.headers().map();
+        if (response.statusCode() >= 200 && response.statusCode() < 300) {
+            String responseCharset = getResponseCharsetFromHeaders(headers, config.getResponseCharset().displayName());
+            Stream<E> elements = Json.parseBodyToStream(responseBody(response), Charset.forName(responseCharset), elementCodec);
+            return new io.atomicbits.scraml.dsl.javajackson.Response<Stream<E>>(null, elements, response.statusCode(), headers);
+        } else {
+            String responseBody = readBody(response);
+            return new io.atomicbits.scraml.dsl.javajackson.Response<Stream<E>>(responseBody, null, response.statusCode(), headers);
+        }
+    }
+
+
+    private io.atomicbits.scraml.dsl.javajackson.Response<Long> transformToDownloadBody(HttpResponse<InputStream> response,
+                                                                                  WritableByteChannel target,
+                                                                                  DownloadProgress progress) {
+        Map<String, List<String>> headers = response.headers().map();
+        if (response.statusCode() >= 200 && response.statusCode() < 300) {
+            try {
+                long written = ChannelUtils.copy(responseBody(response), target, ChannelUtils.contentLength(headers), progress);
+                return new io.atomicbits.scraml.dsl.javajackson.Response<Long>(null, written, response.statusCode(), headers);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            String responseBody = readBody(response);
+            return new io.atomicbits.scraml.dsl.javajackson.Response<Long>(responseBody, null, response.statusCode(), headers);
+        }
+    }
+
+
+    /**
+     * The response body, decoded while it is read when the server compressed it. The JDK client doesn't decode it by itself.
+     */
+    private InputStream responseBody(HttpResponse<InputStream> response) {
+        Compression compression = config.getCompression();
+        if (compression == null) {
+            return response.body();
+        }
+        return compression.decode(response.body(), response.headers().firstValue(HeaderMap.CONTENT_ENCODING).orElse(null));
+    }
+
+
+    private String readBody(HttpResponse<InputStream> response) {
+        String responseCharset = getResponseCharsetFromHeaders(response.headers().map(), config.getResponseCharset().displayName());
+        try (InputStream body = responseBody(response)) {
+            return new String(body.readAllBytes(), responseCharset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    @Override
+    public void close() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    String getResponseCharsetFromHeaders(Map<String, List<String>> headers, String defaultCharset) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if ("content-type".equals(entry.getKey().toLowerCase())) {
+                for (String value : entry.getValue()) {
+                    String[] parts = value.toLowerCase().split(";");
+                    for (String part : parts) {
+                        if (part.contains("charset")) {
+                            String[] charsetSplit = value.toLowerCase().split("charset");
+                            if (charsetSplit.length > 1) {
+                                String charsetValue = charsetSplit[1];
+                                String cleanValue = charsetValue.replace('=', ' ').trim();
+                                try {
+                                    return Charset.forName(cleanValue).name();
+                                } catch (Throwable e) {
+                                    // ignore, we'll fallback to the default charset
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return defaultCharset;
+    }
+
+}
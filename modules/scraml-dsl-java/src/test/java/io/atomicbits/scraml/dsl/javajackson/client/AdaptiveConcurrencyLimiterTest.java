@@ -0,0 +1,175 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long RTT_NANOS = 1000000L;
+
+    @Test
+    public void testLimitGrowsUpToTheMaximumWhileTheRoundTripTimeIsStable() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0);
+
+        int previousLimit = limiter.getLimit();
+        for (int round = 0; round < 200; round++) {
+            int limit = limiter.getLimit();
+            assertTrue(limit >= previousLimit);
+            assertTrue(limit <= 10);
+            previousLimit = limit;
+            // Use the whole limit, then release every request with the same round trip time.
+            for (int i = 0; i < limit; i++) {
+                assertTrue(limiter.submit(() -> { }));
+            }
+            assertEquals(limit, limiter.getInFlight());
+            for (int i = 0; i < limit; i++) {
+                limiter.release(RTT_NANOS, false);
+            }
+        }
+        assertEquals(10, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testLimitDoesNotGrowWhenItIsNotUsed() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 0);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.submit(() -> { });
+            limiter.release(RTT_NANOS, false);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void testBackOffWhenTheRoundTripTimeInflates() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 0, 0.5, 2.0);
+
+        limiter.submit(() -> { });
+        limiter.release(RTT_NANOS, false);
+        assertEquals(10, limiter.getLimit());
+
+        // Within the tolerated multiple of the minimum round trip time.
+        limiter.submit(() -> { });
+        limiter.release(2 * RTT_NANOS, false);
+        assertEquals(10, limiter.getLimit());
+
+        limiter.submit(() -> { });
+        limiter.release(3 * RTT_NANOS, false);
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    public void testBackOffOnDroppedRequestsDownToTheMinimum() {
+        // The client releases a request as dropped when it fails or is answered with a 429 or 503.
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 3, 100, 0, 0.5, 2.0);
+
+        limiter.submit(() -> { });
+        limiter.release(RTT_NANOS, true);
+        assertEquals(5, limiter.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            limiter.submit(() -> { });
+            limiter.release(RTT_NANOS, true);
+        }
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    public void testQueueDrainsInOrderAndRejectsWhenFull() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 2);
+        List<String> started = new ArrayList<>();
+
+        assertTrue(limiter.submit(() -> started.add("first")));
+        assertTrue(limiter.submit(() -> started.add("second")));
+        assertTrue(limiter.submit(() -> started.add("third")));
+        assertFalse(limiter.submit(() -> started.add("rejected")));
+
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(2, limiter.getQueueDepth());
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(1, started.size());
+
+        limiter.release(RTT_NANOS, false);
+        assertEquals(2, started.size());
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(1, limiter.getQueueDepth());
+
+        limiter.release(RTT_NANOS, false);
+        limiter.release(RTT_NANOS, false);
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueDepth());
+        assertEquals(3, started.size());
+        assertEquals("second", started.get(1));
+        assertEquals("third", started.get(2));
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void testQueueDrainsAsTheLimitGrows() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 3, 10);
+        List<String> started = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            limiter.submit(() -> started.add("request"));
+        }
+        assertEquals(1, started.size());
+
+        // The released request used the whole limit of one, so the limit grows to two and two queued requests start.
+        limiter.release(RTT_NANOS, false);
+        assertEquals(2, limiter.getLimit());
+        assertEquals(3, started.size());
+        assertEquals(1, limiter.getQueueDepth());
+    }
+
+    @Test
+    public void testCancelledRequestsFreeTheirPlaceWithoutChangingTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 1);
+        List<String> started = new ArrayList<>();
+
+        limiter.submit(() -> started.add("first"));
+        limiter.submit(() -> started.add("second"));
+        limiter.submit(() -> started.add("queued"));
+        assertEquals(1, limiter.getQueueDepth());
+
+        limiter.releaseCancelled();
+        assertEquals(2, limiter.getLimit());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(3, started.size());
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInitialLimitAboveTheMaximumIsRejected() {
+        new AdaptiveConcurrencyLimiter(20, 1, 10, 0);
+    }
+
+}
@@ -0,0 +1,215 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client;
+
+import io.atomicbits.scraml.dsl.javajackson.Method;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import static org.junit.Assert.*;
+
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class CircuitBreakerTest {
+
+    private static final String HOST = "localhost:8080";
+
+    @Test
+    public void testOpenWhenTheFailureRateReachesTheThreshold() {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+
+        recordSuccess(circuitBreaker);
+        recordFailure(circuitBreaker);
+        recordFailure(circuitBreaker);
+        // Three calls are not enough to judge the circuit.
+        assertEquals(CircuitBreaker.State.CLOSED, stateOf(circuitBreaker));
+
+        recordSuccess(circuitBreaker);
+        assertEquals(CircuitBreaker.State.OPEN, stateOf(circuitBreaker));
+        assertRejected(circuitBreaker);
+    }
+
+    @Test
+    public void testStayClosedBelowTheFailureRateThreshold() {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+
+        for (int i = 0; i < 20; i++) {
+            if (i % 4 == 0) {
+                recordFailure(circuitBreaker);
+            } else {
+                recordSuccess(circuitBreaker);
+            }
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, stateOf(circuitBreaker));
+    }
+
+    @Test
+    public void testOldFailuresSlideOutOfTheWindow() {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+
+        recordFailure(circuitBreaker);
+        recordSuccess(circuitBreaker);
+        recordSuccess(circuitBreaker);
+        recordSuccess(circuitBreaker);
+        // The first failure leaves the window of four calls, so this one brings the rate to 25% only.
+        recordFailure(circuitBreaker);
+        assertEquals(CircuitBreaker.State.CLOSED, stateOf(circuitBreaker));
+    }
+
+    @Test
+    public void testHalfOpenAfterTheOpenDuration() throws Exception {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+        open(circuitBreaker);
+        assertRejected(circuitBreaker);
+
+        Thread.sleep(circuitBreaker.getOpenDurationMillis() + 20);
+
+        CircuitBreaker.Permit probe = circuitBreaker.acquire(HOST, Method.GET, "/users");
+        assertNotNull(probe);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, stateOf(circuitBreaker));
+    }
+
+    @Test
+    public void testCloseWhenAllProbesSucceed() throws Exception {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+        open(circuitBreaker);
+        Thread.sleep(circuitBreaker.getOpenDurationMillis() + 20);
+
+        CircuitBreaker.Permit first = circuitBreaker.acquire(HOST, Method.GET, "/users");
+        CircuitBreaker.Permit second = circuitBreaker.acquire(HOST, Method.GET, "/users");
+        // Only the configured number of probes is let through.
+        assertRejected(circuitBreaker);
+
+        first.onSuccess();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, stateOf(circuitBreaker));
+        second.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, stateOf(circuitBreaker));
+
+        // A closed circuit starts over with an empty window.
+        recordFailure(circuitBreaker);
+        assertEquals(CircuitBreaker.State.CLOSED, stateOf(circuitBreaker));
+    }
+
+    @Test
+    public void testReopenOnAFailingProbe() throws Exception {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+        open(circuitBreaker);
+        Thread.sleep(circuitBreaker.getOpenDurationMillis() + 20);
+
+        CircuitBreaker.Permit first = circuitBreaker.acquire(HOST, Method.GET, "/users");
+        CircuitBreaker.Permit second = circuitBreaker.acquire(HOST, Method.GET, "/users");
+        first.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, stateOf(circuitBreaker));
+        assertRejected(circuitBreaker);
+
+        // The outcome of a probe from the previous half-open period doesn't count anymore.
+        second.onSuccess();
+        assertEquals(CircuitBreaker.State.OPEN, stateOf(circuitBreaker));
+    }
+
+    @Test
+    public void testKeepACircuitPerEndpoint() {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+        circuitBreaker.setPerEndpoint(true);
+
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.acquire(HOST, Method.GET, "/users").onFailure();
+        }
+        try {
+            circuitBreaker.acquire(HOST, Method.GET, "/users");
+            fail("The circuit of GET /users should be open.");
+        } catch (CircuitBreakerOpenException expected) {
+        }
+        circuitBreaker.acquire(HOST, Method.GET, "/groups").onSuccess();
+        circuitBreaker.acquire(HOST, Method.POST, "/users").onSuccess();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getStates().get(HOST + " GET /users"));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getStates().get(HOST + " GET /groups"));
+    }
+
+    @Test
+    public void testRejectAWindowSmallerThanTheMinimumNumberOfCalls() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker();
+        try {
+            circuitBreaker.setWindowSize(5);
+            fail("A window of 5 calls cannot hold the default minimum of 10 calls.");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            circuitBreaker.setMinimumCalls(21);
+            fail("The minimum number of calls cannot exceed the default window of 20 calls.");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            circuitBreaker.setMinimumCalls(0);
+            fail("The minimum number of calls must be positive.");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(20, circuitBreaker.getWindowSize());
+        assertEquals(10, circuitBreaker.getMinimumCalls());
+
+        circuitBreaker.setMinimumCalls(5);
+        circuitBreaker.setWindowSize(5);
+        assertEquals(5, circuitBreaker.getWindowSize());
+    }
+
+    /**
+     * A circuit breaker that judges a circuit on its last four calls and stays open for 50 ms.
+     */
+    private static CircuitBreaker circuitBreaker() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker();
+        circuitBreaker.setMinimumCalls(4);
+        circuitBreaker.setWindowSize(4);
+        circuitBreaker.setFailureRateThreshold(50);
+        circuitBreaker.setOpenDurationMillis(50);
+        circuitBreaker.setHalfOpenCalls(2);
+        return circuitBreaker;
+    }
+
+    private static void open(CircuitBreaker circuitBreaker) {
+        for (int i = 0; i < 4; i++) {
+            recordFailure(circuitBreaker);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, stateOf(circuitBreaker));
+    }
+
+    private static void recordSuccess(CircuitBreaker circuitBreaker) {
+        circuitBreaker.acquire(HOST, Method.GET, "/users").onSuccess();
+    }
+
+    private static void recordFailure(CircuitBreaker circuitBreaker) {
+        circuitBreaker.acquire(HOST, Method.GET, "/users").onFailure();
+    }
+
+    private static void assertRejected(CircuitBreaker circuitBreaker) {
+        try {
+            circuitBreaker.acquire(HOST, Method.GET, "/users");
+            fail("The request should have been rejected.");
+        } catch (CircuitBreakerOpenException expected) {
+        }
+    }
+
+    private static CircuitBreaker.State stateOf(CircuitBreaker circuitBreaker) {
+        return circuitBreaker.getStates().get(HOST);
+    }
+
+}
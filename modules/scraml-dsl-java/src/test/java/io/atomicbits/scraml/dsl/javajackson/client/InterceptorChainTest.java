@@ -0,0 +1,160 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client;
+
+import io.atomicbits.scraml.dsl.javajackson.RequestBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class InterceptorChainTest {
+
+    @Test
+    public void testTheInterceptorsAreCalledInOrder() {
+        List<String> calls = new ArrayList<>();
+        InterceptorChain chain = new InterceptorChain(Arrays.asList(new Recording("first", calls), new Recording("second", calls)));
+
+        runRequest(chain);
+
+        assertFalse(chain.isEmpty());
+        assertEquals(
+                Arrays.asList("first start", "second start", "first headers 200", "second headers 200", "first body 20",
+                              "second body 20", "first complete 200", "second complete 200", "first failure boom",
+                              "second failure boom"),
+                calls
+        );
+    }
+
+    @Test
+    public void testAFailingInterceptorDoesNotStopTheOthers() {
+        List<String> calls = new ArrayList<>();
+        InterceptorChain chain = new InterceptorChain(Arrays.asList(new Failing(), new Recording("second", calls)));
+
+        runRequest(chain);
+
+        assertEquals(
+                Arrays.asList("second start", "second headers 200", "second body 20", "second complete 200", "second failure boom"),
+                calls
+        );
+    }
+
+    @Test
+    public void testAChainWithoutInterceptorsIsEmpty() {
+        assertTrue(new InterceptorChain(null).isEmpty());
+        assertTrue(new InterceptorChain(Collections.<RequestInterceptor>emptyList()).isEmpty());
+        // Calling an empty chain is a no-op.
+        runRequest(new InterceptorChain(null));
+    }
+
+    private static void runRequest(InterceptorChain chain) {
+        RequestBuilder request = new RequestBuilder();
+        chain.onRequestStart(request, "/users", 10L);
+        chain.onHeadersReceived(request, "/users", 200, Collections.<String, List<String>>emptyMap(), 1000L);
+        chain.onBodyDecoded(request, "/users", 20L, 2000L);
+        chain.onComplete(request, "/users", 200, 2000L);
+        chain.onFailure(request, "/users", new RuntimeException("boom"), 3000L);
+    }
+
+    private static final class Recording implements RequestInterceptor {
+
+        private final String name;
+        private final List<String> calls;
+
+        Recording(String name, List<String> calls) {
+            this.name = name;
+            this.calls = calls;
+        }
+
+        @Override
+        public void onRequestStart(RequestBuilder request, String resourcePath, long requestBytes) {
+            calls.add(name + " start");
+        }
+
+        @Override
+        public void onHeadersReceived(RequestBuilder request,
+                                      String resourcePath,
+                                      int statusCode,
+                                      Map<String, List<String>> headers,
+                                      long elapsedNanos) {
+            calls.add(name + " headers " + statusCode);
+        }
+
+        @Override
+        public void onBodyDecoded(RequestBuilder request, String resourcePath, long responseBytes, long elapsedNanos) {
+            calls.add(name + " body " + responseBytes);
+        }
+
+        @Override
+        public void onComplete(RequestBuilder request, String resourcePath, int statusCode, long elapsedNanos) {
+            calls.add(name + " complete " + statusCode);
+        }
+
+        @Override
+        public void onFailure(RequestBuilder request, String resourcePath, Throwable failure, long elapsedNanos) {
+            calls.add(name + " failure " + failure.getMessage());
+        }
+
+    }
+
+    private static final class Failing implements RequestInterceptor {
+
+        @Override
+        public void onRequestStart(RequestBuilder request, String resourcePath, long requestBytes) {
+            throw new IllegalStateException("start");
+        }
+
+        @Override
+        public void onHeadersReceived(RequestBuilder request,
+                                      String resourcePath,
+                                      int statusCode,
+                                      Map<String, List<String>> headers,
+                                      long elapsedNanos) {
+            throw new IllegalStateException("headers");
+        }
+
+        @Override
+        public void onBodyDecoded(RequestBuilder request, String resourcePath, long responseBytes, long elapsedNanos) {
+            throw new IllegalStateException("body");
+        }
+
+        @Override
+        public void onComplete(RequestBuilder request, String resourcePath, int statusCode, long elapsedNanos) {
+            throw new IllegalStateException("complete");
+        }
+
+        @Override
+        public void onFailure(RequestBuilder request, String resourcePath, Throwable failure, long elapsedNanos) {
+            throw new IllegalStateException("failure");
+        }
+
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client;
+
+import io.atomicbits.scraml.dsl.javajackson.Response;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class RequestCoalescerTest {
+
+    private static final int CALLERS = 16;
+
+    @Test
+    public void testConcurrentCallersShareOneRequest() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        CompletableFuture<Response<String>> exchange = new CompletableFuture<>();
+        AtomicInteger requests = new AtomicInteger();
+
+        List<CompletableFuture<Response<String>>> results = callConcurrently(coalescer, "GET /users", () -> {
+            requests.incrementAndGet();
+            return exchange;
+        });
+
+        assertEquals(1, requests.get());
+        assertEquals(1, coalescer.getExecutedCount());
+        assertEquals(CALLERS - 1, coalescer.getCoalescedCount());
+        assertEquals(1, coalescer.getInFlightCount());
+
+        Response<String> response = response("users");
+        exchange.complete(response);
+        for (CompletableFuture<Response<String>> result : results) {
+            assertSame(response, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(0, coalescer.getInFlightCount());
+
+        // The key is released once the exchange completed, the next call goes to the server again.
+        CompletableFuture<Response<String>> next = coalescer.execute("GET /users", () -> {
+            requests.incrementAndGet();
+            return CompletableFuture.completedFuture(response("again"));
+        });
+        assertEquals("again", next.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void testFailuresReachEveryCallerAndReleaseTheKey() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        CompletableFuture<Response<String>> exchange = new CompletableFuture<>();
+
+        List<CompletableFuture<Response<String>>> results = callConcurrently(coalescer, "GET /users", () -> exchange);
+        exchange.completeExceptionally(new IOException("Connection reset"));
+
+        for (CompletableFuture<Response<String>> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("Every caller should see the failure.");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+        }
+        assertEquals(0, coalescer.getInFlightCount());
+
+        // A request that fails before it returns a future releases the key as well.
+        CompletableFuture<Response<String>> thrown = coalescer.execute("GET /users", () -> {
+            throw new IllegalStateException("Cannot build the request");
+        });
+        assertTrue(thrown.isCompletedExceptionally());
+        assertEquals(0, coalescer.getInFlightCount());
+        assertEquals("ok", coalescer.execute("GET /users", () -> CompletableFuture.completedFuture(response("ok")))
+                .get(5, TimeUnit.SECONDS).getBody());
+    }
+
+    @Test
+    public void testDifferentKeysAreNotCoalesced() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        CompletableFuture<Response<String>> users = new CompletableFuture<>();
+        CompletableFuture<Response<String>> groups = new CompletableFuture<>();
+
+        CompletableFuture<Response<String>> usersResult = coalescer.execute("GET /users", () -> users);
+        CompletableFuture<Response<String>> groupsResult = coalescer.execute("GET /groups", () -> groups);
+
+        assertEquals(2, coalescer.getExecutedCount());
+        assertEquals(2, coalescer.getInFlightCount());
+        users.complete(response("users"));
+        groups.complete(response("groups"));
+        assertEquals("users", usersResult.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals("groups", groupsResult.get(5, TimeUnit.SECONDS).getBody());
+    }
+
+    @Test
+    public void testACallerCannotCancelTheResultOfTheOthers() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        CompletableFuture<Response<String>> exchange = new CompletableFuture<>();
+
+        CompletableFuture<Response<String>> first = coalescer.execute("GET /users", () -> exchange);
+        CompletableFuture<Response<String>> second = coalescer.execute("GET /users", () -> exchange);
+        first.cancel(true);
+        exchange.complete(response("users"));
+
+        assertTrue(first.isCancelled());
+        assertEquals("users", second.get(5, TimeUnit.SECONDS).getBody());
+    }
+
+    /**
+     * Let all callers call the coalescer at the same time, each from its own thread.
+     */
+    private static List<CompletableFuture<Response<String>>> callConcurrently(
+            RequestCoalescer coalescer,
+            String key,
+            Supplier<CompletableFuture<Response<String>>> request) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<CompletableFuture<Response<String>>>> calls = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                calls.add(executor.submit(() -> {
+                    start.await();
+                    return coalescer.execute(key, request);
+                }));
+            }
+            start.countDown();
+            List<CompletableFuture<Response<String>>> results = new ArrayList<>();
+            for (Future<CompletableFuture<Response<String>>> call : calls) {
+                results.add(call.get(5, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Response<String> response(String body) {
+        return new Response<>(body, body, 200, Collections.emptyMap());
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client;
+
+import io.atomicbits.scraml.dsl.javajackson.HeaderMap;
+import io.atomicbits.scraml.dsl.javajackson.Response;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ResponseCacheTest {
+
+    private static final HeaderMap NO_HEADERS = new HeaderMap();
+
+    @Test
+    public void testKeepFreshResponsesForTheirMaxAge() {
+        ResponseCache cache = new ResponseCache();
+        Response<String> response = response("fresh");
+
+        cache.store("key", NO_HEADERS, response, headers("Cache-Control", "public, max-age=60"), 100);
+
+        ResponseCache.Entry entry = cache.lookup("key", NO_HEADERS);
+        assertNotNull(entry);
+        assertTrue(entry.isFresh());
+        assertSame(response, entry.getResponse());
+        assertNull(cache.lookup("other", NO_HEADERS));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testFallBackOnExpires() {
+        ResponseCache cache = new ResponseCache();
+
+        cache.store("future", NO_HEADERS, response("future"), headers("Expires", httpDate(ZonedDateTime.now(ZoneOffset.UTC).plusMinutes(1))), 100);
+        cache.store("past", NO_HEADERS, response("past"), headers("Expires", httpDate(ZonedDateTime.now(ZoneOffset.UTC).minusMinutes(1))), 100);
+
+        assertTrue(cache.lookup("future", NO_HEADERS).isFresh());
+        assertNull(cache.lookup("past", NO_HEADERS));
+
+        // max-age takes precedence over Expires.
+        Map<String, List<String>> both = headers("Expires", httpDate(ZonedDateTime.now(ZoneOffset.UTC).plusMinutes(1)));
+        both.put("Cache-Control", Collections.singletonList("max-age=0"));
+        cache.store("both", NO_HEADERS, response("both"), both, 100);
+        assertNull(cache.lookup("both", NO_HEADERS));
+    }
+
+    @Test
+    public void testDoNotKeepResponsesThatCannotBeReused() {
+        ResponseCache cache = new ResponseCache();
+
+        cache.store("no-store", NO_HEADERS, response("a"), headers("Cache-Control", "no-store, max-age=60"), 100);
+        cache.store("no-cache", NO_HEADERS, response("b"), headers("Cache-Control", "no-cache"), 100);
+        cache.store("no-headers", NO_HEADERS, response("c"), new HashMap<>(), 100);
+        Map<String, List<String>> varyAll = headers("Cache-Control", "max-age=60");
+        varyAll.put("Vary", Collections.singletonList("*"));
+        cache.store("vary-all", NO_HEADERS, response("d"), varyAll, 100);
+
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void testRevalidateOnETagAndReuseTheResponseOnNotModified() {
+        ResponseCache cache = new ResponseCache();
+        Response<String> response = response("tagged");
+
+        Map<String, List<String>> responseHeaders = headers("Cache-Control", "no-cache");
+        responseHeaders.put("ETag", Collections.singletonList("\"v1\""));
+        cache.store("key", NO_HEADERS, response, responseHeaders, 100);
+
+        ResponseCache.Entry stale = cache.lookup("key", NO_HEADERS);
+        assertNotNull(stale);
+        assertFalse(stale.isFresh());
+        assertEquals("\"v1\"", stale.getEtag());
+        assertNull(stale.getLastModified());
+        assertEquals(1, cache.getRevalidations());
+        assertEquals(0, cache.getHits());
+
+        cache.notModified(stale, headers("Cache-Control", "max-age=60"));
+
+        ResponseCache.Entry revalidated = cache.lookup("key", NO_HEADERS);
+        assertTrue(revalidated.isFresh());
+        assertSame(response, revalidated.getResponse());
+        assertEquals(1, cache.getNotModified());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testRevalidateOnLastModified() {
+        ResponseCache cache = new ResponseCache();
+        String lastModified = httpDate(ZonedDateTime.now(ZoneOffset.UTC).minusDays(1));
+
+        cache.store("key", NO_HEADERS, response("dated"), headers("Last-Modified", lastModified), 100);
+
+        ResponseCache.Entry stale = cache.lookup("key", NO_HEADERS);
+        assertFalse(stale.isFresh());
+        assertEquals(lastModified, stale.getLastModified());
+
+        // A 304 without a lifetime keeps the entry, it is revalidated again on the next use.
+        cache.notModified(stale, new HashMap<>());
+        assertSame(stale, cache.lookup("key", NO_HEADERS));
+        assertEquals(2, cache.getRevalidations());
+    }
+
+    @Test
+    public void testReuseVaryingResponsesOnlyForTheSameRequestHeaders() {
+        ResponseCache cache = new ResponseCache();
+        HeaderMap json = new HeaderMap();
+        json.addHeader("Accept", "application/json");
+        HeaderMap sameJson = new HeaderMap();
+        sameJson.addHeader("accept", "application/json");
+        HeaderMap text = new HeaderMap();
+        text.addHeader("Accept", "text/plain");
+
+        Map<String, List<String>> responseHeaders = headers("Cache-Control", "max-age=60");
+        responseHeaders.put("Vary", Collections.singletonList("Accept"));
+        cache.store("key", json, response("json"), responseHeaders, 100);
+
+        assertNotNull(cache.lookup("key", sameJson));
+        assertNull(cache.lookup("key", text));
+        // The entry doesn't fit the new request, so it is dropped.
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void testKeepResponsesToRequestsWithCredentialsOnlyWhenTheyAreShareable() {
+        ResponseCache cache = new ResponseCache();
+        HeaderMap alice = new HeaderMap();
+        alice.addHeader("authorization", "Bearer alice");
+
+        cache.store("private", alice, response("private"), headers("Cache-Control", "max-age=60"), 100);
+        Map<String, List<String>> tagged = headers("Cache-Control", "no-cache");
+        tagged.put("ETag", Collections.singletonList("\"v1\""));
+        cache.store("tagged", alice, response("tagged"), tagged, 100);
+        assertEquals(0, cache.getEntryCount());
+
+        cache.store("public", alice, response("public"), headers("Cache-Control", "public, max-age=60"), 100);
+        cache.store("shared", alice, response("shared"), headers("Cache-Control", "s-maxage=60, max-age=60"), 100);
+        assertEquals(2, cache.getEntryCount());
+
+        HeaderMap bob = new HeaderMap();
+        bob.addHeader("Authorization", "Bearer bob");
+        assertNotNull(cache.lookup("public", bob));
+        assertNotNull(cache.lookup("shared", bob));
+        assertNull(cache.lookup("private", bob));
+    }
+
+    @Test
+    public void testEvictTheLeastRecentlyUsedEntriesBeyondTheMaximumSize() {
+        // Room for three entries of 100 bytes, each entry counts 256 bytes on top of its body.
+        ResponseCache cache = new ResponseCache(3 * 356);
+        Map<String, List<String>> cacheable = headers("Cache-Control", "max-age=60");
+
+        cache.store("a", NO_HEADERS, response("a"), cacheable, 100);
+        cache.store("b", NO_HEADERS, response("b"), cacheable, 100);
+        cache.store("c", NO_HEADERS, response("c"), cacheable, 100);
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(3 * 356, cache.getSizeInBytes());
+
+        assertNotNull(cache.lookup("a", NO_HEADERS));
+        cache.store("d", NO_HEADERS, response("d"), cacheable, 100);
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(3, cache.getEntryCount());
+        assertNull(cache.lookup("b", NO_HEADERS));
+        assertNotNull(cache.lookup("a", NO_HEADERS));
+        assertNotNull(cache.lookup("d", NO_HEADERS));
+
+        // A response that is larger than the whole cache is not kept and evicts nothing.
+        cache.store("huge", NO_HEADERS, response("huge"), cacheable, 2000);
+        assertNull(cache.lookup("huge", NO_HEADERS));
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    private static Response<String> response(String body) {
+        return new Response<>(body, body, 200, Collections.emptyMap());
+    }
+
+    private static Map<String, List<String>> headers(String name, String value) {
+        Map<String, List<String>> headers = new HashMap<>();
+        headers.put(name, Collections.singletonList(value));
+        return headers;
+    }
+
+    private static String httpDate(ZonedDateTime dateTime) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(dateTime);
+    }
+
+}
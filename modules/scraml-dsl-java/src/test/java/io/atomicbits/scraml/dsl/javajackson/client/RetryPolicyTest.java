@@ -0,0 +1,251 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client;
+
+import io.atomicbits.scraml.dsl.javajackson.Method;
+import io.atomicbits.scraml.dsl.javajackson.Response;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class RetryPolicyTest {
+
+    @Test
+    public void testBackoffStaysBelowTheExponentialCeiling() {
+        RetryPolicy retryPolicy = new RetryPolicy(5, 10, 100);
+
+        for (int attempt = 1; attempt <= 40; attempt++) {
+            long ceiling = Math.min(100, 10L << Math.min(attempt - 1, 30));
+            long highest = 0;
+            for (int i = 0; i < 1000; i++) {
+                long backoff = retryPolicy.jitteredBackoffMillis(attempt);
+                assertTrue(backoff >= 0);
+                assertTrue("Backoff " + backoff + " above " + ceiling + " at attempt " + attempt, backoff <= ceiling);
+                highest = Math.max(highest, backoff);
+            }
+            // Full jitter spreads the backoff over the whole range.
+            assertTrue(highest > ceiling / 2);
+        }
+    }
+
+    @Test
+    public void testRetryAfterInSecondsAndAsHttpDate() {
+        assertEquals(3000, RetryPolicy.retryAfterMillis(headers("retry-after", "3")));
+        assertEquals(0, RetryPolicy.retryAfterMillis(headers("Retry-After", "0")));
+
+        String inTenSeconds = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(10));
+        long delay = RetryPolicy.retryAfterMillis(headers("Retry-After", inTenSeconds));
+        assertTrue("Unexpected delay " + delay, delay > 8000 && delay <= 10000);
+
+        String past = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).minusHours(1));
+        assertEquals(0, RetryPolicy.retryAfterMillis(headers("Retry-After", past)));
+
+        assertEquals(-1, RetryPolicy.retryAfterMillis(headers("Retry-After", "soon")));
+        assertEquals(-1, RetryPolicy.retryAfterMillis(headers("Content-Type", "text/plain")));
+        assertEquals(-1, RetryPolicy.retryAfterMillis(null));
+    }
+
+    @Test
+    public void testRetryRetryableStatusCodesAndIOErrors() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 1, 5);
+        Attempts attempts = new Attempts(
+                failed(new IOException("Connection reset")),
+                completed(response(503)),
+                completed(response(200))
+        );
+
+        Response<String> response = retryPolicy.execute(Method.GET, "/users", attempts).get(5, TimeUnit.SECONDS);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(3, attempts.count.get());
+    }
+
+    @Test
+    public void testReturnTheLastResponseWhenTheRetriesAreExhausted() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(2, 1, 5);
+        Attempts attempts = new Attempts(completed(response(502)), completed(response(503)), completed(response(504)));
+
+        assertEquals(504, retryPolicy.execute(Method.GET, "/users", attempts).get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(3, attempts.count.get());
+    }
+
+    @Test
+    public void testDoNotRetryOtherFailuresOrNonIdempotentMethods() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(2, 1, 5);
+
+        Attempts failing = new Attempts(failed(new IllegalStateException("Bug")), completed(response(200)));
+        try {
+            retryPolicy.execute(Method.GET, "/users", failing).get(5, TimeUnit.SECONDS);
+            fail("The failure should not have been retried.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(1, failing.count.get());
+
+        Attempts posts = new Attempts(completed(response(503)), completed(response(200)));
+        assertEquals(503, retryPolicy.execute(Method.POST, "/users", posts).get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(1, posts.count.get());
+
+        Attempts notFound = new Attempts(completed(response(404)), completed(response(200)));
+        assertEquals(404, retryPolicy.execute(Method.GET, "/users", notFound).get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(1, notFound.count.get());
+    }
+
+    @Test
+    public void testRetryAfterReplacesTheBackoff() throws Exception {
+        // The regular backoff would take far longer than the test allows.
+        RetryPolicy retryPolicy = new RetryPolicy(1, 60000, 60000);
+        Attempts attempts = new Attempts(completed(response(429, "Retry-After", "0")), completed(response(200)));
+
+        assertEquals(200, retryPolicy.execute(Method.GET, "/users", attempts).get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(2, attempts.count.get());
+    }
+
+    @Test
+    public void testReturnTheResponseWhenRetryAfterExceedsTheMaximumBackoff() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(2, 1, 2000);
+        Attempts attempts = new Attempts(completed(response(503, "Retry-After", "10")), completed(response(200)));
+
+        Response<String> response = retryPolicy.execute(Method.GET, "/users", attempts).get(5, TimeUnit.SECONDS);
+
+        assertEquals(503, response.getStatus());
+        assertEquals(Collections.singletonList("10"), response.getHeaders().get("Retry-After"));
+        assertEquals(1, attempts.count.get());
+    }
+
+    @Test
+    public void testTheFirstGoodResponseWinsWhenHedging() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(0, 1, 5);
+        retryPolicy.setHedging(true);
+        retryPolicy.setMinHedgeDelayMillis(5);
+        warmUp(retryPolicy, "/users");
+
+        // The first request hangs, the hedged one answers.
+        CompletableFuture<Response<String>> slow = new CompletableFuture<>();
+        Attempts attempts = new Attempts(slow, completed(response(200, "hedged")));
+        Response<String> response = retryPolicy.execute(Method.GET, "/users", attempts).get(5, TimeUnit.SECONDS);
+        assertEquals("hedged", response.getBody());
+        assertEquals(2, attempts.count.get());
+        // The first request lost, it is cancelled.
+        assertTrue(slow.isCancelled());
+
+        // A hedged response that should be retried doesn't win from the first request.
+        CompletableFuture<Response<String>> first = new CompletableFuture<>();
+        Attempts badHedge = new Attempts(first, completed(response(503)));
+        CompletableFuture<Response<String>> result = retryPolicy.execute(Method.GET, "/users", badHedge);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (badHedge.count.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(2, badHedge.count.get());
+        assertFalse(result.isDone());
+        first.complete(response(200, "first"));
+        assertEquals("first", result.get(5, TimeUnit.SECONDS).getBody());
+    }
+
+    @Test
+    public void testDoNotHedgeWithoutEnoughLatencySamples() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(0, 1, 5);
+        retryPolicy.setHedging(true);
+
+        CompletableFuture<Response<String>> slow = new CompletableFuture<>();
+        Attempts attempts = new Attempts(slow, completed(response(200, "hedged")));
+        CompletableFuture<Response<String>> result = retryPolicy.execute(Method.GET, "/new", attempts);
+        Thread.sleep(50);
+        assertEquals(1, attempts.count.get());
+        slow.complete(response(200, "slow"));
+        assertEquals("slow", result.get(5, TimeUnit.SECONDS).getBody());
+    }
+
+    private static void warmUp(RetryPolicy retryPolicy, String resourcePath) throws Exception {
+        for (int i = 0; i < 20; i++) {
+            retryPolicy.execute(Method.GET, resourcePath, () -> completed(response(200))).get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Hands out the given results, one per attempt, and counts the attempts.
+     */
+    private static final class Attempts implements Supplier<CompletableFuture<Response<String>>> {
+
+        private final Deque<CompletableFuture<Response<String>>> results;
+        private final AtomicInteger count = new AtomicInteger();
+
+        @SafeVarargs
+        private Attempts(CompletableFuture<Response<String>>... results) {
+            this.results = new ArrayDeque<>(Arrays.asList(results));
+        }
+
+        @Override
+        public synchronized CompletableFuture<Response<String>> get() {
+            count.incrementAndGet();
+            return results.size() > 1 ? results.pollFirst() : results.peekFirst();
+        }
+
+    }
+
+    private static CompletableFuture<Response<String>> completed(Response<String> response) {
+        return CompletableFuture.completedFuture(response);
+    }
+
+    private static CompletableFuture<Response<String>> failed(Throwable failure) {
+        CompletableFuture<Response<String>> future = new CompletableFuture<>();
+        future.completeExceptionally(failure);
+        return future;
+    }
+
+    private static Response<String> response(int status) {
+        return new Response<>(null, null, status, Collections.emptyMap());
+    }
+
+    private static Response<String> response(int status, String body) {
+        return new Response<>(body, body, status, Collections.emptyMap());
+    }
+
+    private static Response<String> response(int status, String header, String value) {
+        return new Response<>(null, null, status, headers(header, value));
+    }
+
+    private static Map<String, List<String>> headers(String name, String value) {
+        return Collections.singletonMap(name, Collections.singletonList(value));
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client.metrics;
+
+import io.atomicbits.scraml.dsl.javajackson.Method;
+import io.atomicbits.scraml.dsl.javajackson.RequestBuilder;
+import io.atomicbits.scraml.dsl.javajackson.client.InterceptorChain;
+import io.atomicbits.scraml.dsl.javajackson.client.RequestInterceptor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class MetricsInterceptorTest {
+
+    @Test
+    public void testAStartedRequestIsInFlightUntilItCompletesOrFails() {
+        MetricsInterceptor metrics = new MetricsInterceptor();
+        RequestBuilder get = request(Method.GET);
+
+        metrics.onRequestStart(get, "/users/{userId}", 0L);
+        metrics.onRequestStart(get, "/users/{userId}", 0L);
+        EndpointMetrics endpoint = metrics.getEndpointMetrics(Method.GET, "/users/{userId}");
+        assertEquals(2, endpoint.getInFlight());
+        assertEquals(2, endpoint.getRequests());
+
+        metrics.onBodyDecoded(get, "/users/{userId}", 300L, TimeUnit.MILLISECONDS.toNanos(2));
+        metrics.onComplete(get, "/users/{userId}", 200, TimeUnit.MILLISECONDS.toNanos(2));
+        assertEquals(1, endpoint.getInFlight());
+        assertEquals(0, endpoint.getFailures());
+
+        metrics.onFailure(get, "/users/{userId}", new RuntimeException("boom"), TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(0, endpoint.getInFlight());
+        assertEquals(2, endpoint.getRequests());
+        assertEquals(1, endpoint.getFailures());
+        assertEquals(300, endpoint.getBytesIn());
+        // Both the completed and the failed request have a latency.
+        assertEquals(2, endpoint.getLatency().getTotalCount());
+        assertEquals(8192, endpoint.getLatency().getPercentileMicros(99));
+    }
+
+    @Test
+    public void testEachMethodOnAResourcePathIsAnEndpoint() {
+        MetricsInterceptor metrics = new MetricsInterceptor();
+
+        metrics.onRequestStart(request(Method.GET), "/users", 0L);
+        metrics.onRequestStart(request(Method.POST), "/users", 120L);
+        metrics.onRequestStart(request(Method.POST), "/users/{userId}", 80L);
+
+        assertEquals(3, metrics.getEndpointMetrics().size());
+        assertEquals(0, metrics.getEndpointMetrics(Method.GET, "/users").getBytesOut());
+        assertEquals(120, metrics.getEndpointMetrics(Method.POST, "/users").getBytesOut());
+        assertEquals(80, metrics.getEndpointMetrics(Method.POST, "/users/{userId}").getBytesOut());
+        assertNull(metrics.getEndpointMetrics(Method.DELETE, "/users"));
+        assertNull(metrics.getEndpointMetrics(Method.GET, "/groups"));
+
+        metrics.reset();
+        assertTrue(metrics.getEndpointMetrics().isEmpty());
+    }
+
+    @Test
+    public void testAFailingInterceptorBeforeTheMetricsDoesNotLoseARequest() {
+        MetricsInterceptor metrics = new MetricsInterceptor();
+        RequestInterceptor failing = new RequestInterceptor() {
+
+            @Override
+            public void onRequestStart(RequestBuilder request, String resourcePath, long requestBytes) {
+                throw new IllegalStateException("start");
+            }
+
+            @Override
+            public void onComplete(RequestBuilder request, String resourcePath, int statusCode, long elapsedNanos) {
+                throw new IllegalStateException("complete");
+            }
+
+        };
+        InterceptorChain chain = new InterceptorChain(Arrays.asList(failing, metrics));
+        RequestBuilder get = request(Method.GET);
+
+        chain.onRequestStart(get, "/users", 0L);
+        chain.onComplete(get, "/users", 200, 1000L);
+
+        EndpointMetrics endpoint = metrics.getEndpointMetrics(Method.GET, "/users");
+        assertEquals(1, endpoint.getRequests());
+        assertEquals(0, endpoint.getInFlight());
+    }
+
+    private static RequestBuilder request(Method method) {
+        RequestBuilder request = new RequestBuilder();
+        request.setMethod(method);
+        return request;
+    }
+
+}
@@ -20,15 +20,54 @@
 
 package io.atomicbits.scraml.dsl.javajackson.client.ning;
 
+import com.ning.http.client.AsyncHandler;
+import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.ListenableFuture;
+import com.ning.http.client.Request;
+import com.sun.net.httpserver.HttpServer;
+import io.atomicbits.scraml.dsl.javajackson.Method;
+import io.atomicbits.scraml.dsl.javajackson.RequestBuilder;
+import io.atomicbits.scraml.dsl.javajackson.Response;
+import io.atomicbits.scraml.dsl.javajackson.client.AdaptiveConcurrencyLimiter;
 import io.atomicbits.scraml.dsl.javajackson.client.ClientConfig;
+import io.atomicbits.scraml.dsl.javajackson.client.RequestInterceptor;
+import io.atomicbits.scraml.dsl.javajackson.client.ResponseCache;
+import io.atomicbits.scraml.dsl.javajackson.client.RetryPolicy;
+import io.atomicbits.scraml.dsl.javajackson.client.metrics.EndpointMetrics;
+import io.atomicbits.scraml.dsl.javajackson.client.metrics.MetricsInterceptor;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.BlockJUnit4ClassRunner;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -87,4 +126,542 @@ public class Ning19ClientTest {
         assertEquals("ascii", client.getResponseCharsetFromHeaders(headers, "ascii"));
     }
 
+    @Test
+    public void testConcurrencyLimiterBacksOffOnServiceUnavailable() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/busy", exchange -> {
+            byte[] body = "busy".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(503, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        Ning19Client client = null;
+        try {
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 0, 0.5, 2.0);
+            ClientConfig config = new ClientConfig();
+            config.setConcurrencyLimiter(limiter);
+            client = new Ning19Client("localhost", server.getAddress().getPort(), "http", "/api", config, null);
+
+            RequestBuilder requestBuilder = new RequestBuilder(client);
+            requestBuilder.setMethod(Method.GET);
+            requestBuilder.appendPathElement("busy");
+
+            Response<String> response = client.callToStringResponse(requestBuilder, (String) null).get(10, TimeUnit.SECONDS);
+            assertEquals(503, response.getStatus());
+
+            // The request is released by a callback on the response future, which may run just after get() returns.
+            long deadline = System.currentTimeMillis() + 5000;
+            while (limiter.getInFlight() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, limiter.getInFlight());
+            assertEquals(5, limiter.getLimit());
+        } finally {
+            if (client != null) {
+                client.close();
+            }
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testResponseCacheReusesTheResponseOnNotModified() throws Exception {
+        List<String> ifNoneMatch = new CopyOnWriteArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/users", exchange -> {
+            String validator = exchange.getRequestHeaders().getFirst("If-None-Match");
+            ifNoneMatch.add(String.valueOf(validator));
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+            if ("\"v1\"".equals(validator)) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+            } else {
+                byte[] body = "[\"John\"]".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+
+        Ning19Client client = null;
+        try {
+            ResponseCache responseCache = new ResponseCache();
+            ClientConfig config = new ClientConfig();
+            config.setResponseCache(responseCache);
+            client = new Ning19Client("localhost", server.getAddress().getPort(), "http", "/api", config, null);
+
+            RequestBuilder requestBuilder = new RequestBuilder(client);
+            requestBuilder.setMethod(Method.GET);
+            requestBuilder.appendPathElement("users");
+
+            Response<List<String>> first =
+                    client.<List<String>>callToTypeResponse(requestBuilder, (String) null, "java.util.List<java.lang.String>")
+                            .get(10, TimeUnit.SECONDS);
+            Response<List<String>> second =
+                    client.<List<String>>callToTypeResponse(requestBuilder, (String) null, "java.util.List<java.lang.String>")
+                            .get(10, TimeUnit.SECONDS);
+
+            assertEquals(200, first.getStatus());
+            assertEquals("John", first.getBody().get(0));
+            // The server answered the conditional request with a 304, so the first decoded response is reused.
+            assertSame(first, second);
+            assertEquals(2, ifNoneMatch.size());
+            assertEquals("null", ifNoneMatch.get(0));
+            assertEquals("\"v1\"", ifNoneMatch.get(1));
+            assertEquals(1, responseCache.getRevalidations());
+            assertEquals(1, responseCache.getNotModified());
+        } finally {
+            if (client != null) {
+                client.close();
+            }
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testResponseCacheDoesNotShareResponsesBetweenCredentials() throws Exception {
+        List<String> authorizations = new CopyOnWriteArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/me", exchange -> {
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            authorizations.add(authorization);
+            // Cacheable, but without Vary: Authorization and without public.
+            byte[] body = ("[\"" + authorization + "\"]").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+            exchange.getResponseHeaders().add("Cache-Control", "max-age=60");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        Ning19Client client = null;
+        try {
+            ResponseCache responseCache = new ResponseCache();
+            ClientConfig config = new ClientConfig();
+            config.setResponseCache(responseCache);
+            client = new Ning19Client("localhost", server.getAddress().getPort(), "http", "/api", config, null);
+
+            Response<List<String>> alice = callMe(client, "alice");
+            Response<List<String>> bob = callMe(client, "bob");
+
+            assertEquals("alice", alice.getBody().get(0));
+            assertEquals("bob", bob.getBody().get(0));
+            assertEquals(Arrays.asList("alice", "bob"), authorizations);
+            assertEquals(0, responseCache.getEntryCount());
+        } finally {
+            if (client != null) {
+                client.close();
+            }
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testHedgeThatLosesIsAborted() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        AtomicBoolean stall = new AtomicBoolean(false);
+        CountDownLatch aborted = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/users", exchange -> {
+            requests.incrementAndGet();
+            // The first request after the warm up keeps sending its body until the client closes the connection.
+            if (stall.compareAndSet(true, false)) {
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    while (true) {
+                        out.write(' ');
+                        out.flush();
+                        Thread.sleep(10);
+                    }
+                } catch (IOException | InterruptedException e) {
+                    aborted.countDown();
+                }
+            } else {
+                byte[] body = "fast".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+
+        Ning19Client client = null;
+        try {
+            RetryPolicy retryPolicy = new RetryPolicy(0, 1, 5);
+            retryPolicy.setHedging(true);
+            // The round trip times on localhost vary a lot, a minimum of two keeps room for the hedge.
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 2, 200, 100);
+            ClientConfig config = new ClientConfig();
+            config.setRetryPolicy(retryPolicy);
+            config.setConcurrencyLimiter(limiter);
+            client = new Ning19Client("localhost", server.getAddress().getPort(), "http", "/api", config, null);
+
+            RequestBuilder requestBuilder = new RequestBuilder(client);
+            requestBuilder.setMethod(Method.GET);
+            requestBuilder.appendPathElement("users");
+
+            // Enough latency samples to hedge, the samples are recorded just after the responses are handed over.
+            for (int i = 0; i < 30; i++) {
+                client.callToStringResponse(requestBuilder, (String) null).get(10, TimeUnit.SECONDS);
+            }
+            stall.set(true);
+            Response<String> response = client.callToStringResponse(requestBuilder, (String) null).get(10, TimeUnit.SECONDS);
+
+            assertEquals("fast", response.getBody());
+            assertEquals(32, requests.get());
+            assertTrue("The request that lost the hedge is still running.", aborted.await(10, TimeUnit.SECONDS));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (limiter.getInFlight() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, limiter.getInFlight());
+        } finally {
+            if (client != null) {
+                client.close();
+            }
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testClosingAStreamedResponseEarlyAbortsTheRestOfTheBody() throws Exception {
+        CountDownLatch aborted = new CountDownLatch(1);
+        HttpServer server = numbersServer(aborted);
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+
+        Ning19Client client = null;
+        try {
+            ClientConfig config = new ClientConfig();
+            config.getInterceptors().add(interceptor);
+            client = new Ning19Client("localhost", server.getAddress().getPort(), "http", "/api", config, null);
+
+            Response<Stream<Integer>> response =
+                    client.<Integer>callToStreamResponse(request(client, "numbers"), (String) null, "java.lang.Integer")
+                            .get(10, TimeUnit.SECONDS);
+            assertEquals(200, response.getStatus());
+            try (Stream<Integer> numbers = response.getBody()) {
+                assertEquals(Arrays.asList(0, 1, 2), numbers.limit(3).collect(Collectors.toList()));
+            }
+
+            // The body never ends, the server only stops when the client drops the connection.
+            assertTrue(aborted.await(10, TimeUnit.SECONDS));
+            assertEquals("complete 200", interceptor.awaitOutcome());
+        } finally {
+            if (client != null) {
+                client.close();
+            }
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testAStreamedResponseFailsWhenItsConsumerFallsTooFarBehind() throws Exception {
+        CountDownLatch aborted = new CountDownLatch(1);
+        HttpServer server = numbersServer(aborted);
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+
+        Ning19Client client = null;
+        try {
+            ClientConfig config = new ClientConfig();
+            config.getInterceptors().add(interceptor);
+            config.setStreamingBufferBytes(16L * 1024);
+            client = new Ning19Client("localhost", server.getAddress().getPort(), "http", "/api", config, null);
+
+            Response<Stream<Integer>> response =
+                    client.<Integer>callToStreamResponse(request(client, "numbers"), (String) null, "java.lang.Integer")
+                            .get(10, TimeUnit.SECONDS);
+            assertEquals(200, response.getStatus());
+
+            // Nothing is read until the buffer overflowed, which aborts the exchange without blocking the I/O thread.
+            assertTrue(interceptor.awaitOutcome().startsWith("failure The consumer of the streamed response fell more than 16384 bytes"));
+            assertTrue(aborted.await(10, TimeUnit.SECONDS));
+            try (Stream<Integer> numbers = response.getBody()) {
+                numbers.forEach(number -> { });
+                fail("Expected the stream to fail.");
+            } catch (RuntimeException e) {
+                assertTrue(causeMessages(e), causeMessages(e).contains("fell more than 16384 bytes behind"));
+            }
+        } finally {
+            if (client != null) {
+                client.close();
+            }
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testARequestThatNingRefusesToSendIsReportedAsAFailure() throws Exception {
+        MetricsInterceptor metrics = new MetricsInterceptor();
+        ClientConfig config = new ClientConfig();
+        config.addInterceptor(metrics);
+        Ning19Client client = new Ning19Client("localhost", 8080, "http", "/api", config, null);
+        // A ning client that throws when it executes a request, without calling the handler.
+        Field ningClient = Ning19Client.class.getDeclaredField("ningClient");
+        ningClient.setAccessible(true);
+        ((AsyncHttpClient) ningClient.get(client)).close();
+        ningClient.set(client, new AsyncHttpClient() {
+
+            @Override
+            public <T> ListenableFuture<T> executeRequest(Request request, AsyncHandler<T> handler) {
+                throw new IllegalStateException("Refused " + request.getUrl());
+            }
+
+        });
+        try {
+            assertRefused(client.callToStringResponse(request(client, "numbers"), (String) null));
+            assertRefused(client.<Integer>callToStreamResponse(request(client, "numbers"), (String) null, "java.lang.Integer"));
+            assertRefused(
+                    client.callToDownloadResponse(request(client, "numbers"), (String) null, Channels.newChannel(new ByteArrayOutputStream()), null)
+            );
+
+            EndpointMetrics endpoint = metrics.getEndpointMetrics(Method.GET, "/numbers");
+            assertEquals(3, endpoint.getRequests());
+            assertEquals(3, endpoint.getFailures());
+            assertEquals(0, endpoint.getInFlight());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testTheErrorBodyOfAStreamedResponseOrADownloadIsTheStringBody() throws Exception {
+        HttpServer server = numbersServer(new CountDownLatch(1));
+
+        Ning19Client client = null;
+        try {
+            client = new Ning19Client("localhost", server.getAddress().getPort(), "http", "/api", new ClientConfig(), null);
+
+            Response<Stream<Integer>> streamed =
+                    client.<Integer>callToStreamResponse(request(client, "missing"), (String) null, "java.lang.Integer")
+                            .get(10, TimeUnit.SECONDS);
+            assertEquals(404, streamed.getStatus());
+            assertEquals("No such numbers.", streamed.getStringBody());
+            assertNull(streamed.getBody());
+
+            ByteArrayOutputStream target = new ByteArrayOutputStream();
+            Response<Long> downloaded =
+                    client.callToDownloadResponse(request(client, "missing"), (String) null, Channels.newChannel(target), null)
+                            .get(10, TimeUnit.SECONDS);
+            assertEquals(404, downloaded.getStatus());
+            assertEquals("No such numbers.", downloaded.getStringBody());
+            assertNull(downloaded.getBody());
+            assertEquals(0, target.size());
+        } finally {
+            if (client != null) {
+                client.close();
+            }
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testASlowDownloadTargetGetsTheWholeBody() throws Exception {
+        HttpServer server = numbersServer(new CountDownLatch(1));
+
+        Ning19Client client = null;
+        try {
+            client = new Ning19Client("localhost", server.getAddress().getPort(), "http", "/api", new ClientConfig(), null);
+
+            ByteArrayOutputStream target = new ByteArrayOutputStream();
+            WritableByteChannel channel = Channels.newChannel(target);
+            WritableByteChannel slowChannel = new WritableByteChannel() {
+
+                @Override
+                public int write(ByteBuffer source) throws IOException {
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                    return channel.write(source);
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return channel.isOpen();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    channel.close();
+                }
+
+            };
+            List<Long> progress = new CopyOnWriteArrayList<>();
+            Response<Long> response =
+                    client.callToDownloadResponse(request(client, "blob"), (String) null, slowChannel, (written, length) -> progress.add(written))
+                            .get(30, TimeUnit.SECONDS);
+
+            assertEquals(200, response.getStatus());
+            assertEquals(BLOB_SIZE, response.getBody().longValue());
+            assertEquals(BLOB_SIZE, target.size());
+            assertEquals(BLOB_SIZE, progress.get(progress.size() - 1).longValue());
+            byte[] body = target.toByteArray();
+            for (int i = 0; i < body.length; i++) {
+                assertEquals((byte) i, body[i]);
+            }
+        } finally {
+            if (client != null) {
+                client.close();
+            }
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testADownloadFailsAndIsAbortedWhenItsTargetIsClosed() throws Exception {
+        CountDownLatch aborted = new CountDownLatch(1);
+        HttpServer server = numbersServer(aborted);
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+
+        Ning19Client client = null;
+        try {
+            ClientConfig config = new ClientConfig();
+            config.getInterceptors().add(interceptor);
+            client = new Ning19Client("localhost", server.getAddress().getPort(), "http", "/api", config, null);
+
+            WritableByteChannel target = Channels.newChannel(new ByteArrayOutputStream());
+            CompletableFuture<Response<Long>> response =
+                    client.callToDownloadResponse(request(client, "numbers"), (String) null, target, (written, length) -> {
+                        if (written > 1024) {
+                            try {
+                                target.close();
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                    });
+
+            try {
+                response.get(10, TimeUnit.SECONDS);
+                fail("Expected the download to fail.");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof ClosedChannelException);
+            }
+            assertTrue(aborted.await(10, TimeUnit.SECONDS));
+            assertTrue(interceptor.awaitOutcome().startsWith("failure"));
+        } finally {
+            if (client != null) {
+                client.close();
+            }
+            server.stop(0);
+        }
+    }
+
+    private static final int BLOB_SIZE = 64 * 1024;
+
+    /**
+     * A server with an endless JSON array of numbers, a fixed binary body and a 404. The latch is counted down when the client drops
+     * the connection of the endless array.
+     */
+    private static HttpServer numbersServer(CountDownLatch aborted) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/numbers", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write('[');
+                for (int i = 0; ; i++) {
+                    out.write(((i == 0 ? "" : ",") + i).getBytes(StandardCharsets.UTF_8));
+                    if (i % 100 == 0) {
+                        out.flush();
+                        Thread.sleep(1);
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                aborted.countDown();
+            }
+        });
+        server.createContext("/api/blob", exchange -> {
+            byte[] body = new byte[BLOB_SIZE];
+            for (int i = 0; i < body.length; i++) {
+                body[i] = (byte) i;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/api/missing", exchange -> {
+            byte[] body = "No such numbers.".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=UTF-8");
+            exchange.sendResponseHeaders(404, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static RequestBuilder request(Ning19Client client, String path) {
+        RequestBuilder requestBuilder = new RequestBuilder(client);
+        requestBuilder.setMethod(Method.GET);
+        requestBuilder.appendPathElement(path);
+        return requestBuilder;
+    }
+
+    private static void assertRefused(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("The request should fail.");
+        } catch (ExecutionException e) {
+            assertEquals("Refused http://localhost:8080/api/numbers", e.getCause().getMessage());
+        }
+    }
+
+    private static String causeMessages(Throwable t) {
+        StringBuilder messages = new StringBuilder();
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            messages.append(cause.getMessage()).append('\n');
+        }
+        return messages.toString();
+    }
+
+    /**
+     * Keeps the outcome of the request, a completion or a failure.
+     */
+    private static final class RecordingInterceptor implements RequestInterceptor {
+
+        private final BlockingQueue<String> outcomes = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onComplete(RequestBuilder request, String resourcePath, int statusCode, long elapsedNanos) {
+            outcomes.add("complete " + statusCode);
+        }
+
+        @Override
+        public void onFailure(RequestBuilder request, String resourcePath, Throwable failure, long elapsedNanos) {
+            outcomes.add("failure " + failure.getMessage());
+        }
+
+        private String awaitOutcome() throws InterruptedException {
+            String outcome = outcomes.poll(10, TimeUnit.SECONDS);
+            assertNotNull("The interceptor didn't hear about the outcome.", outcome);
+            return outcome;
+        }
+
+    }
+
+    private static Response<List<String>> callMe(Ning19Client client, String authorization) throws Exception {
+        RequestBuilder requestBuilder = new RequestBuilder(client);
+        requestBuilder.setMethod(Method.GET);
+        requestBuilder.appendPathElement("me");
+        requestBuilder.addHeader("Authorization", authorization);
+        return client.<List<String>>callToTypeResponse(requestBuilder, (String) null, "java.util.List<java.lang.String>")
+                .get(10, TimeUnit.SECONDS);
+    }
+
 }
@@ -0,0 +1,121 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.json;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.Assert.*;
+
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class DateCodecsTest {
+
+    @Test
+    public void testFormatLikeDateTimeFormatter() {
+        char[] buffer = new char[DateCodecs.BUFFER_LENGTH];
+        LocalDateTime[] dateTimes = {
+                LocalDateTime.of(2017, 10, 8, 13, 5),
+                LocalDateTime.of(2016, 2, 29, 23, 59, 59, 500000000),
+                LocalDateTime.of(987, 1, 1, 0, 0, 1, 123456789),
+                LocalDateTime.of(2018, 12, 31, 7, 30, 0, 1000)
+        };
+        ZoneOffset[] offsets = {ZoneOffset.UTC, ZoneOffset.ofHours(2), ZoneOffset.ofHoursMinutes(-9, -30)};
+
+        for (LocalDateTime dateTime : dateTimes) {
+            assertEquals(DateTimeFormatter.ISO_LOCAL_DATE.format(dateTime),
+                    new String(buffer, 0, DateCodecs.formatDate(dateTime.toLocalDate(), buffer)));
+            assertEquals(DateTimeFormatter.ISO_LOCAL_TIME.format(dateTime),
+                    new String(buffer, 0, DateCodecs.formatTime(dateTime.toLocalTime(), buffer)));
+            assertEquals(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(dateTime),
+                    new String(buffer, 0, DateCodecs.formatDateTime(dateTime, buffer)));
+            for (ZoneOffset offset : offsets) {
+                OffsetDateTime offsetDateTime = OffsetDateTime.of(dateTime, offset);
+                assertEquals(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(offsetDateTime),
+                        new String(buffer, 0, DateCodecs.formatRfc3339(offsetDateTime, buffer)));
+                assertEquals(DateTimeFormatter.RFC_1123_DATE_TIME.format(offsetDateTime),
+                        new String(buffer, 0, DateCodecs.formatRfc1123(offsetDateTime, buffer)));
+            }
+        }
+    }
+
+    @Test
+    public void testParseLikeDateTimeFormatter() {
+        assertEquals(LocalDate.of(2016, 2, 29), parseDate("2016-02-29"));
+        assertEquals(LocalTime.of(13, 5, 0, 120000000), parseTime("13:05:00.12"));
+        assertEquals(LocalDateTime.of(2017, 10, 8, 13, 5, 1), parseDateTime("2017-10-08T13:05:01"));
+
+        String rfc3339 = "2017-10-08T13:05:01.123456+05:30";
+        assertEquals(OffsetDateTime.parse(rfc3339, DateTimeFormatter.ISO_OFFSET_DATE_TIME), parseRfc3339(rfc3339));
+        assertEquals(OffsetDateTime.of(2017, 10, 8, 13, 5, 1, 0, ZoneOffset.UTC), parseRfc3339("2017-10-08T13:05:01Z"));
+
+        String rfc1123 = "Tue, 3 Jun 2008 11:05:30 GMT";
+        assertEquals(OffsetDateTime.parse(rfc1123, DateTimeFormatter.RFC_1123_DATE_TIME), parseRfc1123(rfc1123));
+        String rfc1123WithOffset = "Sun, 08 Oct 2017 13:05:01 -0230";
+        assertEquals(OffsetDateTime.parse(rfc1123WithOffset, DateTimeFormatter.RFC_1123_DATE_TIME), parseRfc1123(rfc1123WithOffset));
+    }
+
+    @Test
+    public void testLeaveUnusualInputToDateTimeFormatter() {
+        assertNull(parseDate("2017-02-30"));
+        assertNull(parseDate("+12017-01-01"));
+        assertNull(parseTime("13:05"));
+        assertNull(parseTime("24:00:00"));
+        assertNull(parseDateTime("2017-10-08t13:05:01"));
+        assertNull(parseRfc3339("2017-10-08T13:05:01"));
+        assertNull(parseRfc3339("2017-10-08T13:05:01.Z"));
+        assertNull(parseRfc1123("Mon, 3 Jun 2008 11:05:30 GMT"));
+        assertNull(parseRfc1123("Tue, 3 Jun 2008 11:05 GMT"));
+        assertEquals(-1, DateCodecs.formatRfc3339(OffsetDateTime.of(2017, 1, 1, 0, 0, 0, 0, ZoneOffset.ofTotalSeconds(45)),
+                new char[DateCodecs.BUFFER_LENGTH]));
+    }
+
+    private static LocalDate parseDate(String text) {
+        return DateCodecs.parseDate(text.toCharArray(), 0, text.length());
+    }
+
+    private static LocalTime parseTime(String text) {
+        return DateCodecs.parseTime(text.toCharArray(), 0, text.length());
+    }
+
+    private static LocalDateTime parseDateTime(String text) {
+        return DateCodecs.parseDateTime(text.toCharArray(), 0, text.length());
+    }
+
+    private static OffsetDateTime parseRfc3339(String text) {
+        // Jackson hands out its text buffer, which holds more than the value itself.
+        char[] buffer = ("[\"" + text + "\"]").toCharArray();
+        return DateCodecs.parseRfc3339(buffer, 2, text.length());
+    }
+
+    private static OffsetDateTime parseRfc1123(String text) {
+        return DateCodecs.parseRfc1123(text.toCharArray(), 0, text.length());
+    }
+
+}
@@ -0,0 +1,297 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.json;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.atomicbits.scraml.dsl.javajackson.DateOnly;
+import io.atomicbits.scraml.dsl.javajackson.DateTimeRFC3339;
+import io.atomicbits.scraml.dsl.javajackson.HttpParam;
+import io.atomicbits.scraml.dsl.javajackson.SimpleHttpParam;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * The form encoding plan must give the same parameters as the walk over the JSON tree of the whole body that it replaces.
+ */
+@RunWith(BlockJUnit4ClassRunner.class)
+public class FormEncodingPlanTest {
+
+    public enum Color {
+        RED, GREEN
+    }
+
+    public static class Plain {
+
+        private String name = "John Doe";
+        private int age = 42;
+        private long id = 12345678901L;
+        private short rank = 3;
+        private Integer missing = null;
+        private double score = 0.5;
+        private boolean active = true;
+        private Boolean verified = Boolean.FALSE;
+        private BigInteger big = new BigInteger("123456789012345678901234567890");
+        public String publicField = "public";
+
+        @JsonProperty("first-name")
+        private String firstName = "John";
+
+        @JsonIgnore
+        private String secret = "secret";
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public short getRank() {
+            return rank;
+        }
+
+        public Integer getMissing() {
+            return missing;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public Boolean getVerified() {
+            return verified;
+        }
+
+        public BigInteger getBig() {
+            return big;
+        }
+
+        public String getFirstName() {
+            return firstName;
+        }
+
+        public String getSecret() {
+            return secret;
+        }
+
+    }
+
+    public static class Nested {
+
+        public String value = "nested";
+
+    }
+
+    public static class Valued {
+
+        public Color color = Color.GREEN;
+        public BigDecimal amount = new BigDecimal("12.25");
+        public float ratio = 1.25f;
+        public Date created = new Date(1507467901000L);
+        public DateTimeRFC3339 updated = new DateTimeRFC3339(OffsetDateTime.of(2017, 10, 8, 13, 5, 1, 0, ZoneOffset.ofHours(2)));
+        public DateOnly birthDay = new DateOnly(LocalDate.of(1980, 2, 29));
+        public DateOnly noDay = null;
+        public Nested nested = new Nested();
+        public List<String> tags = Arrays.asList("a", "b");
+
+    }
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "type")
+    @JsonTypeName("typed")
+    public static class Typed {
+
+        public String name = "typed";
+
+    }
+
+    public static class Wrapped {
+
+        @JsonValue
+        public String value() {
+            return "wrapped";
+        }
+
+    }
+
+    public static class WithAnyGetter {
+
+        public String name = "any";
+
+        @JsonAnyGetter
+        public Map<String, Object> getExtra() {
+            Map<String, Object> extra = new LinkedHashMap<>();
+            extra.put("extra", 1);
+            return extra;
+        }
+
+    }
+
+    @JsonSerialize(using = CustomSerializer.class)
+    public static class CustomSerialized {
+
+        public String name = "custom";
+
+    }
+
+    public static class CustomSerializedProperty {
+
+        public String plain = "plain";
+
+        @JsonSerialize(using = UpperCaseSerializer.class)
+        public String loud = "loud";
+
+    }
+
+    public static class CustomSerializer extends JsonSerializer<CustomSerialized> {
+
+        @Override
+        public void serialize(CustomSerialized value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+            jgen.writeStartObject();
+            jgen.writeStringField("serializedName", value.name.toUpperCase());
+            jgen.writeEndObject();
+        }
+
+    }
+
+    public static class UpperCaseSerializer extends JsonSerializer<String> {
+
+        @Override
+        public void serialize(String value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+            jgen.writeString(value.toUpperCase());
+        }
+
+    }
+
+    @Test
+    public void testStringsNumbersAndBooleans() {
+        Map<String, String> expected = new HashMap<>();
+        expected.put("name", "John Doe");
+        expected.put("age", "42");
+        expected.put("id", "12345678901");
+        expected.put("rank", "3");
+        expected.put("score", "0.5");
+        expected.put("active", "true");
+        expected.put("verified", "false");
+        expected.put("big", "123456789012345678901234567890");
+        expected.put("publicField", "public");
+        expected.put("first-name", "John");
+
+        assertEquals(expected, assertSameAsTreeWalk(new Plain()));
+    }
+
+    @Test
+    public void testEnumsDatesAndOtherValues() {
+        Map<String, String> parameters = assertSameAsTreeWalk(new Valued());
+
+        assertEquals("GREEN", parameters.get("color"));
+        assertEquals("12.25", parameters.get("amount"));
+        assertEquals("1.25", parameters.get("ratio"));
+        assertEquals("1507467901000", parameters.get("created"));
+        assertEquals("2017-10-08T13:05:01+02:00", parameters.get("updated"));
+        assertEquals("1980-02-29", parameters.get("birthDay"));
+        assertFalse(parameters.containsKey("noDay"));
+    }
+
+    @Test
+    public void testFallBackOnTypeInfo() {
+        Map<String, String> parameters = assertSameAsTreeWalk(new Typed());
+
+        assertEquals("typed", parameters.get("type"));
+        assertEquals("typed", parameters.get("name"));
+    }
+
+    @Test
+    public void testFallBackOnJsonValue() {
+        // The tree of a value class is a text node, which has no fields.
+        assertTrue(assertSameAsTreeWalk(new Wrapped()).isEmpty());
+    }
+
+    @Test
+    public void testFallBackOnAnyGetter() {
+        Map<String, String> parameters = assertSameAsTreeWalk(new WithAnyGetter());
+
+        assertEquals("any", parameters.get("name"));
+        assertEquals("1", parameters.get("extra"));
+    }
+
+    @Test
+    public void testFallBackOnCustomSerializers() {
+        assertEquals("CUSTOM", assertSameAsTreeWalk(new CustomSerialized()).get("serializedName"));
+
+        Map<String, String> parameters = assertSameAsTreeWalk(new CustomSerializedProperty());
+        assertEquals("plain", parameters.get("plain"));
+        assertEquals("LOUD", parameters.get("loud"));
+    }
+
+    /**
+     * Encode the body with its plan (twice, to use the cached plan as well) and with the tree walk, and check that they agree.
+     */
+    private static Map<String, String> assertSameAsTreeWalk(Object body) {
+        Map<String, String> treeWalk = parameters(FormEncodingPlan.encodeTree(Json.getObjectMapper().valueToTree(body)));
+        assertEquals(treeWalk, parameters(Json.toFormUrlEncoded(body)));
+        assertEquals(treeWalk, parameters(Json.toFormUrlEncoded(body)));
+        return treeWalk;
+    }
+
+    private static Map<String, String> parameters(Map<String, HttpParam> params) {
+        Map<String, String> parameters = new HashMap<>();
+        for (Map.Entry<String, HttpParam> param : params.entrySet()) {
+            parameters.put(param.getKey(), ((SimpleHttpParam) param.getValue()).getParameter());
+        }
+        return parameters;
+    }
+
+}
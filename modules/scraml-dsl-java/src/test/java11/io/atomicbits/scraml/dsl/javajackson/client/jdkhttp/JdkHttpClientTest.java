@@ -0,0 +1,212 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.javajackson.client.jdkhttp;
+
+import com.sun.net.httpserver.HttpServer;
+import io.atomicbits.scraml.dsl.javajackson.Method;
+import io.atomicbits.scraml.dsl.javajackson.RequestBuilder;
+import io.atomicbits.scraml.dsl.javajackson.Response;
+import io.atomicbits.scraml.dsl.javajackson.SimpleHttpParam;
+import io.atomicbits.scraml.dsl.javajackson.client.ClientConfig;
+import io.atomicbits.scraml.dsl.javajackson.client.Compression;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class JdkHttpClientTest {
+
+    @Test
+    public void testFetchCharsetFromHeaders() {
+        JdkHttpClient client = new JdkHttpClient("localhost", 8080, "http", null, new ClientConfig(), null);
+
+        Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        List<String> acceptValues = new ArrayList<>();
+        acceptValues.add("application/json");
+        acceptValues.add("application/bson");
+        headers.put("Accept", acceptValues);
+        List<String> contentTypeValues = new ArrayList<>();
+        contentTypeValues.add("application/json;charset=UTF-8");
+        headers.put("Content-Type", contentTypeValues);
+
+        assertEquals("UTF-8", client.getResponseCharsetFromHeaders(headers, "ascii"));
+    }
+
+    @Test
+    public void testFetchCharsetFromHeadersDefault() {
+        JdkHttpClient client = new JdkHttpClient("localhost", 8080, "http", null, new ClientConfig(), null);
+
+        Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        List<String> contentTypeValues = new ArrayList<>();
+        contentTypeValues.add("application/json");
+        headers.put("Content-type", contentTypeValues);
+
+        assertEquals("ascii", client.getResponseCharsetFromHeaders(headers, "ascii"));
+    }
+
+    @Test
+    public void testCallAgainstStubServer() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/users", exchange -> {
+            byte[] body = ("[\"" + exchange.getRequestURI().getQuery() + "\"]").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        JdkHttpClient client = null;
+        try {
+            client = new JdkHttpClient("localhost", server.getAddress().getPort(), "http", "/api", new ClientConfig(), null);
+
+            RequestBuilder requestBuilder = new RequestBuilder(client);
+            requestBuilder.setMethod(Method.GET);
+            requestBuilder.appendPathElement("users");
+            requestBuilder.addQueryParameter("name", new SimpleHttpParam("John Doe"));
+
+            Response<List<String>> response =
+                    client.<List<String>>callToTypeResponse(requestBuilder, (String) null, "java.util.List<java.lang.String>")
+                            .get(10, TimeUnit.SECONDS);
+
+            assertEquals(200, response.getStatus());
+            assertEquals("name=John Doe", response.getBody().get(0));
+
+            RequestBuilder missing = new RequestBuilder(client);
+            missing.setMethod(Method.GET);
+            missing.appendPathElement("unknown");
+            assertEquals(404, client.callToStringResponse(missing, (String) null).get(10, TimeUnit.SECONDS).getStatus());
+
+            // The elements of the array are parsed while the body is read.
+            Response<Stream<String>> streamed =
+                    client.<String>callToStreamResponse(requestBuilder, (String) null, "java.lang.String").get(10, TimeUnit.SECONDS);
+            assertEquals(200, streamed.getStatus());
+            try (Stream<String> elements = streamed.getBody()) {
+                assertEquals(Collections.singletonList("name=John Doe"), elements.collect(Collectors.toList()));
+            }
+
+            // The body of a download is written to the channel while it is read.
+            ByteArrayOutputStream downloaded = new ByteArrayOutputStream();
+            AtomicLong progressed = new AtomicLong();
+            Response<Long> download =
+                    client.callToDownloadResponse(requestBuilder, (String) null, Channels.newChannel(downloaded),
+                            (written, contentLength) -> progressed.set(written)).get(10, TimeUnit.SECONDS);
+            assertEquals(200, download.getStatus());
+            assertEquals("[\"name=John Doe\"]", new String(downloaded.toByteArray(), StandardCharsets.UTF_8));
+            assertEquals(downloaded.size(), download.getBody().longValue());
+            assertEquals(downloaded.size(), progressed.get());
+
+            // The blocking variant runs the exchange on the calling thread.
+            Response<List<String>> syncResponse =
+                    client.<List<String>>callToTypeResponseSync(requestBuilder, (String) null, "java.util.List<java.lang.String>");
+            assertEquals(200, syncResponse.getStatus());
+            assertEquals("name=John Doe", syncResponse.getBody().get(0));
+            assertEquals(404, client.callToStringResponseSync(missing, (String) null).getStatus());
+        } finally {
+            if (client != null) {
+                client.close();
+            }
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testCompressionAgainstStubServer() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/echo", exchange -> {
+            // Echo the gzipped request body back, gzipped, when the client accepts it.
+            byte[] requestBody;
+            try (InputStream in = exchange.getRequestBody()) {
+                requestBody = readAll(in);
+            }
+            boolean gzippedRequest = "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            boolean gzippedResponse = acceptEncoding != null && acceptEncoding.contains("gzip");
+            byte[] body = gzippedRequest == gzippedResponse ? requestBody : new byte[0];
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+            if (gzippedResponse) {
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(gzippedRequest ? 200 : 400, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        JdkHttpClient client = null;
+        try {
+            ClientConfig config = new ClientConfig();
+            config.setCompression(new Compression(10));
+            client = new JdkHttpClient("localhost", server.getAddress().getPort(), "http", "/api", config, null);
+
+            RequestBuilder requestBuilder = new RequestBuilder(client);
+            requestBuilder.setMethod(Method.POST);
+            requestBuilder.appendPathElement("echo");
+
+            String json = "[\"compressed\", \"compressed\", \"compressed\"]";
+            Response<List<String>> response =
+                    client.<List<String>>callToTypeResponse(requestBuilder, json, "java.util.List<java.lang.String>")
+                            .get(10, TimeUnit.SECONDS);
+
+            assertEquals(200, response.getStatus());
+            assertEquals(3, response.getBody().size());
+            assertEquals("compressed", response.getBody().get(0));
+        } finally {
+            if (client != null) {
+                client.close();
+            }
+            server.stop(0);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+}
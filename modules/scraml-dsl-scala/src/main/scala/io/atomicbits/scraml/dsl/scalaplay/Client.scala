@@ -21,8 +21,12 @@
 package io.atomicbits.scraml.dsl.scalaplay
 
 import io.atomicbits.scraml.dsl.scalaplay.client.ClientConfig
+import io.atomicbits.scraml.dsl.scalaplay.json.JsonArrayStream
 import play.api.libs.json._
 
+import _root_.java.nio.channels.WritableByteChannel
+
+import scala.concurrent.ExecutionContext.Implicits.global
 import scala.concurrent.Future
 
 /**
@@ -42,6 +46,41 @@ trait Client extends AutoCloseable {
 
   def callToBinaryResponse(request: RequestBuilder, body: Option[String]): Future[Response[BinaryData]]
 
+  /**
+    * Stream the elements of a JSON array response. The future completes as soon as the response headers are in, the elements are
+    * parsed while the stream is consumed. The body of a non-2xx response is not streamed, it is available as the string body.
+    *
+    * By default the response is received as a String first, clients that support it override this to parse the elements as the bytes
+    * arrive.
+    */
+  def callToStreamResponse[E](request: RequestBuilder, body: Option[String])(
+      implicit reads: Reads[E]): Future[Response[JsonArrayStream[E]]] =
+    callToStringResponse(request, body).map { response =>
+      if (response.status >= 200 && response.status < 300) response.copy(body = response.stringBody.map(JsonArrayStream[E](_)))
+      else response.copy[JsonArrayStream[E]](body = None)
+    }
+
+  /**
+    * Download a binary response into the given channel. The body parts are written to the channel as they come in, so the memory that is
+    * used stays bounded whatever the size of the body. The response body is the number of bytes written, the channel is not closed. The
+    * body of a non-2xx response is not written to the channel, it is available as the string body.
+    *
+    * By default the binary response is received first and then copied, clients that support it override this to write the parts as they
+    * arrive.
+    */
+  def callToDownloadResponse(request: RequestBuilder,
+                             body: Option[String],
+                             target: WritableByteChannel,
+                             progress: Download.Progress): Future[Response[Long]] =
+    callToBinaryResponse(request, body).map { response =>
+      response.body match {
+        case Some(binaryData) if response.status >= 200 && response.status < 300 =>
+          val written = Download.copy(binaryData.asStream, target, Download.contentLength(response.headers), progress)
+          response.copy(stringBody = None, body = Some(written))
+        case _ => response.copy[Long](body = None)
+      }
+    }
+
   def close(): Unit
 
 }
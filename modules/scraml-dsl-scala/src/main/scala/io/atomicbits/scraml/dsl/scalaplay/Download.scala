@@ -0,0 +1,97 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay
+
+import _root_.java.io.InputStream
+import _root_.java.nio.ByteBuffer
+import _root_.java.nio.channels.WritableByteChannel
+
+import scala.util.Try
+
+/**
+  * Helpers for writing a binary download to a channel.
+  */
+object Download {
+
+  /**
+    * The progress of a download as (bytesWritten, contentLength), the content length is -1 when it's unknown. It's called on the thread
+    * that writes the body, which may be the I/O thread of the client, so it must return quickly.
+    */
+  type Progress = (Long, Long) => Unit
+
+  val NoProgress: Progress = (_, _) => ()
+
+  private val BufferSize = 64 * 1024
+
+  /**
+    * Write all remaining bytes of the buffer, a channel in non-blocking mode may need more than one write.
+    */
+  def writeFully(buffer: ByteBuffer, target: WritableByteChannel): Int = {
+    var written = 0
+    while (buffer.hasRemaining) {
+      written += target.write(buffer)
+    }
+    written
+  }
+
+  /**
+    * Copy the stream into the channel through a single fixed buffer. The stream is closed, the channel is not.
+    *
+    * @return The number of bytes written.
+    */
+  def copy(in: InputStream, target: WritableByteChannel, contentLength: Long, progress: Progress): Long = {
+    val bytes  = new Array[Byte](BufferSize)
+    val buffer = ByteBuffer.wrap(bytes)
+    var total  = 0L
+    try {
+      var read = in.read(bytes)
+      while (read != -1) {
+        buffer.clear()
+        buffer.limit(read)
+        total += writeFully(buffer, target)
+        progress(total, contentLength)
+        read = in.read(bytes)
+      }
+    } finally {
+      in.close()
+    }
+    total
+  }
+
+  /**
+    * The value of the Content-Length header, or -1 when it is absent, invalid or counts a content-encoded body.
+    */
+  def contentLength(headers: Map[String, List[String]]): Long = {
+    // The length of a compressed body counts the compressed bytes, not the bytes that get written.
+    val encoded =
+      headers.exists {
+        case (key, values) => key.equalsIgnoreCase("Content-Encoding") && values.exists(value => !value.trim.equalsIgnoreCase("identity"))
+      }
+    if (encoded) -1L
+    else
+      headers
+        .collectFirst {
+          case (key, value :: _) if key.equalsIgnoreCase("Content-Length") => Try(value.trim.toLong).getOrElse(-1L)
+        }
+        .getOrElse(-1L)
+  }
+
+}
@@ -20,7 +20,10 @@
 
 package io.atomicbits.scraml.dsl.scalaplay
 
-import play.api.libs.json.{ Format, JsValue }
+import io.atomicbits.scraml.dsl.scalaplay.json.JsonArrayStream
+import play.api.libs.json.{ Format, JsValue, Reads }
+
+import _root_.java.nio.channels.WritableByteChannel
 
 import scala.concurrent.Future
 
@@ -34,10 +37,30 @@ case class RequestBuilder(client: Client,
                           formParameters: Map[String, HttpParam]  = Map.empty,
                           multipartParams: List[BodyPart]         = List.empty,
                           binaryBody: Option[BinaryRequest]       = None,
-                          headers: HeaderMap                      = HeaderMap()) {
+                          headers: HeaderMap                      = HeaderMap(),
+                          reversePathTemplate: List[String]       = Nil) {
+
+  /**
+    * The constructor without the path template, for Java code that creates a request builder with all its other fields.
+    */
+  def this(client: Client,
+           reversePath: List[String],
+           method: Method,
+           queryParameters: Map[String, HttpParam],
+           formParameters: Map[String, HttpParam],
+           multipartParams: List[BodyPart],
+           binaryBody: Option[BinaryRequest],
+           headers: HeaderMap) =
+    this(client, reversePath, method, queryParameters, formParameters, multipartParams, binaryBody, headers, Nil)
 
   def relativePath: String = reversePath.reverse.mkString("/", "/", "")
 
+  /**
+    * The RAML resource path this request was built for, e.g. '/users/{userId}'. Request interceptors use it to group requests
+    * per endpoint.
+    */
+  def resourcePathTemplate: String = reversePathTemplate.reverse.mkString("/", "/", "")
+
   def defaultHeaders: Map[String, String] = client.defaultHeaders
 
   lazy val allHeaders: HeaderMap = HeaderMap() ++ (defaultHeaders.toList: _*) ++ headers // headers last to overwrite defaults!
@@ -55,6 +78,12 @@ case class RequestBuilder(client: Client,
 
   def callToBinaryResponse(body: Option[String]): Future[Response[BinaryData]] = client.callToBinaryResponse(this, body)
 
+  def callToDownloadResponse(body: Option[String], target: WritableByteChannel, progress: Download.Progress): Future[Response[Long]] =
+    client.callToDownloadResponse(this, body, target, progress)
+
+  def callToStreamResponse[E](body: Option[String])(implicit reads: Reads[E]): Future[Response[JsonArrayStream[E]]] =
+    client.callToStreamResponse(this, body)
+
   def summary: String = s"$method request to ${reversePath.reverse.mkString("/")}"
 
   def withAddedHeaders(additionalHeaders: (String, String)*): RequestBuilder = {
@@ -66,7 +95,12 @@ case class RequestBuilder(client: Client,
   }
 
   def withAddedPathSegment(additionalPathSegment: Any): RequestBuilder = {
-    this.copy(reversePath = additionalPathSegment.toString :: this.reversePath)
+    val pathSegment = additionalPathSegment.toString
+    this.copy(reversePath = pathSegment :: this.reversePath, reversePathTemplate = pathSegment :: this.reversePathTemplate)
+  }
+
+  def withAddedPathParameter(parameterName: String, value: Any): RequestBuilder = {
+    this.copy(reversePath = value.toString :: this.reversePath, reversePathTemplate = s"{$parameterName}" :: this.reversePathTemplate)
   }
 
 }
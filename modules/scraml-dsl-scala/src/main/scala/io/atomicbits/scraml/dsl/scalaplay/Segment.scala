@@ -20,10 +20,16 @@
 
 package io.atomicbits.scraml.dsl.scalaplay
 
+import io.atomicbits.scraml.dsl.scalaplay.json.JsonArrayStream
 import play.api.libs.json.{ Format, JsValue }
 
+import _root_.java.nio.channels.{ FileChannel, WritableByteChannel }
+import _root_.java.nio.file.{ Files, Path, StandardOpenOption }
+
+import scala.concurrent.ExecutionContext.Implicits.global
 import scala.concurrent.Future
 import scala.language.reflectiveCalls
+import scala.util.{ Failure, Success, Try }
 
 sealed trait Segment {
 
@@ -242,6 +248,21 @@ class TypeMethodSegment[B, R](method: Method,
     }
   }
 
+  /**
+    * Stream the elements of the JSON array response while they come in, instead of materializing the complete list. This only applies
+    * to actions with a list response type, E is the element type. Close the stream when it isn't read to the end, it holds on to the
+    * connection.
+    */
+  def stream[E]()(implicit bodyFormat: Format[B], elementFormat: Format[E]): Future[Response[JsonArrayStream[E]]] = {
+    if (primitiveBody) {
+      val bodyToSend = body.map(_.toString())
+      _requestBuilder.callToStreamResponse[E](bodyToSend)
+    } else {
+      val (reqBuilder, preparedBody) = jsonBodyToString()
+      reqBuilder.callToStreamResponse[E](preparedBody)
+    }
+  }
+
 }
 
 class BinaryMethodSegment[B](method: Method,
@@ -276,4 +297,39 @@ class BinaryMethodSegment[B](method: Method,
     }
   }
 
+  /**
+    * Download the response body into the given channel while it comes in, see Client.callToDownloadResponse. The channel is not closed.
+    *
+    * @return The response with the number of bytes written as its body.
+    */
+  def download(target: WritableByteChannel, progress: Download.Progress = Download.NoProgress)(
+      implicit bodyFormat: Format[B]): Future[Response[Long]] = {
+    if (primitiveBody) {
+      val bodyToSend = body.map(_.toString())
+      _requestBuilder.callToDownloadResponse(bodyToSend, target, progress)
+    } else {
+      val (reqBuilder, preparedBody) = jsonBodyToString()
+      reqBuilder.callToDownloadResponse(preparedBody, target, progress)
+    }
+  }
+
+  /**
+    * Download the response body into the given file while it comes in. Missing parent directories are created and an existing file is
+    * overwritten. The file only holds the body of a 2xx response.
+    */
+  def download(path: Path, progress: Download.Progress)(implicit bodyFormat: Format[B]): Future[Response[Long]] = {
+    val channel =
+      Try {
+        Option(path.getParent).foreach(Files.createDirectories(_))
+        FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)
+      }
+    channel match {
+      case Success(fileChannel) =>
+        download(fileChannel, progress).andThen { case _ => Try(fileChannel.close()) }
+      case Failure(e) => Future.failed(e)
+    }
+  }
+
+  def download(path: Path)(implicit bodyFormat: Format[B]): Future[Response[Long]] = download(path, Download.NoProgress)
+
 }
@@ -0,0 +1,127 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client
+
+import scala.collection.mutable
+
+/**
+  * An adaptive limit on the number of concurrent requests of a client, with a bounded queue in front of it.
+  *
+  * The limit follows the observed round trip times (AIMD): it grows by one per window of requests as long as the round trip time
+  * stays close to the lowest one seen, and it is cut by the backoff ratio when the round trip time rises above the tolerated
+  * multiple of that minimum or when a request is dropped (a failure, 429 or 503). The minimum round trip time is re-measured now and
+  * then so that a lasting change downstream doesn't pin the limit.
+  *
+  * Requests above the limit wait in the queue, requests that don't fit in the queue are rejected right away instead of piling up in
+  * the connection pool.
+  *
+  * @param backoffRatio The factor by which the limit is multiplied on congestion, between 0 and 1.
+  * @param rttTolerance The multiple of the minimum round trip time that is still considered uncongested.
+  */
+class AdaptiveConcurrencyLimiter(initialLimit: Int    = 20,
+                                 minLimit: Int        = 1,
+                                 maxLimit: Int        = 200,
+                                 maxQueueSize: Int    = 100,
+                                 backoffRatio: Double = 0.9,
+                                 rttTolerance: Double = 2.0) {
+
+  require(1 <= minLimit && minLimit <= initialLimit && initialLimit <= maxLimit, "Expected 1 <= minLimit <= initialLimit <= maxLimit.")
+  require(maxQueueSize >= 0, "The queue size cannot be negative.")
+  require(0.0 < backoffRatio && backoffRatio < 1.0 && rttTolerance >= 1.0, "Expected 0 < backoffRatio < 1 and rttTolerance >= 1.")
+
+  // The number of samples after which the minimum round trip time is measured again.
+  private val MinRttProbeInterval = 1000
+
+  private val queue         = mutable.Queue.empty[() => Unit]
+  private var limit: Double = initialLimit.toDouble
+  private var inFlightCount = 0
+  private var minRttNanos   = Long.MaxValue
+  private var samples       = 0
+  private var rejectedCount = 0L
+
+  /**
+    * Run the request now if the limit allows it, queue it otherwise. Every request that is run must call release(...) exactly once
+    * when it is done.
+    *
+    * @return false when the queue is full and the request was rejected, it is not run in that case.
+    */
+  def submit(request: () => Unit): Boolean = {
+    val runNow =
+      synchronized {
+        if (inFlightCount < limit.toInt) {
+          inFlightCount += 1
+          Some(true)
+        } else if (queue.size < maxQueueSize) {
+          queue.enqueue(request)
+          None
+        } else {
+          rejectedCount += 1
+          Some(false)
+        }
+      }
+    runNow match {
+      case Some(true)  => request(); true
+      case Some(false) => false
+      case None        => true
+    }
+  }
+
+  /**
+    * @param rttNanos The round trip time of the request, without its time in the queue.
+    * @param dropped True when the request failed in a way that indicates overload.
+    */
+  def release(rttNanos: Long, dropped: Boolean): Unit = {
+    val ready =
+      synchronized {
+        // Only grow when the current limit was actually used, counting the request that is released.
+        val limitUsed = inFlightCount * 2 >= limit
+        inFlightCount -= 1
+        if (dropped) {
+          decrease()
+        } else {
+          samples += 1
+          if (samples % MinRttProbeInterval == 0 || rttNanos < minRttNanos) minRttNanos = rttNanos
+          if (rttNanos > minRttNanos * rttTolerance) decrease()
+          else if (limitUsed) limit = math.min(maxLimit.toDouble, limit + 1.0 / limit)
+        }
+        val readyRequests = mutable.ListBuffer.empty[() => Unit]
+        while (inFlightCount < limit.toInt && queue.nonEmpty) {
+          readyRequests += queue.dequeue()
+          inFlightCount += 1
+        }
+        readyRequests.toList
+      }
+    ready.foreach(request => request())
+  }
+
+  private def decrease(): Unit = limit = math.max(minLimit.toDouble, limit * backoffRatio)
+
+  def currentLimit: Int = synchronized(limit.toInt)
+
+  def inFlight: Int = synchronized(inFlightCount)
+
+  def queueDepth: Int = synchronized(queue.size)
+
+  def rejected: Long = synchronized(rejectedCount)
+
+  override def toString: String = s"limit=$currentLimit, inFlight=$inFlight, queueDepth=$queueDepth, rejected=$rejected"
+
+}
@@ -0,0 +1,196 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client
+
+import java.util.concurrent.{ ConcurrentHashMap, TimeUnit }
+
+import io.atomicbits.scraml.dsl.scalaplay.Method
+
+import scala.collection.JavaConverters._
+
+/**
+  * Fails requests fast while a host (or an endpoint on a host) is known to be failing, instead of letting every request wait for its
+  * connect or request timeout.
+  *
+  * Each circuit keeps the outcome of its last calls in a sliding window. A call fails when it throws or gets a 5xx response, it is
+  * slow when it takes longer than the slow call duration. Once the window holds the minimum number of calls and the failure rate or
+  * the slow call rate reaches its threshold, the circuit opens and requests are rejected with a CircuitBreakerOpenException without
+  * being sent. After the open duration a limited number of probe requests is let through (half-open). The circuit closes again when
+  * all probes succeed, and opens again on the first failing probe.
+  *
+  * @param failureRateThreshold The percentage of failed calls at which the circuit opens.
+  * @param slowCallRateThreshold The percentage of slow calls at which the circuit opens.
+  * @param perEndpoint Keep a circuit per host, method and RAML resource path instead of per host.
+  */
+class CircuitBreaker(val windowSize: Int              = 20,
+                     val minimumCalls: Int            = 10,
+                     val failureRateThreshold: Int    = 50,
+                     val slowCallRateThreshold: Int   = 100,
+                     val slowCallDurationMillis: Long = 10000,
+                     val openDurationMillis: Long     = 10000,
+                     val halfOpenCalls: Int           = 3,
+                     val perEndpoint: Boolean         = false) {
+
+  import CircuitBreaker._
+
+  require(windowSize > 0 && minimumCalls > 0 && halfOpenCalls > 0, "The window size, minimum calls and half-open calls must be positive.")
+  require(minimumCalls <= windowSize, s"Expected minimumCalls ($minimumCalls) <= windowSize ($windowSize), the circuit could never open.")
+
+  private val circuits = new ConcurrentHashMap[String, Circuit]()
+
+  /**
+    * Get permission to send a request, the outcome of the request must be recorded on the permit.
+    *
+    * @throws CircuitBreakerOpenException when the circuit is open.
+    */
+  def acquire(host: String, method: Method, resourcePath: String): Permit = {
+    val key        = if (perEndpoint) s"$host $method $resourcePath" else host
+    val circuit    = circuitFor(key)
+    val generation = circuit.tryAcquire()
+    if (generation < 0) throw new CircuitBreakerOpenException(s"The circuit breaker for $key is open.")
+    new Permit(circuit, generation)
+  }
+
+  private def circuitFor(key: String): Circuit =
+    Option(circuits.get(key)) getOrElse {
+      val created = new Circuit
+      Option(circuits.putIfAbsent(key, created)).getOrElse(created)
+    }
+
+  /**
+    * The current state of all circuits by key.
+    */
+  def states: Map[String, State] = circuits.asScala.map { case (key, circuit) => key -> circuit.state }.toMap
+
+  def reset(): Unit = circuits.clear()
+
+  /**
+    * The state of a single circuit. The generation changes on every state transition, so that the outcome of a call that was started
+    * in an earlier state doesn't count.
+    */
+  private[client] class Circuit {
+
+    private val outcomes            = new Array[Byte](windowSize)
+    private var next                = 0
+    private var calls               = 0
+    private var failures            = 0
+    private var slowCalls           = 0
+    private var currentState: State = Closed
+    private var generation          = 0L
+    private var openedAtNanos       = 0L
+    private var probesStarted       = 0
+    private var probesSucceeded     = 0
+
+    def state: State = synchronized(currentState)
+
+    def tryAcquire(): Long = synchronized {
+      if (currentState == Open && System.nanoTime() - openedAtNanos >= TimeUnit.MILLISECONDS.toNanos(openDurationMillis)) {
+        transitionTo(HalfOpen)
+      }
+      currentState match {
+        case Open                                       => -1L
+        case HalfOpen if probesStarted >= halfOpenCalls => -1L
+        case HalfOpen =>
+          probesStarted += 1
+          generation
+        case Closed => generation
+      }
+    }
+
+    def record(callGeneration: Long, elapsedNanos: Long, failed: Boolean): Unit = synchronized {
+      val slow = elapsedNanos > TimeUnit.MILLISECONDS.toNanos(slowCallDurationMillis)
+      if (callGeneration == generation) {
+        if (currentState == HalfOpen) {
+          if (failed || slow) transitionTo(Open)
+          else {
+            probesSucceeded += 1
+            if (probesSucceeded >= halfOpenCalls) transitionTo(Closed)
+          }
+        } else {
+          val outcome = (if (failed) Failed else 0) | (if (slow) Slow else 0)
+          if (calls == outcomes.length) {
+            val evicted = outcomes(next)
+            failures -= evicted & Failed
+            slowCalls -= (evicted & Slow) >> 1
+          } else {
+            calls += 1
+          }
+          outcomes(next) = outcome.toByte
+          next = (next + 1) % outcomes.length
+          failures += outcome & Failed
+          slowCalls += (outcome & Slow) >> 1
+
+          if (calls >= minimumCalls &&
+              (failures * 100 >= failureRateThreshold * calls || slowCalls * 100 >= slowCallRateThreshold * calls)) {
+            transitionTo(Open)
+          }
+        }
+      }
+    }
+
+    private def transitionTo(newState: State): Unit = {
+      currentState = newState
+      generation += 1
+      next = 0
+      calls = 0
+      failures = 0
+      slowCalls = 0
+      probesStarted = 0
+      probesSucceeded = 0
+      if (newState == Open) openedAtNanos = System.nanoTime()
+    }
+
+  }
+
+}
+
+object CircuitBreaker {
+
+  sealed trait State
+
+  case object Closed extends State
+
+  case object Open extends State
+
+  case object HalfOpen extends State
+
+  private val Failed = 1
+  private val Slow   = 2
+
+  /**
+    * The permission to send a single request.
+    */
+  class Permit private[client] (circuit: CircuitBreaker#Circuit, generation: Long) {
+
+    private val start = System.nanoTime()
+
+    def onSuccess(): Unit = circuit.record(generation, System.nanoTime() - start, failed = false)
+
+    def onFailure(): Unit = circuit.record(generation, System.nanoTime() - start, failed = true)
+
+  }
+
+}
+
+/**
+  * A request was not sent because the circuit breaker for its host or endpoint is open.
+  */
+class CircuitBreakerOpenException(message: String) extends RuntimeException(message)
@@ -26,21 +26,37 @@ import java.nio.charset.Charset
   * Created by peter on 24/08/15.
   *
   * Time is in ms.
+  *
+  * The concurrency limiter is optional, without it only the static connection limits apply. Use one limiter per client, it also
+  * exposes the current limit and queue depth. The retry policy is optional as well, without it only the connection level retries
+  * of maxRequestRetry apply. The optional response cache keeps the responses on GET requests with a string, JSON or typed body. The
+  * optional request coalescer lets concurrent identical GET and HEAD requests share a single HTTP exchange. The optional circuit
+  * breaker fails requests fast while their host or endpoint is failing. Without compression, request and response bodies are sent
+  * uncompressed only. A streamed response buffers up to streamingBufferBytes ahead of its consumer, the exchange is aborted when the
+  * consumer falls further behind.
   */
-case class ClientConfig(requestTimeout: Int                 = 60 * 1000,
-                        maxRequestRetry: Int                = 5,
-                        connectTimeout: Int                 = 5 * 1000,
-                        connectionTTL: Int                  = -1,
-                        readTimeout: Int                    = 60 * 1000,
-                        webSocketTimeout: Int               = 15 * 60 * 1000,
-                        maxConnections: Int                 = -1,
-                        maxConnectionsPerHost: Int          = -1,
-                        allowPoolingConnections: Boolean    = true,
-                        allowPoolingSslConnections: Boolean = true,
-                        pooledConnectionIdleTimeout: Int    = 60 * 1000,
-                        acceptAnyCertificate: Boolean       = false,
-                        followRedirect: Boolean             = false,
-                        maxRedirects: Int                   = 5,
-                        strict302Handling: Boolean          = false,
-                        responseCharset: Charset            = Charset.defaultCharset(),
-                        requestCharset: Charset             = Charset.defaultCharset())
+case class ClientConfig(requestTimeout: Int                                    = 60 * 1000,
+                        maxRequestRetry: Int                                   = 5,
+                        connectTimeout: Int                                    = 5 * 1000,
+                        connectionTTL: Int                                     = -1,
+                        readTimeout: Int                                       = 60 * 1000,
+                        webSocketTimeout: Int                                  = 15 * 60 * 1000,
+                        maxConnections: Int                                    = -1,
+                        maxConnectionsPerHost: Int                             = -1,
+                        allowPoolingConnections: Boolean                       = true,
+                        allowPoolingSslConnections: Boolean                    = true,
+                        pooledConnectionIdleTimeout: Int                       = 60 * 1000,
+                        acceptAnyCertificate: Boolean                          = false,
+                        followRedirect: Boolean                                = false,
+                        maxRedirects: Int                                      = 5,
+                        strict302Handling: Boolean                             = false,
+                        responseCharset: Charset                               = Charset.defaultCharset(),
+                        requestCharset: Charset                                = Charset.defaultCharset(),
+                        interceptors: List[RequestInterceptor]                 = List.empty,
+                        concurrencyLimiter: Option[AdaptiveConcurrencyLimiter] = None,
+                        retryPolicy: Option[RetryPolicy]                       = None,
+                        responseCache: Option[ResponseCache]                   = None,
+                        requestCoalescer: Option[RequestCoalescer]             = None,
+                        circuitBreaker: Option[CircuitBreaker]                 = None,
+                        compression: Option[Compression]                       = None,
+                        streamingBufferBytes: Long                             = 8L * 1024 * 1024)
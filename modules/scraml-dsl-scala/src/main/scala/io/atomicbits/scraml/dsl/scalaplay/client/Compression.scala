@@ -0,0 +1,98 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client
+
+import java.io.ByteArrayOutputStream
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.zip.{ CRC32, Deflater }
+
+/**
+  * Compression of request and response bodies.
+  *
+  * Responses: the client announces gzip and deflate in its Accept-Encoding header and ning inflates a compressed response body while it
+  * comes in. Requests: string and JSON request bodies of at least the request compression threshold are gzipped and sent with
+  * Content-Encoding: gzip. Request compression is off by default (a negative threshold), only enable it for APIs that accept
+  * compressed requests.
+  *
+  * The Deflater instances hold native zlib memory that is expensive to allocate, they are pooled and reused. Share one Compression
+  * instance between the clients of an application to share its pool.
+  *
+  * @param acceptCompressedResponses   Whether to ask for compressed responses.
+  * @param requestCompressionThreshold The minimum size in bytes of a request body that is gzipped, negative to never compress.
+  * @param level                       The deflate level (0-9) of request bodies, Deflater.DEFAULT_COMPRESSION is level 6.
+  * @param maxPooledCodecs             The maximum number of idle deflaters that are kept.
+  */
+class Compression(val acceptCompressedResponses: Boolean  = true,
+                  val requestCompressionThreshold: Int    = Compression.NoRequestCompression,
+                  val level: Int                          = Deflater.DEFAULT_COMPRESSION,
+                  val maxPooledCodecs: Int                = 16) {
+
+  private val deflaters = new ArrayBlockingQueue[Deflater](math.max(1, maxPooledCodecs))
+
+  /**
+    * True if a request body of the given size must be gzipped.
+    */
+  def compressRequest(bodySize: Long): Boolean = requestCompressionThreshold >= 0 && bodySize >= requestCompressionThreshold
+
+  /**
+    * Gzip the given bytes with a pooled deflater.
+    */
+  def gzip(data: Array[Byte]): Array[Byte] = {
+    val deflater = Option(deflaters.poll()).getOrElse(new Deflater(level, true))
+    try {
+      val out = new ByteArrayOutputStream(math.max(64, data.length / 4))
+      out.write(Compression.GzipHeader, 0, Compression.GzipHeader.length)
+      deflater.setInput(data)
+      deflater.finish()
+      val buffer = new Array[Byte](math.min(Compression.BufferSize, math.max(64, data.length)))
+      while (!deflater.finished()) {
+        val count = deflater.deflate(buffer)
+        out.write(buffer, 0, count)
+      }
+      val crc = new CRC32()
+      crc.update(data, 0, data.length)
+      writeIntLE(out, crc.getValue.toInt)
+      writeIntLE(out, data.length)
+      out.toByteArray
+    } finally {
+      deflater.reset()
+      if (!deflaters.offer(deflater)) deflater.end()
+    }
+  }
+
+  private def writeIntLE(out: ByteArrayOutputStream, value: Int): Unit = {
+    out.write(value & 0xff)
+    out.write((value >> 8) & 0xff)
+    out.write((value >> 16) & 0xff)
+    out.write((value >> 24) & 0xff)
+  }
+
+}
+
+object Compression {
+
+  val NoRequestCompression: Int = -1
+
+  private val GzipHeader: Array[Byte] = Array[Byte](0x1f, 0x8b.toByte, Deflater.DEFLATED.toByte, 0, 0, 0, 0, 0, 0, 0xff.toByte)
+
+  private val BufferSize = 8192
+
+}
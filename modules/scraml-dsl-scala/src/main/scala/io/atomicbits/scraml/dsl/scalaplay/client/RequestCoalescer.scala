@@ -0,0 +1,78 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+import io.atomicbits.scraml.dsl.scalaplay.Response
+
+import scala.concurrent.{ ExecutionContext, Future, Promise }
+import scala.util.control.NonFatal
+
+/**
+  * Lets concurrent identical requests share a single HTTP exchange (single-flight).
+  *
+  * The first request for a key is executed, the requests that arrive for the same key while it is in flight get the future of that
+  * request. The key is removed as soon as the exchange completes, so a later request always goes to the server again.
+  */
+class RequestCoalescer {
+
+  private val inFlight = new ConcurrentHashMap[String, Future[Response[_]]]()
+
+  private val executedCount  = new AtomicLong()
+  private val coalescedCount = new AtomicLong()
+
+  def execute[R](key: String)(request: () => Future[Response[R]])(implicit ec: ExecutionContext): Future[Response[R]] = {
+    val leader   = Promise[Response[_]]()
+    val existing = inFlight.putIfAbsent(key, leader.future)
+    if (existing != null) {
+      coalescedCount.incrementAndGet()
+      existing.asInstanceOf[Future[Response[R]]]
+    } else {
+      executedCount.incrementAndGet()
+      val response =
+        try {
+          request()
+        } catch {
+          case NonFatal(e) => Future.failed(e)
+        }
+      response.onComplete { result =>
+        inFlight.remove(key, leader.future)
+        leader.complete(result)
+      }
+      leader.future.asInstanceOf[Future[Response[R]]]
+    }
+  }
+
+  /**
+    * The number of requests that were sent to the server.
+    */
+  def executed: Long = executedCount.get()
+
+  /**
+    * The number of requests that were answered by a request that was already in flight.
+    */
+  def coalesced: Long = coalescedCount.get()
+
+  def inFlightCount: Int = inFlight.size()
+
+}
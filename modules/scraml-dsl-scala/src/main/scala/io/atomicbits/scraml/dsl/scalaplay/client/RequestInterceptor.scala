@@ -0,0 +1,49 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client
+
+import io.atomicbits.scraml.dsl.scalaplay.RequestBuilder
+
+/**
+  * A request interceptor is notified of every request that a client executes. All callbacks are called on the thread that handles
+  * the request, so they should be cheap and must not block. The resource path is the RAML path template of the endpoint,
+  * e.g. '/users/{userId}', not the actual path.
+  *
+  * Either onComplete or onFailure is called exactly once for each request that was started. The elapsed times are measured from the
+  * start of the request in nanoseconds. A request body size of -1 means that the size isn't known up front.
+  */
+trait RequestInterceptor {
+
+  def onRequestStart(request: RequestBuilder, resourcePath: String, requestBytes: Long): Unit = ()
+
+  def onHeadersReceived(request: RequestBuilder,
+                        resourcePath: String,
+                        statusCode: Int,
+                        headers: Map[String, List[String]],
+                        elapsedNanos: Long): Unit = ()
+
+  def onBodyDecoded(request: RequestBuilder, resourcePath: String, responseBytes: Long, elapsedNanos: Long): Unit = ()
+
+  def onComplete(request: RequestBuilder, resourcePath: String, statusCode: Int, elapsedNanos: Long): Unit = ()
+
+  def onFailure(request: RequestBuilder, resourcePath: String, failure: Throwable, elapsedNanos: Long): Unit = ()
+
+}
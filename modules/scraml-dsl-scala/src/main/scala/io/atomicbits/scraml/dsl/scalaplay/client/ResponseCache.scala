@@ -0,0 +1,203 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client
+
+import java.time.ZonedDateTime
+import java.time.format.DateTimeFormatter
+import java.util.concurrent.atomic.AtomicLong
+
+import io.atomicbits.scraml.dsl.scalaplay.{ HeaderMap, Response }
+
+import scala.util.Try
+
+/**
+  * A bounded LRU cache of GET responses, shared by all requests of a client.
+  *
+  * Responses are kept according to their Cache-Control (max-age, no-cache, no-store) or Expires headers. A stale entry that has an
+  * ETag or Last-Modified validator is revalidated with If-None-Match or If-Modified-Since, and a 304 answer reuses the cached body
+  * without downloading it again. Responses that vary on request headers are only reused for requests with the same values for those
+  * headers. The least recently used entries are evicted once the total size of the cached bodies exceeds the maximum size.
+  *
+  * The cache is shared by all callers of the client, whatever their credentials. As in a shared cache (RFC 7234, section 3.2), the
+  * response to a request with an Authorization header is only kept when the server marks it public or gives it an s-maxage.
+  *
+  * The string response is cached, typed responses are still parsed from it on every call.
+  */
+class ResponseCache(val maxBytes: Long = 16L * 1024 * 1024) {
+
+  import ResponseCache._
+
+  private val entries      = new java.util.LinkedHashMap[String, Entry](16, 0.75f, true)
+  private var currentBytes = 0L
+
+  private val hitCount          = new AtomicLong()
+  private val missCount         = new AtomicLong()
+  private val revalidationCount = new AtomicLong()
+  private val notModifiedCount  = new AtomicLong()
+  private val evictionCount     = new AtomicLong()
+
+  /**
+    * Find the entry for a request. A fresh entry counts as a hit, a stale one with a validator as a revalidation, the caller is
+    * expected to send a conditional request for it.
+    */
+  def lookup(key: String, requestHeaders: HeaderMap): Option[Entry] = {
+    val entry =
+      synchronized {
+        Option(entries.get(key)) match {
+          case Some(found) if !usable(found, requestHeaders) =>
+            remove(key)
+            None
+          case other => other
+        }
+      }
+    entry match {
+      case None                         => missCount.incrementAndGet()
+      case Some(found) if found.isFresh => hitCount.incrementAndGet()
+      case Some(_)                      => revalidationCount.incrementAndGet()
+    }
+    entry
+  }
+
+  /**
+    * The server answered 304 on a revalidation, the entry is fresh again for the lifetime in the new headers.
+    */
+  def notModified(entry: Entry, responseHeaders: Map[String, List[String]]): Unit = {
+    notModifiedCount.incrementAndGet()
+    entry.expiresAtMillis = expiresAtMillis(responseHeaders, System.currentTimeMillis())
+  }
+
+  /**
+    * Keep a 200 response if its headers allow it.
+    */
+  def store(key: String, requestHeaders: HeaderMap, response: Response[String], bodySize: Long): Unit = {
+    val headers      = response.headers
+    val cacheControl = joinedHeader(headers, "Cache-Control")
+    val vary         = joinedHeader(headers, "Vary")
+    val shareable    = requestHeaders.get("Authorization").isEmpty || cacheControl.exists(isShareable)
+    if (!cacheControl.exists(_.toLowerCase.contains("no-store")) && !vary.exists(_.contains("*")) && shareable) {
+      val now          = System.currentTimeMillis()
+      val etag         = joinedHeader(headers, "ETag")
+      val lastModified = joinedHeader(headers, "Last-Modified")
+      val expires      = expiresAtMillis(headers, now)
+      val size         = bodySize + EntryOverhead
+      if ((expires > now || etag.isDefined || lastModified.isDefined) && size <= maxBytes) {
+        val varyNames = vary.toList.flatMap(_.split(",").map(_.trim).filter(_.nonEmpty))
+        val entry     = new Entry(response, etag, lastModified, varyNames, varyValuesOf(varyNames, requestHeaders), size, expires)
+        synchronized {
+          remove(key)
+          entries.put(key, entry)
+          currentBytes += size
+          val eldest = entries.entrySet().iterator()
+          while (currentBytes > maxBytes && eldest.hasNext) {
+            currentBytes -= eldest.next().getValue.size
+            eldest.remove()
+            evictionCount.incrementAndGet()
+          }
+        }
+      }
+    }
+  }
+
+  def clear(): Unit = synchronized {
+    entries.clear()
+    currentBytes = 0
+  }
+
+  def hits: Long = hitCount.get()
+
+  def misses: Long = missCount.get()
+
+  def revalidations: Long = revalidationCount.get()
+
+  def notModifiedResponses: Long = notModifiedCount.get()
+
+  def evictions: Long = evictionCount.get()
+
+  def entryCount: Int = synchronized(entries.size())
+
+  def sizeInBytes: Long = synchronized(currentBytes)
+
+  override def toString: String =
+    s"hits=$hits, misses=$misses, revalidations=$revalidations, notModified=$notModifiedResponses, evictions=$evictions, " +
+      s"entries=$entryCount, bytes=$sizeInBytes"
+
+  private def usable(entry: Entry, requestHeaders: HeaderMap): Boolean =
+    varyValuesOf(entry.varyNames, requestHeaders) == entry.varyValues && (entry.isFresh || entry.hasValidator)
+
+  private def remove(key: String): Unit =
+    Option(entries.remove(key)).foreach(removed => currentBytes -= removed.size)
+
+}
+
+object ResponseCache {
+
+  // A rough estimate of the memory taken by an entry besides its body.
+  private val EntryOverhead = 256L
+
+  /**
+    * A cached response with its validators.
+    */
+  class Entry(val response: Response[String],
+              val etag: Option[String],
+              val lastModified: Option[String],
+              private[ResponseCache] val varyNames: List[String],
+              private[ResponseCache] val varyValues: List[String],
+              private[ResponseCache] val size: Long,
+              @volatile private[ResponseCache] var expiresAtMillis: Long) {
+
+    def isFresh: Boolean = System.currentTimeMillis() < expiresAtMillis
+
+    private[ResponseCache] def hasValidator: Boolean = etag.isDefined || lastModified.isDefined
+
+  }
+
+  private def varyValuesOf(varyNames: List[String], requestHeaders: HeaderMap): List[String] =
+    varyNames.map(name => requestHeaders.get(name).map(_.mkString(",")).getOrElse(""))
+
+  /**
+    * Whether the response may be reused for requests with other credentials than the request it answered.
+    */
+  private def isShareable(cacheControl: String): Boolean =
+    cacheControl.toLowerCase.split(",").map(_.trim).exists(directive => directive == "public" || directive.startsWith("s-maxage="))
+
+  /**
+    * The expiry time from max-age or Expires, or now when the response must be revalidated on every use.
+    */
+  private def expiresAtMillis(headers: Map[String, List[String]], now: Long): Long = {
+    val directives = joinedHeader(headers, "Cache-Control").toList.flatMap(_.toLowerCase.split(",").map(_.trim))
+    if (directives.contains("no-cache")) now
+    else {
+      directives.find(_.startsWith("max-age=")) match {
+        case Some(maxAge) => Try(now + maxAge.stripPrefix("max-age=").trim.toLong * 1000).getOrElse(now)
+        case None =>
+          joinedHeader(headers, "Expires")
+            .flatMap(expires => Try(ZonedDateTime.parse(expires, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant.toEpochMilli).toOption)
+            .getOrElse(now)
+      }
+    }
+  }
+
+  private def joinedHeader(headers: Map[String, List[String]], name: String): Option[String] =
+    headers.collectFirst {
+      case (key, values) if key.equalsIgnoreCase(name) && values.nonEmpty => values.mkString(",")
+    }
+
+}
@@ -0,0 +1,214 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client
+
+import java.io.IOException
+import java.time.ZonedDateTime
+import java.time.format.DateTimeFormatter
+import java.util.concurrent.atomic.{ AtomicBoolean, AtomicInteger }
+import java.util.concurrent.{ ConcurrentHashMap, Executors, ThreadFactory, ThreadLocalRandom, TimeUnit, TimeoutException }
+
+import io.atomicbits.scraml.dsl.scalaplay._
+import io.atomicbits.scraml.dsl.scalaplay.client.metrics.LatencyHistogram
+
+import scala.concurrent.{ ExecutionContext, Future, Promise }
+import scala.util.control.NonFatal
+import scala.util.{ Failure, Success, Try }
+
+/**
+  * Retries and hedges requests with an idempotent method (GET, HEAD, PUT and DELETE) on top of the connection level retries of the
+  * underlying HTTP client.
+  *
+  * A request is retried when it fails with an I/O error or a timeout, or when its response has one of the retryable status codes (by
+  * default 429, 502, 503 and 504). The backoff before a retry grows exponentially with full jitter, unless the response has a
+  * Retry-After header, which is honoured as long as it doesn't exceed the maximum backoff. A response whose Retry-After asks for a
+  * longer wait is returned as is.
+  *
+  * With hedging enabled, a second request is sent when the first one hasn't answered within the hedge percentile (p95 by default) of
+  * the recent latencies of the same endpoint, and the first good response wins. The percentile comes from a power-of-two histogram
+  * and is rounded up, which keeps the extra load of hedging low. An endpoint is only hedged once it has enough latency samples.
+  */
+class RetryPolicy(val maxRetries: Int            = 2,
+                  val initialBackoffMillis: Long = 50,
+                  val maxBackoffMillis: Long     = 2000,
+                  val retryStatusCodes: Set[Int] = Set(429, 502, 503, 504),
+                  val honourRetryAfter: Boolean  = true,
+                  val hedging: Boolean           = false,
+                  val hedgePercentile: Double    = 95.0,
+                  val minHedgeDelayMillis: Long  = 5) {
+
+  import RetryPolicy._
+
+  private val latencies = new ConcurrentHashMap[String, LatencyHistogram]()
+
+  def appliesTo(method: Method): Boolean = IdempotentMethods.contains(method)
+
+  /**
+    * Run the given request with retries and hedging. The attempt function is called once for every request that is sent, it must
+    * create a fresh future each time.
+    *
+    * @param resourcePath The RAML resource path of the request, hedge delays are kept per resource path.
+    */
+  def execute[R](method: Method, resourcePath: String)(attempt: () => Future[Response[R]])(
+      implicit ec: ExecutionContext): Future[Response[R]] = {
+    if (!appliesTo(method)) attempt()
+    else {
+      val result = Promise[Response[R]]()
+      runAttempt(1, resourcePath, attempt, result)
+      result.future
+    }
+  }
+
+  private def runAttempt[R](attemptNumber: Int, resourcePath: String, attempt: () => Future[Response[R]], result: Promise[Response[R]])(
+      implicit ec: ExecutionContext): Unit = {
+    val outcome = if (hedging) hedged(resourcePath, attempt) else timed(resourcePath, attempt)
+    outcome.onComplete { tried =>
+      val backoff = if (attemptNumber <= maxRetries) retryBackoffMillis(attemptNumber, tried) else -1L
+      if (backoff < 0) result.complete(tried)
+      else schedule(backoff)(runAttempt(attemptNumber + 1, resourcePath, attempt, result))
+    }
+  }
+
+  /**
+    * Send the request and, when it takes longer than the hedge delay, a second one. The first response that isn't worth a retry
+    * wins, otherwise the last one to come in.
+    */
+  private def hedged[R](resourcePath: String, attempt: () => Future[Response[R]])(implicit ec: ExecutionContext): Future[Response[R]] = {
+    val hedgeDelay = hedgeDelayMillis(resourcePath)
+    if (hedgeDelay < 0) timed(resourcePath, attempt)
+    else {
+      val first   = Promise[Response[R]]()
+      val pending = new AtomicInteger(1)
+      val done    = new AtomicBoolean(false)
+
+      def onResult(tried: Try[Response[R]]): Unit = {
+        val last = pending.decrementAndGet() == 0
+        val good = tried match {
+          case Success(response) => !retryStatusCodes.contains(response.status)
+          case Failure(_)        => false
+        }
+        if ((last || good) && done.compareAndSet(false, true)) first.complete(tried)
+        ()
+      }
+
+      timed(resourcePath, attempt).onComplete(onResult)
+      schedule(hedgeDelay) {
+        if (!done.get()) {
+          pending.incrementAndGet()
+          timed(resourcePath, attempt).onComplete(onResult)
+        }
+      }
+      first.future
+    }
+  }
+
+  private def timed[R](resourcePath: String, attempt: () => Future[Response[R]])(implicit ec: ExecutionContext): Future[Response[R]] = {
+    val start = System.nanoTime()
+    val future =
+      try {
+        attempt()
+      } catch {
+        case NonFatal(e) => Future.failed(e)
+      }
+    if (hedging) {
+      future.foreach(_ => latencyOf(resourcePath).record(System.nanoTime() - start))
+    }
+    future
+  }
+
+  /**
+    * @return The backoff before the next attempt in milliseconds, or -1 when the result must not be retried.
+    */
+  private def retryBackoffMillis(attemptNumber: Int, tried: Try[Response[_]]): Long =
+    tried match {
+      case Failure(_: IOException) | Failure(_: TimeoutException)           => jitteredBackoffMillis(attemptNumber)
+      case Failure(_)                                                       => -1L
+      case Success(response) if !retryStatusCodes.contains(response.status) => -1L
+      case Success(response) =>
+        val retryAfter = if (honourRetryAfter) retryAfterMillis(response.headers) else None
+        retryAfter match {
+          case Some(delay) if delay > maxBackoffMillis => -1L
+          case Some(delay)                             => delay
+          case None                                    => jitteredBackoffMillis(attemptNumber)
+        }
+    }
+
+  private[client] def jitteredBackoffMillis(attemptNumber: Int): Long = {
+    val ceiling = math.min(maxBackoffMillis, initialBackoffMillis << math.min(attemptNumber - 1, 30))
+    ThreadLocalRandom.current().nextLong(ceiling + 1)
+  }
+
+  /**
+    * @return The hedge delay for the given resource path in milliseconds, -1 when there aren't enough samples yet.
+    */
+  private def hedgeDelayMillis(resourcePath: String): Long =
+    Option(latencies.get(resourcePath)) match {
+      case Some(histogram) if histogram.totalCount >= MinHedgeSamples =>
+        math.max(minHedgeDelayMillis, TimeUnit.MICROSECONDS.toMillis(histogram.percentileMicros(hedgePercentile)))
+      case _ => -1L
+    }
+
+  private def latencyOf(resourcePath: String): LatencyHistogram = {
+    val existing = latencies.get(resourcePath)
+    if (existing != null) existing
+    else {
+      val created = new LatencyHistogram
+      Option(latencies.putIfAbsent(resourcePath, created)).getOrElse(created)
+    }
+  }
+
+}
+
+object RetryPolicy {
+
+  val IdempotentMethods: Set[Method] = Set(Get, Head, Put, Delete)
+
+  private val MinHedgeSamples = 20
+
+  private val scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory {
+    override def newThread(runnable: Runnable): Thread = {
+      val thread = new Thread(runnable, "scraml-retry-scheduler")
+      thread.setDaemon(true)
+      thread
+    }
+  })
+
+  private def schedule(delayMillis: Long)(task: => Unit): Unit = {
+    scheduler.schedule(new Runnable {
+      override def run(): Unit = task
+    }, delayMillis, TimeUnit.MILLISECONDS)
+    ()
+  }
+
+  /**
+    * @return The delay given by the Retry-After header (in seconds or as an HTTP date).
+    */
+  private[client] def retryAfterMillis(headers: Map[String, List[String]]): Option[Long] =
+    headers.collectFirst { case (key, value :: _) if key.equalsIgnoreCase("Retry-After") => value.trim }.flatMap { value =>
+      Try(math.max(0L, value.toLong * 1000)).orElse {
+        Try {
+          val date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME)
+          math.max(0L, date.toInstant.toEpochMilli - System.currentTimeMillis())
+        }
+      }.toOption
+    }
+
+}
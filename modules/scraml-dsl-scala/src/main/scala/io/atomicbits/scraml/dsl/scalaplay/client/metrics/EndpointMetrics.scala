@@ -0,0 +1,76 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client.metrics
+
+import java.util.concurrent.atomic.AtomicLong
+
+import io.atomicbits.scraml.dsl.scalaplay.Method
+
+/**
+  * The counters of one endpoint, i.e. one method on one RAML resource path.
+  */
+class EndpointMetrics(val method: Method, val resourcePath: String) {
+
+  private val inFlightCounter = new AtomicLong()
+  private val requestCounter  = new AtomicLong()
+  private val failureCounter  = new AtomicLong()
+  private val bytesOutCounter = new AtomicLong()
+  private val bytesInCounter  = new AtomicLong()
+
+  val latency = new LatencyHistogram
+
+  private[metrics] def started(requestBytes: Long): Unit = {
+    inFlightCounter.incrementAndGet()
+    requestCounter.incrementAndGet()
+    if (requestBytes > 0) bytesOutCounter.addAndGet(requestBytes)
+    ()
+  }
+
+  private[metrics] def received(responseBytes: Long): Unit = {
+    if (responseBytes > 0) bytesInCounter.addAndGet(responseBytes)
+    ()
+  }
+
+  private[metrics] def completed(elapsedNanos: Long): Unit = {
+    inFlightCounter.decrementAndGet()
+    latency.record(elapsedNanos)
+  }
+
+  private[metrics] def failed(elapsedNanos: Long): Unit = {
+    failureCounter.incrementAndGet()
+    completed(elapsedNanos)
+  }
+
+  def inFlight: Long = inFlightCounter.get()
+
+  def requests: Long = requestCounter.get()
+
+  def failures: Long = failureCounter.get()
+
+  def bytesOut: Long = bytesOutCounter.get()
+
+  def bytesIn: Long = bytesInCounter.get()
+
+  override def toString: String =
+    s"$method $resourcePath: requests=$requests, failures=$failures, inFlight=$inFlight, bytesOut=$bytesOut, bytesIn=$bytesIn, " +
+      s"p50=${latency.percentileMicros(50)}us, p99=${latency.percentileMicros(99)}us"
+
+}
@@ -0,0 +1,78 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client.metrics
+
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+  * A lock-free latency histogram with power-of-two buckets in microseconds. Bucket i counts the latencies in [2^(i-1), 2^i)
+  * microseconds, bucket 0 counts everything below 1 microsecond and the last bucket everything above ~18 minutes.
+  *
+  * Recording a value is a single atomic increment, percentiles are approximated by the upper bound of their bucket.
+  */
+class LatencyHistogram {
+
+  import LatencyHistogram._
+
+  private val counts = new AtomicLongArray(Buckets)
+
+  def record(elapsedNanos: Long): Unit = {
+    counts.incrementAndGet(bucketOf(TimeUnit.NANOSECONDS.toMicros(elapsedNanos)))
+    ()
+  }
+
+  def count(bucket: Int): Long = counts.get(bucket)
+
+  def totalCount: Long = (0 until Buckets).map(counts.get).sum
+
+  /**
+    * @param percentile A value between 0 and 100.
+    * @return The upper bound in microseconds of the bucket that holds the given percentile, 0 when nothing was recorded.
+    */
+  def percentileMicros(percentile: Double): Long = {
+    val snapshot = (0 until Buckets).map(counts.get)
+    val total    = snapshot.sum
+    if (total == 0) 0L
+    else {
+      val rank       = math.ceil(total * percentile / 100.0).toLong
+      val cumulative = snapshot.scanLeft(0L)(_ + _).tail
+      val bucket     = cumulative.indices.find(i => cumulative(i) >= rank && snapshot(i) > 0).getOrElse(Buckets - 1)
+      upperBoundMicros(bucket)
+    }
+  }
+
+}
+
+object LatencyHistogram {
+
+  val Buckets = 32
+
+  def bucketOf(micros: Long): Int =
+    if (micros <= 0) 0
+    else math.min(Buckets - 1, 64 - java.lang.Long.numberOfLeadingZeros(micros))
+
+  /**
+    * The upper bound of the given bucket in microseconds.
+    */
+  def upperBoundMicros(bucket: Int): Long = 1L << bucket
+
+}
@@ -0,0 +1,77 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client.metrics
+
+import java.util.concurrent.ConcurrentHashMap
+
+import io.atomicbits.scraml.dsl.scalaplay.{ Method, RequestBuilder }
+import io.atomicbits.scraml.dsl.scalaplay.client.RequestInterceptor
+
+import scala.collection.JavaConverters._
+
+/**
+  * Keeps latency histograms, in-flight counts and bytes in and out per endpoint. Add it to the interceptors of the client config
+  * and read the metrics with endpointMetrics.
+  *
+  * Once an endpoint has been seen, recording a request is two map lookups and a few atomic increments, no locks are taken and no
+  * keys are built per request.
+  */
+class MetricsInterceptor extends RequestInterceptor {
+
+  private val endpoints = new ConcurrentHashMap[String, ConcurrentHashMap[Method, EndpointMetrics]]()
+
+  override def onRequestStart(request: RequestBuilder, resourcePath: String, requestBytes: Long): Unit =
+    endpoint(request, resourcePath).started(requestBytes)
+
+  override def onBodyDecoded(request: RequestBuilder, resourcePath: String, responseBytes: Long, elapsedNanos: Long): Unit =
+    endpoint(request, resourcePath).received(responseBytes)
+
+  override def onComplete(request: RequestBuilder, resourcePath: String, statusCode: Int, elapsedNanos: Long): Unit =
+    endpoint(request, resourcePath).completed(elapsedNanos)
+
+  override def onFailure(request: RequestBuilder, resourcePath: String, failure: Throwable, elapsedNanos: Long): Unit =
+    endpoint(request, resourcePath).failed(elapsedNanos)
+
+  def endpointMetrics: List[EndpointMetrics] = endpoints.values().asScala.toList.flatMap(_.values().asScala)
+
+  def endpointMetrics(method: Method, resourcePath: String): Option[EndpointMetrics] =
+    Option(endpoints.get(resourcePath)).flatMap(byMethod => Option(byMethod.get(method)))
+
+  def reset(): Unit = endpoints.clear()
+
+  private def endpoint(request: RequestBuilder, resourcePath: String): EndpointMetrics = {
+    val byMethod = {
+      val existing = endpoints.get(resourcePath)
+      if (existing != null) existing
+      else {
+        val created = new ConcurrentHashMap[Method, EndpointMetrics]()
+        Option(endpoints.putIfAbsent(resourcePath, created)).getOrElse(created)
+      }
+    }
+    val existing = byMethod.get(request.method)
+    if (existing != null) existing
+    else {
+      val created = new EndpointMetrics(request.method, resourcePath)
+      Option(byMethod.putIfAbsent(request.method, created)).getOrElse(created)
+    }
+  }
+
+}
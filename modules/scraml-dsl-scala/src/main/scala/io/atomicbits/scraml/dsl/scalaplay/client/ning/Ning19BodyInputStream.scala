@@ -0,0 +1,150 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client.ning
+
+import java.io.{ IOException, InputStream }
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+  * The body of a streamed ning response, fed with the body parts as the ning I/O thread receives them and read by the consumer of the
+  * response.
+  *
+  * The I/O thread serves many connections, so it never waits for the consumer. The body parts that the consumer hasn't read yet are
+  * buffered up to a maximum number of bytes. A consumer that falls further behind fails the stream and the exchange is aborted, instead
+  * of buffering the whole body.
+  */
+private[ning] class Ning19BodyInputStream(maxBufferedBytes: Long) extends InputStream {
+
+  import Ning19BodyInputStream._
+
+  private val parts         = new LinkedBlockingQueue[Array[Byte]]()
+  private val bufferedBytes = new AtomicLong()
+
+  private var current: Array[Byte] = Array.emptyByteArray
+  private var position: Int        = 0
+  private var ended: Boolean       = false
+  private var failed: Boolean      = false
+
+  @volatile private var closed: Boolean     = false
+  @volatile private var failure: Throwable = _
+
+  /**
+    * Add a body part without waiting. The stream fails when the part doesn't fit in the buffer.
+    *
+    * @return false when the stream was closed or failed, no more parts are needed then.
+    */
+  def offer(part: Array[Byte]): Boolean =
+    if (closed || failure != null) false
+    else if (bufferedBytes.addAndGet(part.length.toLong) > maxBufferedBytes) {
+      fail(new IOException(s"The consumer of the streamed response fell more than $maxBufferedBytes bytes behind."))
+      false
+    } else {
+      parts.add(part)
+      true
+    }
+
+  /**
+    * Mark the end of the body.
+    */
+  def end(): Unit =
+    if (!closed && failure == null) {
+      parts.add(End)
+      ()
+    }
+
+  /**
+    * Fail the stream, the reader gets an IOException once it has read the parts that were received before the failure.
+    */
+  def fail(t: Throwable): Unit =
+    if (failure == null) {
+      failure = t
+      parts.add(Failed)
+      ()
+    }
+
+  /**
+    * The failure of the stream, if it failed.
+    */
+  def failureOption: Option[Throwable] = Option(failure)
+
+  override def read(): Int =
+    if (!nextPart()) -1
+    else {
+      val byte = current(position) & 0xff
+      position += 1
+      byte
+    }
+
+  override def read(b: Array[Byte], off: Int, len: Int): Int =
+    if (len == 0) 0
+    else if (!nextPart()) -1
+    else {
+      val count = Math.min(len, current.length - position)
+      System.arraycopy(current, position, b, off, count)
+      position += count
+      count
+    }
+
+  override def available(): Int = current.length - position
+
+  override def close(): Unit = {
+    closed = true
+    parts.clear()
+  }
+
+  /**
+    * Make sure there are unread bytes in the current part, false at the end of the body.
+    */
+  private def nextPart(): Boolean = {
+    while (position == current.length && !ended) {
+      if (closed) throw new IOException("The response stream is closed.")
+      if (failed) throw new IOException(s"The response failed: ${failure.getMessage}", failure)
+      val part =
+        try {
+          parts.take()
+        } catch {
+          case e: InterruptedException =>
+            Thread.currentThread().interrupt()
+            throw new IOException("Interrupted while waiting for the response body.", e)
+        }
+      if (part eq Failed) {
+        failed = true
+      } else if (part eq End) {
+        ended = true
+      } else {
+        bufferedBytes.addAndGet(-part.length.toLong)
+        current  = part
+        position = 0
+      }
+    }
+    position < current.length
+  }
+
+}
+
+private[ning] object Ning19BodyInputStream {
+
+  private val End: Array[Byte] = new Array[Byte](0)
+
+  private val Failed: Array[Byte] = new Array[Byte](0)
+
+}
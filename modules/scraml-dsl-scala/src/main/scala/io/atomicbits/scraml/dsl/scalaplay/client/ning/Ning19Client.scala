@@ -20,21 +20,42 @@
 
 package io.atomicbits.scraml.dsl.scalaplay.client.ning
 
+import java.io.ByteArrayOutputStream
+import java.nio.channels.WritableByteChannel
 import java.nio.charset.Charset
 import java.util.{ Map => JMap, List => JList }
-import java.util.concurrent.CompletionStage
+import java.util.concurrent.{ CompletionStage, Executors, RejectedExecutionException, ThreadFactory }
+import java.util.concurrent.atomic.AtomicInteger
 import java.util.function.{ BiConsumer, Function => JFunction }
 
 import com.ning.http.client.generators.InputStreamBodyGenerator
 
 import scala.concurrent.ExecutionContext.Implicits.global
-import com.ning.http.client.{ AsyncCompletionHandler, AsyncHttpClient, AsyncHttpClientConfig, Request }
-import io.atomicbits.scraml.dsl.scalaplay.client.ClientConfig
+import com.ning.http.client.AsyncHandler.STATE
+import com.ning.http.client.{
+  AsyncCompletionHandler,
+  AsyncHandler,
+  AsyncHttpClient,
+  AsyncHttpClientConfig,
+  HttpResponseBodyPart,
+  HttpResponseHeaders,
+  HttpResponseStatus,
+  Request
+}
+import io.atomicbits.scraml.dsl.scalaplay.client.{
+  AdaptiveConcurrencyLimiter,
+  ClientConfig,
+  RequestCoalescer,
+  RequestInterceptor,
+  ResponseCache
+}
 import io.atomicbits.scraml.dsl.scalaplay._
+import io.atomicbits.scraml.dsl.scalaplay.json.JsonArrayStream
 import org.slf4j.{ Logger, LoggerFactory }
 import play.api.libs.json._
 
-import scala.concurrent.{ Future, Promise }
+import scala.concurrent.{ ExecutionContext, Future, Promise }
+import scala.util.control.NonFatal
 import scala.util.{ Failure, Success, Try }
 import scala.collection.JavaConverters._
 
@@ -51,11 +72,29 @@ case class Ning19Client(protocol: String,
 
   val LOGGER: Logger = LoggerFactory.getLogger(classOf[Ning19Client])
 
+  /**
+    * Reading the start of a streamed response blocks until its first body parts are in, which needs its own pool that can grow instead
+    * of the global execution context.
+    */
+  private val streamingExecutor = Executors.newCachedThreadPool(new ThreadFactory {
+    private val threadCount = new AtomicInteger()
+    override def newThread(runnable: Runnable): Thread = {
+      val thread = new Thread(runnable, s"scraml-ning-streaming-${threadCount.incrementAndGet()}")
+      thread.setDaemon(true)
+      thread
+    }
+  })
+
+  private val streamingContext = ExecutionContext.fromExecutorService(streamingExecutor)
+
   private val cleanPrefix = prefix.map { pref =>
     val strippedPref = pref.stripPrefix("/").stripSuffix("/")
     s"/$strippedPref"
   } getOrElse ""
 
+  // Copied once, an empty array keeps the request path free of any interceptor overhead.
+  private val interceptors: Array[RequestInterceptor] = config.interceptors.toArray
+
   private lazy val client = {
     val configBuilder: AsyncHttpClientConfig.Builder = new AsyncHttpClientConfig.Builder
     new AsyncHttpClient(applyConfiguration(configBuilder).build)
@@ -127,7 +166,7 @@ case class Ning19Client(protocol: String,
       Response[String](response.getStatusCode, stringResponseBody, None, stringResponseBody, headers)
     }
 
-    callToResponse(requestBuilder, body, transformer)
+    callToResponse(requestBuilder, body, transformer, cacheable = true)
   }
 
   def callToBinaryResponse(requestBuilder: RequestBuilder, body: Option[String]): Future[Response[BinaryData]] = {
@@ -148,9 +187,123 @@ case class Ning19Client(protocol: String,
     callToResponse(requestBuilder, body, transformer)
   }
 
+  /**
+    * The elements are parsed while the body parts come in. Streamed calls bypass the response cache, the request coalescer, the retry
+    * policy and the concurrency limiter: the response is only complete when its consumer has read it.
+    */
+  override def callToStreamResponse[E](requestBuilder: RequestBuilder, body: Option[String])(
+      implicit reads: Reads[E]): Future[Response[JsonArrayStream[E]]] =
+    withCircuitBreaker(requestBuilder) { () =>
+      val ningRequest = prepareRequest(requestBuilder, body).build()
+      LOGGER.debug(s"Executing streamed request: $ningRequest")
+      val promise = Promise[Response[JsonArrayStream[E]]]()
+      executeRequest(ningRequest, new StreamingHandler[E](requestBuilder, requestBytes(requestBuilder, body), promise))
+      promise.future
+    }
+
+  /**
+    * The body parts are written to the channel as they come in, on the ning I/O thread, so a slow channel throttles the download.
+    * Downloads bypass the response cache, the request coalescer, the retry policy and the concurrency limiter, the channel can't be
+    * rewound for another attempt.
+    */
+  override def callToDownloadResponse(requestBuilder: RequestBuilder,
+                                      body: Option[String],
+                                      target: WritableByteChannel,
+                                      progress: Download.Progress): Future[Response[Long]] =
+    withCircuitBreaker(requestBuilder) { () =>
+      val ningRequest = prepareRequest(requestBuilder, body).build()
+      LOGGER.debug(s"Executing download request: $ningRequest")
+      val promise = Promise[Response[Long]]()
+      executeRequest(ningRequest, new DownloadHandler(requestBuilder, requestBytes(requestBuilder, body), target, progress, promise))
+      promise.future
+    }
+
   private def callToResponse[T](requestBuilder: RequestBuilder,
                                 body: Option[String],
-                                transformer: com.ning.http.client.Response => Response[T]): Future[Response[T]] = {
+                                transformer: com.ning.http.client.Response => Response[T],
+                                cacheable: Boolean = false): Future[Response[T]] =
+    withCircuitBreaker(requestBuilder) { () =>
+      buildAndSend(requestBuilder, body, transformer, cacheable)
+    }
+
+  private def withCircuitBreaker[T](requestBuilder: RequestBuilder)(call: () => Future[Response[T]]): Future[Response[T]] =
+    config.circuitBreaker match {
+      case None => call()
+      case Some(circuitBreaker) =>
+        // Fail fast, before the request is built, while the host or endpoint is failing.
+        Try(circuitBreaker.acquire(s"$host:$port", requestBuilder.method, requestBuilder.resourcePathTemplate)) match {
+          case Failure(e) => Future.failed(e)
+          case Success(permit) =>
+            val result =
+              try {
+                call()
+              } catch {
+                case NonFatal(e) => Future.failed(e)
+              }
+            result.onComplete {
+              case Success(response) if response.status < 500 => permit.onSuccess()
+              case _                                          => permit.onFailure()
+            }
+            result
+        }
+    }
+
+  private def buildAndSend[T](requestBuilder: RequestBuilder,
+                              body: Option[String],
+                              transformer: com.ning.http.client.Response => Response[T],
+                              cacheable: Boolean): Future[Response[T]] = {
+    val ningBuilder = prepareRequest(requestBuilder, body)
+
+    val ningRequest: Request = ningBuilder.build()
+    LOGGER.debug(s"Executing request: $ningRequest")
+    LOGGER.trace(s"Request body encoding: ${ningRequest.getBodyEncoding}")
+    LOGGER.trace(s"Request body: $body")
+
+    // A streamed request body can only be sent once.
+    val replayable = requestBuilder.binaryBody.forall {
+      case InputStreamBinaryRequest(_) => false
+      case _                           => true
+    }
+
+    // Only string responses are cached and coalesced, the JSON and typed responses are derived from them.
+    val responseCache = config.responseCache.filter(_ => cacheable && requestBuilder.method == Get)
+    val cacheKey      = ningRequest.getUrl
+    val cachedEntry   = responseCache.flatMap(_.lookup(cacheKey, requestBuilder.allHeaders))
+
+    cachedEntry match {
+      case Some(entry) if entry.isFresh => Future.successful(entry.response.asInstanceOf[Response[T]])
+      case _ =>
+        val request =
+          cachedEntry.map { entry =>
+            // A stale entry, ask the server whether it is still valid.
+            entry.etag.foreach(etag => ningBuilder.setHeader("If-None-Match", etag))
+            entry.lastModified.foreach(lastModified => ningBuilder.setHeader("If-Modified-Since", lastModified))
+            ningBuilder.build()
+          } getOrElse ningRequest
+
+        val responseTransformer =
+          responseCache.map { cache =>
+            cachingTransformer(cache, cacheKey, cachedEntry, requestBuilder.allHeaders, transformer)
+          } getOrElse transformer
+
+        def send(): Future[Response[T]] =
+          config.retryPolicy match {
+            case Some(retryPolicy) if replayable =>
+              retryPolicy.execute(requestBuilder.method, requestBuilder.resourcePathTemplate) { () =>
+                dispatch(request, requestBuilder, body, responseTransformer)
+              }
+            case _ => dispatch(request, requestBuilder, body, responseTransformer)
+          }
+
+        config.requestCoalescer match {
+          case Some(coalescer) if cacheable && (requestBuilder.method == Get || requestBuilder.method == Head) =>
+            coalescer.execute(coalescingKey(request, requestBuilder.allHeaders))(send)
+          case _ => send()
+        }
+    }
+  }
+
+  private def prepareRequest(requestBuilder: RequestBuilder, body: Option[String]): com.ning.http.client.RequestBuilder = {
     val ningBuilder = {
       // Create builder
       val ningRb: com.ning.http.client.RequestBuilder = new com.ning.http.client.RequestBuilder
@@ -177,8 +330,23 @@ case class Ning19Client(protocol: String,
         }
     }
 
+    // A request that already carries a Content-Encoding header is sent as is.
+    val compression = config.compression.filterNot(_ => requestBuilder.allHeaders.hasKey("Content-Encoding"))
+
     body.foreach { body =>
-      ningBuilder.setBody(body)
+      compression.filter(_.requestCompressionThreshold >= 0) match {
+        case Some(compressor) =>
+          val contentType = requestBuilder.allHeaders.get("Content-Type").map(values => Map("Content-Type" -> values)).getOrElse(Map.empty)
+          val charset     = getResponseCharsetFromHeaders(contentType).getOrElse(config.requestCharset.name)
+          val bodyBytes   = body.getBytes(charset)
+          if (compressor.compressRequest(bodyBytes.length)) {
+            ningBuilder.setHeader("Content-Encoding", "gzip")
+            ningBuilder.setBody(compressor.gzip(bodyBytes))
+          } else {
+            ningBuilder.setBody(bodyBytes)
+          }
+        case None => ningBuilder.setBody(body)
+      }
     }
 
     requestBuilder.binaryBody.foreach {
@@ -235,38 +403,403 @@ case class Ning19Client(protocol: String,
         )
     }
 
-    val ningRequest: Request = ningBuilder.build()
-    LOGGER.debug(s"Executing request: $ningRequest")
-    LOGGER.trace(s"Request body encoding: ${ningRequest.getBodyEncoding}")
-    LOGGER.trace(s"Request body: $body")
+    ningBuilder
+  }
+
+  /**
+    * Identical requests have the same method, URL (including the query string) and headers.
+    */
+  private def coalescingKey(ningRequest: Request, requestHeaders: HeaderMap): String = {
+    val key = new StringBuilder(128)
+    key.append(ningRequest.getMethod).append(' ').append(ningRequest.getUrl)
+    requestHeaders.foreach {
+      case (name, values) => key.append('\n').append(name).append(": ").append(values.mkString(","))
+    }
+    key.toString
+  }
 
+  /**
+    * Answer a revalidated entry from the cache on a 304 and keep cacheable 200 responses.
+    */
+  private def cachingTransformer[T](
+      responseCache: ResponseCache,
+      cacheKey: String,
+      cachedEntry: Option[ResponseCache.Entry],
+      requestHeaders: HeaderMap,
+      transformer: com.ning.http.client.Response => Response[T]): com.ning.http.client.Response => Response[T] = { response =>
+    val result = transformer(response)
+    cachedEntry match {
+      case Some(entry) if response.getStatusCode == 304 =>
+        responseCache.notModified(entry, result.headers)
+        entry.response.asInstanceOf[Response[T]]
+      case _ =>
+        if (response.getStatusCode == 200) {
+          val bodySize =
+            Option(response.getHeader("Content-Length"))
+              .flatMap(length => Try(length.trim.toLong).toOption)
+              .getOrElse(response.getResponseBodyAsBytes.length.toLong)
+          responseCache.store(cacheKey, requestHeaders, result.asInstanceOf[Response[String]], bodySize)
+        }
+        result
+    }
+  }
+
+  private def dispatch[T](ningRequest: Request,
+                          requestBuilder: RequestBuilder,
+                          body: Option[String],
+                          transformer: com.ning.http.client.Response => Response[T]): Future[Response[T]] = {
     val promise = Promise[Response[T]]()
 
-    client.executeRequest(
-      ningRequest,
-      new AsyncCompletionHandler[String]() {
-        @throws(classOf[Exception])
-        def onCompleted(response: com.ning.http.client.Response): String = {
-          val resp: Try[Response[T]] = Try(transformer(response))
-          promise.complete(resp)
-          null
+    config.concurrencyLimiter match {
+      case None          => execute(ningRequest, requestBuilder, body, transformer, promise)
+      case Some(limiter) => executeLimited(limiter, ningRequest, requestBuilder, body, transformer, promise)
+    }
+
+    promise.future
+  }
+
+  private def executeLimited[T](limiter: AdaptiveConcurrencyLimiter,
+                                ningRequest: Request,
+                                requestBuilder: RequestBuilder,
+                                body: Option[String],
+                                transformer: com.ning.http.client.Response => Response[T],
+                                promise: Promise[Response[T]]): Unit = {
+    val accepted =
+      limiter.submit { () =>
+        val start = System.nanoTime()
+        promise.future.onComplete { result =>
+          val dropped = result match {
+            case Success(response) => response.status == 429 || response.status == 503
+            case Failure(_)        => true
+          }
+          limiter.release(System.nanoTime() - start, dropped)
+        }
+        try {
+          execute(ningRequest, requestBuilder, body, transformer, promise)
+        } catch {
+          case NonFatal(e) =>
+            promise.tryFailure(e)
+            ()
         }
+      }
+    if (!accepted) {
+      promise.failure(
+        new RejectedExecutionException(
+          s"The concurrency limit and the request queue are full ($limiter), " +
+            s"rejected ${requestBuilder.method} ${requestBuilder.resourcePathTemplate}")
+      )
+      ()
+    }
+  }
+
+  private def execute[T](ningRequest: Request,
+                         requestBuilder: RequestBuilder,
+                         body: Option[String],
+                         transformer: com.ning.http.client.Response => Response[T],
+                         promise: Promise[Response[T]]): Unit = {
+    if (interceptors.isEmpty) {
+      executeRequest(
+        ningRequest,
+        new AsyncCompletionHandler[String]() {
+          @throws(classOf[Exception])
+          def onCompleted(response: com.ning.http.client.Response): String = {
+            val resp: Try[Response[T]] = Try(transformer(response))
+            promise.complete(resp)
+            null
+          }
+
+          override def onThrowable(t: Throwable) {
+            super.onThrowable(t)
+            promise.failure(t)
+            // explicitely return Unit to avoid compilation errors on systems with strict compilation rules switched on,
+            // such as "-Ywarn-value-discard"
+            ()
+          }
 
-        override def onThrowable(t: Throwable) {
-          super.onThrowable(t)
-          promise.failure(t)
-          // explicitely return Unit to avoid compilation errors on systems with strict compilation rules switched on,
-          // such as "-Ywarn-value-discard"
-          ()
         }
+      )
+    } else {
+      val handler = new InterceptedCompletionHandler[T](requestBuilder, requestBytes(requestBuilder, body), transformer, promise)
+      executeRequest(ningRequest, handler)
+    }
+  }
+
+  /**
+    * Ning throws some failures, such as an unsupported scheme, without calling the handler. The handlers report the start of the
+    * request to the interceptors when they are created, so they report these failures as well.
+    */
+  private def executeRequest[T](ningRequest: Request, handler: AsyncHandler[T]): Unit =
+    try {
+      client.executeRequest(ningRequest, handler)
+      ()
+    } catch {
+      case NonFatal(e) => handler.onThrowable(e)
+    }
+
+  /**
+    * The completion handler that reports the progress of a request to the interceptors. It also counts the response bytes as they
+    * come in, so the response body is never measured afterwards.
+    */
+  private class InterceptedCompletionHandler[T](requestBuilder: RequestBuilder,
+                                                requestBytes: Long,
+                                                transformer: com.ning.http.client.Response => Response[T],
+                                                promise: Promise[Response[T]])
+      extends AsyncCompletionHandler[String] {
+
+    private val resourcePath        = requestBuilder.resourcePathTemplate
+    private val start               = System.nanoTime()
+    private var statusCode: Int     = 0
+    private var responseBytes: Long = 0L
+
+    intercept(_.onRequestStart(requestBuilder, resourcePath, requestBytes))
+
+    override def onStatusReceived(status: HttpResponseStatus): STATE = {
+      statusCode = status.getStatusCode
+      super.onStatusReceived(status)
+    }
+
+    override def onHeadersReceived(headers: HttpResponseHeaders): STATE = {
+      val headerMap = toHeaderMap(headers)
+      val elapsed   = System.nanoTime() - start
+      intercept(_.onHeadersReceived(requestBuilder, resourcePath, statusCode, headerMap, elapsed))
+      super.onHeadersReceived(headers)
+    }
+
+    override def onBodyPartReceived(content: HttpResponseBodyPart): STATE = {
+      responseBytes += content.length()
+      super.onBodyPartReceived(content)
+    }
 
+    @throws(classOf[Exception])
+    def onCompleted(response: com.ning.http.client.Response): String = {
+      val resp: Try[Response[T]] = Try(transformer(response))
+      val elapsed                = System.nanoTime() - start
+      resp match {
+        case Success(_) =>
+          intercept(_.onBodyDecoded(requestBuilder, resourcePath, responseBytes, elapsed))
+          intercept(_.onComplete(requestBuilder, resourcePath, response.getStatusCode, elapsed))
+        case Failure(t) =>
+          intercept(_.onFailure(requestBuilder, resourcePath, t, elapsed))
       }
-    )
+      promise.complete(resp)
+      null
+    }
+
+    override def onThrowable(t: Throwable): Unit = {
+      super.onThrowable(t)
+      val elapsed = System.nanoTime() - start
+      intercept(_.onFailure(requestBuilder, resourcePath, t, elapsed))
+      promise.failure(t)
+      ()
+    }
+
+  }
+
+  /**
+    * The handler of a streamed response. A 2xx response is handed over as soon as its headers are in, its elements are parsed from the
+    * body parts while they come in. The body of any other response is collected and handed over as the string body.
+    *
+    * The start of the array is read on the streaming pool, never on the ning I/O thread, because reading the stream on the I/O thread
+    * would wait for body parts that only that thread can deliver. The I/O thread doesn't wait for the consumer either: when the consumer
+    * closes the stream or falls too far behind, the rest of the body is aborted.
+    */
+  private class StreamingHandler[E](requestBuilder: RequestBuilder, requestBytes: Long, promise: Promise[Response[JsonArrayStream[E]]])(
+      implicit reads: Reads[E])
+      extends AsyncHandler[Unit] {
+
+    private val resourcePath                          = requestBuilder.resourcePathTemplate
+    private val start                                 = System.nanoTime()
+    private var statusCode: Int                       = 0
+    private var headers: Map[String, List[String]]    = Map.empty
+    private var responseCharset: String               = config.responseCharset.displayName
+    private var stream: Option[Ning19BodyInputStream] = None
+    private val errorBody                             = new ByteArrayOutputStream()
+    private var responseBytes: Long                   = 0L
+
+    intercept(_.onRequestStart(requestBuilder, resourcePath, requestBytes))
+
+    override def onStatusReceived(status: HttpResponseStatus): STATE = {
+      statusCode = status.getStatusCode
+      STATE.CONTINUE
+    }
+
+    override def onHeadersReceived(responseHeaders: HttpResponseHeaders): STATE = {
+      headers         = toHeaderMap(responseHeaders)
+      responseCharset = getResponseCharsetFromHeaders(headers).getOrElse(config.responseCharset.displayName)
+      intercept(_.onHeadersReceived(requestBuilder, resourcePath, statusCode, headers, System.nanoTime() - start))
+      if (statusCode >= 200 && statusCode < 300) {
+        val body = new Ning19BodyInputStream(config.streamingBufferBytes)
+        stream = Some(body)
+        val charset = Charset.forName(responseCharset)
+        promise.completeWith {
+          Future {
+            Response[JsonArrayStream[E]](statusCode, None, None, Some(JsonArrayStream[E](body, charset)), headers)
+          }(streamingContext) recoverWith {
+            case NonFatal(e) =>
+              body.close()
+              Future.failed(e)
+          }
+        }
+      }
+      STATE.CONTINUE
+    }
+
+    override def onBodyPartReceived(bodyPart: HttpResponseBodyPart): STATE = {
+      responseBytes += bodyPart.length()
+      stream match {
+        case Some(body) =>
+          if (body.offer(bodyPart.getBodyPartBytes)) STATE.CONTINUE
+          else {
+            // Close the connection, ning would read the rest of the body otherwise. Aborting doesn't call onThrowable, onCompleted
+            // reports a stream that failed.
+            bodyPart.markUnderlyingConnectionAsToBeClosed()
+            STATE.ABORT
+          }
+        case None =>
+          bodyPart.writeTo(errorBody)
+          STATE.CONTINUE
+      }
+    }
+
+    override def onCompleted(): Unit =
+      stream.flatMap(_.failureOption) match {
+        case Some(failure) => intercept(_.onFailure(requestBuilder, resourcePath, failure, System.nanoTime() - start))
+        case None =>
+          stream match {
+            case Some(body) => body.end()
+            case None =>
+              val stringBody = Some(new String(errorBody.toByteArray, responseCharset))
+              promise.trySuccess(Response[JsonArrayStream[E]](statusCode, stringBody, None, None, headers))
+          }
+          val elapsed = System.nanoTime() - start
+          intercept(_.onBodyDecoded(requestBuilder, resourcePath, responseBytes, elapsed))
+          intercept(_.onComplete(requestBuilder, resourcePath, statusCode, elapsed))
+      }
+
+    override def onThrowable(t: Throwable): Unit = {
+      intercept(_.onFailure(requestBuilder, resourcePath, t, System.nanoTime() - start))
+      stream.foreach(_.fail(t))
+      promise.tryFailure(t)
+      ()
+    }
 
-    promise.future
   }
 
-  def close(): Unit = client.close()
+  /**
+    * The handler of a download. The parts of a 2xx body are written to the target channel, the body of any other response is collected
+    * and handed over as the string body.
+    */
+  private class DownloadHandler(requestBuilder: RequestBuilder,
+                                requestBytes: Long,
+                                target: WritableByteChannel,
+                                progress: Download.Progress,
+                                promise: Promise[Response[Long]])
+      extends AsyncHandler[Unit] {
+
+    private val resourcePath                       = requestBuilder.resourcePathTemplate
+    private val start                              = System.nanoTime()
+    private var statusCode: Int                    = 0
+    private var headers: Map[String, List[String]] = Map.empty
+    private var responseCharset: String            = config.responseCharset.displayName
+    private var contentLength: Long                = -1L
+    private var downloading: Boolean               = false
+    private val errorBody                          = new ByteArrayOutputStream()
+    private var responseBytes: Long                = 0L
+    private var writeFailure: Option[Throwable]    = None
+
+    intercept(_.onRequestStart(requestBuilder, resourcePath, requestBytes))
+
+    override def onStatusReceived(status: HttpResponseStatus): STATE = {
+      statusCode = status.getStatusCode
+      STATE.CONTINUE
+    }
+
+    override def onHeadersReceived(responseHeaders: HttpResponseHeaders): STATE = {
+      headers         = toHeaderMap(responseHeaders)
+      responseCharset = getResponseCharsetFromHeaders(headers).getOrElse(config.responseCharset.displayName)
+      intercept(_.onHeadersReceived(requestBuilder, resourcePath, statusCode, headers, System.nanoTime() - start))
+      downloading   = statusCode >= 200 && statusCode < 300
+      contentLength = if (downloading) Download.contentLength(headers) else -1L
+      STATE.CONTINUE
+    }
+
+    override def onBodyPartReceived(bodyPart: HttpResponseBodyPart): STATE =
+      if (downloading) {
+        Try(Download.writeFully(bodyPart.getBodyByteBuffer, target)) match {
+          case Success(written) =>
+            responseBytes += written
+            progress(responseBytes, contentLength)
+            STATE.CONTINUE
+          case Failure(e) =>
+            // Close the connection, ning would read the rest of the body otherwise. Aborting doesn't call onThrowable, so the failure
+            // is handed over in onCompleted.
+            writeFailure = Some(e)
+            bodyPart.markUnderlyingConnectionAsToBeClosed()
+            STATE.ABORT
+        }
+      } else {
+        responseBytes += bodyPart.length()
+        bodyPart.writeTo(errorBody)
+        STATE.CONTINUE
+      }
+
+    override def onCompleted(): Unit =
+      writeFailure match {
+        case Some(failure) => onThrowable(failure)
+        case None =>
+          val response =
+            if (downloading) Response[Long](statusCode, None, None, Some(responseBytes), headers)
+            else Response[Long](statusCode, Some(new String(errorBody.toByteArray, responseCharset)), None, None, headers)
+          val elapsed = System.nanoTime() - start
+          intercept(_.onBodyDecoded(requestBuilder, resourcePath, responseBytes, elapsed))
+          intercept(_.onComplete(requestBuilder, resourcePath, statusCode, elapsed))
+          promise.trySuccess(response)
+          ()
+      }
+
+    override def onThrowable(t: Throwable): Unit = {
+      intercept(_.onFailure(requestBuilder, resourcePath, t, System.nanoTime() - start))
+      promise.tryFailure(t)
+      ()
+    }
+
+  }
+
+  /**
+    * Call all interceptors, a failing interceptor is logged and skipped, it never breaks the request.
+    */
+  private def intercept(callback: RequestInterceptor => Unit): Unit =
+    interceptors.foreach { interceptor =>
+      try {
+        callback(interceptor)
+      } catch {
+        case NonFatal(e) => LOGGER.warn(s"Request interceptor $interceptor failed.", e)
+      }
+    }
+
+  /**
+    * FluentCaseInsensitiveStringsMap is both a java Map and a java Iterable, so it needs the cast to pick the Map conversion.
+    */
+  private def toHeaderMap(headers: HttpResponseHeaders): Map[String, List[String]] =
+    headers.getHeaders.asInstanceOf[JMap[String, JList[String]]].asScala.map { case (key, values) => key -> values.asScala.toList }.toMap
+
+  /**
+    * The size of the request body when it is known up front, -1 otherwise.
+    */
+  private def requestBytes(requestBuilder: RequestBuilder, body: Option[String]): Long =
+    requestBuilder.binaryBody match {
+      case Some(ByteArrayBinaryRequest(byteArray)) => byteArray.length.toLong
+      case Some(FileBinaryRequest(file))           => file.length()
+      case Some(_)                                 => -1L
+      case None =>
+        if (body.isDefined || requestBuilder.formParameters.nonEmpty || requestBuilder.multipartParams.nonEmpty) -1L
+        else 0L
+    }
+
+  def close(): Unit = {
+    client.close()
+    streamingExecutor.shutdown()
+  }
 
   private def applyConfiguration(builder: AsyncHttpClientConfig.Builder): AsyncHttpClientConfig.Builder = {
     builder.setReadTimeout(config.readTimeout)
@@ -284,6 +817,7 @@ case class Ning19Client(protocol: String,
     builder.setFollowRedirect(config.followRedirect)
     builder.setMaxRedirects(config.maxRedirects)
     builder.setStrict302Handling(config.strict302Handling)
+    builder.setCompressionEnforced(config.compression.exists(_.acceptCompressedResponses))
   }
 
   private[ning] def getResponseCharsetFromHeaders(headers: Map[String, List[String]]): Option[String] = {
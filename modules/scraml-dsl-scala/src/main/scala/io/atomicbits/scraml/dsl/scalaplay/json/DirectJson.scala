@@ -0,0 +1,94 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.json
+
+import play.api.libs.json._
+
+import scala.collection.mutable.ListBuffer
+
+/**
+  * Support for the generated formats that read and write the fields of a case class directly, without the functional builder
+  * combinators and the (nested) tuples they build for each object.
+  */
+object DirectJson {
+
+  val expectedObject: JsError = JsError("error.expected.jsobject")
+
+  /**
+    * Reads the fields of a JSON object one by one and collects the errors of all fields that could not be read. A field that could not be
+    * read is returned as null (or None), so the result may only be used when isValid is true.
+    */
+  final class FieldReader(json: JsObject) {
+
+    private val fields = json.value
+
+    private var errors: List[(JsPath, collection.Seq[JsonValidationError])] = Nil
+
+    def required[T](name: String, reads: Reads[T]): T =
+      fields.get(name) match {
+        case Some(value) => read(name, value, reads)
+        case None =>
+          errors = (JsPath \ name, List(JsonValidationError("error.path.missing"))) :: errors
+          null.asInstanceOf[T]
+      }
+
+    def optional[T](name: String, reads: Reads[T]): Option[T] =
+      fields.get(name) match {
+        case None | Some(JsNull) => None
+        case Some(value)         => Some(read(name, value, reads))
+      }
+
+    def isValid: Boolean = errors.isEmpty
+
+    def failure: JsError = JsError(errors.reverse)
+
+    private def read[T](name: String, value: JsValue, reads: Reads[T]): T =
+      reads.reads(value) match {
+        case JsSuccess(result, _) => result
+        case JsError(valueErrors) =>
+          errors = valueErrors.foldLeft(errors) {
+            case (collected, (path, pathErrors)) => ((JsPath \ name) ++ path, pathErrors) :: collected
+          }
+          null.asInstanceOf[T]
+      }
+
+  }
+
+  /**
+    * Writes the fields of a JSON object in the order in which they are added, leaving out the optional fields that are None.
+    */
+  final class FieldWriter {
+
+    private val fields = ListBuffer.empty[(String, JsValue)]
+
+    def required[T](name: String, value: T, writes: Writes[T]): Unit = fields += name -> writes.writes(value)
+
+    def optional[T](name: String, value: Option[T], writes: Writes[T]): Unit =
+      value match {
+        case Some(present) => fields += name -> writes.writes(present)
+        case None          =>
+      }
+
+    def result: JsObject = JsObject(fields.toList)
+
+  }
+
+}
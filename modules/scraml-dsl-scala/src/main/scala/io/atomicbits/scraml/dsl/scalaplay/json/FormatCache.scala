@@ -0,0 +1,63 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.json
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+  * Caches the format of a type-parameterised class for each combination of formats of its type parameters, so that the format is only
+  * built once instead of each time it is resolved implicitly. The type parameter formats are compared by identity. The cache is cleared
+  * when it reaches its maximum size, which only happens when the type parameter formats themselves are built over and over again.
+  */
+final class FormatCache(maxSize: Int = 256) {
+
+  private val formats = new ConcurrentHashMap[FormatCache.Key, AnyRef]()
+
+  def apply[F <: AnyRef](typeParameterFormats: AnyRef*)(create: => F): F = {
+    val key    = new FormatCache.Key(typeParameterFormats)
+    val cached = formats.get(key)
+    if (cached != null) {
+      cached.asInstanceOf[F]
+    } else {
+      if (formats.size >= maxSize) formats.clear()
+      val created = create
+      val raced   = formats.putIfAbsent(key, created)
+      if (raced != null) raced.asInstanceOf[F] else created
+    }
+  }
+
+}
+
+object FormatCache {
+
+  private final class Key(val typeParameterFormats: Seq[AnyRef]) {
+
+    override def hashCode: Int = typeParameterFormats.foldLeft(1)((hash, format) => 31 * hash + System.identityHashCode(format))
+
+    override def equals(other: Any): Boolean =
+      other match {
+        case that: Key => typeParameterFormats.corresponds(that.typeParameterFormats)(_ eq _)
+        case _         => false
+      }
+
+  }
+
+}
@@ -0,0 +1,94 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.json
+
+import java.io.{ InputStream, InputStreamReader }
+import java.nio.charset.{ Charset, StandardCharsets }
+
+import com.fasterxml.jackson.core.{ JsonParser, JsonToken }
+import com.fasterxml.jackson.databind.{ JsonNode, ObjectMapper }
+import play.api.libs.json._
+import play.api.libs.json.jackson.PlayJsonModule
+
+/**
+  * The elements of a JSON array, parsed one by one from the Jackson tokens while the array is read. Only the element that is being
+  * parsed is held in memory, so the memory use doesn't depend on the size of the array.
+  *
+  * The stream is closed when the last element is read. Close it when it isn't read to the end, it holds on to the underlying input.
+  */
+class JsonArrayStream[E](parser: JsonParser)(implicit reads: Reads[E]) extends Iterator[E] with AutoCloseable {
+
+  private var done: Boolean = parser.nextToken() match {
+    case JsonToken.START_ARRAY => false
+    case null                  => parser.close(); true // an empty body is an empty array
+    case token =>
+      parser.close()
+      throw new IllegalArgumentException(s"Expected a JSON array, but the response starts with $token.")
+  }
+
+  private var peeked: Boolean = false
+
+  def hasNext: Boolean = {
+    if (!done && !peeked) {
+      parser.nextToken() match {
+        case JsonToken.END_ARRAY | null => close()
+        case _                          => peeked = true
+      }
+    }
+    !done
+  }
+
+  def next(): E = {
+    if (!hasNext) throw new NoSuchElementException("The JSON array has no more elements.")
+    peeked = false
+    // Play's deserializer reads one token past the value, which would swallow the start of the next element. Jackson's tree
+    // deserializer stops at the end of the element.
+    val tree: JsonNode = JsonArrayStream.mapper.readTree(parser)
+    val element        = JsonArrayStream.mapper.treeToValue(tree, classOf[JsValue])
+    reads.reads(element) match {
+      case JsSuccess(value, _) => value
+      case JsError(errors) =>
+        val validationMessages = errors.flatMap { case (path, pathErrors) => pathErrors.map(error => s"$path -> ${error.message}") }
+        throw new IllegalArgumentException(s"JSON validation error in a streamed array element: ${validationMessages.mkString(", ")}")
+    }
+  }
+
+  def close(): Unit = {
+    done = true
+    parser.close()
+  }
+
+}
+
+object JsonArrayStream {
+
+  private val mapper: ObjectMapper = new ObjectMapper().registerModule(new PlayJsonModule(JsonParserSettings()))
+
+  def apply[E: Reads](body: InputStream, charset: Charset): JsonArrayStream[E] = {
+    val parser =
+      if (charset == StandardCharsets.UTF_8) mapper.getFactory.createParser(body)
+      else mapper.getFactory.createParser(new InputStreamReader(body, charset))
+    new JsonArrayStream[E](parser)
+  }
+
+  def apply[E: Reads](body: String): JsonArrayStream[E] = new JsonArrayStream[E](mapper.getFactory.createParser(body))
+
+}
@@ -54,9 +54,11 @@ object TypedJson {
     */
   case class TypeHint[T](typeHint: String, format: Format[T])(implicit classTag: ClassTag[T]) {
 
-    def canWrite(obj: Any): Boolean = {
-      obj.getClass.isAssignableFrom(classTag.runtimeClass)
-    }
+    private val typeHintValue: JsString = JsString(typeHint)
+
+    def canWrite(obj: Any): Boolean = canWriteClass(obj.getClass)
+
+    def canWriteClass(clazz: Class[_]): Boolean = clazz.isAssignableFrom(classTag.runtimeClass)
 
     def uncheckedWrites(typeHintKey: String, obj: Any) = writes(typeHintKey, obj.asInstanceOf[T])
 
@@ -65,7 +67,7 @@ object TypedJson {
 
       jsValue match {
         // toevoegen van type informatie
-        case jsObject: JsObject => Json.obj(typeHintKey -> typeHint) ++ jsObject
+        case jsObject: JsObject => JsObject(List(typeHintKey -> typeHintValue)) ++ jsObject
         // het heeft geen zin om een type discriminator toe te voegen op een 'primitive' JsValue
         case js => js
       }
@@ -95,8 +97,21 @@ object TypedJson {
 
     require(typeHintFormats.map(_.typeHint).toSet.size == typeHintFormats.size, "Duplicate type hints in the passed typeHintFormats")
 
+    /**
+      * The formats indexed by their type hint, so that reading doesn't have to search through all formats of a large hierarchy.
+      */
+    private val formatsByTypeHint: Map[String, TypeHint[_ <: A]] = typeHintFormats.map(format => format.typeHint -> format).toMap
+
+    /**
+      * The format that writes each runtime class, looked up once per class.
+      */
+    private val formatsByClass: ClassValue[Option[TypeHint[_ <: A]]] =
+      new ClassValue[Option[TypeHint[_ <: A]]] {
+        override def computeValue(clazz: Class[_]): Option[TypeHint[_ <: A]] = typeHintFormats.find(_.canWriteClass(clazz))
+      }
+
     override def writes(obj: A): JsValue = {
-      val formatOpt = typeHintFormats.find(_.canWrite(obj))
+      val formatOpt = formatsByClass.get(obj.getClass)
 
       formatOpt match {
         case Some(typedFormat) => typedFormat.uncheckedWrites(typeHintKey, obj)
@@ -119,7 +134,7 @@ object TypedJson {
             s"Expected a field named $typeHintKey in the json to use as typeHint. Now I do not now what Format to use to read the json."
           )
         case Some(typeHint) =>
-          val formatOpt = typeHintFormats.find(_.typeHint == typeHint)
+          val formatOpt = formatsByTypeHint.get(typeHint)
 
           formatOpt match {
             case Some(typedFormat) => typedFormat.reads(json)
@@ -0,0 +1,100 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client
+
+import org.scalatest.GivenWhenThen
+import org.scalatest.featurespec.AnyFeatureSpec
+
+import scala.collection.mutable
+
+class AdaptiveConcurrencyLimiterTest extends AnyFeatureSpec with GivenWhenThen {
+
+  val rttNanos: Long = 1000000L
+
+  Feature("Adapting the concurrency limit to the round trip time") {
+
+    Scenario("the limit grows up to the maximum while the round trip time is stable") {
+
+      Given("a limiter with a limit of 2 and a maximum of 10")
+      val limiter = new AdaptiveConcurrencyLimiter(initialLimit = 2, minLimit = 1, maxLimit = 10, maxQueueSize = 0)
+
+      When("the whole limit is used over and over with the same round trip time")
+      (1 to 200).foreach { _ =>
+        val limit = limiter.currentLimit
+        (1 to limit).foreach(_ => assert(limiter.submit(() => ())))
+        (1 to limit).foreach(_ => limiter.release(rttNanos, dropped = false))
+      }
+
+      Then("the limit reaches the maximum")
+      assert(limiter.currentLimit == 10)
+      assert(limiter.inFlight == 0)
+    }
+
+    Scenario("the limit backs off when the round trip time inflates or a request is dropped") {
+
+      Given("a limiter that halves its limit on congestion")
+      val limiter = new AdaptiveConcurrencyLimiter(initialLimit = 10, minLimit = 3, maxLimit = 100, maxQueueSize = 0, backoffRatio = 0.5)
+      limiter.submit(() => ())
+      limiter.release(rttNanos, dropped = false)
+
+      When("a request takes more than twice the minimum round trip time")
+      limiter.submit(() => ())
+      limiter.release(3 * rttNanos, dropped = false)
+
+      Then("the limit is halved")
+      assert(limiter.currentLimit == 5)
+
+      When("requests are dropped (on a failure, 429 or 503)")
+      (1 to 5).foreach { _ =>
+        limiter.submit(() => ())
+        limiter.release(rttNanos, dropped = true)
+      }
+
+      Then("the limit drops to the minimum and no further")
+      assert(limiter.currentLimit == 3)
+    }
+
+    Scenario("queued requests run as others complete and requests are rejected when the queue is full") {
+
+      Given("a limiter with a fixed limit of 1 and room for 2 queued requests")
+      val limiter = new AdaptiveConcurrencyLimiter(initialLimit = 1, minLimit = 1, maxLimit = 1, maxQueueSize = 2)
+      val started = mutable.Buffer.empty[String]
+
+      When("four requests are submitted")
+      val accepted = List("first", "second", "third", "rejected").map(name => limiter.submit(() => started += name))
+
+      Then("the first one runs, two are queued and the last one is rejected")
+      assert(accepted == List(true, true, true, false))
+      assert(started == List("first"))
+      assert(limiter.queueDepth == 2)
+      assert(limiter.rejected == 1)
+
+      When("the running requests complete")
+      (1 to 3).foreach(_ => limiter.release(rttNanos, dropped = false))
+
+      Then("the queued requests ran in order")
+      assert(started == List("first", "second", "third"))
+      assert(limiter.queueDepth == 0)
+      assert(limiter.inFlight == 0)
+    }
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client
+
+import io.atomicbits.scraml.dsl.scalaplay.Get
+import io.atomicbits.scraml.dsl.scalaplay.client.CircuitBreaker.{ Closed, HalfOpen, Open, State }
+import org.scalatest.GivenWhenThen
+import org.scalatest.featurespec.AnyFeatureSpec
+
+import scala.util.Try
+
+class CircuitBreakerTest extends AnyFeatureSpec with GivenWhenThen {
+
+  val host = "localhost:8080"
+
+  Feature("Opening and closing circuits") {
+
+    Scenario("a circuit opens when the failure rate reaches the threshold") {
+
+      Given("a circuit breaker that judges a circuit on its last four calls")
+      val circuitBreaker = newCircuitBreaker()
+
+      When("two out of three calls fail")
+      recordSuccess(circuitBreaker)
+      recordFailure(circuitBreaker)
+      recordFailure(circuitBreaker)
+
+      Then("the circuit stays closed until it has seen four calls")
+      assert(stateOf(circuitBreaker) == Closed)
+      recordSuccess(circuitBreaker)
+      assert(stateOf(circuitBreaker) == Open)
+      assert(rejected(circuitBreaker))
+    }
+
+    Scenario("an open circuit lets probes through after the open duration and closes when they all succeed") {
+
+      Given("an open circuit")
+      val circuitBreaker = newCircuitBreaker()
+      open(circuitBreaker)
+
+      When("the open duration has passed")
+      Thread.sleep(circuitBreaker.openDurationMillis + 20)
+
+      Then("two probes are let through and the circuit is half-open")
+      val probes = List.fill(2)(circuitBreaker.acquire(host, Get, "/users"))
+      assert(stateOf(circuitBreaker) == HalfOpen)
+      assert(rejected(circuitBreaker))
+
+      When("both probes succeed")
+      probes.foreach(_.onSuccess())
+
+      Then("the circuit is closed")
+      assert(stateOf(circuitBreaker) == Closed)
+    }
+
+    Scenario("a failing probe opens the circuit again") {
+
+      Given("a half-open circuit")
+      val circuitBreaker = newCircuitBreaker()
+      open(circuitBreaker)
+      Thread.sleep(circuitBreaker.openDurationMillis + 20)
+      val probes = List.fill(2)(circuitBreaker.acquire(host, Get, "/users"))
+
+      When("the first probe fails")
+      probes.head.onFailure()
+
+      Then("the circuit is open and the outcome of the other probe no longer counts")
+      assert(stateOf(circuitBreaker) == Open)
+      probes(1).onSuccess()
+      assert(stateOf(circuitBreaker) == Open)
+      assert(rejected(circuitBreaker))
+    }
+
+    Scenario("a window smaller than the minimum number of calls is rejected") {
+
+      Then("a window of 5 calls with the default minimum of 10 calls is rejected")
+      assert(Try(new CircuitBreaker(windowSize = 5)).failed.toOption.exists(_.isInstanceOf[IllegalArgumentException]))
+      assert(Try(new CircuitBreaker(windowSize = 5, minimumCalls = 5)).isSuccess)
+    }
+  }
+
+  def newCircuitBreaker(): CircuitBreaker =
+    new CircuitBreaker(windowSize = 4, minimumCalls = 4, failureRateThreshold = 50, openDurationMillis = 50, halfOpenCalls = 2)
+
+  def open(circuitBreaker: CircuitBreaker): Unit = {
+    (1 to 4).foreach(_ => recordFailure(circuitBreaker))
+    assert(stateOf(circuitBreaker) == Open)
+  }
+
+  def recordSuccess(circuitBreaker: CircuitBreaker): Unit = circuitBreaker.acquire(host, Get, "/users").onSuccess()
+
+  def recordFailure(circuitBreaker: CircuitBreaker): Unit = circuitBreaker.acquire(host, Get, "/users").onFailure()
+
+  def rejected(circuitBreaker: CircuitBreaker): Boolean =
+    Try(circuitBreaker.acquire(host, Get, "/users")).failed.toOption.exists(_.isInstanceOf[CircuitBreakerOpenException])
+
+  def stateOf(circuitBreaker: CircuitBreaker): State = circuitBreaker.states(host)
+
+}
@@ -0,0 +1,132 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client
+
+import java.io.IOException
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.{ ConcurrentLinkedQueue, CountDownLatch }
+
+import io.atomicbits.scraml.dsl.scalaplay.Response
+import org.scalatest.GivenWhenThen
+import org.scalatest.featurespec.AnyFeatureSpec
+
+import scala.collection.JavaConverters._
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration._
+import scala.concurrent.{ Await, Future, Promise }
+import scala.util.Try
+
+class RequestCoalescerTest extends AnyFeatureSpec with GivenWhenThen {
+
+  val callers = 16
+
+  Feature("Coalescing concurrent identical requests") {
+
+    Scenario("concurrent callers share one request and the key is released when it completes") {
+
+      Given("a request coalescer and an exchange that is still in flight")
+      val coalescer = new RequestCoalescer
+      val exchange  = Promise[Response[String]]()
+      val requests  = new AtomicInteger()
+
+      When("many callers ask for the same key at the same time")
+      val results = callConcurrently(coalescer, "GET /users") { () =>
+        requests.incrementAndGet()
+        exchange.future
+      }
+
+      Then("only one request is sent")
+      assert(requests.get() == 1)
+      assert(coalescer.executed == 1)
+      assert(coalescer.coalesced == callers - 1)
+
+      When("the exchange completes")
+      val users = response("users")
+      exchange.success(users)
+
+      Then("every caller gets the response and the key is released")
+      results.foreach(result => assert(Await.result(result, 5.seconds) == users))
+      eventually(coalescer.inFlightCount == 0)
+
+      val next = coalescer.execute("GET /users") { () =>
+        requests.incrementAndGet()
+        Future.successful(response("again"))
+      }
+      assert(Await.result(next, 5.seconds).stringBody.contains("again"))
+      assert(requests.get() == 2)
+    }
+
+    Scenario("a failure reaches every caller and releases the key") {
+
+      Given("a request coalescer and an exchange that is still in flight")
+      val coalescer = new RequestCoalescer
+      val exchange  = Promise[Response[String]]()
+
+      When("many callers ask for the same key and the exchange fails")
+      val results = callConcurrently(coalescer, "GET /users")(() => exchange.future)
+      exchange.failure(new IOException("Connection reset"))
+
+      Then("every caller sees the failure")
+      results.foreach { result =>
+        assert(Try(Await.result(result, 5.seconds)).failed.toOption.exists(_.isInstanceOf[IOException]))
+      }
+
+      And("the key is released, also when the request fails before it returns a future")
+      eventually(coalescer.inFlightCount == 0)
+      val thrown = coalescer.execute[String]("GET /users")(() => throw new IllegalStateException("Cannot build the request"))
+      assert(Try(Await.result(thrown, 5.seconds)).isFailure)
+      eventually(coalescer.inFlightCount == 0)
+    }
+  }
+
+  /**
+    * Let all callers call the coalescer at the same time, each from its own thread.
+    */
+  def callConcurrently(coalescer: RequestCoalescer, key: String)(
+      request: () => Future[Response[String]]): List[Future[Response[String]]] = {
+    val start   = new CountDownLatch(1)
+    val results = new ConcurrentLinkedQueue[Future[Response[String]]]()
+    val threads = (1 to callers).map { _ =>
+      new Thread(new Runnable {
+        override def run(): Unit = {
+          start.await()
+          results.add(coalescer.execute(key)(request))
+        }
+      })
+    }
+    threads.foreach(_.start())
+    start.countDown()
+    threads.foreach(_.join(5000))
+    results.asScala.toList
+  }
+
+  /**
+    * The key is released by a callback on the exchange, which runs on the execution context.
+    */
+  def eventually(condition: => Boolean): Unit = {
+    val deadline = System.currentTimeMillis() + 5000
+    while (!condition && System.currentTimeMillis() < deadline) Thread.sleep(5)
+    assert(condition)
+  }
+
+  def response(body: String): Response[String] = Response(status = 200, stringBody = Some(body), body = Some(body))
+
+}
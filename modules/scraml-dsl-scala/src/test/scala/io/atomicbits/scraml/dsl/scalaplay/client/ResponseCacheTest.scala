@@ -0,0 +1,155 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client
+
+import java.time.format.DateTimeFormatter
+import java.time.{ ZoneOffset, ZonedDateTime }
+
+import io.atomicbits.scraml.dsl.scalaplay.{ HeaderMap, Response }
+import org.scalatest.GivenWhenThen
+import org.scalatest.featurespec.AnyFeatureSpec
+
+class ResponseCacheTest extends AnyFeatureSpec with GivenWhenThen {
+
+  val noHeaders: HeaderMap = HeaderMap()
+
+  Feature("Keeping responses according to their cache headers") {
+
+    Scenario("fresh responses are kept for their max-age or until they expire") {
+
+      Given("a response cache")
+      val cache = new ResponseCache()
+
+      When("responses with a max-age, an Expires date in the future and one in the past are stored")
+      val maxAge = response("max-age", "Cache-Control" -> "max-age=60")
+      cache.store("max-age", noHeaders, maxAge, 100)
+      cache.store("expires", noHeaders, response("expires", "Expires" -> httpDate(now.plusMinutes(1))), 100)
+      cache.store("expired", noHeaders, response("expired", "Expires" -> httpDate(now.minusMinutes(1))), 100)
+
+      Then("the fresh responses are hits and the expired one is not kept")
+      assert(cache.lookup("max-age", noHeaders).map(_.response).contains(maxAge))
+      assert(cache.lookup("expires", noHeaders).exists(_.isFresh))
+      assert(cache.lookup("expired", noHeaders).isEmpty)
+      assert(cache.hits == 2)
+      assert(cache.misses == 1)
+    }
+
+    Scenario("no-store responses are never kept") {
+
+      Given("a response cache")
+      val cache = new ResponseCache()
+
+      When("a no-store response is stored")
+      cache.store("key", noHeaders, response("secret", "Cache-Control" -> "no-store, max-age=60"), 100)
+
+      Then("it is not kept")
+      assert(cache.entryCount == 0)
+      assert(cache.lookup("key", noHeaders).isEmpty)
+    }
+
+    Scenario("stale responses with an ETag or Last-Modified are revalidated and reused on a 304") {
+
+      Given("a cache with a response that must be revalidated on every use")
+      val cache  = new ResponseCache()
+      val tagged = response("tagged", "Cache-Control" -> "no-cache", "ETag" -> "\"v1\"")
+      cache.store("etag", noHeaders, tagged, 100)
+      val lastModified = httpDate(now.minusDays(1))
+      cache.store("last-modified", noHeaders, response("dated", "Last-Modified" -> lastModified), 100)
+
+      When("the responses are looked up")
+      val stale = cache.lookup("etag", noHeaders)
+
+      Then("they come back as stale entries with their validators")
+      assert(stale.exists(entry => !entry.isFresh && entry.etag.contains("\"v1\"")))
+      assert(cache.lookup("last-modified", noHeaders).exists(_.lastModified.contains(lastModified)))
+      assert(cache.revalidations == 2)
+
+      When("the server answers the revalidation with a 304 and a new lifetime")
+      stale.foreach(cache.notModified(_, Map("Cache-Control" -> List("max-age=60"))))
+
+      Then("the cached response is fresh again")
+      val revalidated = cache.lookup("etag", noHeaders)
+      assert(revalidated.exists(_.isFresh))
+      assert(revalidated.map(_.response).contains(tagged))
+      assert(cache.notModifiedResponses == 1)
+    }
+
+    Scenario("responses that vary on request headers are only reused for the same header values") {
+
+      Given("a cache with a response that varies on Accept")
+      val cache = new ResponseCache()
+      val varying = response("json", "Cache-Control" -> "max-age=60", "Vary" -> "Accept")
+      cache.store("key", HeaderMap() + ("Accept" -> "application/json"), varying, 100)
+
+      Then("a request with the same Accept header gets it, a request with another one doesn't")
+      assert(cache.lookup("key", HeaderMap() + ("accept" -> "application/json")).isDefined)
+      assert(cache.lookup("key", HeaderMap() + ("Accept" -> "text/plain")).isEmpty)
+    }
+
+    Scenario("responses to requests with credentials are only kept when they are shareable") {
+
+      Given("a cache")
+      val cache = new ResponseCache()
+      val alice = HeaderMap() + ("authorization" -> "Bearer alice")
+
+      When("responses to a request with an Authorization header are stored")
+      cache.store("private", alice, response("private", "Cache-Control" -> "max-age=60"), 100)
+      cache.store("tagged", alice, response("tagged", "Cache-Control" -> "no-cache", "ETag" -> "\"v1\""), 100)
+      cache.store("public", alice, response("public", "Cache-Control" -> "public, max-age=60"), 100)
+      cache.store("shared", alice, response("shared", "Cache-Control" -> "s-maxage=60, max-age=60"), 100)
+
+      Then("only the public and s-maxage responses are reused, also for other credentials")
+      val bob = HeaderMap() + ("Authorization" -> "Bearer bob")
+      assert(cache.entryCount == 2)
+      assert(cache.lookup("public", bob).isDefined)
+      assert(cache.lookup("shared", bob).isDefined)
+      assert(cache.lookup("private", bob).isEmpty)
+    }
+
+    Scenario("the least recently used entries are evicted beyond the maximum size") {
+
+      Given("a cache with room for three entries of 100 bytes")
+      val cache = new ResponseCache(maxBytes = 3 * 356)
+      List("a", "b", "c").foreach(key => cache.store(key, noHeaders, response(key, "Cache-Control" -> "max-age=60"), 100))
+
+      When("the first entry is used and a fourth one is stored")
+      assert(cache.lookup("a", noHeaders).isDefined)
+      cache.store("d", noHeaders, response("d", "Cache-Control" -> "max-age=60"), 100)
+
+      Then("the least recently used entry is evicted")
+      assert(cache.evictions == 1)
+      assert(cache.entryCount == 3)
+      assert(cache.lookup("b", noHeaders).isEmpty)
+      assert(cache.lookup("a", noHeaders).isDefined)
+    }
+  }
+
+  def now: ZonedDateTime = ZonedDateTime.now(ZoneOffset.UTC)
+
+  def httpDate(dateTime: ZonedDateTime): String = DateTimeFormatter.RFC_1123_DATE_TIME.format(dateTime)
+
+  def response(body: String, headers: (String, String)*): Response[String] =
+    Response(status     = 200,
+             stringBody = Some(body),
+             body       = Some(body),
+             headers    = headers.map { case (name, value) => name -> List(value) }.toMap)
+
+}
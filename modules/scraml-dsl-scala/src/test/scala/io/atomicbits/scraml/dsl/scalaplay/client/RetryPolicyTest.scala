@@ -0,0 +1,136 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client
+
+import java.time.format.DateTimeFormatter
+import java.time.{ ZoneOffset, ZonedDateTime }
+import java.util.concurrent.atomic.AtomicInteger
+
+import io.atomicbits.scraml.dsl.scalaplay.{ Get, Response }
+import org.scalatest.GivenWhenThen
+import org.scalatest.featurespec.AnyFeatureSpec
+
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration._
+import scala.concurrent.{ Await, Future, Promise }
+
+class RetryPolicyTest extends AnyFeatureSpec with GivenWhenThen {
+
+  Feature("Retrying failed requests") {
+
+    Scenario("the backoff stays below the exponential ceiling") {
+
+      Given("a retry policy with a backoff from 10 ms up to 100 ms")
+      val retryPolicy = new RetryPolicy(maxRetries = 5, initialBackoffMillis = 10, maxBackoffMillis = 100)
+
+      Then("every backoff lies between 0 and the ceiling of its attempt")
+      (1 to 40).foreach { attempt =>
+        val ceiling  = math.min(100L, 10L << math.min(attempt - 1, 30))
+        val backoffs = (1 to 1000).map(_ => retryPolicy.jitteredBackoffMillis(attempt))
+        assert(backoffs.forall(backoff => backoff >= 0 && backoff <= ceiling))
+        assert(backoffs.max > ceiling / 2)
+      }
+    }
+
+    Scenario("the Retry-After header is read in seconds and as an HTTP date") {
+
+      Then("a delay in seconds is converted to milliseconds")
+      assert(RetryPolicy.retryAfterMillis(Map("retry-after" -> List("3"))) == Some(3000L))
+
+      Then("an HTTP date is converted to the time until that date")
+      val inTenSeconds = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(10))
+      val delay        = RetryPolicy.retryAfterMillis(Map("Retry-After" -> List(inTenSeconds)))
+      assert(delay.exists(millis => millis > 8000 && millis <= 10000))
+
+      Then("an unreadable or absent header gives no delay")
+      assert(RetryPolicy.retryAfterMillis(Map("Retry-After" -> List("soon"))).isEmpty)
+      assert(RetryPolicy.retryAfterMillis(Map.empty).isEmpty)
+    }
+
+    Scenario("a response whose Retry-After exceeds the maximum backoff is returned as is") {
+
+      Given("a retry policy with a maximum backoff of 2 seconds")
+      val retryPolicy = new RetryPolicy(maxRetries = 2, initialBackoffMillis = 1, maxBackoffMillis = 2000)
+      val attempts    = new Attempts(response(503, Map("Retry-After" -> List("10"))), response(200))
+
+      When("the server asks to retry after 10 seconds")
+      val result = Await.result(retryPolicy.execute(Get, "/users")(attempts), 5.seconds)
+
+      Then("the response is returned without a retry")
+      assert(result.status == 503)
+      assert(attempts.count.get() == 1)
+    }
+
+    Scenario("a Retry-After within the maximum backoff replaces the backoff") {
+
+      Given("a retry policy whose regular backoff takes a minute")
+      val retryPolicy = new RetryPolicy(maxRetries = 1, initialBackoffMillis = 60000, maxBackoffMillis = 60000)
+      val attempts    = new Attempts(response(429, Map("Retry-After" -> List("0"))), response(200))
+
+      When("the server asks to retry right away")
+      val result = Await.result(retryPolicy.execute(Get, "/users")(attempts), 5.seconds)
+
+      Then("the request is retried without the regular backoff")
+      assert(result.status == 200)
+      assert(attempts.count.get() == 2)
+    }
+  }
+
+  Feature("Hedging slow requests") {
+
+    Scenario("the first good response wins") {
+
+      Given("a hedging retry policy that has seen enough fast responses")
+      val retryPolicy = new RetryPolicy(maxRetries = 0, hedging = true, minHedgeDelayMillis = 5)
+      (1 to 20).foreach { _ =>
+        Await.result(retryPolicy.execute(Get, "/users")(() => Future.successful(response(200))), 5.seconds)
+      }
+
+      When("the first request hangs and the hedged one answers")
+      val slow     = Promise[Response[String]]()
+      val attempts = new Attempts(slow.future, Future.successful(response(200, "hedged")))
+      val result   = Await.result(retryPolicy.execute(Get, "/users")(attempts), 5.seconds)
+
+      Then("the hedged response is returned")
+      assert(result.body.contains("hedged"))
+      assert(attempts.count.get() == 2)
+      slow.success(response(200, "slow"))
+    }
+  }
+
+  /**
+    * Hands out the given results, one per attempt, and counts the attempts.
+    */
+  class Attempts(results: Future[Response[String]]*) extends (() => Future[Response[String]]) {
+
+    val count = new AtomicInteger()
+
+    def this(first: Response[String], others: Response[String]*) = this((first +: others).map(Future.successful): _*)
+
+    override def apply(): Future[Response[String]] = results(math.min(count.getAndIncrement(), results.size - 1))
+  }
+
+  def response(status: Int, headers: Map[String, List[String]] = Map.empty): Response[String] =
+    Response(status = status, stringBody = None, headers = headers)
+
+  def response(status: Int, body: String): Response[String] = Response(status = status, stringBody = Some(body), body = Some(body))
+
+}
@@ -0,0 +1,78 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client.metrics
+
+import java.util.concurrent.TimeUnit
+
+import org.scalatest.GivenWhenThen
+import org.scalatest.featurespec.AnyFeatureSpec
+
+class LatencyHistogramTest extends AnyFeatureSpec with GivenWhenThen {
+
+  Feature("Recording latencies in power-of-two buckets") {
+
+    Scenario("latencies fall in the bucket of their power of two in microseconds") {
+
+      Given("the bucket boundaries")
+      Then("a latency in [2^(i-1), 2^i) microseconds falls in bucket i")
+      assert(LatencyHistogram.bucketOf(0) == 0)
+      assert(LatencyHistogram.bucketOf(1) == 1)
+      assert(LatencyHistogram.bucketOf(2) == 2)
+      assert(LatencyHistogram.bucketOf(3) == 2)
+      assert(LatencyHistogram.bucketOf(4) == 3)
+      assert(LatencyHistogram.bucketOf(1000) == 10)
+      assert(LatencyHistogram.bucketOf(Long.MaxValue) == LatencyHistogram.Buckets - 1)
+
+      When("a latency below a microsecond, one of a millisecond and one of an hour are recorded")
+      val histogram = new LatencyHistogram
+      histogram.record(500L)
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(1))
+      histogram.record(TimeUnit.HOURS.toNanos(1))
+
+      Then("they are counted in the first bucket, bucket 10 and the last bucket")
+      assert(histogram.count(0) == 1)
+      assert(histogram.count(10) == 1)
+      assert(histogram.count(LatencyHistogram.Buckets - 1) == 1)
+      assert(histogram.totalCount == 3)
+    }
+
+    Scenario("a percentile is the upper bound of the bucket that holds it") {
+
+      Given("an empty histogram")
+      val histogram = new LatencyHistogram
+      assert(histogram.percentileMicros(50) == 0)
+
+      When("90 latencies of 100 microseconds and 10 of 5 milliseconds are recorded")
+      (1 to 90).foreach(_ => histogram.record(TimeUnit.MICROSECONDS.toNanos(100)))
+      (1 to 10).foreach(_ => histogram.record(TimeUnit.MICROSECONDS.toNanos(5000)))
+
+      Then("the percentiles up to 90 are 128 microseconds and the ones above are 8192 microseconds")
+      assert(histogram.percentileMicros(0) == 128)
+      assert(histogram.percentileMicros(50) == 128)
+      assert(histogram.percentileMicros(90) == 128)
+      assert(histogram.percentileMicros(91) == 8192)
+      assert(histogram.percentileMicros(99) == 8192)
+      assert(histogram.percentileMicros(100) == 8192)
+    }
+
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.dsl.scalaplay.client.metrics
+
+import java.util.concurrent.TimeUnit
+
+import io.atomicbits.scraml.dsl.scalaplay._
+import org.scalatest.GivenWhenThen
+import org.scalatest.featurespec.AnyFeatureSpec
+
+class MetricsInterceptorTest extends AnyFeatureSpec with GivenWhenThen {
+
+  Feature("Keeping metrics per endpoint") {
+
+    Scenario("a started request is in flight until it completes or fails") {
+
+      Given("a metrics interceptor")
+      val metrics = new MetricsInterceptor
+
+      When("two requests on the same endpoint are started")
+      metrics.onRequestStart(request(Get), "/users/{userId}", 0L)
+      metrics.onRequestStart(request(Get), "/users/{userId}", 0L)
+
+      Then("both are in flight")
+      val endpoint = metrics.endpointMetrics(Get, "/users/{userId}").get
+      assert(endpoint.inFlight == 2)
+      assert(endpoint.requests == 2)
+
+      When("one completes and the other fails")
+      metrics.onBodyDecoded(request(Get), "/users/{userId}", 300L, TimeUnit.MILLISECONDS.toNanos(2))
+      metrics.onComplete(request(Get), "/users/{userId}", 200, TimeUnit.MILLISECONDS.toNanos(2))
+      assert(endpoint.inFlight == 1)
+      metrics.onFailure(request(Get), "/users/{userId}", new RuntimeException("boom"), TimeUnit.MILLISECONDS.toNanos(5))
+
+      Then("none is in flight and both have a latency")
+      assert(endpoint.inFlight == 0)
+      assert(endpoint.requests == 2)
+      assert(endpoint.failures == 1)
+      assert(endpoint.bytesIn == 300)
+      assert(endpoint.latency.totalCount == 2)
+      assert(endpoint.latency.percentileMicros(99) == 8192)
+    }
+
+    Scenario("each method on a resource path is an endpoint") {
+
+      Given("a metrics interceptor")
+      val metrics = new MetricsInterceptor
+
+      When("requests with different methods and resource paths are started")
+      metrics.onRequestStart(request(Get), "/users", 0L)
+      metrics.onRequestStart(request(Post), "/users", 120L)
+      metrics.onRequestStart(request(Post), "/users/{userId}", 80L)
+
+      Then("each method and resource path has its own metrics")
+      assert(metrics.endpointMetrics.size == 3)
+      assert(metrics.endpointMetrics(Get, "/users").map(_.bytesOut).contains(0L))
+      assert(metrics.endpointMetrics(Post, "/users").map(_.bytesOut).contains(120L))
+      assert(metrics.endpointMetrics(Post, "/users/{userId}").map(_.bytesOut).contains(80L))
+      assert(metrics.endpointMetrics(Delete, "/users").isEmpty)
+      assert(metrics.endpointMetrics(Get, "/groups").isEmpty)
+
+      And("a reset forgets them")
+      metrics.reset()
+      assert(metrics.endpointMetrics.isEmpty)
+    }
+
+  }
+
+  // The metrics only look at the method of the request.
+  private def request(method: Method): RequestBuilder = RequestBuilder(client = null, method = method)
+
+}
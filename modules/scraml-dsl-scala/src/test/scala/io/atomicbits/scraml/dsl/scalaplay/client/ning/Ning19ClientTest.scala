@@ -20,11 +20,24 @@
 
 package io.atomicbits.scraml.dsl.scalaplay.client.ning
 
-import io.atomicbits.scraml.dsl.scalaplay.client.ClientConfig
+import java.io.{ ByteArrayOutputStream, IOException }
+import java.net.InetSocketAddress
+import java.nio.channels.{ Channels, ClosedChannelException }
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.{ CountDownLatch, Executors, LinkedBlockingQueue, TimeUnit }
+
+import com.sun.net.httpserver.{ HttpExchange, HttpServer }
+import io.atomicbits.scraml.dsl.scalaplay.{ Get, RequestBuilder }
+import io.atomicbits.scraml.dsl.scalaplay.client.{ ClientConfig, RequestInterceptor }
+import io.atomicbits.scraml.dsl.scalaplay.client.metrics.MetricsInterceptor
 import org.scalatest.concurrent.ScalaFutures
 import org.scalatest.{ BeforeAndAfterAll, GivenWhenThen }
 import org.scalatest.featurespec.AnyFeatureSpec
 
+import scala.concurrent.Await
+import scala.concurrent.duration._
+import scala.util.Try
+
 /**
   * Created by peter on 22/04/16.
   */
@@ -58,4 +71,228 @@ class Ning19ClientTest extends AnyFeatureSpec with GivenWhenThen with BeforeAndA
     }
   }
 
+  Feature("Streaming and downloading responses without blocking the ning I/O thread") {
+
+    Scenario("close a streamed response before its end") {
+
+      Given("a server that streams an endless JSON array")
+      val aborted     = new CountDownLatch(1)
+      val server      = numbersServer(aborted)
+      val interceptor = new RecordingInterceptor
+      val client      = ningClient(server, ClientConfig(interceptors = List(interceptor)))
+
+      try {
+        When("the consumer reads three elements and closes the stream")
+        val response = Await.result(client.callToStreamResponse[Int](request(client, "numbers"), None), 10.seconds)
+        val numbers  = response.body.get
+        val firstThree =
+          try numbers.take(3).toList
+          finally numbers.close()
+
+        Then("it gets the elements and the rest of the body is aborted")
+        assert(response.status == 200)
+        assert(firstThree == List(0, 1, 2))
+        assert(aborted.await(10, TimeUnit.SECONDS))
+        assert(interceptor.awaitOutcome() == "complete 200")
+      } finally {
+        client.close()
+        server.stop(0)
+      }
+    }
+
+    Scenario("a streamed response whose consumer falls too far behind") {
+
+      Given("a server that streams an endless JSON array and a client with a small streaming buffer")
+      val aborted     = new CountDownLatch(1)
+      val server      = numbersServer(aborted)
+      val interceptor = new RecordingInterceptor
+      val client      = ningClient(server, ClientConfig(interceptors = List(interceptor), streamingBufferBytes = 16L * 1024))
+
+      try {
+        When("the consumer doesn't read the stream")
+        val response = Await.result(client.callToStreamResponse[Int](request(client, "numbers"), None), 10.seconds)
+
+        Then("the exchange is aborted once the buffer is full")
+        assert(response.status == 200)
+        assert(interceptor.awaitOutcome().startsWith("failure The consumer of the streamed response fell more than 16384 bytes"))
+        assert(aborted.await(10, TimeUnit.SECONDS))
+
+        And("reading the stream fails after the buffered elements")
+        val numbers = response.body.get
+        val failure =
+          try Try(numbers.foreach(_ => ())).failed.get
+          finally numbers.close()
+        assert(failure.isInstanceOf[IOException])
+        assert(failure.getMessage.contains("fell more than 16384 bytes behind"))
+      } finally {
+        client.close()
+        server.stop(0)
+      }
+    }
+
+    Scenario("the error body of a streamed response and a download") {
+
+      Given("a server that answers with a 404")
+      val server = numbersServer(new CountDownLatch(1))
+      val client = ningClient(server, ClientConfig())
+
+      try {
+        When("a streamed response and a download are requested")
+        val streamed   = Await.result(client.callToStreamResponse[Int](request(client, "missing"), None), 10.seconds)
+        val target     = new ByteArrayOutputStream()
+        val downloaded = Await.result(client.callToDownloadResponse(request(client, "missing"), None, Channels.newChannel(target), (_, _) => ()), 10.seconds)
+
+        Then("the error body is the string body of both")
+        assert(streamed.status == 404)
+        assert(streamed.stringBody.contains("No such numbers."))
+        assert(streamed.body.isEmpty)
+        assert(downloaded.status == 404)
+        assert(downloaded.stringBody.contains("No such numbers."))
+        assert(downloaded.body.isEmpty)
+        assert(target.size() == 0)
+      } finally {
+        client.close()
+        server.stop(0)
+      }
+    }
+
+    Scenario("a failing interceptor doesn't keep the others from seeing a request") {
+
+      Given("a client with an interceptor that always fails before a metrics interceptor")
+      val server  = numbersServer(new CountDownLatch(1))
+      val metrics = new MetricsInterceptor
+      val failing = new RequestInterceptor {
+        override def onRequestStart(request: RequestBuilder, resourcePath: String, requestBytes: Long): Unit =
+          throw new IllegalStateException("start")
+
+        override def onComplete(request: RequestBuilder, resourcePath: String, statusCode: Int, elapsedNanos: Long): Unit =
+          throw new IllegalStateException("complete")
+      }
+      val client = ningClient(server, ClientConfig(interceptors = List(failing, metrics)))
+
+      try {
+        When("a request is sent")
+        val response = Await.result(client.callToStringResponse(request(client, "missing"), None), 10.seconds)
+
+        Then("the metrics interceptor sees its start and its completion")
+        assert(response.status == 404)
+        val endpoint = metrics.endpointMetrics(Get, "/missing").get
+        assert(endpoint.requests == 1)
+        assert(endpoint.inFlight == 0)
+        assert(endpoint.failures == 0)
+        assert(endpoint.latency.totalCount == 1)
+      } finally {
+        client.close()
+        server.stop(0)
+      }
+    }
+
+    Scenario("a download whose target is closed before the end of the body") {
+
+      Given("a server that sends an endless body")
+      val aborted     = new CountDownLatch(1)
+      val server      = numbersServer(aborted)
+      val interceptor = new RecordingInterceptor
+      val client      = ningClient(server, ClientConfig(interceptors = List(interceptor)))
+
+      try {
+        When("the target channel is closed during the download")
+        val target = Channels.newChannel(new ByteArrayOutputStream())
+        val download = client.callToDownloadResponse(request(client, "numbers"), None, target, (written, _) => if (written > 1024) target.close())
+        val failure  = Try(Await.result(download, 10.seconds)).failed.get
+
+        Then("the download fails and the rest of the body is aborted")
+        assert(failure.isInstanceOf[ClosedChannelException])
+        assert(aborted.await(10, TimeUnit.SECONDS))
+        assert(interceptor.awaitOutcome().startsWith("failure"))
+      } finally {
+        client.close()
+        server.stop(0)
+      }
+    }
+
+  }
+
+  private def ningClient(server: HttpServer, config: ClientConfig): Ning19Client =
+    Ning19Client(
+      protocol       = "http",
+      host           = "localhost",
+      port           = server.getAddress.getPort,
+      prefix         = Some("api"),
+      config         = config,
+      defaultHeaders = Map.empty
+    )
+
+  private def request(client: Ning19Client, path: String): RequestBuilder =
+    RequestBuilder(client, reversePath = List(path), method = Get, reversePathTemplate = List(path))
+
+  /**
+    * A server with an endless JSON array of numbers and a 404. The latch is counted down when the client drops the connection of the
+    * endless array.
+    */
+  private def numbersServer(aborted: CountDownLatch): HttpServer = {
+    val server = HttpServer.create(new InetSocketAddress("localhost", 0), 0)
+    server.setExecutor(Executors.newCachedThreadPool())
+    server.createContext(
+      "/api/numbers",
+      (exchange: HttpExchange) => {
+        exchange.getResponseHeaders.add("Content-Type", "application/json; charset=UTF-8")
+        exchange.sendResponseHeaders(200, 0)
+        val out = exchange.getResponseBody
+        try {
+          out.write('[')
+          Iterator.from(0).foreach { i =>
+            out.write(s"${if (i == 0) "" else ","}$i".getBytes(StandardCharsets.UTF_8))
+            if (i % 100 == 0) {
+              out.flush()
+              Thread.sleep(1)
+            }
+          }
+        } catch {
+          case _: IOException | _: InterruptedException => aborted.countDown()
+        } finally {
+          Try(out.close())
+        }
+      }
+    )
+    server.createContext(
+      "/api/missing",
+      (exchange: HttpExchange) => {
+        val body = "No such numbers.".getBytes(StandardCharsets.UTF_8)
+        exchange.getResponseHeaders.add("Content-Type", "text/plain; charset=UTF-8")
+        exchange.sendResponseHeaders(404, body.length.toLong)
+        val out = exchange.getResponseBody
+        try out.write(body)
+        finally out.close()
+      }
+    )
+    server.start()
+    server
+  }
+
+  /**
+    * Keeps the outcome of the request, a completion or a failure.
+    */
+  private class RecordingInterceptor extends RequestInterceptor {
+
+    private val outcomes = new LinkedBlockingQueue[String]()
+
+    override def onComplete(request: RequestBuilder, resourcePath: String, statusCode: Int, elapsedNanos: Long): Unit = {
+      outcomes.add(s"complete $statusCode")
+      ()
+    }
+
+    override def onFailure(request: RequestBuilder, resourcePath: String, failure: Throwable, elapsedNanos: Long): Unit = {
+      outcomes.add(s"failure ${failure.getMessage}")
+      ()
+    }
+
+    def awaitOutcome(): String = {
+      val outcome = outcomes.poll(10, TimeUnit.SECONDS)
+      assert(outcome != null, "The interceptor didn't hear about the outcome.")
+      outcome
+    }
+
+  }
+
 }
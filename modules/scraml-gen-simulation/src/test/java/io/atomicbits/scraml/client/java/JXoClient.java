@@ -21,7 +21,7 @@
 package io.atomicbits.scraml.client.java;
 
 import io.atomicbits.scraml.dsl.javajackson.Client;
-import io.atomicbits.scraml.dsl.javajackson.RequestBuilder;
+import io.atomicbits.scraml.dsl.javajackson.RequestPrefix;
 import io.atomicbits.scraml.dsl.javajackson.client.ClientConfig;
 import io.atomicbits.scraml.dsl.javajackson.client.ClientFactory;
 import io.atomicbits.scraml.dsl.javajackson.client.ning.Ning19ClientFactory;
@@ -33,8 +33,8 @@ import java.util.Map;
  */
 public class JXoClient {
 
-    // It's important that the requestBuilder is package-accessible so that it's not visible in the DSL.
-    protected RequestBuilder _requestBuilder = new RequestBuilder();
+    // It's important that the requestPrefix is package-accessible so that it's not visible in the DSL.
+    protected RequestPrefix _requestPrefix = new RequestPrefix();
 
     public JXoClient(String host,
                      int port,
@@ -54,14 +54,14 @@ public class JXoClient {
                      ClientFactory clientFactory) {
         ClientFactory cFactory = clientFactory != null ? clientFactory : new Ning19ClientFactory();
         Client client = cFactory.createClient(host, port, protocol, prefix, clientConfig, defaultHeaders);
-        this._requestBuilder.setClient(client);
-        System.out.println(this._requestBuilder.toString());
+        this._requestPrefix.setClient(client);
+        System.out.println(this._requestPrefix.toString());
     }
 
-    public RestResource rest = new RestResource(this._requestBuilder);
+    public RestResource rest = new RestResource(this._requestPrefix);
 
     public void _close() {
-        this._requestBuilder.getClient().close();
+        this._requestPrefix.getClient().close();
     }
 
 }
@@ -33,19 +33,16 @@ public class PathparamResource extends ParamSegment<String> {
     public PathparamResource(){
     }
 
-    public PathparamResource(RequestBuilder requestBuilder, Boolean noPath) {
-        super(requestBuilder);
+    public PathparamResource(RequestPrefix requestPrefix, Boolean noPath) {
+        super(requestPrefix);
     }
 
-    public PathparamResource(String value, RequestBuilder requestBuilder) {
-        super(value, requestBuilder);
+    public PathparamResource(String value, RequestPrefix requestPrefix) {
+        super(value, "pathparam", requestPrefix);
     }
 
     public PathparamResource addHeader(String key, String value) {
-        PathparamResource pathparamResource = new PathparamResource(getRequestBuilder(), true);
-        // At this point, the request builder has been initialized, so we can clone it and go on.
-        pathparamResource._requestBuilder.addHeader(key, value);
-        return pathparamResource;
+        return new PathparamResource(getRequestPrefix().withAddedHeader(key, value), true);
     }
 
     public TypeMethodSegment<String, Person> get(double queryparX, int queryparY, Integer queryparZ) {
@@ -65,7 +62,7 @@ public class PathparamResource extends ParamSegment<String> {
                 null,
                 "application/json",
                 null,
-                this.getRequestBuilder(),
+                this.getRequestPrefix(),
                 null,
                 "io.atomicbits.scraml.client.java.Person"
         );
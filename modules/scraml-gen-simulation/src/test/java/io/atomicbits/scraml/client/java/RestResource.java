@@ -21,17 +21,17 @@
 package io.atomicbits.scraml.client.java;
 
 import io.atomicbits.scraml.dsl.javajackson.PlainSegment;
-import io.atomicbits.scraml.dsl.javajackson.RequestBuilder;
+import io.atomicbits.scraml.dsl.javajackson.RequestPrefix;
 
 /**
  * Created by peter on 19/08/15.
  */
 public class RestResource extends PlainSegment {
 
-    public RestResource(RequestBuilder parentRequestBuilder) {
-        super("rest", parentRequestBuilder);
+    public RestResource(RequestPrefix parentRequestPrefix) {
+        super("rest", parentRequestPrefix);
     }
 
-    public SomeResource some = new SomeResource(this.getRequestBuilder());
+    public SomeResource some = new SomeResource(this.getRequestPrefix());
 
 }
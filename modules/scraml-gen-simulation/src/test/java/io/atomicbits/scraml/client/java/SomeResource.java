@@ -21,28 +21,25 @@
 package io.atomicbits.scraml.client.java;
 
 import io.atomicbits.scraml.dsl.javajackson.PlainSegment;
-import io.atomicbits.scraml.dsl.javajackson.RequestBuilder;
+import io.atomicbits.scraml.dsl.javajackson.RequestPrefix;
 
 /**
  * Created by peter on 19/08/15.
  */
 public class SomeResource extends PlainSegment {
 
-    public SomeResource(RequestBuilder requestBuilder) {
-        super("some", requestBuilder);
+    public SomeResource(RequestPrefix requestPrefix) {
+        super("some", requestPrefix);
     }
 
-    public SomeResource(RequestBuilder requestBuilder, Boolean noPath) {
-        super(requestBuilder);
+    public SomeResource(RequestPrefix requestPrefix, Boolean noPath) {
+        super(requestPrefix);
     }
 
-    public WebserviceResource webservice = new WebserviceResource(this.getRequestBuilder());
+    public WebserviceResource webservice = new WebserviceResource(this.getRequestPrefix());
 
     public SomeResource addHeader(String key, String value) {
-        SomeResource someResource = new SomeResource(getRequestBuilder(), true);
-        // At this point, the request builder has been initialized, so we can clone it and go on.
-        someResource._requestBuilder.addHeader(key, value);
-        return someResource;
+        return new SomeResource(getRequestPrefix().withAddedHeader(key, value), true);
     }
 
 }
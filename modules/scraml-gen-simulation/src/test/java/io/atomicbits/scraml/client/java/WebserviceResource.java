@@ -21,19 +21,19 @@
 package io.atomicbits.scraml.client.java;
 
 import io.atomicbits.scraml.dsl.javajackson.PlainSegment;
-import io.atomicbits.scraml.dsl.javajackson.RequestBuilder;
+import io.atomicbits.scraml.dsl.javajackson.RequestPrefix;
 
 /**
  * Created by peter on 19/08/15.
  */
 public class WebserviceResource extends PlainSegment {
 
-    public WebserviceResource(RequestBuilder requestBuilder) {
-        super("webservice", requestBuilder);
+    public WebserviceResource(RequestPrefix requestPrefix) {
+        super("webservice", requestPrefix);
     }
 
     public PathparamResource pathparam(String value) {
-        return new PathparamResource(value, this.getRequestBuilder());
+        return new PathparamResource(value, this.getRequestPrefix());
     }
 
 }
@@ -27,6 +27,6 @@ import io.atomicbits.scraml.dsl.scalaplay.{ PlainSegment, RequestBuilder }
   */
 class WebserviceResource(req: RequestBuilder) extends PlainSegment("webservice", req) {
 
-  def pathparam(value: String) = new PathparamResource(value, _requestBuilder.withAddedPathSegment(value))
+  def pathparam(value: String) = new PathparamResource(value, _requestBuilder.withAddedPathParameter("pathparam", value))
 
 }
@@ -33,8 +33,8 @@ import io.atomicbits.scraml.ramlparser.parser.{ RamlParseException, RamlParser,
 
 import scala.util.{ Failure, Success, Try }
 import io.atomicbits.scraml.generator.platform.Platform._
-import io.atomicbits.scraml.generator.platform.javajackson.JavaJackson
-import io.atomicbits.scraml.generator.platform.scalaplay.ScalaPlay
+import io.atomicbits.scraml.generator.platform.javajackson.{ JavaJackson, JavaJacksonOptions }
+import io.atomicbits.scraml.generator.platform.scalaplay.{ ScalaPlay, ScalaPlayOptions }
 import io.atomicbits.scraml.generator.codegen.{ DslSourceExtractor, DslSourceRewriter, GenerationAggr }
 import io.atomicbits.scraml.generator.platform.androidjavajackson.AndroidJavaJackson
 import io.atomicbits.scraml.generator.platform.htmldoc.HtmlDoc
@@ -65,10 +65,36 @@ object ScramlGenerator {
                          licenseKey: String,
                          thirdPartyClassHeader: String,
                          singleTargeSourceFileName: String): JMap[String, String] =
+    generateScramlCode(platform,
+                       ramlApiPath,
+                       apiPackageName,
+                       apiClassName,
+                       licenseKey,
+                       thirdPartyClassHeader,
+                       singleTargeSourceFileName,
+                       new java.util.HashMap[String, String]())
+
+  /**
+    * This is (and must be) a Java-friendly interface!
+    *
+    * @param generatorOptions Platform specific generation options as key-value pairs, e.g. "lazyResources" -> "true" for the
+    *                         (Android) Java Jackson platforms. Unknown options are ignored.
+    */
+  def generateScramlCode(platform: String,
+                         ramlApiPath: String,
+                         apiPackageName: String,
+                         apiClassName: String,
+                         licenseKey: String,
+                         thirdPartyClassHeader: String,
+                         singleTargeSourceFileName: String,
+                         generatorOptions: JMap[String, String]): JMap[String, String] = {
+
+    val options: Map[String, String] = Option(generatorOptions).map(_.asScala.toMap).getOrElse(Map.empty)
+
     platform.toLowerCase match {
       case JAVA_JACKSON =>
         generateFor(
-          JavaJackson(packageNameToPackagParts(apiPackageName)),
+          JavaJackson(packageNameToPackagParts(apiPackageName), JavaJacksonOptions.fromMap(options)),
           ramlApiPath,
           apiClassName,
           thirdPartyClassHeader,
@@ -76,7 +102,7 @@ object ScramlGenerator {
         )
       case SCALA_PLAY =>
         generateFor(
-          ScalaPlay(packageNameToPackagParts(apiPackageName)),
+          ScalaPlay(packageNameToPackagParts(apiPackageName), ScalaPlayOptions.fromMap(options)),
           ramlApiPath,
           apiClassName,
           thirdPartyClassHeader,
@@ -84,7 +110,7 @@ object ScramlGenerator {
         )
       case ANDROID_JAVA_JACKSON =>
         generateFor(
-          AndroidJavaJackson(packageNameToPackagParts(apiPackageName)),
+          AndroidJavaJackson(packageNameToPackagParts(apiPackageName), JavaJacksonOptions.fromMap(options)),
           ramlApiPath,
           apiClassName,
           thirdPartyClassHeader,
@@ -113,6 +139,7 @@ object ScramlGenerator {
       case CSHARP    => sys.error(s"There is no C# support yet.")
       case unknown   => sys.error(s"Unknown platform: $unknown")
     }
+  }
 
   private[generator] def generateFor(platform: Platform,
                                      ramlApiPath: String,
@@ -139,6 +166,7 @@ object ScramlGenerator {
     val dslSources: Set[SourceFile] =
       DslSourceExtractor
         .extract()
+        .filter(platform.includesDslSource)
         .map(DslSourceRewriter.rewrite)
 
     val singleSourceFile =
@@ -204,9 +232,9 @@ object ScramlGenerator {
   private def addLicenseAndFormat(sourceFile: SourceFile, platform: Platform, licenseHeader: String): SourceFile = {
     val content = s"$licenseHeader\n${sourceFile.content}"
     val formattedContent = platform match {
-      case ScalaPlay(_)          => Try(ScalaFormatter.format(content)).getOrElse(content)
-      case JavaJackson(_)        => Try(JavaFormatter.format(content)).getOrElse(content)
-      case AndroidJavaJackson(_) => Try(JavaFormatter.format(content)).getOrElse(content)
+      case _: ScalaPlay          => Try(ScalaFormatter.format(content)).getOrElse(content)
+      case _: JavaJackson        => Try(JavaFormatter.format(content)).getOrElse(content)
+      case _: AndroidJavaJackson => Try(JavaFormatter.format(content)).getOrElse(content)
       case _                     => content
     }
     sourceFile.copy(content = formattedContent)
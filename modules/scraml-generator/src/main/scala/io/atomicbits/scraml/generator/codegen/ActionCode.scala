@@ -70,4 +70,10 @@ trait ActionCode {
                      contentType: ContentType,
                      responseType: ResponseType): String
 
+  /**
+    * Class-level definitions that are shared by the generated actions of a resource, such as precompiled JSON codecs or prepared
+    * requests. Identical definitions are emitted only once per class.
+    */
+  def sharedActionDefinitions(actionSelection: ActionSelection): List[String] = List.empty
+
 }
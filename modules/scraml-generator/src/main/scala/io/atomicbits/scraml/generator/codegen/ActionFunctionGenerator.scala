@@ -73,7 +73,7 @@ case class ActionFunctionGenerator(actionCode: ActionCode) {
         responseType            = actionSelection.selectedResponseType
       )
 
-    val actionFunctionDefinitions = List(formAction)
+    val actionFunctionDefinitions = generateSharedActionDefinitions(actionSelection) :+ formAction
     val actionImports             = generateActionImports(actionSelection)
 
     SourceCodeFragment(imports = actionImports ++ formParameterMethodParameterImports, sourceDefinition = actionFunctionDefinitions)
@@ -95,7 +95,7 @@ case class ActionFunctionGenerator(actionCode: ActionCode) {
         responseType      = actionSelection.selectedResponseType
       )
 
-    val actionFunctionDefinitions = List(multipartAction)
+    val actionFunctionDefinitions = generateSharedActionDefinitions(actionSelection) :+ multipartAction
     val actionImports             = generateActionImports(actionSelection)
 
     SourceCodeFragment(imports = actionImports, sourceDefinition = actionFunctionDefinitions)
@@ -152,9 +152,12 @@ case class ActionFunctionGenerator(actionCode: ActionCode) {
     val actionImports = generateActionImports(actionSelection)
 
     SourceCodeFragment(imports          = actionImports ++ queryParameterMethodParameterImports ++ queryStringMethodParameterImports,
-                       sourceDefinition = actionFunctionDefinitions)
+                       sourceDefinition = generateSharedActionDefinitions(actionSelection) ++ actionFunctionDefinitions)
   }
 
+  private def generateSharedActionDefinitions(actionSelection: ActionSelection): List[String] =
+    actionCode.sharedActionDefinitions(actionSelection)
+
   private def generateActionImports(actionSelection: ActionSelection): Set[ClassPointer] = {
 
     // Todo: add the imports from the Parameters (headers / query parameters)
@@ -96,7 +96,7 @@ case class ActionGenerator(actionCode: ActionCode) {
           expandContentTypePath(resourcePackageParts, contentType, acceptHeaderMap)
       }
 
-    if (actionPathExpansion.nonEmpty) actionPathExpansion.reduce(_ ++ _)
+    if (actionPathExpansion.nonEmpty) distinctDefinitions(actionPathExpansion.reduce(_ ++ _))
     else SourceCodeFragment()
   }
 
@@ -143,7 +143,7 @@ case class ActionGenerator(actionCode: ActionCode) {
         case Nil => List.empty
       }
 
-    actionPathExpansion.foldLeft(SourceCodeFragment())(_ ++ _)
+    distinctDefinitions(actionPathExpansion.foldLeft(SourceCodeFragment())(_ ++ _))
   }
 
   private def expandResponseTypePath(resourcePackageParts: List[String], responseType: ResponseType, actions: Set[ActionSelection])(
@@ -156,7 +156,7 @@ case class ActionGenerator(actionCode: ActionCode) {
 
     val actionFunctionResults = actions.map(ActionFunctionGenerator(actionCode).generate)
     val actionImports         = actionFunctionResults.flatMap(_.imports)
-    val actionMethods         = actionFunctionResults.flatMap(_.sourceDefinition).toList
+    val actionMethods         = actionFunctionResults.toList.flatMap(_.sourceDefinition).distinct
 
     // Header segment classes have the same class name in Java as in Scala.
     val headerSegmentClassName = s"Accept${CleanNameTools.cleanClassName(responseType.acceptHeader.value)}HeaderSegment"
@@ -169,6 +169,12 @@ case class ActionGenerator(actionCode: ActionCode) {
     SourceCodeFragment(imports = Set.empty, sourceDefinition = List(acceptHeaderSegment), headerPathClassDefinitions = List(headerSegment))
   }
 
+  /**
+    * Actions on the same class may share class-level definitions (see ActionCode.sharedActionDefinitions), those must only appear once.
+    */
+  private def distinctDefinitions(sourceCodeFragment: SourceCodeFragment): SourceCodeFragment =
+    sourceCodeFragment.copy(sourceDefinition = sourceCodeFragment.sourceDefinition.distinct)
+
   private def createHeaderSegment(packageParts: List[String],
                                   className: String,
                                   imports: Set[ClassPointer],
@@ -131,6 +131,11 @@ trait Platform {
     */
   def mapSourceFiles(sources: Set[SourceFile], combinedSourcesFileName: Option[String] = None): Set[SourceFile] = sources
 
+  /**
+    * Whether a DSL source file is copied into the generated code, all of them are by default.
+    */
+  def includesDslSource(dslSource: SourceFile): Boolean = true
+
   def reservedKeywords: Set[String]
 
 }
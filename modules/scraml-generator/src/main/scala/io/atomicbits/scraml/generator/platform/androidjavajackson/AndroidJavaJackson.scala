@@ -20,13 +20,14 @@
 
 package io.atomicbits.scraml.generator.platform.androidjavajackson
 
-import io.atomicbits.scraml.generator.platform.javajackson.CommonJavaJacksonPlatform
+import io.atomicbits.scraml.generator.platform.javajackson.{ CommonJavaJacksonPlatform, JavaJacksonOptions }
 import io.atomicbits.scraml.generator.platform.Platform
 
 /**
   * Created by peter on 1/11/17.
   */
-case class AndroidJavaJackson(apiBasePackageParts: List[String]) extends CommonJavaJacksonPlatform {
+case class AndroidJavaJackson(apiBasePackageParts: List[String], options: JavaJacksonOptions = JavaJacksonOptions())
+    extends CommonJavaJacksonPlatform {
 
   implicit val platform: Platform = this
 
@@ -64,6 +64,10 @@ case class ClientClassGenerator(javaJackson: CommonJavaJacksonPlatform) extends
           val defaultCF  = "OkHttpScramlClientFactory"
           val defaultCIS = s"import $dslBasePackage.client.okhttp.$defaultCF;"
           (defaultCF, defaultCIS)
+        case _ if platform.options.jdkHttpClient =>
+          val defaultCF  = "JdkHttpClientFactory"
+          val defaultCIS = s"import $dslBasePackage.client.jdkhttp.$defaultCF;"
+          (defaultCF, defaultCIS)
         case _ =>
           val defaultCF  = "Ning19ClientFactory"
           val defaultCIS = s"import $dslBasePackage.client.ning.$defaultCF;"
@@ -75,6 +79,7 @@ case class ClientClassGenerator(javaJackson: CommonJavaJacksonPlatform) extends
            package ${apiPackage.mkString(".")};
 
            import $dslBasePackage.RequestBuilder;
+           import $dslBasePackage.RequestPrefix;
            import $dslBasePackage.client.ClientConfig;
            import $dslBasePackage.client.ClientFactory;
            import $dslBasePackage.Client;
@@ -88,7 +93,7 @@ case class ClientClassGenerator(javaJackson: CommonJavaJacksonPlatform) extends
 
            public class $apiClassName {
 
-               private RequestBuilder _requestBuilder = new RequestBuilder();
+               private final RequestPrefix _requestPrefix = new RequestPrefix();
 
                public $apiClassName(String host,
                                     int port,
@@ -109,7 +114,7 @@ case class ClientClassGenerator(javaJackson: CommonJavaJacksonPlatform) extends
                                     ClientFactory clientFactory) {
                    ClientFactory cFactory = clientFactory != null ? clientFactory : new $defaultClientFactory();
                    Client client = cFactory.createClient(host, port, protocol, prefix, clientConfig, defaultHeaders);
-                   this._requestBuilder.setClient(client);
+                   this._requestPrefix.setClient(client);
                }
 
 
@@ -117,21 +122,34 @@ case class ClientClassGenerator(javaJackson: CommonJavaJacksonPlatform) extends
 
                ${actionFunctions.mkString("\n\n")}
 
+               public RequestPrefix getRequestPrefix() {
+                   return this._requestPrefix;
+               }
+
+               /**
+                * @deprecated Use getRequestPrefix(). This returns a new request builder with the client, path and headers
+                * of the request prefix, changing it doesn't affect the requests made through this client.
+                */
+               @Deprecated
                public RequestBuilder getRequestBuilder() {
-                   return this._requestBuilder;
+                   return this._requestPrefix.toRequestBuilder();
                }
 
                public void close() {
-                   this._requestBuilder.getClient().close();
+                   this._requestPrefix.getClient().close();
                }
 
            }
          """
 
-    generationAggr
-      .addSourceDefinitions(clientClassDefinition.topLevelResourceDefinitions)
-      .addSourceDefinitions(headerPathSourceDefs)
-      .addSourceFile(SourceFile(filePath = apiClassReference.toFilePath, content = sourcecode))
+    val generationAggrWithClient =
+      generationAggr
+        .addSourceDefinitions(clientClassDefinition.topLevelResourceDefinitions)
+        .addSourceDefinitions(headerPathSourceDefs)
+        .addSourceFile(SourceFile(filePath = apiClassReference.toFilePath, content = sourcecode))
+
+    if (platform.options.generatedCodecs) JsonCodecGenerator(platform).generateModule(generationAggrWithClient)
+    else generationAggrWithClient
   }
 
 }
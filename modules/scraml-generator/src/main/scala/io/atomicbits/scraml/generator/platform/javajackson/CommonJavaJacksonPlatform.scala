@@ -26,6 +26,7 @@ import io.atomicbits.scraml.generator.platform.{ CleanNameTools, Platform }
 import io.atomicbits.scraml.generator.typemodel._
 import Platform._
 import io.atomicbits.scraml.generator.codegen.GenerationAggr
+import io.atomicbits.scraml.ramlparser.parser.SourceFile
 
 /**
   * Created by peter on 1/11/17.
@@ -38,6 +39,8 @@ trait CommonJavaJacksonPlatform extends Platform with CleanNameTools {
 
   def rewrittenDslBasePackage: List[String]
 
+  def options: JavaJacksonOptions
+
   override def classPointerToNativeClassReference(classPointer: ClassPointer): ClassReference = {
 
     classPointer match {
@@ -221,6 +224,12 @@ trait CommonJavaJacksonPlatform extends Platform with CleanNameTools {
   override def toSourceFile(generationAggr: GenerationAggr, unionClassDefinition: UnionClassDefinition): GenerationAggr =
     UnionClassGenerator(this).generate(generationAggr, unionClassDefinition)
 
+  /**
+    * The generated TransferObjectModule replaces the empty one in the DSL sources.
+    */
+  override def includesDslSource(dslSource: SourceFile): Boolean =
+    !(options.generatedCodecs && dslSource.filePath.getFileName.toString == "TransferObjectModule.java")
+
   override val classFileExtension: String = "java"
 
   override def toFilePath(classPointer: ClassPointer): Path = {
@@ -58,8 +58,8 @@ case class HeaderSegmentClassGenerator(javaJackson: CommonJavaJacksonPlatform) e
 
          public class $className extends HeaderSegment {
 
-           public $className(RequestBuilder requestBuilder) {
-             super(requestBuilder);
+           public $className(RequestPrefix requestPrefix) {
+             super(requestPrefix);
            }
 
            ${methods.mkString("\n")}
@@ -42,7 +42,7 @@ class JavaActionCodeGenerator(val javaJackson: CommonJavaJacksonPlatform) extend
 
   def contentHeaderSegmentField(contentHeaderMethodName: String, headerSegment: ClassReference) =
     s"""public ${headerSegment.fullyQualifiedName} $contentHeaderMethodName =
-          new ${headerSegment.fullyQualifiedName}(this.getRequestBuilder());"""
+          new ${headerSegment.fullyQualifiedName}(this.getRequestPrefix());"""
 
   // ToDo: generate the imports!
   def expandMethodParameter(parameters: List[(String, ClassPointer)]): List[String] = parameters map { parameterDef =>
@@ -118,6 +118,13 @@ class JavaActionCodeGenerator(val javaJackson: CommonJavaJacksonPlatform) extend
     case x                                    => "CompletableFuture<Response<String>>"
   }
 
+  def syncResponseClassDefinition(responseType: ResponseType): String = responseType match {
+    case BinaryResponseType(acceptHeader)     => "Response<BinaryData>"
+    case JsonResponseType(acceptHeader)       => "Response<String>"
+    case typedResponseType: TypedResponseType => s"Response<${typedResponseType.classPointer.classDefinition}>"
+    case x                                    => "Response<String>"
+  }
+
   def canonicalResponseType(responseType: ResponseType): Option[String] = responseType match {
     case BinaryResponseType(acceptHeader)     => None
     case JsonResponseType(acceptHeader)       => None
@@ -131,6 +138,69 @@ class JavaActionCodeGenerator(val javaJackson: CommonJavaJacksonPlatform) extend
     case x                                  => None
   }
 
+  /**
+    * Each action gets a prepared request as a static constant on the resource class, and typed actions also get their JSON codecs.
+    * The method, the expected headers and the canonical types are then resolved only once instead of on every call.
+    */
+  override def sharedActionDefinitions(actionSelection: ActionSelection): List[String] = {
+    val contentType  = actionSelection.selectedContentType
+    val responseType = actionSelection.selectedResponseType
+    val jsonCodecFields =
+      responseType match {
+        case typedResponseType: TypedResponseType =>
+          (canonicalContentType(contentType).toList ++ canonicalResponseType(responseType).toList).map(jsonCodecField)
+        case _ => List.empty
+      }
+    jsonCodecFields :+ preparedRequestField(actionSelection)
+  }
+
+  def preparedRequestField(actionSelection: ActionSelection): String = {
+    val dslPackage                = javaJackson.rewrittenDslBasePackage.mkString(".")
+    val actionType                = actionSelection.action.actionType
+    val expectedAcceptHeader      = actionSelection.selectedResponseType.acceptHeaderOpt
+    val expectedContentTypeHeader = actionSelection.selectedContentType.contentTypeHeaderOpt
+
+    val method        = s"$dslPackage.Method.${actionType.toString.toUpperCase(Locale.ENGLISH)}"
+    val acceptHeader  = expectedAcceptHeader.map(acceptH            => CleanNameTools.quoteString(acceptH.value)).getOrElse("null")
+    val contentHeader = expectedContentTypeHeader.map(contentHeader => CleanNameTools.quoteString(contentHeader.value)).getOrElse("null")
+
+    s"""private static final $dslPackage.PreparedRequest ${preparedRequestFieldName(actionSelection)} =
+          new $dslPackage.PreparedRequest($method, $acceptHeader, $contentHeader);"""
+  }
+
+  /**
+    * The headers are escaped completely, dots and underscores included, so that the underscores that separate the action type and the
+    * two headers are unambiguous and distinct header combinations never get the same field name. An absent header is an empty part.
+    */
+  def preparedRequestFieldName(actionSelection: ActionSelection): String = {
+    def escapeHeader(header: String): String =
+      header.map(char => if (char.isLetterOrDigit) char.toString else escapedIdentifierChar(char)).mkString
+
+    val actionType    = actionSelection.action.actionType.toString.toLowerCase(Locale.ENGLISH)
+    val acceptHeader  = actionSelection.selectedResponseType.acceptHeaderOpt.map(header => escapeHeader(header.value)).getOrElse("")
+    val contentHeader = actionSelection.selectedContentType.contentTypeHeaderOpt.map(header => escapeHeader(header.value)).getOrElse("")
+    s"_request_${actionType}_${acceptHeader}_$contentHeader"
+  }
+
+  def jsonCodecField(canonicalType: String): String = {
+    val jsonPackage = (javaJackson.rewrittenDslBasePackage :+ "json").mkString(".")
+    val fieldName   = jsonCodecFieldName(canonicalType)
+    s"private static final $jsonPackage.JsonCodec $fieldName = $jsonPackage.Json.codecFor(${CleanNameTools.quoteString(canonicalType)});"
+  }
+
+  /**
+    * The dots of the canonical type become underscores and all other characters that cannot be part of a Java identifier are escaped as
+    * '$' with their four-digit hex code, so that distinct canonical types such as a.b_c and a_b.c never get the same field name.
+    */
+  def jsonCodecFieldName(canonicalType: String): String =
+    "_codec_" + canonicalType.map {
+      case '.'                          => "_"
+      case char if char.isLetterOrDigit => char.toString
+      case char                         => escapedIdentifierChar(char)
+    }.mkString
+
+  def escapedIdentifierChar(char: Char): String = f"$$${char.toInt}%04x"
+
   def sortQueryOrFormParameters(fieldParams: List[(String, Parameter)]): List[(String, Parameter)] = fieldParams.sortBy(_._1)
 
   def primitiveTypeToJavaType(primitiveType: PrimitiveType, required: Boolean): String = primitiveType match {
@@ -185,8 +255,8 @@ class JavaActionCodeGenerator(val javaJackson: CommonJavaJacksonPlatform) extend
 
   def getCallMethod: String =
     platform match {
-      case AndroidJavaJackson(_) => ""
-      case JavaJackson(_)        => ".call()"
+      case _: AndroidJavaJackson => ""
+      case _: JavaJackson        => ".call()"
     }
 
   def generateAction(actionSelection: ActionSelection,
@@ -214,13 +284,8 @@ class JavaActionCodeGenerator(val javaJackson: CommonJavaJacksonPlatform) extend
     val multipartParamsValue = if (isMultipartParams) "parts" else "null"
     val binaryParamValue     = if (isBinaryParam) "BinaryRequest.create(body)" else "null"
 
-    val expectedAcceptHeader      = actionSelection.selectedResponseType.acceptHeaderOpt
-    val expectedContentTypeHeader = actionSelection.selectedContentType.contentTypeHeaderOpt
-
-    val acceptHeader  = expectedAcceptHeader.map(acceptH            => s""""${acceptH.value}"""").getOrElse("null")
-    val contentHeader = expectedContentTypeHeader.map(contentHeader => s""""${contentHeader.value}"""").getOrElse("null")
-
-    val method = s"Method.${actionType.toString.toUpperCase(Locale.ENGLISH)}"
+    // The method and the expected headers are in the prepared request generated by sharedActionDefinitions.
+    val preparedRequest = preparedRequestFieldName(actionSelection)
 
     val (queryParamMap, queryParams) =
       if (queryParameterMapEntries.nonEmpty)
@@ -248,29 +313,35 @@ class JavaActionCodeGenerator(val javaJackson: CommonJavaJacksonPlatform) extend
       if (queryStringType.isDefined) "new TypedQueryParams(queryString)"
       else "null"
 
-    val canonicalResponseT = canonicalResponseType(responseType).map(CleanNameTools.quoteString).getOrElse("null")
+    // Typed actions refer to the codec constants generated by sharedActionDefinitions.
+    val canonicalTypeValue: String => String =
+      responseType match {
+        case typedResponseType: TypedResponseType => jsonCodecFieldName _
+        case _                                    => CleanNameTools.quoteString _
+      }
+
+    val canonicalResponseT = canonicalResponseType(responseType).map(canonicalTypeValue).getOrElse("null")
 
-    val canonicalContentT = canonicalContentType(contentType).map(CleanNameTools.quoteString).getOrElse("null")
+    val canonicalContentT = canonicalContentType(contentType).map(canonicalTypeValue).getOrElse("null")
 
     val callResponseType: String =
       platform match {
-        case AndroidJavaJackson(_) => segmentType
-        case JavaJackson(_)        => responseClassDefinition(responseType)
+        case _: AndroidJavaJackson => segmentType
+        case _: JavaJackson        => responseClassDefinition(responseType)
       }
 
     val primitiveBody = hasPrimitiveBody(segmentBodyType)
 
-    val callMethod = getCallMethod
-
-    s"""
-       public $callResponseType $actionTypeMethod(${actionParameters.mkString(", ")}) {
+    def actionMethod(methodName: String, returnType: String, callMethod: String, extraParameters: List[String] = List.empty): String =
+      s"""
+       public $returnType $methodName(${(actionParameters ++ extraParameters).mkString(", ")}) {
 
          $queryParamMap
 
          $formParamMap
 
          return new $segmentType(
-           $method,
+           $preparedRequest,
            $bodyFieldValue,
            $primitiveBody,
            $queryParams,
@@ -278,15 +349,48 @@ class JavaActionCodeGenerator(val javaJackson: CommonJavaJacksonPlatform) extend
            $formParams,
            $multipartParamsValue,
            $binaryParamValue,
-           $acceptHeader,
-           $contentHeader,
-           this.getRequestBuilder(),
+           this.getRequestPrefix(),
            $canonicalContentT,
            $canonicalResponseT
          )$callMethod;
        }
      """
 
+    val asyncAction = actionMethod(actionTypeMethod, callResponseType, getCallMethod)
+
+    val syncAction =
+      platform match {
+        case javaPlatform: JavaJackson if javaPlatform.options.synchronousActions =>
+          // The blocking variant of the action, e.g. getSync(...), returns the response itself.
+          Some(actionMethod(s"${actionTypeMethod}Sync", syncResponseClassDefinition(responseType), ".callSync()"))
+        case _ => None
+      }
+
+    val streamAction =
+      (platform, responseType) match {
+        case (javaPlatform: JavaJackson, TypedResponseType(_, ListClassPointer(elementType))) if javaPlatform.options.streamingActions =>
+          // The streaming variant of an action with a list response, e.g. getStream(...), parses the elements while they arrive.
+          val streamResponseType = s"CompletableFuture<Response<java.util.stream.Stream<${elementType.classDefinition}>>>"
+          Some(actionMethod(s"${actionTypeMethod}Stream", streamResponseType, ".stream()"))
+        case _ => None
+      }
+
+    val downloadAction =
+      (platform, responseType) match {
+        case (javaPlatform: JavaJackson, BinaryResponseType(_)) if javaPlatform.options.streamingActions =>
+          // The download variant of an action with a binary response, e.g. getDownload(...), writes the body to a channel as it arrives.
+          Some(
+            actionMethod(
+              s"${actionTypeMethod}Download",
+              "CompletableFuture<Response<Long>>",
+              ".download(downloadTarget, downloadProgress)",
+              List("java.nio.channels.WritableByteChannel downloadTarget", "DownloadProgress downloadProgress")
+            )
+          )
+        case _ => None
+      }
+
+    (asyncAction :: syncAction.toList ++ streamAction.toList ++ downloadAction.toList).mkString("\n\n")
   }
 
 }
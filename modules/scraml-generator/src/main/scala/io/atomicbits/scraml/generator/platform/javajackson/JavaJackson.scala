@@ -21,11 +21,15 @@
 package io.atomicbits.scraml.generator.platform.javajackson
 
 import io.atomicbits.scraml.generator.platform.Platform
+import io.atomicbits.scraml.ramlparser.parser.SourceFile
+
+import scala.collection.JavaConverters._
 
 /**
   * Created by peter on 10/01/17.
   */
-case class JavaJackson(apiBasePackageParts: List[String]) extends CommonJavaJacksonPlatform {
+case class JavaJackson(apiBasePackageParts: List[String], options: JavaJacksonOptions = JavaJacksonOptions())
+    extends CommonJavaJacksonPlatform {
 
   implicit val platform: Platform = this
 
@@ -35,4 +39,11 @@ case class JavaJackson(apiBasePackageParts: List[String]) extends CommonJavaJack
 
   override val rewrittenDslBasePackage: List[String] = apiBasePackageParts ++ List("dsl", "javajackson")
 
+  /**
+    * The JDK HTTP client needs Java 11, it is left out unless it is asked for so that the generated code still compiles on Java 8.
+    */
+  override def includesDslSource(dslSource: SourceFile): Boolean =
+    super.includesDslSource(dslSource) &&
+      (options.jdkHttpClient || !dslSource.filePath.iterator().asScala.exists(_.toString == "jdkhttp"))
+
 }
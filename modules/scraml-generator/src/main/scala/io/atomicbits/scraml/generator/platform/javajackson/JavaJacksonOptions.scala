@@ -0,0 +1,69 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+package io.atomicbits.scraml.generator.platform.javajackson
+
+/**
+  * Generation options for the Java Jackson and the Android Java Jackson platforms.
+  *
+  * @param lazyResources Generate accessor methods that create child resources on first use, instead of eagerly initialized fields.
+  * @param jdkHttpClient Include the client on the java.net.http.HttpClient (Java 11 and later) in the Java Jackson DSL and make it the
+  *                      default client. Ignored on Android.
+  * @param synchronousActions Generate a blocking variant next to each action, e.g. getSync(...) next to get(...), that returns the
+  *                           response instead of a future. Ignored on Android.
+  * @param streamingActions Generate a streaming variant next to each action with a list response, e.g. getStream(...), that parses the
+  *                         list elements while the response body comes in, and a download variant next to each action with a binary
+  *                         response, e.g. getDownload(...), that writes the body to a channel while it comes in. Ignored on Android.
+  * @param generatedCodecs Generate a Jackson serializer and deserializer for each transfer object outside a class hierarchy, registered
+  *                        in a generated TransferObjectModule, so that Jackson doesn't introspect these POJO classes at runtime.
+  */
+case class JavaJacksonOptions(lazyResources: Boolean      = false,
+                              jdkHttpClient: Boolean      = false,
+                              synchronousActions: Boolean = false,
+                              streamingActions: Boolean   = false,
+                              generatedCodecs: Boolean    = false)
+
+object JavaJacksonOptions {
+
+  val LAZY_RESOURCES: String = "lazyResources"
+
+  val JDK_HTTP_CLIENT: String = "jdkHttpClient"
+
+  val SYNCHRONOUS_ACTIONS: String = "synchronousActions"
+
+  val STREAMING_ACTIONS: String = "streamingActions"
+
+  val GENERATED_CODECS: String = "generatedCodecs"
+
+  /**
+    * Read the options from the (Java-friendly) key-value form that is passed to the ScramlGenerator. Unknown keys are ignored.
+    */
+  def fromMap(options: Map[String, String]): JavaJacksonOptions = {
+    def isEnabled(key: String): Boolean = options.get(key).exists(_.trim.equalsIgnoreCase("true"))
+
+    JavaJacksonOptions(
+      lazyResources      = isEnabled(LAZY_RESOURCES),
+      jdkHttpClient      = isEnabled(JDK_HTTP_CLIENT),
+      synchronousActions = isEnabled(SYNCHRONOUS_ACTIONS),
+      streamingActions   = isEnabled(STREAMING_ACTIONS),
+      generatedCodecs    = isEnabled(GENERATED_CODECS)
+    )
+  }
+
+}
@@ -0,0 +1,270 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.generator.platform.javajackson
+
+import io.atomicbits.scraml.generator.codegen.GenerationAggr
+import io.atomicbits.scraml.generator.typemodel._
+import io.atomicbits.scraml.generator.platform.Platform._
+import io.atomicbits.scraml.ramlparser.parser.SourceFile
+
+/**
+  * Generates a Jackson serializer and deserializer per transfer object and the TransferObjectModule that registers them, see the
+  * generatedCodecs option. The codecs read and write the fields through the getters and setters of the POJO, so Jackson doesn't
+  * need to introspect the POJO classes.
+  *
+  * Transfer objects in a class hierarchy keep their annotation driven (de)serialization, which takes care of their type info, and so
+  * do generic transfer objects.
+  */
+case class JsonCodecGenerator(javaJackson: CommonJavaJacksonPlatform) {
+
+  implicit val platform: CommonJavaJacksonPlatform = javaJackson
+
+  def hasCodec(toClassDefinition: TransferObjectClassDefinition, generationAggr: GenerationAggr): Boolean = {
+
+    def isGeneric(classPointer: ClassPointer): Boolean = {
+      val classReference = classPointer.native
+      classReference.isTypeParameter || classReference.typeParamValues.exists(isGeneric)
+    }
+
+    val canonicalName = toClassDefinition.reference.canonicalName
+    !generationAggr.isInHierarchy(canonicalName) && toClassDefinition.reference.typeParameters.isEmpty &&
+    !toClassDefinition.fields.exists(field => isGeneric(field.classPointer))
+  }
+
+  def codecClassReference(toClassDefinition: TransferObjectClassDefinition): ClassReference =
+    ClassReference(name = s"${toClassDefinition.reference.name}JsonCodec", packageParts = toClassDefinition.reference.packageParts)
+
+  def generate(generationAggr: GenerationAggr, toClassDefinition: TransferObjectClassDefinition): GenerationAggr = {
+
+    val toClassName    = toClassDefinition.reference.fullyQualifiedName
+    val codecReference = codecClassReference(toClassDefinition)
+    val dslBasePackage = platform.rewrittenDslBasePackage.mkString(".")
+    val fields         = toClassDefinition.fields.sortBy(_.safeFieldName) // The order of the fields in the POJO.
+
+    val fieldNames = fields.map { field =>
+      s"""private static final SerializedString ${field.safeFieldName}Name = new SerializedString("${field.fieldName}");"""
+    }
+
+    val valueFields = fields.filter(isValueField)
+
+    val serializerFields   = valueFields.map(field => s"private JsonSerializer<Object> ${field.safeFieldName}Serializer;")
+    val deserializerFields = valueFields.map(field => s"private JsonDeserializer<Object> ${field.safeFieldName}Deserializer;")
+
+    val serializerResolution =
+      valueFields.map { field =>
+        s"${field.safeFieldName}Serializer = provider.findTypedValueSerializer(${javaType(field, "provider")}, true, null);"
+      }
+
+    val deserializerResolution =
+      valueFields.map(field => s"${field.safeFieldName}Deserializer = ctxt.findRootValueDeserializer(${javaType(field, "ctxt")});")
+
+    val fieldWrites = fields.map { field =>
+      val name   = field.safeFieldName
+      val getter = s"value.get${name.capitalize}()"
+      val write =
+        field.classPointer match {
+          case StringClassPointer                => s"jgen.writeString($getter);"
+          case LongClassPointer(true)            => s"jgen.writeNumber($getter);"
+          case LongClassPointer(false)           => s"TransferObjectCodecs.writeLong($getter, jgen);"
+          case DoubleClassPointer(true)          => s"jgen.writeNumber($getter);"
+          case DoubleClassPointer(false)         => s"TransferObjectCodecs.writeDouble($getter, jgen);"
+          case BooleanClassPointer(true)         => s"jgen.writeBoolean($getter);"
+          case BooleanClassPointer(false)        => s"TransferObjectCodecs.writeBoolean($getter, jgen);"
+          case classPointer if isGenericType(classPointer) =>
+            s"TransferObjectCodecs.writeValue($getter, null, ${name}Serializer, jgen, provider);"
+          case classPointer =>
+            val declaredClass = s"${classPointer.fullyQualifiedClassDefinition}.class"
+            s"TransferObjectCodecs.writeValue($getter, $declaredClass, ${name}Serializer, jgen, provider);"
+        }
+      s"""
+         jgen.writeFieldName(${name}Name);
+         $write
+       """
+    }
+
+    val fieldReads = fields.map { field =>
+      val name = field.safeFieldName
+      val read =
+        field.classPointer match {
+          case StringClassPointer         => "TransferObjectCodecs.readString(jp, ctxt)"
+          case LongClassPointer(true)     => "TransferObjectCodecs.readLongValue(jp, ctxt)"
+          case LongClassPointer(false)    => "TransferObjectCodecs.readLong(jp, ctxt)"
+          case DoubleClassPointer(true)   => "TransferObjectCodecs.readDoubleValue(jp, ctxt)"
+          case DoubleClassPointer(false)  => "TransferObjectCodecs.readDouble(jp, ctxt)"
+          case BooleanClassPointer(true)  => "TransferObjectCodecs.readBooleanValue(jp, ctxt)"
+          case BooleanClassPointer(false) => "TransferObjectCodecs.readBoolean(jp, ctxt)"
+          case classPointer =>
+            s"(${classPointer.fullyQualifiedClassDefinition}) TransferObjectCodecs.readValue(jp, ctxt, ${name}Deserializer)"
+        }
+      s"""
+         case "${field.fieldName}":
+           value.set${name.capitalize}($read);
+           break;
+       """
+    }
+
+    val sourcecode =
+      s"""
+         package ${codecReference.packageName};
+
+         import com.fasterxml.jackson.core.JsonGenerator;
+         import com.fasterxml.jackson.core.JsonParser;
+         import com.fasterxml.jackson.core.JsonToken;
+         import com.fasterxml.jackson.core.io.SerializedString;
+         import com.fasterxml.jackson.core.type.TypeReference;
+         import com.fasterxml.jackson.databind.*;
+         import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
+         import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+         import $dslBasePackage.json.TransferObjectCodecs;
+
+         import java.io.IOException;
+
+         /**
+          * The Jackson serializer and deserializer of $toClassName.
+          */
+         public class ${codecReference.name} {
+
+           ${fieldNames.mkString("\n")}
+
+           public static class Serializer extends JsonSerializer<$toClassName> implements ResolvableSerializer {
+
+             ${serializerFields.mkString("\n")}
+
+             @Override
+             public void resolve(SerializerProvider provider) throws JsonMappingException {
+               ${serializerResolution.mkString("\n")}
+             }
+
+             @Override
+             public Class<$toClassName> handledType() {
+               return $toClassName.class;
+             }
+
+             @Override
+             public void serialize($toClassName value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+               jgen.writeStartObject();
+               ${fieldWrites.mkString("\n")}
+               jgen.writeEndObject();
+             }
+
+           }
+
+           public static class Deserializer extends JsonDeserializer<$toClassName> implements ResolvableDeserializer {
+
+             ${deserializerFields.mkString("\n")}
+
+             @Override
+             public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+               ${deserializerResolution.mkString("\n")}
+             }
+
+             @Override
+             @SuppressWarnings("unchecked")
+             public $toClassName deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+               JsonToken token = TransferObjectCodecs.startObject(jp, $toClassName.class);
+               $toClassName value = new $toClassName();
+               for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+                 String fieldName = jp.getCurrentName();
+                 jp.nextToken();
+                 switch (fieldName) {
+                   ${fieldReads.mkString("\n")}
+                   default:
+                     jp.skipChildren();
+                 }
+               }
+               return value;
+             }
+
+           }
+
+         }
+       """
+
+    generationAggr.addSourceFile(SourceFile(filePath = codecReference.toFilePath, content = sourcecode))
+  }
+
+  /**
+    * The TransferObjectModule replaces the empty module of the same name in the DSL sources.
+    */
+  def generateModule(generationAggr: GenerationAggr): GenerationAggr = {
+
+    val moduleReference = ClassReference(name = "TransferObjectModule", packageParts = platform.rewrittenDslBasePackage :+ "json")
+
+    val codecRegistrations =
+      generationAggr.toMap.values.toList
+        .filter(hasCodec(_, generationAggr))
+        .sortBy(_.reference.fullyQualifiedName)
+        .map { toClassDefinition =>
+          val toClassName = toClassDefinition.reference.fullyQualifiedName
+          val codecName   = codecClassReference(toClassDefinition).fullyQualifiedName
+          s"""
+             addSerializer($toClassName.class, new $codecName.Serializer());
+             addDeserializer($toClassName.class, new $codecName.Deserializer());
+           """
+        }
+
+    val sourcecode =
+      s"""
+         package ${moduleReference.packageName};
+
+         import com.fasterxml.jackson.core.Version;
+         import com.fasterxml.jackson.databind.module.SimpleModule;
+
+         /**
+          * The Jackson module with the generated serializers and deserializers of the transfer objects, Json registers it on its
+          * object mapper.
+          */
+         public class TransferObjectModule extends SimpleModule {
+
+           private static final long serialVersionUID = 1L;
+
+           public TransferObjectModule() {
+             super("TransferObjectModule", new Version(1, 0, 0, null, "io.atomicbits", "scraml"));
+             ${codecRegistrations.mkString("\n")}
+           }
+
+         }
+       """
+
+    generationAggr.addSourceFile(SourceFile(filePath = moduleReference.toFilePath, content = sourcecode))
+  }
+
+  /**
+    * Fields of any other type than string, number or boolean are written and read by the serializer and deserializer of their type.
+    */
+  private def isValueField(field: Field): Boolean =
+    field.classPointer match {
+      case StringClassPointer | LongClassPointer(_) | DoubleClassPointer(_) | BooleanClassPointer(_) => false
+      case _                                                                                        => true
+    }
+
+  private def isGenericType(classPointer: ClassPointer): Boolean = classPointer.native.typeParamValues.nonEmpty
+
+  /**
+    * The Java expression of the declared type of the field, a type reference keeps the type parameters of generic types.
+    */
+  private def javaType(field: Field, context: String): String = {
+    val classDefinition = field.classPointer.fullyQualifiedClassDefinition
+    if (isGenericType(field.classPointer)) s"$context.getTypeFactory().constructType(new TypeReference<$classDefinition>() {})"
+    else s"$context.constructType($classDefinition.class)"
+  }
+
+}
@@ -156,7 +156,12 @@ case class PojoGenerator(javaJackson: CommonJavaJacksonPlatform) extends SourceG
         content  = source
       )
 
-    generationAggrWithAddedInterfaces.addSourceFile(sourceFile)
+    val generationAggrWithSourceFile = generationAggrWithAddedInterfaces.addSourceFile(sourceFile)
+
+    val jsonCodecGenerator = JsonCodecGenerator(javaJackson)
+    if (javaJackson.options.generatedCodecs && jsonCodecGenerator.hasCodec(toClassDefinition, generationAggr))
+      jsonCodecGenerator.generate(generationAggrWithSourceFile, toClassDefinition)
+    else generationAggrWithSourceFile
   }
 
   private def generatePojoSource(toClassReference: ClassReference,
@@ -24,7 +24,6 @@ import io.atomicbits.scraml.generator.codegen.{ ActionGenerator, DslSourceRewrit
 import io.atomicbits.scraml.generator.platform.{ CleanNameTools, Platform, SourceGenerator }
 import io.atomicbits.scraml.generator.typemodel.ResourceClassDefinition
 import io.atomicbits.scraml.generator.platform.Platform._
-import io.atomicbits.scraml.generator.util.CleanNameUtil
 import io.atomicbits.scraml.ramlparser.parser.SourceFile
 
 /**
@@ -52,7 +51,6 @@ case class ResourceClassGenerator(javaJackson: CommonJavaJacksonPlatform) extend
     val setHeaderConstructorArgs = generateSetHeaderConstructorArguments(resourceClassDefinition)
 
     val className      = resourceClassReference.name
-    val classNameCamel = CleanNameUtil.camelCased(className)
 
     val dslBasePackage = platform.rewrittenDslBasePackage.mkString(".")
 
@@ -75,15 +73,11 @@ case class ResourceClassGenerator(javaJackson: CommonJavaJacksonPlatform) extend
              ${resourceConstructors.mkString("\n\n")}
 
              public $className addHeader(String key, String value) {
-               $className $classNameCamel = new $className(getRequestBuilder(), true);
-               $classNameCamel._requestBuilder.addHeader(key, value);
-               return $classNameCamel;
+               return new $className(getRequestPrefix().withAddedHeader(key, value), true);
              }
 
              public $className setHeader(String key, String value) {
-               $className $classNameCamel = new $className(getRequestBuilder(), true);
-               $classNameCamel._requestBuilder.setHeader(key, value);
-               return $classNameCamel;
+               return new $className(getRequestPrefix().withSetHeader(key, value), true);
              }
 
              ${dslFields.mkString("\n\n")}
@@ -108,26 +102,26 @@ case class ResourceClassGenerator(javaJackson: CommonJavaJacksonPlatform) extend
       case Some(paramClassReference) =>
         List(
           s"""
-               public ${resourceClassReference.name}(${paramClassReference.name} value, RequestBuilder requestBuilder) {
-                 super(value, requestBuilder);
+               public ${resourceClassReference.name}(${paramClassReference.name} value, RequestPrefix requestPrefix) {
+                 super(value, "${resource.urlSegment}", requestPrefix);
                }
              """,
           s"""
-               public ${resourceClassReference.name}(RequestBuilder requestBuilder, Boolean noPath) {
-                 super(requestBuilder);
+               public ${resourceClassReference.name}(RequestPrefix requestPrefix, Boolean noPath) {
+                 super(requestPrefix);
                }
              """
         )
       case None =>
         List(
           s"""
-               public ${resourceClassReference.name}(RequestBuilder requestBuilder) {
-                 super("${resource.urlSegment}", requestBuilder);
+               public ${resourceClassReference.name}(RequestPrefix requestPrefix) {
+                 super("${resource.urlSegment}", requestPrefix);
                }
              """,
           s"""
-             public ${resourceClassReference.name}(RequestBuilder requestBuilder, Boolean noPath) {
-               super(requestBuilder);
+             public ${resourceClassReference.name}(RequestPrefix requestPrefix, Boolean noPath) {
+               super(requestPrefix);
              }
            """
         )
@@ -159,18 +153,43 @@ case class ResourceClassGenerator(javaJackson: CommonJavaJacksonPlatform) extend
         val urlParamClassName = urlParamClassReference.name
         s"""
              public ${resourceClassRef.fullyQualifiedName} $cleanUrlSegment($urlParamClassName value) {
-               return new ${resourceClassRef.fullyQualifiedName}(value, this.getRequestBuilder());
+               return new ${resourceClassRef.fullyQualifiedName}(value, this.getRequestPrefix());
              }
             """
+      case None if platform.options.lazyResources && !reservedResourceMethodNames.contains(cleanUrlSegment) =>
+        // The child resource is only created when it is first used, and then kept for later use.
+        val lazyField = s"_${cleanUrlSegment}Resource"
+        s"""
+              private volatile ${resourceClassRef.fullyQualifiedName} $lazyField;
+
+              public ${resourceClassRef.fullyQualifiedName} $cleanUrlSegment() {
+                ${resourceClassRef.fullyQualifiedName} resource = $lazyField;
+                if (resource == null) {
+                  resource = new ${resourceClassRef.fullyQualifiedName}(this.getRequestPrefix());
+                  $lazyField = resource;
+                }
+                return resource;
+              }
+            """
       case None =>
         s"""
               public ${resourceClassRef.fullyQualifiedName} $cleanUrlSegment =
-                new ${resourceClassRef.fullyQualifiedName}(this.getRequestBuilder());
+                new ${resourceClassRef.fullyQualifiedName}(this.getRequestPrefix());
             """
 
     }
   }
 
+  /**
+    * Lazy child resources become no-arg methods, which may not clash with the action methods or the other no-arg methods on a resource
+    * or client class. Such children remain eagerly initialized fields.
+    */
+  private val reservedResourceMethodNames: Set[String] =
+    Set("get", "put", "post", "delete", "head", "patch", "options", "trace", "connect")
+      .flatMap(action => Set(action, s"${action}Sync", s"${action}Stream", s"${action}Download")) ++
+      Set("getRequestPrefix", "getRequestBuilder", "close") ++
+      Set("getClass", "hashCode", "toString", "notify", "notifyAll", "wait", "clone", "finalize")
+
   def generateAddHeaderConstructorArguments(resourceClassDefinition: ResourceClassDefinition): String =
     resourceClassDefinition.urlParamClassPointer() match {
       case Some(parameter) => "(_value, _requestBuilder.withAddedHeaders(newHeaders: _*))"
@@ -242,7 +242,7 @@ case class CaseClassGenerator(scalaPlay: ScalaPlay) extends SourceGenerator {
     val formatUnLiftFields = sortedFields.map(field => platform.fieldFormatUnlift(field, recursiveFields))
 
     def complexFormatterDefinition: (String, String) =
-      ("import play.api.libs.functional.syntax._", s"def jsonFormatter: Format[${toClassReference.classDefinition}] = ")
+      ("import play.api.libs.functional.syntax._", s"lazy val jsonFormatter: Format[${toClassReference.classDefinition}] = ")
 
     def complexTypedFormatterDefinition: (String, String) = {
       /*
@@ -321,6 +321,74 @@ case class CaseClassGenerator(scalaPlay: ScalaPlay) extends SourceGenerator {
        """
     }
 
+    def directFormatterDefinition: (String, String) = {
+      val dslBasePackage = platform.rewrittenDslBasePackage.mkString(".")
+      val definition =
+        if (toClassReference.typeParameters.isEmpty) {
+          s"val jsonFormatter: Format[${toClassReference.classDefinition}] = "
+        } else {
+          val typeParametersFormat = toClassReference.typeParameters.map(typeParameter => s"${typeParameter.name}: Format")
+          s"def jsonFormatter[${typeParametersFormat.mkString(",")}]: Format[${toClassReference.classDefinition}] = "
+        }
+      (s"import $dslBasePackage.json.DirectJson", definition)
+    }
+
+    /**
+      * A format that reads the fields straight from the JSON object and collects the errors of all fields, and that writes the fields
+      * into a single JSON object, without building any tuples. The field formats are lazy, so that recursive types resolve their own
+      * format only when it is first used.
+      */
+    def directFormatterBody = {
+      val indexedFields = sortedFields.zipWithIndex
+
+      val fieldFormats =
+        indexedFields.map {
+          case (field, index) =>
+            val fieldType = platform.classDefinition(field.classPointer)
+            s"private lazy val field${index}Format: Format[$fieldType] = Format.of[$fieldType]"
+        }
+
+      val fieldReads =
+        indexedFields.map {
+          case (field, index) =>
+            val readMethod = if (field.required) "required" else "optional"
+            s"""val field$index = reader.$readMethod("${field.fieldName}", field${index}Format)"""
+        }
+
+      val fieldWrites =
+        indexedFields.map {
+          case (field, index) =>
+            val writeMethod = if (field.required) "required" else "optional"
+            s"""writer.$writeMethod("${field.fieldName}", obj.${field.safeFieldName}, field${index}Format)"""
+        }
+
+      val fieldValues = indexedFields.map { case (_, index) => s"field$index" }
+
+      s"""
+         new Format[${toClassReference.classDefinition}] {
+
+           ${fieldFormats.mkString("\n")}
+
+           def reads(json: JsValue): JsResult[${toClassReference.classDefinition}] =
+             json match {
+               case jsObject: JsObject =>
+                 val reader = new DirectJson.FieldReader(jsObject)
+                 ${fieldReads.mkString("\n")}
+                 if (reader.isValid) JsSuccess(${toClassReference.name}(${fieldValues.mkString(", ")}))
+                 else reader.failure
+               case _ => DirectJson.expectedObject
+             }
+
+           def writes(obj: ${toClassReference.classDefinition}): JsValue = {
+             val writer = new DirectJson.FieldWriter
+             ${fieldWrites.mkString("\n")}
+             writer.result
+           }
+
+         }
+       """
+    }
+
     /**
       * The reason why we like to use the easy macro version below is that it resolves issues like the recursive
       * type problem that the elaborate "Complex version" has
@@ -359,14 +427,27 @@ case class CaseClassGenerator(scalaPlay: ScalaPlay) extends SourceGenerator {
     // ToDo: the jsonFormatter with the type discriminator and its value. Peek in the TypeHint implementation for how to do the latter
     val ((imports, formatter), body) =
       (hasTypeVariables, anyFieldRenamed, hasSingleField, hasOver22Fields, hasJsonTypeInfo, hasRecursiveFields) match {
-        case (true, _, true, _, _, _)       => (complexTypedFormatterDefinition, singleFieldFormatterBody)
-        case (true, _, _, true, _, _)       => (complexTypedFormatterDefinition, over22FieldFormatterBody)
-        case (true, _, _, _, _, _)          => (complexTypedFormatterDefinition, multiFieldFormatterBody)
-        case (false, _, true, _, _, _)      => (complexFormatterDefinition, singleFieldFormatterBody)
-        case (false, _, _, true, _, _)      => (complexFormatterDefinition, over22FieldFormatterBody)
-        case (false, true, false, _, _, _)  => (complexFormatterDefinition, multiFieldFormatterBody)
-        case (false, false, _, _, _, true)  => (complexFormatterDefinition, multiFieldFormatterBody)
-        case (false, false, _, _, _, false) => (simpleFormatter, "")
+        case _ if platform.options.directFormats => (directFormatterDefinition, directFormatterBody)
+        case (true, _, true, _, _, _)            => (complexTypedFormatterDefinition, singleFieldFormatterBody)
+        case (true, _, _, true, _, _)            => (complexTypedFormatterDefinition, over22FieldFormatterBody)
+        case (true, _, _, _, _, _)               => (complexTypedFormatterDefinition, multiFieldFormatterBody)
+        case (false, _, true, _, _, _)           => (complexFormatterDefinition, singleFieldFormatterBody)
+        case (false, _, _, true, _, _)           => (complexFormatterDefinition, over22FieldFormatterBody)
+        case (false, true, false, _, _, _)       => (complexFormatterDefinition, multiFieldFormatterBody)
+        case (false, false, _, _, _, true)       => (complexFormatterDefinition, multiFieldFormatterBody)
+        case (false, false, _, _, _, false)      => (simpleFormatter, "")
+      }
+
+    // The format of a type-parameterised class is built once for each combination of type parameter formats instead of on each implicit
+    // resolution, the format of the other classes is a (lazy) val.
+    val (formatterCache, cachedBody) =
+      if (hasTypeVariables) {
+        val dslBasePackage       = platform.rewrittenDslBasePackage.mkString(".")
+        val typeParameterFormats = toClassReference.typeParameters.map(typeParameter => s"implicitly[Format[${typeParameter.name}]]")
+        (s"private val jsonFormatterCache = new $dslBasePackage.json.FormatCache()",
+         s"jsonFormatterCache(${typeParameterFormats.mkString(", ")}) { $body }")
+      } else {
+        ("", body)
       }
 
     val objectName = toClassReference.name
@@ -389,8 +470,10 @@ case class CaseClassGenerator(scalaPlay: ScalaPlay) extends SourceGenerator {
        object $objectName {
        
          $imports
+
+         $formatterCache
        
-         $implicitFormatterOrNot $formatter $body
+         $implicitFormatterOrNot $formatter $cachedBody
          
          $formatterWithTypeField
 
@@ -112,7 +112,7 @@ case class ResourceClassGenerator(scalaPlay: ScalaPlay) extends SourceGenerator
     resourceClassDefinition.urlParamClassPointer().map(_.native) match {
       case Some(urlParamClassReference) =>
         val urlParamClassName = urlParamClassReference.name
-        s"""def $cleanUrlSegment(value: $urlParamClassName) = new ${resourceClassRef.fullyQualifiedName}(value, _requestBuilder.withAddedPathSegment(value))"""
+        s"""def $cleanUrlSegment(value: $urlParamClassName) = new ${resourceClassRef.fullyQualifiedName}(value, _requestBuilder.withAddedPathParameter("${resource.urlSegment}", value))"""
       case None =>
         s"""def $cleanUrlSegment = new ${resourceClassRef.fullyQualifiedName}(_requestBuilder.withAddedPathSegment("${resource.urlSegment}"))"""
     }
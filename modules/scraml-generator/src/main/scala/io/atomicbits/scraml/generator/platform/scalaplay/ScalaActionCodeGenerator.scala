@@ -222,8 +222,8 @@ case class ScalaActionCodeGenerator(scalaPlay: ScalaPlay) extends ActionCode {
 
     val primitiveBody: Boolean = hasPrimitiveBody(segmentBodyType)
 
-    s"""
-       def $actionTypeMethod(${actionParameters.mkString(", ")}) =
+    val segment =
+      s"""
          new $segmentType(
            method = $actionType,
            theBody = $bodyFieldValue,
@@ -240,8 +240,45 @@ case class ScalaActionCodeGenerator(scalaPlay: ScalaPlay) extends ActionCode {
            expectedAcceptHeader = $acceptHeader,
            expectedContentTypeHeader = $contentHeader,
            req = _requestBuilder
-         ).call()
-     """
+         )
+       """.trim
+
+    val asyncAction =
+      s"""
+         def $actionTypeMethod(${actionParameters.mkString(", ")}) =
+           $segment.call()
+       """
+
+    val streamAction =
+      actionSelection.selectedResponseType match {
+        case TypedResponseType(_, ListClassPointer(elementType)) if scalaPlay.options.streamingActions =>
+          Some(
+            s"""
+               def ${actionTypeMethod}Stream(${actionParameters.mkString(", ")}) =
+                 $segment.stream[${elementType.classDefinition}]()
+             """
+          )
+        case _ => None
+      }
+
+    val downloadAction =
+      actionSelection.selectedResponseType match {
+        case BinaryResponseType(_) if scalaPlay.options.streamingActions =>
+          val downloadParameters =
+            actionParameters ++ List(
+              "downloadTarget: java.nio.channels.WritableByteChannel",
+              "downloadProgress: Download.Progress = Download.NoProgress"
+            )
+          Some(
+            s"""
+               def ${actionTypeMethod}Download(${downloadParameters.mkString(", ")}) =
+                 $segment.download(downloadTarget, downloadProgress)
+             """
+          )
+        case _ => None
+      }
+
+    (asyncAction :: streamAction.toList ++ downloadAction.toList).mkString("\n")
   }
 
 }
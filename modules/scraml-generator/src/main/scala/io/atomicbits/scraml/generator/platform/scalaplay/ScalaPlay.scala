@@ -30,7 +30,9 @@ import io.atomicbits.scraml.generator.codegen.GenerationAggr
 /**
   * Created by peter on 10/01/17.
   */
-case class ScalaPlay(apiBasePackageParts: List[String]) extends Platform with CleanNameTools {
+case class ScalaPlay(apiBasePackageParts: List[String], options: ScalaPlayOptions = ScalaPlayOptions())
+    extends Platform
+    with CleanNameTools {
 
   val name: String = "Scala Play"
 
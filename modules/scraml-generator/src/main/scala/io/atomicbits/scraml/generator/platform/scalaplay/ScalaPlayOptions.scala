@@ -0,0 +1,52 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.generator.platform.scalaplay
+
+/**
+  * Generation options for the Scala Play platform.
+  *
+  * @param streamingActions Generate a streaming variant next to each action with a list response, e.g. getStream(...), that parses the
+  *                         list elements while the response body comes in, and a download variant next to each action with a binary
+  *                         response, e.g. getDownload(...), that writes the body to a channel while it comes in.
+  * @param directFormats    Generate play-json formats for the case classes that read and write their fields directly on the JSON object,
+  *                         instead of formats built with the functional builder combinators or the Json.format macro.
+  */
+case class ScalaPlayOptions(streamingActions: Boolean = false, directFormats: Boolean = false)
+
+object ScalaPlayOptions {
+
+  val STREAMING_ACTIONS: String = "streamingActions"
+
+  val DIRECT_FORMATS: String = "directFormats"
+
+  /**
+    * Read the options from the (Java-friendly) key-value form that is passed to the ScramlGenerator. Unknown keys are ignored.
+    */
+  def fromMap(options: Map[String, String]): ScalaPlayOptions = {
+    def isEnabled(key: String): Boolean = options.get(key).exists(_.trim.equalsIgnoreCase("true"))
+
+    ScalaPlayOptions(
+      streamingActions = isEnabled(STREAMING_ACTIONS),
+      directFormats    = isEnabled(DIRECT_FORMATS)
+    )
+  }
+
+}
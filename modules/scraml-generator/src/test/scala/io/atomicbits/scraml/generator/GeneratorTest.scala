@@ -22,8 +22,8 @@ package io.atomicbits.scraml.generator
 
 import io.atomicbits.scraml.generator.codegen.GenerationAggr
 import io.atomicbits.scraml.generator.platform.Platform
-import io.atomicbits.scraml.generator.platform.javajackson.JavaJackson
-import io.atomicbits.scraml.generator.platform.scalaplay.ScalaPlay
+import io.atomicbits.scraml.generator.platform.javajackson.{ JavaActionCodeGenerator, JavaJackson, JavaJacksonOptions }
+import io.atomicbits.scraml.generator.platform.scalaplay.{ ScalaPlay, ScalaPlayOptions }
 import io.atomicbits.scraml.generator.typemodel._
 import io.atomicbits.scraml.ramlparser.model.canonicaltypes.CanonicalName
 import org.scalatest.concurrent.ScalaFutures
@@ -151,6 +151,40 @@ class GeneratorTest extends AnyFeatureSpec with GivenWhenThen with BeforeAndAfte
       val bboxFieldClassPointer = generationAggr.toMap(geometryToClassName).fields.filter(_.fieldName == "bbox").head.classPointer
 
       bboxFieldClassPointer shouldBe ListClassPointer(DoubleClassPointer(primitive = false))
+
+      val pagedList = generationAggr.sourceFilesGenerated.find(_.filePath.toString == "io/atomicbits/schema/PagedList.scala").get.content
+
+      pagedList should include("private val jsonFormatterCache = new io.atomicbits.scraml.dsl.scalaplay.json.FormatCache()")
+      pagedList should include("jsonFormatterCache(implicitly[Format[T]], implicitly[Format[U]])")
+    }
+
+    Scenario("test generated Scala DSL with direct JSON formats") {
+
+      Given("a RAML specification")
+      val apiLocation = "io/atomicbits/scraml/TestApi.raml"
+
+      When("we generate the RAMl specification with the direct formats option")
+      implicit val platform: Platform = ScalaPlay(List("io", "atomicbits", "scraml"), ScalaPlayOptions(directFormats = true))
+
+      val generationAggr: GenerationAggr =
+        ScramlGenerator
+          .buildGenerationAggr(
+            ramlApiPath  = apiLocation,
+            apiClassName = "TestApi",
+            platform
+          )
+          .generate
+
+      Then("the case classes get formats that read and write their fields directly")
+
+      val user = generationAggr.sourceFilesGenerated.find(_.filePath.toString == "io/atomicbits/schema/User.scala").get.content
+
+      user should include("import io.atomicbits.scraml.dsl.scalaplay.json.DirectJson")
+      user should include("reader.required(\"firstName\", ")
+      user should include("reader.optional(\"homePage\", ")
+      user should include("writer.optional(\"homePage\", obj.homePage, ")
+      user should not include ("Json.format[User]")
+      user should not include ("play.api.libs.functional.syntax._")
     }
 
     Scenario("test generated Java DSL") {
@@ -220,5 +254,116 @@ class GeneratorTest extends AnyFeatureSpec with GivenWhenThen with BeforeAndAfte
       expectedFilePaths -- generatedFilePaths shouldBe Set.empty
     }
 
+    Scenario("test generated Java DSL with lazy child resources") {
+
+      Given("a RAML specification")
+      val apiLocation = "io/atomicbits/scraml/TestApi.raml"
+
+      When("we generate the RAMl specification with the lazy resources option")
+      implicit val platform = JavaJackson(List("io", "atomicbits", "scraml"), JavaJacksonOptions(lazyResources = true))
+
+      val generationAggr: GenerationAggr =
+        ScramlGenerator
+          .buildGenerationAggr(
+            ramlApiPath  = apiLocation,
+            apiClassName = "TestApi",
+            platform
+          )
+          .generate
+
+      Then("the child resources are accessor methods instead of eagerly initialized fields")
+
+      val restResource =
+        generationAggr.sourceFilesGenerated.find(_.filePath.toString == "io/atomicbits/scraml/rest/RestResource.java").get.content
+
+      restResource should include("public io.atomicbits.scraml.rest.user.UserResource user()")
+      restResource should not include ("public io.atomicbits.scraml.rest.user.UserResource user =")
+    }
+
+    Scenario("test the names of the generated JSON codec constants") {
+
+      Given("a Java action code generator")
+      val actionCodeGenerator = new JavaActionCodeGenerator(JavaJackson(List("io", "atomicbits", "scraml")))
+
+      When("we name the codec constants of canonical types that only differ in their dots and underscores")
+      val dotFirst        = actionCodeGenerator.jsonCodecFieldName("a.b_c")
+      val underscoreFirst = actionCodeGenerator.jsonCodecFieldName("a_b.c")
+
+      Then("the names are distinct Java identifiers")
+      dotFirst shouldBe "_codec_a_b$005fc"
+      underscoreFirst shouldBe "_codec_a$005fb_c"
+      actionCodeGenerator.jsonCodecFieldName("java.util.List<io.User>") shouldBe "_codec_java_util_List$003cio_User$003e"
+    }
+
+    Scenario("test the names of the generated prepared request constants") {
+
+      Given("a RAML specification with actions that only differ in their accept and content type headers")
+      val apiLocation = "io/atomicbits/scraml/TestApi.raml"
+
+      When("we generate the Java DSL")
+      implicit val platform = JavaJackson(List("io", "atomicbits", "scraml"))
+
+      val generationAggr: GenerationAggr =
+        ScramlGenerator
+          .buildGenerationAggr(
+            ramlApiPath  = apiLocation,
+            apiClassName = "TestApi",
+            platform
+          )
+          .generate
+
+      Then("each resource class declares distinct prepared request constants with the headers escaped")
+      val preparedRequestName = "PreparedRequest\\s+(_request_\\S+)\\s*=".r
+
+      generationAggr.sourceFilesGenerated.foreach { sourceFile =>
+        val names = preparedRequestName.findAllMatchIn(sourceFile.content).map(_.group(1)).toList
+        names.distinct shouldBe names
+      }
+
+      val useridResource =
+        generationAggr.sourceFilesGenerated
+          .find(_.filePath.toString == "io/atomicbits/scraml/rest/user/userid/UseridResource.java")
+          .get
+          .content
+
+      useridResource should include("_request_delete__ =")
+      useridResource should include("_request_post_application$002fjson_application$002fx$002dwww$002dform$002durlencoded =")
+    }
+
+    Scenario("test generated Java DSL with generated JSON codecs") {
+
+      Given("a RAML specification")
+      val apiLocation = "io/atomicbits/scraml/TestApi.raml"
+
+      When("we generate the RAMl specification with the generated codecs option")
+      implicit val platform = JavaJackson(List("io", "atomicbits", "scraml"), JavaJacksonOptions(generatedCodecs = true))
+
+      val generationAggr: GenerationAggr =
+        ScramlGenerator
+          .buildGenerationAggr(
+            ramlApiPath  = apiLocation,
+            apiClassName = "TestApi",
+            platform
+          )
+          .generate
+
+      Then("plain transfer objects get a codec that is registered in the transfer object module")
+
+      val generatedFilePaths = generationAggr.sourceFilesGenerated.map(_.filePath.toString).toSet
+
+      generatedFilePaths should contain("io/atomicbits/schema/UserJsonCodec.java")
+      generatedFilePaths should not contain ("io/atomicbits/schema/DogJsonCodec.java")
+      generatedFilePaths should not contain ("io/atomicbits/schema/PagedListJsonCodec.java")
+
+      val module =
+        generationAggr.sourceFilesGenerated
+          .find(_.filePath.toString == "io/atomicbits/scraml/dsl/javajackson/json/TransferObjectModule.java")
+          .get
+          .content
+
+      module should include("addSerializer(io.atomicbits.schema.User.class, new io.atomicbits.schema.UserJsonCodec.Serializer());")
+      module should not include ("io.atomicbits.schema.Dog.class")
+    }
+
   }
 }
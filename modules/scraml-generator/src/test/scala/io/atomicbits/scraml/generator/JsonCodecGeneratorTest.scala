@@ -0,0 +1,169 @@
+/*
+ *
+ * (C) Copyright 2018 Atomic BITS (http://atomicbits.io).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *  Contributors:
+ *      Peter Rigole
+ *
+ */
+
+package io.atomicbits.scraml.generator
+
+import java.io.{ ByteArrayOutputStream, File }
+import java.net.URLClassLoader
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import javax.tools.ToolProvider
+
+import com.fasterxml.jackson.annotation.JsonProperty
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.databind.module.SimpleModule
+import com.fasterxml.jackson.databind.{ JsonDeserializer, JsonNode, JsonSerializer, ObjectMapper }
+import io.atomicbits.scraml.dsl.androidjavajackson.json.{ Json => AndroidJson }
+import io.atomicbits.scraml.dsl.javajackson.json.Json
+import io.atomicbits.scraml.generator.platform.Platform
+import io.atomicbits.scraml.generator.platform.androidjavajackson.AndroidJavaJackson
+import io.atomicbits.scraml.generator.platform.javajackson.{ JavaJackson, JavaJacksonOptions }
+import org.scalatest.GivenWhenThen
+import org.scalatest.featurespec.AnyFeatureSpec
+import org.scalatest.matchers.should.Matchers._
+
+/**
+  * Compiles the generated transfer objects and their codecs and checks that the codecs read and write the same JSON as Jackson's
+  * annotation driven mapping of the transfer objects.
+  */
+class JsonCodecGeneratorTest extends AnyFeatureSpec with GivenWhenThen {
+
+  val transferObjects = List("io.atomicbits.schema.Person", "io.atomicbits.schema.PersonAddress")
+
+  val complete =
+    """{"active": true, "address": {"city": "Leuven"}, "age": 42, "class": "first", "first-name": "John", "tags": ["a"], "weight": 72.5}"""
+
+  val withNulls = """{"first-name": "John"}"""
+
+  val withUnknowns =
+    """{"unknown": {"nested": [1, {"deeper": null}]}, "first-name": "John", "other": 1, "address": {"city": "Leuven", "zip": "3000"}}"""
+
+  Feature("The generated JSON codecs map the transfer objects like their Jackson annotations do") {
+
+    Scenario("test the generated Java codecs") {
+
+      Given("the Java transfer objects and codecs generated from a RAML specification")
+      implicit val platform: Platform = JavaJackson(List("io", "atomicbits", "scraml"), JavaJacksonOptions(generatedCodecs = true))
+      val classLoader                 = compileTransferObjects(classOf[Json])
+
+      Then("the codecs read and write the same JSON as the annotation driven mapping")
+      assertSameMapping(classLoader, Json.getObjectMapper)
+    }
+
+    Scenario("test the generated Android codecs") {
+
+      Given("the Android transfer objects and codecs generated from a RAML specification")
+      implicit val platform: Platform = AndroidJavaJackson(List("io", "atomicbits", "scraml"), JavaJacksonOptions(generatedCodecs = true))
+      val classLoader                 = compileTransferObjects(classOf[AndroidJson])
+
+      Then("the codecs read and write the same JSON as the annotation driven mapping")
+      assertSameMapping(classLoader, AndroidJson.getObjectMapper)
+    }
+
+  }
+
+  private def compileTransferObjects(dslClass: Class[_])(implicit platform: Platform): ClassLoader = {
+
+    val apiResourceUrl = this.getClass.getClassLoader.getResource("generatedcodecs/CodecApi.raml")
+
+    val generationAggr =
+      ScramlGenerator
+        .buildGenerationAggr(
+          ramlApiPath  = apiResourceUrl.toString,
+          apiClassName = "CodecApi",
+          platform
+        )
+        .generate
+
+    val sourceDir = Files.createTempDirectory("generated-codecs")
+    val classDir  = Files.createTempDirectory("generated-codecs-classes")
+
+    val sourceFiles =
+      generationAggr.sourceFilesGenerated
+        .filter(_.filePath.toString.startsWith("io/atomicbits/schema/"))
+        .map { sourceFile =>
+          val file = sourceDir.resolve(sourceFile.filePath.toString)
+          Files.createDirectories(file.getParent)
+          Files.write(file, sourceFile.content.getBytes(StandardCharsets.UTF_8))
+          file.toString
+        }
+
+    sourceFiles.map(new File(_).getName) should contain allOf ("PersonJsonCodec.java", "PersonAddressJsonCodec.java")
+
+    val classPath =
+      List(classOf[JsonProperty], classOf[JsonGenerator], classOf[ObjectMapper], dslClass)
+        .map(dependency => new File(dependency.getProtectionDomain.getCodeSource.getLocation.toURI).getPath)
+        .mkString(File.pathSeparator)
+
+    val errors    = new ByteArrayOutputStream()
+    val arguments = List("-nowarn", "-d", classDir.toString, "-cp", classPath) ++ sourceFiles
+    val result    = ToolProvider.getSystemJavaCompiler.run(null, null, errors, arguments: _*)
+    withClue(errors.toString) { result shouldBe 0 }
+
+    new URLClassLoader(Array(classDir.toUri.toURL), dslClass.getClassLoader)
+  }
+
+  private def assertSameMapping(classLoader: ClassLoader, objectMapper: ObjectMapper): Unit = {
+
+    val annotationMapper = objectMapper.copy()
+
+    val codecModule = new SimpleModule("GeneratedCodecs")
+    transferObjects.foreach { className =>
+      def codec(name: String) = classLoader.loadClass(s"${className}JsonCodec$$$name").getConstructor().newInstance()
+      val toClass = classLoader.loadClass(className).asInstanceOf[Class[AnyRef]]
+      codecModule.addSerializer(toClass, codec("Serializer").asInstanceOf[JsonSerializer[AnyRef]])
+      codecModule.addDeserializer(toClass, codec("Deserializer").asInstanceOf[JsonDeserializer[AnyRef]])
+    }
+    val codecMapper = objectMapper.copy().registerModule(codecModule)
+
+    val personClass = classLoader.loadClass(transferObjects.head)
+
+    def roundTrip(json: String): JsonNode = {
+      def write(mapper: ObjectMapper, value: Any): JsonNode = annotationMapper.readTree(mapper.writeValueAsString(value))
+
+      val byAnnotations = annotationMapper.readValue(json, personClass)
+      val byCodec       = codecMapper.readValue(json, personClass)
+      val expected      = write(annotationMapper, byAnnotations)
+
+      write(codecMapper, byCodec) shouldBe expected
+      write(codecMapper, byAnnotations) shouldBe expected
+      write(annotationMapper, byCodec) shouldBe expected
+      expected
+    }
+
+    val person = roundTrip(complete)
+    person.get("first-name").asText shouldBe "John"
+    person.get("class").asText shouldBe "first"
+    person.get("address").get("city").asText shouldBe "Leuven"
+    person.has("firstname") shouldBe false
+
+    val personWithNulls = roundTrip(withNulls)
+    List("active", "address", "age", "class", "tags", "weight").foreach { fieldName =>
+      personWithNulls.get(fieldName).isNull shouldBe true
+    }
+
+    val personWithUnknowns = roundTrip(withUnknowns)
+    personWithUnknowns.has("unknown") shouldBe false
+    personWithUnknowns.has("other") shouldBe false
+    personWithUnknowns.get("address").has("zip") shouldBe false
+    personWithUnknowns.get("address").get("city").asText shouldBe "Leuven"
+  }
+
+}
@@ -47,6 +47,15 @@ object BuildSettings {
       // "-Ydelambdafy:method"
     )
 
+  val isJava11OrLater: Boolean = !sys.props("java.specification.version").startsWith("1.")
+
+  /**
+    * The java11 source directory next to the given source directory when the build runs on Java 11 or later.
+    */
+  def java11SourceDirectories(sourceDirectory: File): Seq[File] =
+    if (isJava11OrLater) Seq(sourceDirectory / "java11")
+    else Seq.empty
+
   def projectSettings(extraDependencies: Seq[ModuleID]) = Seq(
     organization := Organization,
     isSnapshot := version.value.endsWith(snapshotSuffix),